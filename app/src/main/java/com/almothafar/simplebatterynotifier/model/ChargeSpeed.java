@@ -65,7 +65,7 @@ public final class ChargeSpeed {
 	 * The higher-power of two estimates. {@link #unknown()} reports {@link #UNKNOWN_POWER_MW}
 	 * (&minus;1&nbsp;mW), so it loses to any real reading — a seed unknown is replaced by the first
 	 * usable sample. Used to carry the best reading across a series of samples (the plug-in speed sample
-	 * in {@code PowerConnectionReceiver}) so mid-ramp jitter can't drag the result back down. Pure so it
+	 * in {@code PowerConnectionStage}) so mid-ramp jitter can't drag the result back down. Pure so it
 	 * is unit-testable.
 	 *
 	 * @param a one estimate (typically the best carried forward)
@@ -0,0 +1,365 @@
+package com.almothafar.simplebatterynotifier.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * The battery-level alert thresholds as a ladder of any number of steps: discharge steps (each a
+ * warning, a critical or an urgent level) such as {@code 60, 40, 25, 15!, 8!, 4!!}, and charge steps
+ * such as {@code 80, 90, 100}. It generalizes the two-step {@link LevelThresholds} pair, which stays the
+ * ladder's primary warning and critical steps ({@link #thresholds}, {@link #withThresholds}).
+ * <p>
+ * The ladder is compiled once into two 101-entry tables indexed by the whole percentage, so judging a
+ * reading is one array index regardless of how many steps are configured:
+ * <ul>
+ *   <li>discharge — how many steps lie at/above the level (the deepest one crossed is that count − 1,
+ *       and the steps crossed so far are the low bits of a mask) and the most severe of them;</li>
+ *   <li>charge — how many charge steps lie at/below the level, and whether the level re-arms the
+ *       full-battery alert (above the primary warning step, at/below {@link #FULL_REARM_LEVEL}).</li>
+ * </ul>
+ * <b>Text form</b> (the settings editor's): levels separated by commas or spaces. A discharge level is a
+ * warning; suffixed with {@code !} it is critical, with {@code !!} urgent — an urgent level re-fires the
+ * critical alert on every drop, past the de-dupe. Order and duplicates don't matter (a duplicated level
+ * keeps its most severe kind); at most {@link #MAX_STEPS} of each are kept, the highest ones.
+ */
+public final class LevelLadder {
+
+	/** At most this many steps per side: one bit each in the de-dupe masks. */
+	public static final int MAX_STEPS = 16;
+	/** The urgent floor a migrated two-step ladder gets — the old hard-coded red-alert level. */
+	public static final int DEFAULT_URGENT_LEVEL = 4;
+	/** The highest level that re-arms the full-battery alert — the old hard-coded full percentage. */
+	public static final int FULL_REARM_LEVEL = 95;
+
+	private static final int TABLE_SIZE = 101;
+	private static final int COUNT_MASK = 0x1F;
+	private static final int SEVERITY_SHIFT = 5;
+	private static final int REARMS_FULL = 0x80;
+
+	private final int[] discharge;
+	private final Severity[] kinds;
+	private final int[] charge;
+	private final byte[] dischargeTable = new byte[TABLE_SIZE];
+	private final byte[] chargeTable = new byte[TABLE_SIZE];
+
+	private LevelLadder(int[] discharge, Severity[] kinds, int[] charge) {
+		this.discharge = discharge;
+		this.kinds = kinds;
+		this.charge = charge;
+		final int warning = primary(true);
+		final int rearmFloor = warning >= 0 ? warning : primary(false);
+		for (int percent = 0; percent < TABLE_SIZE; percent++) {
+			int crossed = 0;
+			Severity severity = Severity.NONE;
+			while (crossed < discharge.length && discharge[crossed] >= percent) {
+				severity = kinds[crossed].compareTo(severity) > 0 ? kinds[crossed] : severity;
+				crossed++;
+			}
+			dischargeTable[percent] = (byte) (crossed | severity.ordinal() << SEVERITY_SHIFT);
+
+			int reached = 0;
+			while (reached < charge.length && charge[reached] <= percent) {
+				reached++;
+			}
+			final boolean rearms = percent > rearmFloor && percent <= FULL_REARM_LEVEL;
+			chargeTable[percent] = (byte) (reached | (rearms ? REARMS_FULL : 0));
+		}
+	}
+
+	/**
+	 * The ladder of an install that only has the two-slider pair: warning, critical, and the urgent floor.
+	 * A critical level at/below the floor is itself urgent, as the old red-alert check made it.
+	 *
+	 * @param levels the critical/warning pair
+	 *
+	 * @return the equivalent ladder, without charge steps
+	 */
+	public static LevelLadder fromThresholds(LevelThresholds levels) {
+		return build(new int[]{levels.warning(), levels.critical(), Math.min(DEFAULT_URGENT_LEVEL, levels.critical())},
+				new Severity[]{Severity.WARNING, Severity.CRITICAL, Severity.URGENT}, new int[0]);
+	}
+
+	/**
+	 * Parses the editor's text form.
+	 *
+	 * @param dischargeText the discharge steps (must hold at least one)
+	 * @param chargeText    the charge steps, or null/blank for none
+	 *
+	 * @return the ladder, or null when either text doesn't follow the syntax
+	 */
+	public static LevelLadder parse(String dischargeText, String chargeText) {
+		if (isNull(dischargeText) || dischargeText.isBlank()) {
+			return null;
+		}
+		final String[] dischargeTokens = tokens(dischargeText);
+		final int[] levels = new int[dischargeTokens.length];
+		final Severity[] severities = new Severity[dischargeTokens.length];
+		for (int i = 0; i < dischargeTokens.length; i++) {
+			final String token = dischargeTokens[i];
+			final int marks = token.length() - token.replaceAll("!+$", "").length();
+			if (marks > 2) {
+				return null;
+			}
+			levels[i] = percent(token.substring(0, token.length() - marks));
+			severities[i] = Severity.values()[Severity.WARNING.ordinal() + marks];
+			if (levels[i] < 0) {
+				return null;
+			}
+		}
+		final String[] chargeTokens = isNull(chargeText) || chargeText.isBlank() ? new String[0] : tokens(chargeText);
+		final int[] charges = new int[chargeTokens.length];
+		for (int i = 0; i < chargeTokens.length; i++) {
+			charges[i] = percent(chargeTokens[i]);
+			if (charges[i] < 0) {
+				return null;
+			}
+		}
+		return build(levels, severities, charges);
+	}
+
+	/**
+	 * The pair the gauge colours and the two sliders show: the highest critical-or-urgent step and the
+	 * highest warning step. A kind the ladder has none of keeps the fallback's level, moved if need be to
+	 * stay on its side of the other, so the pair never collapses onto one level.
+	 *
+	 * @param fallback the pair shown so far, for a kind the ladder lacks
+	 *
+	 * @return the primary critical/warning pair
+	 */
+	public LevelThresholds thresholds(LevelThresholds fallback) {
+		final int critical = primary(false);
+		final int warning = primary(true);
+		if (critical < 0) {
+			return new LevelThresholds(Math.max(0, Math.min(fallback.critical(), warning - 1)), warning);
+		}
+		if (warning < 0) {
+			return new LevelThresholds(critical, Math.min(TABLE_SIZE - 1, Math.max(fallback.warning(), critical + 1)));
+		}
+		return new LevelThresholds(critical, warning);
+	}
+
+	/**
+	 * This ladder with its primary warning and critical steps moved to a new pair (the sliders' edit),
+	 * every other step kept.
+	 *
+	 * @param levels the new critical/warning pair
+	 *
+	 * @return the edited ladder
+	 */
+	public LevelLadder withThresholds(LevelThresholds levels) {
+		final LevelThresholds current = thresholds(levels);
+		final int[] levelsOut = Arrays.copyOf(discharge, discharge.length + 2);
+		final Severity[] kindsOut = Arrays.copyOf(kinds, kinds.length + 2);
+		boolean movedCritical = false;
+		boolean movedWarning = false;
+		for (int i = 0; i < discharge.length; i++) {
+			if (!movedCritical && kinds[i] != Severity.WARNING && discharge[i] == current.critical()) {
+				levelsOut[i] = levels.critical();
+				movedCritical = true;
+			} else if (!movedWarning && kinds[i] == Severity.WARNING && discharge[i] == current.warning()) {
+				levelsOut[i] = levels.warning();
+				movedWarning = true;
+			}
+		}
+		int size = discharge.length;
+		if (!movedCritical) {
+			levelsOut[size] = levels.critical();
+			kindsOut[size++] = Severity.CRITICAL;
+		}
+		if (!movedWarning) {
+			levelsOut[size] = levels.warning();
+			kindsOut[size++] = Severity.WARNING;
+		}
+		// Should an added kind overflow the cap, a lower step gives way rather than the new primary one.
+		return build(Arrays.copyOf(levelsOut, size), Arrays.copyOf(kindsOut, size), charge,
+				clamp(levels.critical()), clamp(levels.warning()));
+	}
+
+	/**
+	 * @return the discharge steps in the editor's text form, highest first
+	 */
+	public String dischargeText() {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < discharge.length; i++) {
+			text.append(i == 0 ? "" : ", ").append(discharge[i]).append("!".repeat(kinds[i].ordinal() - 1));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @return the charge steps in the editor's text form, lowest first
+	 */
+	public String chargeText() {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < charge.length; i++) {
+			text.append(i == 0 ? "" : ", ").append(charge[i]);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * The compiled discharge entry for a level; read with {@link #crossed} and {@link #severity}.
+	 *
+	 * @param percent the whole battery percentage (clamped to 0–100)
+	 */
+	public int dischargeEntry(int percent) {
+		return dischargeTable[clamp(percent)];
+	}
+
+	/**
+	 * The compiled charge entry for a level; read with {@link #reached} and {@link #rearmsFull}.
+	 *
+	 * @param percent the whole battery percentage (clamped to 0–100)
+	 */
+	public int chargeEntry(int percent) {
+		return chargeTable[clamp(percent)] & 0xFF;
+	}
+
+	/**
+	 * @return how many discharge steps a {@link #dischargeEntry} has crossed — the deepest is this − 1
+	 */
+	public static int crossed(int dischargeEntry) {
+		return dischargeEntry & COUNT_MASK;
+	}
+
+	/**
+	 * @return the most severe kind among the steps a {@link #dischargeEntry} has crossed
+	 */
+	public static Severity severity(int dischargeEntry) {
+		return Severity.values()[(dischargeEntry >> SEVERITY_SHIFT) & 0x3];
+	}
+
+	/**
+	 * @return how many charge steps a {@link #chargeEntry} has reached — the highest is this − 1
+	 */
+	public static int reached(int chargeEntry) {
+		return chargeEntry & COUNT_MASK;
+	}
+
+	/**
+	 * @return whether a {@link #chargeEntry}'s level re-arms the full-battery alert
+	 */
+	public static boolean rearmsFull(int chargeEntry) {
+		return (chargeEntry & REARMS_FULL) != 0;
+	}
+
+	/**
+	 * @return the mask of the first {@code count} steps — the steps crossed (or reached) at an entry
+	 */
+	public static int firstSteps(int count) {
+		return (1 << count) - 1;
+	}
+
+	/**
+	 * @return discharge step {@code index}'s level, highest first
+	 */
+	public int dischargeLevel(int index) {
+		return discharge[index];
+	}
+
+	/**
+	 * @return charge step {@code index}'s level, lowest first
+	 */
+	public int chargeLevel(int index) {
+		return charge[index];
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof final LevelLadder other && Arrays.equals(discharge, other.discharge)
+		       && Arrays.equals(kinds, other.kinds) && Arrays.equals(charge, other.charge);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Arrays.hashCode(discharge) + Arrays.hashCode(kinds)) + Arrays.hashCode(charge);
+	}
+
+	@Override
+	public String toString() {
+		return dischargeText() + " / " + chargeText();
+	}
+
+	/**
+	 * @return the highest warning step (or critical-or-urgent step), or −1 when the ladder has none
+	 */
+	private int primary(boolean warningKind) {
+		int highest = -1;
+		for (int i = 0; i < discharge.length; i++) {
+			if ((kinds[i] == Severity.WARNING) == warningKind) {
+				highest = Math.max(highest, discharge[i]);
+			}
+		}
+		return highest;
+	}
+
+	/**
+	 * Sorts, de-duplicates (keeping a level's most severe kind) and caps the steps, dropping the lowest
+	 * ones other than the pinned levels, then compiles.
+	 */
+	private static LevelLadder build(int[] levels, Severity[] severities, int[] charges, int... pinned) {
+		final Severity[] byLevel = new Severity[TABLE_SIZE];
+		for (int i = 0; i < levels.length; i++) {
+			final int level = clamp(levels[i]);
+			if (isNull(byLevel[level]) || severities[i].compareTo(byLevel[level]) > 0) {
+				byLevel[level] = severities[i];
+			}
+		}
+		int excess = (int) Arrays.stream(byLevel).filter(Objects::nonNull).count() - MAX_STEPS;
+		for (int level = 0; level < TABLE_SIZE && excess > 0; level++) {
+			final int candidate = level;
+			if (nonNull(byLevel[level]) && Arrays.stream(pinned).noneMatch(pin -> pin == candidate)) {
+				byLevel[level] = null;
+				excess--;
+			}
+		}
+		final int[] dischargeOut = new int[MAX_STEPS];
+		final Severity[] kindsOut = new Severity[MAX_STEPS];
+		int size = 0;
+		for (int level = TABLE_SIZE - 1; level >= 0; level--) {
+			if (nonNull(byLevel[level])) {
+				dischargeOut[size] = level;
+				kindsOut[size++] = byLevel[level];
+			}
+		}
+		final int[] chargeOut = Arrays.stream(charges).map(LevelLadder::clamp).distinct().sorted().limit(MAX_STEPS).toArray();
+		return new LevelLadder(Arrays.copyOf(dischargeOut, size), Arrays.copyOf(kindsOut, size), chargeOut);
+	}
+
+	private static String[] tokens(String text) {
+		return text.replaceAll("^[\\s,]+|[\\s,]+$", "").split("[\\s,]+");
+	}
+
+	/**
+	 * @return the token as a percentage (an optional trailing {@code %}), or −1 when it isn't one
+	 */
+	private static int percent(String token) {
+		final String digits = token.endsWith("%") ? token.substring(0, token.length() - 1) : token;
+		if (digits.isEmpty() || digits.length() > 3 || !digits.chars().allMatch(c -> c >= '0' && c <= '9')) {
+			return -1;
+		}
+		final int value = Integer.parseInt(digits);
+		return value >= 1 && value <= 100 ? value : -1;
+	}
+
+	private static int clamp(int percent) {
+		return Math.max(0, Math.min(TABLE_SIZE - 1, percent));
+	}
+
+	/**
+	 * How urgent a discharge step is, in increasing order.
+	 */
+	public enum Severity {
+		/** No step crossed. */
+		NONE,
+		/** The warning alert, once per step. */
+		WARNING,
+		/** The critical alert, once per step (or on every drop with "alert every tick"). */
+		CRITICAL,
+		/** The critical alert on every drop, past the de-dupe. */
+		URGENT
+	}
+}
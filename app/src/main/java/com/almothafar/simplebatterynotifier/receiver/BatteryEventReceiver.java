@@ -0,0 +1,178 @@
+package com.almothafar.simplebatterynotifier.receiver;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.service.AlertRules;
+import com.almothafar.simplebatterynotifier.service.AlertSettings;
+import com.almothafar.simplebatterynotifier.service.BatteryHealthTracker;
+import com.almothafar.simplebatterynotifier.service.BatteryHistoryLog;
+import com.almothafar.simplebatterynotifier.service.BatteryQuantiles;
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker;
+import com.almothafar.simplebatterynotifier.service.BatteryRollups;
+import com.almothafar.simplebatterynotifier.service.BatterySnapshotFeed;
+import com.almothafar.simplebatterynotifier.service.NotificationService;
+import com.almothafar.simplebatterynotifier.service.SamplingScheduler;
+import com.almothafar.simplebatterynotifier.service.SystemService;
+import com.almothafar.simplebatterynotifier.service.TickTransaction;
+
+import java.util.function.Consumer;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The single {@code ACTION_BATTERY_CHANGED} receiver: parses each broadcast once and runs the
+ * battery-event stages over that one reading, in the order {@link Stage} declares.
+ * <p>
+ * The plug-state and level receivers used to be registered side by side, each pulling its own extras
+ * out of the same intent, and {@link SystemService#getBatteryInfo} read the charge counter twice.
+ * Here the intent is parsed into one {@link BatteryDO} — every {@code BatteryManager} property read
+ * once — and every stage sees that same snapshot, the same {@link AlertSettings} and the rate computed
+ * for it. The stage order, previously implied by registration order, is now explicit: the plug-state
+ * change runs first so an unplug re-arms the level alerts before they are evaluated (#164).
+ * <p>
+ * A {@link SignificanceFilter} compares each reading with the last fully-evaluated one; voltage and
+ * temperature jitter only runs the cheap stages (the rate window, the live screens, the history, the
+ * quantiles and the alert rules) instead of re-running every stage.
+ * Every reading also sets the {@link SamplingScheduler} deadline, which calls back into {@link #sampleNow}
+ * when broadcasts stall.
+ */
+public class BatteryEventReceiver extends BroadcastReceiver {
+
+	private static final String TAG = BatteryEventReceiver.class.getSimpleName();
+
+	/**
+	 * The stages each battery broadcast runs through, in declaration order.
+	 */
+	enum Stage {
+		/** Charger connected/disconnected: the charge-speed message and the charge-session reset. */
+		PLUG_STATE(false, tick -> PowerConnectionStage.onBatteryChanged(tick.context, tick.battery)),
+		/** Feed the charge/drain rate window (#108); later stages reuse the rate it returns. */
+		RATE_WINDOW(true, tick -> tick.rate = BatteryRateTracker.record(tick.context, tick.battery)),
+		/** Push the reading and rate to the open screens; cheap, so they see every reading. */
+		LIVE_SNAPSHOT(true, tick -> BatterySnapshotFeed.publish(tick.battery, tick.rate)),
+		/** Keep the foreground-service status notification live with this reading and rate. */
+		ONGOING_NOTIFICATION(false, tick -> NotificationService.updateOngoingNotification(tick.context, tick.battery, tick.rate)),
+		/**
+		 * The long-term history log and the hourly/daily roll-ups behind the insights trends; every reading,
+		 * voltage included.
+		 */
+		HISTORY(true, tick -> {
+			BatteryHistoryLog.append(tick.context, tick.battery);
+			BatteryRollups.record(tick.context, tick.battery, tick.rate, tick.significant);
+		}),
+		/**
+		 * Current, charging-power and temperature quantiles per session and day; every reading, since spikes
+		 * read as jitter.
+		 */
+		QUANTILES(true, tick -> BatteryQuantiles.record(tick.context, tick.battery, tick.significant)),
+		/** Battery health and charge-cycle accrual. */
+		HEALTH(false, tick -> BatteryHealthTracker.recordBatteryState(tick.context, tick.battery.getBatteryPercentageInt(), tick.battery.getStatus())),
+		/** Critical/warning/full level alerts. */
+		LEVEL_ALERTS(false, tick -> LevelAlertStage.evaluateLevelAlerts(tick.context, tick.battery, tick.settings)),
+		/**
+		 * The temperature, fast-drain and slow-charge alerts and the custom rules, in one pass over the
+		 * compiled table; cheap, so none misses a reading.
+		 */
+		ALERT_RULES(true, tick -> AlertRules.evaluate(tick.context, tick.battery, tick.rate, tick.settings)),
+		/** Set the next reading's deadline from this one; cheap, so every reading moves it. */
+		SAMPLING_DEADLINE(true, tick -> SamplingScheduler.onReading(tick.battery, tick.settings));
+
+		// Whether the stage also runs on a tick the SignificanceFilter judged to be jitter.
+		private final boolean cheap;
+		private final Consumer<Tick> action;
+
+		Stage(boolean cheap, Consumer<Tick> action) {
+			this.cheap = cheap;
+			this.action = action;
+		}
+	}
+
+	private final SignificanceFilter filter = new SignificanceFilter();
+
+	@Override
+	public void onReceive(Context context, Intent intent) {
+		// Registered for ACTION_BATTERY_CHANGED (see PowerConnectionService), so the delivered intent
+		// already carries the battery state — no need to re-query the sticky broadcast (#159). The action
+		// check guards against unexpected/spoofed intents.
+		if (isNull(intent) || !Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+			Log.w(TAG, "Ignoring unexpected broadcast: " + (isNull(intent) ? "null intent" : intent.getAction()));
+			return;
+		}
+		dispatch(context, intent, filter, Stage.values());
+	}
+
+	/**
+	 * Takes a reading without a broadcast and runs it through the same stages, for when the
+	 * {@link SamplingScheduler} deadline passes with no broadcast. The sticky intent supplies the extras;
+	 * the current and the charge counter are read fresh. Call on the battery worker.
+	 *
+	 * @param context The application context
+	 */
+	public void sampleNow(Context context) {
+		final Intent batteryStatus = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+		if (isNull(batteryStatus)) {
+			Log.w(TAG, "No sticky battery broadcast to sample");
+			return;
+		}
+		dispatch(context, batteryStatus, filter, Stage.values());
+	}
+
+	/**
+	 * Runs the given stages over the broadcast regardless of significance. For tests.
+	 *
+	 * @param context The application context
+	 * @param intent  The delivered {@code ACTION_BATTERY_CHANGED} intent
+	 * @param stages  The stages to run
+	 */
+	static void dispatch(Context context, Intent intent, Stage... stages) {
+		dispatch(context, intent, null, stages);
+	}
+
+	/**
+	 * Parses the broadcast once and runs the stages over it, in order, inside one write-behind
+	 * transaction: every tracker's preference writes are collected and each file is flushed once when
+	 * the tick ends. An insignificant tick runs only the cheap stages.
+	 *
+	 * @param context The application context
+	 * @param intent  The delivered {@code ACTION_BATTERY_CHANGED} intent
+	 * @param filter  The significance gate, or null to take the full path
+	 * @param stages  The stages to run
+	 */
+	private static void dispatch(Context context, Intent intent, SignificanceFilter filter, Stage[] stages) {
+		TickTransaction.begin();
+		try {
+			// With a non-null intent this never returns null.
+			final Tick tick = new Tick(context, SystemService.getBatteryInfo(context, intent), AlertSettings.current(context));
+			tick.significant = isNull(filter) || filter.admit(tick.battery, tick.settings, System.currentTimeMillis());
+			for (final Stage stage : stages) {
+				if (tick.significant || stage.cheap) {
+					stage.action.accept(tick);
+				}
+			}
+		} finally {
+			TickTransaction.end();
+		}
+	}
+
+	/**
+	 * What the stages share for one broadcast: the single parsed reading, the settings snapshot, whether
+	 * the reading is significant, and the rate once {@link Stage#RATE_WINDOW} has computed it.
+	 */
+	static final class Tick {
+		final Context context;
+		final BatteryDO battery;
+		final AlertSettings settings;
+		boolean significant;
+		BatteryRateTracker.BatteryRate rate;
+
+		Tick(Context context, BatteryDO battery, AlertSettings settings) {
+			this.context = context;
+			this.battery = battery;
+			this.settings = settings;
+		}
+	}
+}
@@ -20,8 +20,8 @@ public class BootCompletedIntentReceiver extends BroadcastReceiver {
 	/**
 	 * Called when the BOOT_COMPLETED broadcast is received
 	 * <p>
-	 * Starts the PowerConnectionService which will register all necessary
-	 * battery monitoring receivers (BatteryLevelReceiver, PowerConnectionReceiver).
+	 * Starts the PowerConnectionService which will register the
+	 * battery monitoring receiver (BatteryEventReceiver).
 	 *
 	 * @param context The context in which the receiver is running
 	 * @param intent  The intent being received (should be ACTION_BOOT_COMPLETED)
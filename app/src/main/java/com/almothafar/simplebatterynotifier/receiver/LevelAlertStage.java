@@ -0,0 +1,258 @@
+package com.almothafar.simplebatterynotifier.receiver;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import androidx.preference.PreferenceManager;
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.model.LevelLadder;
+import com.almothafar.simplebatterynotifier.service.AlertRules;
+import com.almothafar.simplebatterynotifier.service.AlertSettings;
+import com.almothafar.simplebatterynotifier.service.AlertType;
+import com.almothafar.simplebatterynotifier.service.NotificationService;
+import com.almothafar.simplebatterynotifier.service.TickTransaction;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * The level-alert stage of {@link BatteryEventReceiver}.
+ * Sends notifications when battery reaches a step of the alert ladder ({@link LevelLadder}) or becomes full.
+ * <p>
+ * Alert episode state (level-alert de-dupe, full-once-per-charge) is
+ * persisted in {@link SharedPreferences} so it survives process death (#164) — doze, OEM task
+ * killers and memory pressure routinely kill a background-monitoring app, and in-memory state
+ * previously reset mid-episode, firing duplicate alerts. The logic follows a
+ * load → pure decide → save-on-change pattern; the temperature, fast-drain and slow-charge alerts are
+ * rules in {@link AlertRules}.
+ * <p>
+ * <b>Threading:</b> there is deliberately no lock. This stage and the unplug reset
+ * ({@link PowerConnectionStage} → {@link #onChargerDisconnected}) all run from the one battery
+ * receiver on the single battery worker thread (see {@code PowerConnectionService} and
+ * {@link com.almothafar.simplebatterynotifier.service.BatteryWorker}), so all state access is
+ * serialized by the worker's looper, off the main thread.
+ */
+public final class LevelAlertStage {
+
+	// Persisted alert episode state (survives process restarts, #164).
+	private static final String PREF_PREV_LEVEL = "_level_alert_prev_level";
+	// Written by versions before the alert ladder: the last level alert's type, read once on upgrade.
+	private static final String PREF_PREV_TYPE = "_level_alert_prev_type";
+	private static final String PREF_ALERTED_STEPS = "_level_alert_steps";
+	private static final String PREF_REACHED_CHARGE_STEPS = "_level_alert_charge_steps";
+	private static final String PREF_FULL_NOTIFIED = "_level_alert_full_notified";
+
+	private LevelAlertStage() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Charger-disconnect reset: re-arms the alerts whose episode is bounded by a charge session —
+	 * the full-battery alert, the charge steps and the discharge steps' de-dupe — so the new session
+	 * can alert afresh. Deliberately <b>not</b> reset (#164):
+	 * <ul>
+	 *   <li>{@code prevLevel} — the next broadcast still compares against the real last-seen level,
+	 *       so an unchanged level keeps skipping the discharge branch;</li>
+	 *   <li>the temperature alert's streak ({@link AlertRules}) — a hot spell doesn't end at unplug;
+	 *       cooling below the threshold by its hysteresis is its only re-arm.</li>
+	 * </ul>
+	 *
+	 * @param context The application context
+	 */
+	public static void onChargerDisconnected(final Context context) {
+		// Runs in the plug-state stage of the same tick, so its write coalesces with the level stage's.
+		final SharedPreferences prefs = TickTransaction.wrap(PreferenceManager.getDefaultSharedPreferences(context));
+		final LevelAlertState state = loadLevelState(prefs, AlertSettings.current(context).ladder());
+		final LevelAlertState reset = new LevelAlertState(state.prevLevel(), 0, 0, false);
+		if (!reset.equals(state)) {
+			saveLevelState(prefs, reset);
+		}
+	}
+
+	/**
+	 * The level-alert stage: judges this reading against the alert ladder and the full-battery alert,
+	 * persisting the episode state only when it changes.
+	 *
+	 * @param context   The application context
+	 * @param batteryDO This broadcast's reading
+	 * @param settings  The settings snapshot for this tick
+	 */
+	static void evaluateLevelAlerts(Context context, BatteryDO batteryDO, AlertSettings settings) {
+		final int status = batteryDO.getStatus();
+		final boolean isCharging = status == BatteryManager.BATTERY_STATUS_CHARGING;
+		final boolean isFull = status == BatteryManager.BATTERY_STATUS_FULL;
+
+		final SharedPreferences sharedPref = TickTransaction.wrap(PreferenceManager.getDefaultSharedPreferences(context));
+		final LevelAlertConfig config = new LevelAlertConfig(
+				settings.ladder(),
+				settings.warningEnabled(),
+				settings.fullNotifyEnabled(),
+				settings.alertEveryTick());
+
+		final LevelAlertState previous = loadLevelState(sharedPref, config.ladder());
+		final LevelAlertDecision decision = decideLevelAlert(previous, batteryDO.getBatteryPercentageInt(), isCharging, isFull, config);
+
+		// Persist only on change: most broadcasts (voltage/temperature deltas) re-decide an identical
+		// state, and rewriting it would churn SharedPreferences on every tick.
+		if (!decision.newState().equals(previous)) {
+			saveLevelState(sharedPref, decision.newState());
+		}
+		if (nonNull(decision.notifyType())) {
+			NotificationService.sendNotification(context, decision.notifyType(), decision.notifyLevel());
+		}
+	}
+
+	/**
+	 * Pure decision core for the ladder and full level alerts, unit-testable with no Android
+	 * dependencies (#164). A changed level while discharging is judged against the discharge steps; an
+	 * unchanged level or a charging/full state runs the charge-step and full-battery logic instead — the
+	 * same split the receiver has always used, now explicit.
+	 *
+	 * @param state      current persisted episode state
+	 * @param percentage current battery percentage (whole, via the single rounding policy #158)
+	 * @param charging   whether the battery status is {@code BATTERY_STATUS_CHARGING}
+	 * @param full       whether the battery status is {@code BATTERY_STATUS_FULL}
+	 * @param config     the user's alert ladder and toggles
+	 *
+	 * @return which alert to send now ({@code null} for none), for which step, and the new state to persist
+	 */
+	static LevelAlertDecision decideLevelAlert(final LevelAlertState state, final int percentage,
+	                                           final boolean charging, final boolean full,
+	                                           final LevelAlertConfig config) {
+		final boolean levelChanged = state.prevLevel() != percentage;
+		if (levelChanged && !charging) {
+			return decideDischarging(state, percentage, config);
+		}
+		return decideChargingOrFull(state, percentage, charging || full, full, config);
+	}
+
+	/**
+	 * The discharging side: one table lookup gives the deepest step crossed and the most severe kind
+	 * among the steps crossed; a step alerts once per discharge session (its bit in the de-dupe mask),
+	 * except that an urgent step — and a critical one with "alert every tick" — re-fires on every drop.
+	 * Crossing several steps at once alerts only the deepest, and marks them all; rising back above a
+	 * step re-arms it, as the old warning/critical de-dupe re-armed on leaving a band.
+	 */
+	private static LevelAlertDecision decideDischarging(final LevelAlertState state, final int percentage,
+	                                                    final LevelAlertConfig config) {
+		final LevelLadder ladder = config.ladder();
+		final int entry = ladder.dischargeEntry(percentage);
+		final int crossed = LevelLadder.crossed(entry);
+		if (crossed == 0) {
+			return new LevelAlertDecision(null, 0, new LevelAlertState(percentage, 0,
+					state.reachedChargeSteps(), state.fullNotified()));
+		}
+		final boolean stepAlerted = (state.alertedSteps() & (1 << (crossed - 1))) != 0;
+		final AlertType notifyType = switch (LevelLadder.severity(entry)) {
+			case URGENT -> AlertType.CRITICAL;
+			case CRITICAL -> !stepAlerted || config.alertEveryTick() ? AlertType.CRITICAL : null;
+			case WARNING -> !stepAlerted && config.warningEnabled() ? AlertType.WARNING : null;
+			case NONE -> null;
+		};
+		// The steps crossed are marked; those the level has risen back above are cleared.
+		final int alertedSteps = LevelLadder.firstSteps(crossed);
+		return new LevelAlertDecision(notifyType, ladder.dischargeLevel(crossed - 1),
+				new LevelAlertState(percentage, alertedSteps, state.reachedChargeSteps(), state.fullNotified()));
+	}
+
+	/**
+	 * The charging-or-unchanged side: the full alert fires once per charge session, re-armed once
+	 * the level has genuinely dropped out of the full band while staying above the warning band; each
+	 * charge step alerts once per charge session, the highest newly reached one when several are.
+	 */
+	private static LevelAlertDecision decideChargingOrFull(final LevelAlertState state, final int percentage,
+	                                                       final boolean onCharge, final boolean full,
+	                                                       final LevelAlertConfig config) {
+		final LevelLadder ladder = config.ladder();
+		final int entry = ladder.chargeEntry(percentage);
+		boolean fullNotified = state.fullNotified();
+		int reachedChargeSteps = state.reachedChargeSteps();
+		AlertType notifyType = null;
+		int notifyLevel = 0;
+
+		if (!fullNotified && full && config.fullNotifyEnabled()) {
+			notifyType = AlertType.FULL;
+			notifyLevel = percentage;
+			fullNotified = true;
+		}
+		if (onCharge) {
+			final int reached = LevelLadder.reached(entry);
+			final boolean newStep = reached > 0 && (reachedChargeSteps & (1 << (reached - 1))) == 0;
+			if (newStep && notifyType == null && config.fullNotifyEnabled()) {
+				notifyType = AlertType.CHARGE_LEVEL;
+				notifyLevel = ladder.chargeLevel(reached - 1);
+			}
+			reachedChargeSteps |= LevelLadder.firstSteps(reached);
+		}
+		if (LevelLadder.rearmsFull(entry)) {
+			fullNotified = false;
+		}
+		return new LevelAlertDecision(notifyType, notifyLevel,
+				new LevelAlertState(percentage, state.alertedSteps(), reachedChargeSteps, fullNotified));
+	}
+
+	/**
+	 * Loads the episode state. State written before the alert ladder has a last alert type instead of
+	 * step masks: a type on record means every step crossed at the last level was already alerted.
+	 */
+	static LevelAlertState loadLevelState(final SharedPreferences prefs, final LevelLadder ladder) {
+		final int prevLevel = prefs.getInt(PREF_PREV_LEVEL, 0);
+		final int alertedSteps = prefs.contains(PREF_ALERTED_STEPS)
+		                         ? prefs.getInt(PREF_ALERTED_STEPS, 0)
+		                         : legacyAlertedSteps(AlertType.fromPersistedId(prefs.getInt(PREF_PREV_TYPE, 0)), prevLevel, ladder);
+		return new LevelAlertState(
+				prevLevel,
+				alertedSteps,
+				prefs.getInt(PREF_REACHED_CHARGE_STEPS, 0),
+				prefs.getBoolean(PREF_FULL_NOTIFIED, false));
+	}
+
+	static void saveLevelState(final SharedPreferences prefs, final LevelAlertState state) {
+		prefs.edit()
+		     .putInt(PREF_PREV_LEVEL, state.prevLevel())
+		     .putInt(PREF_ALERTED_STEPS, state.alertedSteps())
+		     .putInt(PREF_REACHED_CHARGE_STEPS, state.reachedChargeSteps())
+		     .putBoolean(PREF_FULL_NOTIFIED, state.fullNotified())
+		     .remove(PREF_PREV_TYPE)
+		     .apply();
+	}
+
+	private static int legacyAlertedSteps(AlertType prevType, int prevLevel, LevelLadder ladder) {
+		return prevType == AlertType.CRITICAL || prevType == AlertType.WARNING
+		       ? LevelLadder.firstSteps(LevelLadder.crossed(ladder.dischargeEntry(prevLevel)))
+		       : 0;
+	}
+
+	/**
+	 * Persisted level-alert episode state (#164). The masks hold one bit per ladder step, in the
+	 * ladder's order; an edit of the ladder mid-session can at worst skip or repeat one alert until the
+	 * charger-disconnect reset.
+	 *
+	 * @param prevLevel          the percentage seen on the previous broadcast (gates the discharge branch)
+	 * @param alertedSteps       the discharge steps alerted (or passed) this discharge session
+	 * @param reachedChargeSteps the charge steps alerted (or passed) this charge session
+	 * @param fullNotified       whether the full-battery alert has fired this charge session
+	 */
+	record LevelAlertState(int prevLevel, int alertedSteps, int reachedChargeSteps, boolean fullNotified) {
+	}
+
+	/**
+	 * The user's alert ladder and toggles (reduces parameter count, like {@code NotificationConfig}).
+	 *
+	 * @param ladder            the compiled discharge and charge steps
+	 * @param warningEnabled    whether the warning alert is enabled
+	 * @param fullNotifyEnabled whether the full-battery and charge-step alerts are enabled
+	 * @param alertEveryTick    whether critical steps repeat on every level tick
+	 */
+	record LevelAlertConfig(LevelLadder ladder, boolean warningEnabled, boolean fullNotifyEnabled, boolean alertEveryTick) {
+	}
+
+	/**
+	 * Result of {@link #decideLevelAlert}: which alert to send now, and the state to persist.
+	 *
+	 * @param notifyType  the alert to send, or {@code null} for none
+	 * @param notifyLevel the step the alert is for (the level, for the full alert)
+	 * @param newState    the state to persist
+	 */
+	record LevelAlertDecision(AlertType notifyType, int notifyLevel, LevelAlertState newState) {
+	}
+}
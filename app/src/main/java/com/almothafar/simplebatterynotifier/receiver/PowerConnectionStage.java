@@ -1,6 +1,5 @@
 package com.almothafar.simplebatterynotifier.receiver;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -17,7 +16,7 @@ import com.almothafar.simplebatterynotifier.service.SystemService;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Broadcast receiver for power connection/disconnection events.
+ * Power connection/disconnection events: the plug-state stage of {@link BatteryEventReceiver}.
  * <p>
  * When the device is plugged in, this reports what's actually useful — the estimated charging speed
  * and whether it's wired or wireless — rather than the old, often-misleading "AC charger connected"
@@ -29,13 +28,13 @@ import java.util.concurrent.atomic.AtomicInteger;
  * delay after connection (see {@link #CHARGE_SAMPLE_DELAY_MS}) rather than synchronously here. The
  * foreground {@code PowerConnectionService} keeps the process alive across that delay.
  */
-public class PowerConnectionReceiver extends BroadcastReceiver {
+public final class PowerConnectionStage {
 
-	private static final String TAG = PowerConnectionReceiver.class.getSimpleName();
+	private static final String TAG = PowerConnectionStage.class.getSimpleName();
 
 	/**
 	 * Delay between charge-current samples, giving it time to stabilise after plug-in.
-	 * Package-visible so tests can advance the main looper by exactly this amount.
+	 * Package-visible so tests can advance the looper by exactly this amount.
 	 */
 	static final long CHARGE_SAMPLE_DELAY_MS = 2000L;
 
@@ -55,18 +54,23 @@ public class PowerConnectionReceiver extends BroadcastReceiver {
 	/**
 	 * Previous plugged state to prevent duplicate notifications for the same state.
 	 * <p>
-	 * Atomic because BroadcastReceivers can run concurrently: the dedupe must read, compare and
-	 * update in one operation ({@link AtomicInteger#getAndSet}), or two quick broadcasts could both
-	 * see the stale state and both pass (issue #156). -1 means "unknown", so the first broadcast
+	 * Atomic because the service seeds it on the main thread while the stage runs on the battery
+	 * worker: the dedupe must read, compare and update in one operation ({@link AtomicInteger#getAndSet}),
+	 * or two quick updates could both see the stale state and both pass (issue #156). -1 means "unknown", so the first broadcast
 	 * after process start always processes.
 	 */
 	private static final AtomicInteger currentState = new AtomicInteger(-1);
 
-	// Main-thread handler used to sample the charging speed a short delay after connection. Static so a
+	// Handler the pending charge-speed sample was posted to: the looper the broadcast was delivered on
+	// (the battery worker in production), so samples stay serialized with the broadcasts. Static so a
 	// stale pending sample can be cancelled if the charger is unplugged (or re-plugged) during the delay.
-	private static final Handler sampleHandler = new Handler(Looper.getMainLooper());
+	private static Handler sampleHandler;
 	private static Runnable pendingSample;
 
+	private PowerConnectionStage() {
+		// Utility class - prevent instantiation
+	}
+
 	/**
 	 * Update the current plugged state without triggering a notification. Used by
 	 * {@code PowerConnectionService} to seed the state at service start, so the first broadcast
@@ -79,35 +83,24 @@ public class PowerConnectionReceiver extends BroadcastReceiver {
 	}
 
 	/**
-	 * Called when a battery-changed broadcast is received
+	 * The plug-state stage of {@link BatteryEventReceiver}, run first on every battery broadcast.
 	 * <p>
-	 * This method determines the current battery state, detects whether charging is wired or
+	 * This method determines whether the plugged state changed, detects whether charging is wired or
 	 * wireless, and schedules the charge-connected notification for the user.
 	 *
-	 * @param context The context in which the receiver is running
-	 * @param intent  The delivered {@code ACTION_BATTERY_CHANGED} intent
+	 * @param context   The context the battery broadcast was delivered to
+	 * @param batteryDO This broadcast's reading
 	 */
-	@Override
-	public void onReceive(final Context context, final Intent intent) {
-		// The receiver is registered for ACTION_BATTERY_CHANGED (see PowerConnectionService), so the
-		// delivered intent already carries the battery state — no need to re-query the sticky
-		// broadcast (#159). The action check guards against unexpected/spoofed intents.
-		if (intent == null || !Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
-			Log.w(TAG, "Ignoring unexpected broadcast: " + (intent == null ? "null intent" : intent.getAction()));
-			return;
-		}
-
-		final int pluggedState = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, -1);
+	static void onBatteryChanged(Context context, BatteryDO batteryDO) {
+		final int pluggedState = batteryDO.getPlugged();
 		// Read-compare-update in one atomic step: a check-then-act here let two quick broadcasts
 		// both pass the dedupe (issue #156).
 		if (currentState.getAndSet(pluggedState) == pluggedState) {
 			return; // Same state as before, avoid duplicate notifications
 		}
 
-		final int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-		final int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-		// Through the single rounding policy (#158) — also guards the scale=-1 default the raw division didn't.
-		final int percentage = new BatteryDO().setLevel(level).setScale(scale).getBatteryPercentageInt();
+		// Through the single rounding policy (#158).
+		final int percentage = batteryDO.getBatteryPercentageInt();
 
 		if (pluggedState > 0) {
 			// Charger connected
@@ -129,7 +122,7 @@ public class PowerConnectionReceiver extends BroadcastReceiver {
 	 * @param pluggedState The type of charger plugged in
 	 * @param percentage   Current battery percentage
 	 */
-	private void handleChargerConnected(final Context context, final int pluggedState, final int percentage) {
+	private static void handleChargerConnected(final Context context, final int pluggedState, final int percentage) {
 		final boolean wireless = pluggedState == BatteryManager.BATTERY_PLUGGED_WIRELESS;
 		final Context appContext = context.getApplicationContext();
 
@@ -152,13 +145,13 @@ public class PowerConnectionReceiver extends BroadcastReceiver {
 	 * Handle charger disconnected event
 	 * <p>
 	 * Cancels any pending speed sample, re-arms the charge-session alerts (full-battery + level
-	 * de-dupe — see {@link BatteryLevelReceiver#onChargerDisconnected}) and clears active notifications.
+	 * de-dupe — see {@link LevelAlertStage#onChargerDisconnected}) and clears active notifications.
 	 *
 	 * @param context The application context
 	 */
-	private void handleChargerDisconnected(final Context context) {
+	private static void handleChargerDisconnected(final Context context) {
 		cancelPendingSample();
-		BatteryLevelReceiver.onChargerDisconnected(context);
+		LevelAlertStage.onChargerDisconnected(context);
 		NotificationService.clearNotifications(context);
 
 		Log.i(TAG, "Charger disconnected");
@@ -253,13 +246,15 @@ public class PowerConnectionReceiver extends BroadcastReceiver {
 	}
 
 	/**
-	 * Schedule the delayed charge sample, cancelling any previously scheduled one so a quick
-	 * unplug/replug doesn't fire twice.
+	 * Schedule the delayed charge sample on the calling thread's looper (the thread broadcasts are
+	 * delivered on), cancelling any previously scheduled one so a quick unplug/replug doesn't fire twice.
 	 *
 	 * @param sample The sampling task to run after {@link #CHARGE_SAMPLE_DELAY_MS}
 	 */
 	private static synchronized void scheduleSample(final Runnable sample) {
 		cancelPendingSample();
+		final Looper looper = Looper.myLooper();
+		sampleHandler = new Handler(looper == null ? Looper.getMainLooper() : looper);
 		pendingSample = sample;
 		sampleHandler.postDelayed(sample, CHARGE_SAMPLE_DELAY_MS);
 	}
@@ -271,6 +266,7 @@ public class PowerConnectionReceiver extends BroadcastReceiver {
 		if (pendingSample != null) {
 			sampleHandler.removeCallbacks(pendingSample);
 			pendingSample = null;
+			sampleHandler = null;
 		}
 	}
 }
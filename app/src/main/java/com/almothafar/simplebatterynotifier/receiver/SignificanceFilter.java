@@ -0,0 +1,176 @@
+package com.almothafar.simplebatterynotifier.receiver;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.service.AlertSettings;
+import com.almothafar.simplebatterynotifier.util.AppPrefs;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Decides whether a battery broadcast changed anything worth the full stage chain.
+ * <p>
+ * Most {@code ACTION_BATTERY_CHANGED} deliveries are voltage or temperature jitter: the level, status
+ * and plug state are unchanged, and the temperature and current are within a margin of the last
+ * fully-evaluated reading. Such a tick only runs the cheap stages — the rate window, the open screens,
+ * the history log and the quantiles (see {@link BatteryEventReceiver.Stage}); the health accrual, the
+ * alerts, the detectors and the ongoing-notification re-post run only on a significant tick, or once
+ * {@link Thresholds#maxQuietMillis} has passed since the last full evaluation so the sustained-condition
+ * detectors still see time move.
+ * <p>
+ * The margins are measured from the last admitted reading, not from fixed buckets, so a value hovering
+ * on a bucket edge doesn't flap between significant and not; a slow drift still counts once it has
+ * moved a whole margin. The thresholds are the user's, from the settings snapshot
+ * ({@link AlertSettings#jitterTemperatureTenths}, {@link AlertSettings#jitterCurrentMicroAmps},
+ * {@link AlertSettings#fullEvaluationMs}), re-read only when the snapshot changes.
+ * <p>
+ * The last fully-evaluated reading is held in memory by the receiver instance: after process death the
+ * first broadcast always takes the full path, so nothing persisted depends on it.
+ */
+public final class SignificanceFilter {
+
+	private static final AtomicLong EVALUATED_TICKS = new AtomicLong();
+	private static final AtomicLong SKIPPED_TICKS = new AtomicLong();
+
+	private Thresholds thresholds;
+	private AlertSettings thresholdsSource;
+	private Reading lastReading;
+	private long lastFullAtMillis;
+
+	SignificanceFilter() {
+		this(Thresholds.DEFAULTS);
+	}
+
+	/**
+	 * @param thresholds the margins and quiet period to compare with. For tests.
+	 */
+	SignificanceFilter(Thresholds thresholds) {
+		this.thresholds = thresholds;
+	}
+
+	/**
+	 * Broadcasts that took the full path since process start.
+	 */
+	public static long evaluatedTicks() {
+		return EVALUATED_TICKS.get();
+	}
+
+	/**
+	 * Broadcasts that took the cheap path since process start.
+	 */
+	public static long skippedTicks() {
+		return SKIPPED_TICKS.get();
+	}
+
+	/**
+	 * Whether this reading takes the full path, judged with the settings' thresholds.
+	 *
+	 * @param batteryDO this broadcast's reading
+	 * @param settings  the settings snapshot for this tick
+	 * @param nowMillis the wall-clock time of the broadcast
+	 *
+	 * @return true for the full path, false for the cheap path
+	 */
+	boolean admit(BatteryDO batteryDO, AlertSettings settings, long nowMillis) {
+		if (settings != thresholdsSource) {
+			thresholds = Thresholds.of(settings);
+			thresholdsSource = settings;
+		}
+		return admit(batteryDO, nowMillis);
+	}
+
+	/**
+	 * Whether this reading takes the full path with the current thresholds; if so it becomes the new
+	 * reference reading.
+	 *
+	 * @param batteryDO this broadcast's reading
+	 * @param nowMillis the wall-clock time of the broadcast
+	 *
+	 * @return true for the full path, false for the cheap path
+	 */
+	boolean admit(BatteryDO batteryDO, long nowMillis) {
+		final Reading reading = Reading.of(batteryDO);
+		if (!isSignificant(lastReading, lastFullAtMillis, reading, nowMillis, thresholds)) {
+			SKIPPED_TICKS.incrementAndGet();
+			return false;
+		}
+		lastReading = reading;
+		lastFullAtMillis = nowMillis;
+		EVALUATED_TICKS.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Pure significance rule, unit-testable with no Android dependencies. A tick is significant when there
+	 * is no reference yet, when the level, status or plug state differs, when the temperature or current
+	 * has moved at least its margin from the reference, when {@code maxQuietMillis} has elapsed since the
+	 * reference, or when the clock went backwards (the elapsed time can't be trusted).
+	 *
+	 * @param last       the last fully-evaluated reading, or null after process start
+	 * @param lastFullAt when {@code last} was evaluated
+	 * @param now        this broadcast's reading
+	 * @param nowMillis  this broadcast's time
+	 * @param thresholds the comparison thresholds
+	 *
+	 * @return true when the full stage chain should run
+	 */
+	static boolean isSignificant(Reading last, long lastFullAt, Reading now, long nowMillis, Thresholds thresholds) {
+		if (isNull(last) || last.level() != now.level() || last.status() != now.status() || last.plugged() != now.plugged()) {
+			return true;
+		}
+		if (Math.abs(now.temperatureTenths() - last.temperatureTenths()) >= thresholds.temperatureMarginTenths()
+				|| currentMoved(last.currentMicroAmps(), now.currentMicroAmps(), thresholds.currentMarginMicroAmps())) {
+			return true;
+		}
+		final long elapsed = nowMillis - lastFullAt;
+		return elapsed < 0 || elapsed >= thresholds.maxQuietMillis();
+	}
+
+	/**
+	 * Whether the current moved at least {@code margin}; the current becoming available or unavailable
+	 * ({@link Integer#MIN_VALUE}) always counts.
+	 */
+	private static boolean currentMoved(int last, int now, int margin) {
+		if (last == Integer.MIN_VALUE || now == Integer.MIN_VALUE) {
+			return last != now;
+		}
+		return Math.abs((long) now - last) >= margin;
+	}
+
+	/**
+	 * How far a reading must move from the reference to count.
+	 *
+	 * @param temperatureMarginTenths temperature margin in tenths of a degree Celsius
+	 * @param currentMarginMicroAmps  current margin in µA
+	 * @param maxQuietMillis          longest time a run of insignificant ticks may go without a full evaluation
+	 */
+	record Thresholds(int temperatureMarginTenths, int currentMarginMicroAmps, long maxQuietMillis) {
+
+		/** The settings' defaults: 1 °C, 50 mA, and a full evaluation at least once a minute. */
+		static final Thresholds DEFAULTS = new Thresholds(AppPrefs.DEFAULT_JITTER_TEMPERATURE_C * 10,
+				AppPrefs.DEFAULT_JITTER_CURRENT_MA * 1000, AppPrefs.DEFAULT_FULL_EVALUATION_SECONDS * 1000L);
+
+		static Thresholds of(AlertSettings settings) {
+			return new Thresholds(settings.jitterTemperatureTenths(), settings.jitterCurrentMicroAmps(),
+					settings.fullEvaluationMs());
+		}
+	}
+
+	/**
+	 * The fields of a reading the comparison looks at.
+	 *
+	 * @param level             whole battery percentage
+	 * @param status            {@code BatteryManager.BATTERY_STATUS_*}
+	 * @param plugged           {@code BatteryManager.BATTERY_PLUGGED_*}, 0 on battery
+	 * @param temperatureTenths temperature in tenths of a degree Celsius
+	 * @param currentMicroAmps  current in µA, {@link Integer#MIN_VALUE} when unavailable
+	 */
+	record Reading(int level, int status, int plugged, int temperatureTenths, int currentMicroAmps) {
+
+		static Reading of(BatteryDO batteryDO) {
+			return new Reading(batteryDO.getBatteryPercentageInt(), batteryDO.getStatus(), batteryDO.getPlugged(),
+					batteryDO.getTemperature(), batteryDO.getCurrentMicroAmps());
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Outcome;
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.RepeatPolicy;
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Streak;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.isNull;
+
+/**
+ * One declarative alert rule: "the {@link Metric} compared with a threshold, while charging or
+ * discharging, for a sustained window, with hysteresis and a repeat policy" — the shape every sustained
+ * alert already had, built on {@link SustainedConditionTracker}.
+ * <p>
+ * The built-in temperature, fast-drain and slow-charge alerts are rules ({@link #highTemperature},
+ * {@link #fastDrain}, {@link #slowCharge}), compiled with the custom rules into the settings'
+ * {@link AlertRuleSet}; custom rules are parsed from one line of text each ({@link #parse}):
+ * <pre>
+ *   [charging|discharging] metric op number [unit] [while charging|discharging] [for N s|m|h]
+ *       [hysteresis number] [remind N s|m|h]
+ * </pre>
+ * e.g. {@code voltage < 3.5 V while discharging for 2m} or {@code charging temperature > 40 °C}. The
+ * metric is one of level (%), temperature (°C), voltage (V), current (mA), rate (%/h) or power (W, while
+ * charging); op is {@code < <= > >=} or {@code below}/{@code above}. Without {@code remind} a rule fires
+ * once per episode; with it, it reminds on that gap while the screen is off or locked, like the
+ * fast-drain alert.
+ * <p>
+ * A streak of a rule with a sustained window lapses after {@link SustainedConditionTracker#MAX_OBSERVATION_GAP_MS}
+ * without an observation, since continuity beyond that is unknowable; an instant rule (no window) holds
+ * its alerted state across any gap, as the temperature alert always has. Pure, so it is unit-testable.
+ *
+ * @param source        the rule as written (shown in its notification), or the built-in alert's name
+ * @param metric        what is measured
+ * @param comparison    how the reading is compared with the threshold
+ * @param threshold     the threshold in the metric's stored unit ({@link Metric#scale})
+ * @param gate          while charging, while discharging, or always
+ * @param sustainedMs   how long the condition must hold before the first alert (0 = at once)
+ * @param hysteresis    how far back across the threshold (stored unit) a held condition must go to clear
+ * @param repeat        fire once per episode, or remind while the screen is off or locked
+ * @param reminderGapMs the gap between reminders (used with {@link Repeat#REMIND_IN_BACKGROUND})
+ */
+record AlertRule(String source, Metric metric, Comparison comparison, int threshold, Gate gate,
+                 long sustainedMs, int hysteresis, Repeat repeat, long reminderGapMs) {
+
+	private static final Pattern SYNTAX = Pattern.compile(
+			"(?:(charging|discharging)\\s+)?(level|temperature|voltage|current|rate|power)\\s*(<=|>=|<|>|below|above)\\s*"
+					+ "(\\d+(?:\\.\\d+)?)\\s*(?:%/h|%|°c|c|v|ma|w)?"
+					+ "(?:\\s+while\\s+(charging|discharging))?"
+					+ "(?:\\s+for\\s+(\\d+)\\s*(s|m|min|h))?"
+					+ "(?:\\s+hysteresis\\s+(\\d+(?:\\.\\d+)?))?"
+					+ "(?:\\s+remind\\s+(\\d+)\\s*(s|m|min|h))?");
+
+	/**
+	 * How far (in °C) the battery must cool below the threshold before another high-temperature alert can
+	 * fire. Hysteresis prevents repeated alerts during a single hot spell.
+	 */
+	static final int TEMPERATURE_HYSTERESIS_C = 3;
+
+	// At most this many digits in a duration, so neither the parse nor the conversion to millis overflows.
+	private static final int MAX_DURATION_DIGITS = 12;
+
+	/**
+	 * The high-temperature alert (#18): at/above the threshold at once, once per hot spell, re-armed only
+	 * after cooling {@link #TEMPERATURE_HYSTERESIS_C} below it.
+	 *
+	 * @param enabled whether the alert is on; a disabled built-in stays in its slot and never holds
+	 */
+	static AlertRule highTemperature(boolean enabled, int thresholdC) {
+		return new AlertRule("temperature", Metric.TEMPERATURE, Comparison.AT_OR_ABOVE, thresholdC * 10,
+				enabled ? Gate.ANY : Gate.NEVER, 0, TEMPERATURE_HYSTERESIS_C * 10, Repeat.ONCE, 0);
+	}
+
+	/**
+	 * The fast-drain alert (#109): the drain rate at/above the limit while discharging for the sustained
+	 * window, reminding while the screen is off or locked.
+	 */
+	static AlertRule fastDrain(boolean enabled, int limitPph, long sustainedMs, long reminderGapMs) {
+		return new AlertRule("fast-drain", Metric.RATE, Comparison.AT_OR_ABOVE, limitPph,
+				enabled ? Gate.DISCHARGING : Gate.NEVER, sustainedMs, 0, Repeat.REMIND_IN_BACKGROUND, reminderGapMs);
+	}
+
+	/**
+	 * The slow-charge alert (#123): the averaged wired charging power below the floor for the sustained
+	 * window, once per charge session.
+	 */
+	static AlertRule slowCharge(boolean enabled) {
+		return new AlertRule("slow-charge", Metric.SLOW_CHARGE_POWER, Comparison.BELOW, SlowChargeDetector.FLOOR_MILLIWATTS,
+				enabled ? Gate.CHARGE_SESSION : Gate.NEVER, SlowChargeDetector.SUSTAINED_MS, 0, Repeat.ONCE, 0);
+	}
+
+	/**
+	 * Parses one custom rule.
+	 *
+	 * @param line the rule text
+	 *
+	 * @return the rule, or null when the line is blank or doesn't follow the syntax
+	 */
+	static AlertRule parse(String line) {
+		if (isNull(line) || line.isBlank()) {
+			return null;
+		}
+		final String source = line.trim().replaceAll("\\s+", " ");
+		final Matcher match = SYNTAX.matcher(source.toLowerCase(Locale.ROOT));
+		if (!match.matches() || (match.group(1) != null && match.group(5) != null)) {
+			return null;
+		}
+		final Metric metric = Metric.valueOf(match.group(2).toUpperCase(Locale.ROOT));
+		final String gate = match.group(1) != null ? match.group(1) : match.group(5);
+		final long sustainedMs = durationMs(match.group(6), match.group(7));
+		final long reminderGapMs = durationMs(match.group(9), match.group(10));
+		if (sustainedMs < 0 || reminderGapMs < 0) {
+			return null;
+		}
+		return new AlertRule(source, metric, Comparison.of(match.group(3)), metric.toStored(match.group(4)),
+				gate == null ? Gate.ANY : Gate.valueOf(gate.toUpperCase(Locale.ROOT)),
+				sustainedMs, match.group(8) == null ? 0 : metric.toStored(match.group(8)),
+				match.group(9) == null ? Repeat.ONCE : Repeat.REMIND_IN_BACKGROUND, reminderGapMs);
+	}
+
+	/**
+	 * Whether the condition holds for a reading, with hysteresis: a condition already holding (a streak
+	 * is running) only clears once the reading is back across the threshold by more than the hysteresis.
+	 * Shared by {@link #decide} and the compiled {@link AlertRuleSet}.
+	 *
+	 * @param holding whether the condition held on the last observation
+	 */
+	static boolean holds(Comparison comparison, int value, int threshold, int hysteresis, boolean holding) {
+		return switch (comparison) {
+			case ABOVE -> value > threshold || (holding && value > threshold - hysteresis);
+			case AT_OR_ABOVE -> value >= threshold || (holding && value > threshold - hysteresis);
+			case BELOW -> value < threshold || (holding && value < threshold + hysteresis);
+			case AT_OR_BELOW -> value <= threshold || (holding && value < threshold + hysteresis);
+		};
+	}
+
+	/**
+	 * Decides one tick of this rule. The gate is the caller's: a rule whose gate isn't met should clear
+	 * its streak instead.
+	 *
+	 * @param state        the rule's streak
+	 * @param measurable   whether the metric could be read this tick (else the streak sleeps)
+	 * @param value        the reading in the metric's stored unit
+	 * @param nowMillis    current time in millis
+	 * @param activelyUsed whether the screen is on and unlocked (only read by reminding rules)
+	 *
+	 * @return whether to notify now, the new streak, and its elapsed time
+	 */
+	Outcome decide(Streak state, boolean measurable, int value, long nowMillis, boolean activelyUsed) {
+		return SustainedConditionTracker.decide(state, measurable,
+				holds(comparison, value, threshold, hysteresis, state.start() != 0),
+				sustainedMs, nowMillis, policy(activelyUsed), maxGapMs());
+	}
+
+	RepeatPolicy policy(boolean activelyUsed) {
+		return repeat == Repeat.ONCE
+		       ? SustainedConditionTracker.fireOnce()
+		       : SustainedConditionTracker.withReminders(activelyUsed, reminderGapMs);
+	}
+
+	/**
+	 * How long the streak survives unobserved: the tracker's gap for a sustained rule, forever for an
+	 * instant one.
+	 */
+	long maxGapMs() {
+		return sustainedMs > 0 ? SustainedConditionTracker.MAX_OBSERVATION_GAP_MS : Long.MAX_VALUE;
+	}
+
+	private static long durationMs(String amount, String unit) {
+		if (amount == null) {
+			return 0;
+		}
+		if (amount.length() > MAX_DURATION_DIGITS) {
+			return -1;
+		}
+		final long unitMs = switch (unit) {
+			case "s" -> 1_000L;
+			case "h" -> 3_600_000L;
+			default -> 60_000L;
+		};
+		return Long.parseLong(amount) * unitMs;
+	}
+
+	/**
+	 * What a rule measures, stored as an int in {@link #scale} units of the written one.
+	 */
+	enum Metric {
+		/** Battery level, %. */
+		LEVEL(1),
+		/** Battery temperature, written in °C, stored in tenths. */
+		TEMPERATURE(10),
+		/** Battery voltage, written in V, stored in mV. */
+		VOLTAGE(1_000),
+		/** Current magnitude, mA. */
+		CURRENT(1),
+		/** Charge or drain rate magnitude, %/h. */
+		RATE(1),
+		/** Charging power, written in W, stored in mW. */
+		POWER(1_000),
+		/**
+		 * Wired charging power below the taper level, averaged over the last minute, in mW: the built-in
+		 * slow-charge alert's reading ({@link SlowChargeDetector}), not writable in a rule.
+		 */
+		SLOW_CHARGE_POWER(1_000);
+
+		private final int scale;
+
+		Metric(int scale) {
+			this.scale = scale;
+		}
+
+		int scale() {
+			return scale;
+		}
+
+		int toStored(String written) {
+			final double value = Double.parseDouble(written) * scale;
+			return (int) Math.round(Math.min(Integer.MAX_VALUE, value));
+		}
+
+		/**
+		 * A stored reading in the written unit, with as many decimals as the scale needs; Western digits
+		 * in every locale (#96).
+		 */
+		String format(int stored) {
+			return switch (scale) {
+				case 1 -> String.valueOf(stored);
+				case 10 -> String.format(Locale.ROOT, "%.1f", stored / 10.0);
+				default -> String.format(Locale.ROOT, "%.2f", stored / (double) scale);
+			};
+		}
+	}
+
+	/**
+	 * How a reading is compared with the threshold.
+	 */
+	enum Comparison {
+		ABOVE, AT_OR_ABOVE, BELOW, AT_OR_BELOW;
+
+		static Comparison of(String op) {
+			return switch (op) {
+				case "<", "below" -> BELOW;
+				case "<=" -> AT_OR_BELOW;
+				case ">=" -> AT_OR_ABOVE;
+				default -> ABOVE;
+			};
+		}
+	}
+
+	/**
+	 * When a rule is eligible; outside its gate the streak is cleared, like the fast-drain alert on charge.
+	 * The last two are the built-ins' and can't be written in a rule.
+	 */
+	enum Gate {
+		ANY, CHARGING, DISCHARGING,
+		/** On the charger: charging, or paused by the system (not charging) — one slow-charge session. */
+		CHARGE_SESSION,
+		/** A disabled built-in alert: never eligible, so its streak stays clear. */
+		NEVER;
+
+		boolean admits(boolean charging, boolean chargeSession) {
+			return switch (this) {
+				case ANY -> true;
+				case CHARGING -> charging;
+				case DISCHARGING -> !charging;
+				case CHARGE_SESSION -> chargeSession;
+				case NEVER -> false;
+			};
+		}
+	}
+
+	/**
+	 * What happens once the sustained window is met.
+	 */
+	enum Repeat {
+		/** One alert per episode ({@link SustainedConditionTracker#fireOnce}). */
+		ONCE,
+		/**
+		 * The first alert, then reminders while the screen is off or locked
+		 * ({@link SustainedConditionTracker#withReminders}).
+		 */
+		REMIND_IN_BACKGROUND
+	}
+}
@@ -0,0 +1,255 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.os.BatteryManager;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.model.ChargeSpeed;
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.BatteryRate;
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Outcome;
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Streak;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * The {@link AlertRule}s, compiled once — when the settings snapshot is built — into a flat table: per
+ * rule, the metric, comparison, threshold, hysteresis and gate as parallel arrays. A tick reads each
+ * metric once ({@link Readings}) and runs every rule in one pass over the table, against one compact
+ * {@link RuleStreaks} holding every rule's streak.
+ * <p>
+ * The settings' set starts with the built-in alerts in fixed slots ({@link #TEMPERATURE},
+ * {@link #FAST_DRAIN}, {@link #SLOW_CHARGE}; a disabled one keeps its slot and never holds), then the
+ * fleet's rules (a build resource), then the user's; a line that doesn't parse is skipped, and at most
+ * {@link #MAX_RULES} are kept. The {@link #signature} identifies the custom rules, so streaks kept for a
+ * since-edited set are dropped rather than applied to the wrong rules, while the built-ins' survive the
+ * edit. Pure apart from {@link Readings#of}, so it is unit-testable.
+ */
+final class AlertRuleSet {
+
+	/** At most this many rules, built-ins included: one bit each in the fired and alerted masks. */
+	static final int MAX_RULES = 32;
+
+	/** The built-in alerts' slots in the settings' set, ahead of the custom rules. */
+	static final int TEMPERATURE = 0;
+	static final int FAST_DRAIN = 1;
+	static final int SLOW_CHARGE = 2;
+	static final int BUILT_INS = 3;
+
+	static final AlertRuleSet EMPTY = new AlertRuleSet(List.of(), 0);
+
+	// What an ineligible rule decides every tick: nothing to send, and a clear streak.
+	private static final Outcome INELIGIBLE = new Outcome(false, SustainedConditionTracker.CLEARED, 0);
+
+	private final AlertRule[] rules;
+	private final int[] metrics;
+	private final AlertRule.Comparison[] comparisons;
+	private final int[] thresholds;
+	private final int[] hysteresis;
+	private final AlertRule.Gate[] gates;
+	private final int builtIns;
+	private final int signature;
+
+	private AlertRuleSet(List<AlertRule> compiled, int builtIns) {
+		final int size = compiled.size();
+		rules = compiled.toArray(new AlertRule[0]);
+		metrics = new int[size];
+		comparisons = new AlertRule.Comparison[size];
+		thresholds = new int[size];
+		hysteresis = new int[size];
+		gates = new AlertRule.Gate[size];
+		int hash = 1;
+		for (int i = 0; i < size; i++) {
+			final AlertRule rule = rules[i];
+			metrics[i] = rule.metric().ordinal();
+			comparisons[i] = rule.comparison();
+			thresholds[i] = rule.threshold();
+			hysteresis[i] = rule.hysteresis();
+			gates[i] = rule.gate();
+			if (i >= builtIns) {
+				// A custom rule is its text; String hashes are stable across processes, unlike the enums'.
+				hash = 31 * hash + rule.source().hashCode();
+			}
+		}
+		this.builtIns = builtIns;
+		signature = hash;
+	}
+
+	/**
+	 * Compiles custom rule texts alone, one rule per line (or per {@code ;}).
+	 *
+	 * @param sources the fleet's rules, then the user's; null entries are skipped
+	 *
+	 * @return the compiled set, {@link #EMPTY} when no line parses
+	 */
+	static AlertRuleSet compile(String... sources) {
+		return compile(List.of(), sources);
+	}
+
+	/**
+	 * Compiles the built-in alerts, then custom rule texts, one rule per line (or per {@code ;}).
+	 *
+	 * @param builtIns the built-in alerts, in their slots' order
+	 * @param sources  the fleet's rules, then the user's; null entries are skipped
+	 *
+	 * @return the compiled set, {@link #EMPTY} when there are no built-ins and no line parses
+	 */
+	static AlertRuleSet compile(List<AlertRule> builtIns, String... sources) {
+		final List<AlertRule> compiled = new ArrayList<>(builtIns);
+		for (final String source : sources) {
+			if (source == null) {
+				continue;
+			}
+			for (final String line : source.split("[\\n;]")) {
+				final AlertRule rule = AlertRule.parse(line);
+				if (rule != null && compiled.size() < MAX_RULES) {
+					compiled.add(rule);
+				}
+			}
+		}
+		return compiled.isEmpty() ? EMPTY : new AlertRuleSet(compiled, builtIns.size());
+	}
+
+	int size() {
+		return rules.length;
+	}
+
+	boolean isEmpty() {
+		return rules.length == 0;
+	}
+
+	AlertRule rule(int index) {
+		return rules[index];
+	}
+
+	/**
+	 * @return how many of the first rules are built-ins, the same in every set the settings compile
+	 */
+	int builtIns() {
+		return builtIns;
+	}
+
+	/**
+	 * @return a hash of the compiled custom rules, stamped on their streaks
+	 */
+	int signature() {
+		return signature;
+	}
+
+	/**
+	 * Runs every rule against this tick's readings in one pass, updating their streaks in place.
+	 *
+	 * @param readings     this tick's metrics
+	 * @param streaks      the rules' streaks, sized for this set
+	 * @param nowMillis    current time in millis
+	 * @param activelyUsed whether the screen is on and unlocked; asked at most once, and only when a
+	 *                     reminding rule has already alerted
+	 *
+	 * @return a bit per rule that fires now
+	 */
+	int evaluate(Readings readings, RuleStreaks streaks, long nowMillis, BooleanSupplier activelyUsed) {
+		int fired = 0;
+		int used = -1;
+		for (int i = 0; i < rules.length; i++) {
+			final Streak state = streaks.get(i);
+			if (used < 0 && state.alerted() && rules[i].repeat() == AlertRule.Repeat.REMIND_IN_BACKGROUND) {
+				used = activelyUsed.getAsBoolean() ? 1 : 0;
+			}
+			final Outcome outcome = decide(i, readings, state, nowMillis, used == 1);
+			streaks.set(i, outcome.newState());
+			if (outcome.shouldNotify()) {
+				fired |= 1 << i;
+			}
+		}
+		return fired;
+	}
+
+	/**
+	 * Decides one tick of rule {@code index} from the table: its gate, then its condition on the tick's
+	 * reading, then the sustained-window tracker.
+	 *
+	 * @param readings     this tick's metrics
+	 * @param state        the rule's streak
+	 * @param nowMillis    current time in millis
+	 * @param activelyUsed whether the screen is on and unlocked (only read by reminding rules)
+	 *
+	 * @return whether to notify now, the new streak, and its elapsed time
+	 */
+	Outcome decide(int index, Readings readings, Streak state, long nowMillis, boolean activelyUsed) {
+		if (!gates[index].admits(readings.charging(), readings.chargeSession())) {
+			return INELIGIBLE;
+		}
+		final int metric = metrics[index];
+		final boolean measurable = readings.measurable(metric);
+		final boolean active = measurable && AlertRule.holds(comparisons[index], readings.values()[metric], thresholds[index],
+				hysteresis[index], state.start() != 0);
+		final AlertRule rule = rules[index];
+		return SustainedConditionTracker.decide(state, measurable, active, rule.sustainedMs(), nowMillis,
+				rule.policy(activelyUsed), rule.maxGapMs());
+	}
+
+	/**
+	 * One tick's metrics, each read once, in the metrics' stored units and indexed by
+	 * {@link AlertRule.Metric#ordinal()}.
+	 *
+	 * @param values         the readings
+	 * @param measurableMask a bit per metric that could be read this tick
+	 * @param charging       whether the battery is charging (or full)
+	 * @param chargeSession  whether the battery is charging or paused on the charger
+	 */
+	record Readings(int[] values, int measurableMask, boolean charging, boolean chargeSession) {
+
+		boolean measurable(int metric) {
+			return (measurableMask & (1 << metric)) != 0;
+		}
+
+		/**
+		 * Reads every metric from the tick's snapshot and rate.
+		 *
+		 * @param rate         the tick's rate, or null when the rate stage didn't run
+		 * @param slowChargeMw the slow-charge alert's averaged power ({@link SlowChargeDetector#averagePower}),
+		 *                     or {@link SlidingWindowAccumulator#NO_AVERAGE}
+		 */
+		static Readings of(BatteryDO batteryDO, BatteryRate rate, int slowChargeMw) {
+			final int[] values = new int[AlertRule.Metric.values().length];
+			final int status = batteryDO.getStatus();
+			final boolean charging = BatteryRateTracker.isChargingDirection(status);
+			int mask = 0;
+			values[AlertRule.Metric.LEVEL.ordinal()] = batteryDO.getBatteryPercentageInt();
+			values[AlertRule.Metric.TEMPERATURE.ordinal()] = batteryDO.getTemperature();
+			mask |= bit(AlertRule.Metric.LEVEL) | bit(AlertRule.Metric.TEMPERATURE);
+			if (batteryDO.getVoltage() > 0) {
+				values[AlertRule.Metric.VOLTAGE.ordinal()] = batteryDO.getVoltage();
+				mask |= bit(AlertRule.Metric.VOLTAGE);
+			}
+			final int microAmps = batteryDO.getCurrentMicroAmps();
+			if (BatteryRateTracker.isPlausibleCurrentMicroAmps(microAmps)) {
+				values[AlertRule.Metric.CURRENT.ordinal()] = Math.abs(microAmps / 1000);
+				mask |= bit(AlertRule.Metric.CURRENT);
+			}
+			if (nonNull(rate) && rate.hasRate()) {
+				values[AlertRule.Metric.RATE.ordinal()] = rate.percentPerHour();
+				mask |= bit(AlertRule.Metric.RATE);
+			}
+			if (charging) {
+				final ChargeSpeed speed = ChargeSpeed.fromMeasurements(microAmps, batteryDO.getVoltage());
+				if (speed.isKnown()) {
+					values[AlertRule.Metric.POWER.ordinal()] = speed.getMilliwatts();
+					mask |= bit(AlertRule.Metric.POWER);
+				}
+			}
+			if (slowChargeMw != SlidingWindowAccumulator.NO_AVERAGE) {
+				values[AlertRule.Metric.SLOW_CHARGE_POWER.ordinal()] = slowChargeMw;
+				mask |= bit(AlertRule.Metric.SLOW_CHARGE_POWER);
+			}
+			return new Readings(values, mask, charging,
+					status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_NOT_CHARGING);
+		}
+
+		static int bit(AlertRule.Metric metric) {
+			return 1 << metric.ordinal();
+		}
+	}
+}
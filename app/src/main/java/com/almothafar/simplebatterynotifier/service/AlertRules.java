@@ -0,0 +1,161 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceManager;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.BatteryRate;
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Streak;
+
+import java.io.File;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * The alert rules' stage: the built-in temperature, fast-drain and slow-charge alerts and the fleet's and
+ * the user's {@link AlertRule}s, compiled into the settings snapshot ({@link AlertSettings#alertRules}),
+ * run in one pass per battery broadcast against one {@link RuleStreaks} record. Each rule that fires is
+ * posted as its own notification, and each whose episode ends has its notification withdrawn.
+ * <p>
+ * The streaks are kept in memory between ticks and written to {@link #FILE_NAME} only when one starts,
+ * alerts, reminds or clears, and by {@link #flush} when monitoring stops, so a restarted process resumes
+ * every episode. The built-ins' streaks used to be preference keys; a fresh streak file adopts them once.
+ * The stage runs on the battery worker thread, but {@link #flush} can be called from another, so a lock
+ * guards the cached streaks and their file, like {@link BatteryRollups}' open buckets.
+ */
+public final class AlertRules {
+
+	static final String FILE_NAME = "alert_rule_streaks.bin";
+
+	// The temperature alert's flag in the default preferences, from before it was a rule; adopted once.
+	private static final String LEGACY_TEMPERATURE_ALERTED = "_temperature_alert_sent";
+	private static final long MS_PER_MINUTE = 60_000L;
+
+	// Guards the cached streaks: evaluate runs on the battery worker, flush may run elsewhere.
+	private static final Object LOCK = new Object();
+	private static Context boundContext;
+	private static File boundFile;
+	private static RuleStreaks streaks;
+
+	private AlertRules() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Runs every rule against this tick, notifies for each that fires and withdraws each that cleared.
+	 *
+	 * @param context   Application context
+	 * @param batteryDO This broadcast's reading (may be null)
+	 * @param rate      The rate computed for it
+	 * @param settings  The settings snapshot for this tick
+	 */
+	public static void evaluate(Context context, BatteryDO batteryDO, BatteryRate rate, AlertSettings settings) {
+		final AlertRuleSet rules = settings.alertRules();
+		if (isNull(context) || isNull(batteryDO) || rules.isEmpty()) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		final AlertRuleSet.Readings readings = AlertRuleSet.Readings.of(batteryDO, rate,
+				SlowChargeDetector.averagePower(batteryDO, settings.slowChargeEnabled(), now));
+
+		synchronized (LOCK) {
+			final RuleStreaks state = streaks(context.getApplicationContext(), rules, now);
+			final int alertedBefore = state.alertedMask();
+			final int fired = rules.evaluate(readings, state, now, () -> SystemService.isActivelyUsed(context));
+			state.persistIfDirty(boundFile);
+			final int cleared = alertedBefore & ~state.alertedMask();
+			for (int i = 0; i < rules.size(); i++) {
+				if ((fired & (1 << i)) != 0) {
+					notify(context, rules, i, readings, now - state.get(i).start());
+				} else if ((cleared & (1 << i)) != 0) {
+					withdraw(context, rules, i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the streaks' last-seen times, which ticks keep in memory. Called when monitoring stops.
+	 */
+	public static void flush() {
+		synchronized (LOCK) {
+			if (nonNull(streaks) && nonNull(boundFile)) {
+				streaks.flush(boundFile);
+			}
+		}
+	}
+
+	private static void notify(Context context, AlertRuleSet rules, int index, AlertRuleSet.Readings readings, long elapsedMs) {
+		final int[] values = readings.values();
+		final AlertRule rule = rules.rule(index);
+		if (index >= rules.builtIns()) {
+			NotificationService.sendCustomRuleAlert(context, index - rules.builtIns(), rule.source(),
+					rule.metric().format(values[rule.metric().ordinal()]));
+			return;
+		}
+		switch (index) {
+			case AlertRuleSet.TEMPERATURE -> NotificationService.sendTemperatureNotification(context,
+					values[AlertRule.Metric.TEMPERATURE.ordinal()]);
+			case AlertRuleSet.FAST_DRAIN -> NotificationService.sendFastDrainNotification(context,
+					values[AlertRule.Metric.RATE.ordinal()], rule.threshold(),
+					Math.max(1, Math.round(elapsedMs / (float) MS_PER_MINUTE)));
+			default -> NotificationService.sendSlowChargeWarning(context,
+					Math.max(0, Math.round(values[AlertRule.Metric.SLOW_CHARGE_POWER.ordinal()] / 1000f)));
+		}
+	}
+
+	private static void withdraw(Context context, AlertRuleSet rules, int index) {
+		if (index >= rules.builtIns()) {
+			NotificationService.withdrawCustomRuleAlert(index - rules.builtIns());
+			return;
+		}
+		switch (index) {
+			case AlertRuleSet.TEMPERATURE -> NotificationService.withdrawTemperatureAlert();
+			case AlertRuleSet.FAST_DRAIN -> NotificationService.clearFastDrainAlert(context);
+			default -> NotificationService.withdrawSlowChargeWarning();
+		}
+	}
+
+	/**
+	 * The cached streaks, reloaded for a new application or an edited rule set. Binding to an application
+	 * resolves its streak file once. Call with the lock held.
+	 */
+	private static RuleStreaks streaks(Context appContext, AlertRuleSet rules, long nowMillis) {
+		if (boundContext != appContext || isNull(streaks) || streaks.signature() != rules.signature()
+				|| streaks.size() != rules.size()) {
+			if (boundContext == appContext && nonNull(streaks)) {
+				// The reload keeps the built-ins' streaks from the file, so it must be current.
+				streaks.flush(boundFile);
+			} else {
+				boundFile = new File(appContext.getFilesDir(), FILE_NAME);
+			}
+			streaks = RuleStreaks.load(boundFile, rules.signature(), rules.size(), rules.builtIns());
+			boundContext = appContext;
+			if (streaks.isFresh() && rules.builtIns() == AlertRuleSet.BUILT_INS) {
+				adoptLegacyStreaks(appContext, boundFile, nowMillis);
+			}
+		}
+		return streaks;
+	}
+
+	/**
+	 * Moves the built-ins' streaks out of the preference keys they had before they were rules, so an
+	 * episode running across the upgrade neither repeats its alert nor loses its window.
+	 */
+	private static void adoptLegacyStreaks(Context context, File file, long nowMillis) {
+		final SharedPreferences transientPrefs = TransientState.prefs(context);
+		streaks.set(AlertRuleSet.FAST_DRAIN, FastDrainDetector.LEGACY_STORE.load(transientPrefs));
+		FastDrainDetector.LEGACY_STORE.clear(transientPrefs);
+		streaks.set(AlertRuleSet.SLOW_CHARGE, SlowChargeDetector.LEGACY_STORE.load(transientPrefs));
+		SlowChargeDetector.LEGACY_STORE.clear(transientPrefs);
+		final SharedPreferences prefs = TickTransaction.wrap(PreferenceManager.getDefaultSharedPreferences(context));
+		if (prefs.getBoolean(LEGACY_TEMPERATURE_ALERTED, false)) {
+			streaks.set(AlertRuleSet.TEMPERATURE, new Streak(nowMillis, true, nowMillis));
+			prefs.edit().remove(LEGACY_TEMPERATURE_ALERTED).apply();
+		}
+		streaks.persistIfDirty(file);
+	}
+}
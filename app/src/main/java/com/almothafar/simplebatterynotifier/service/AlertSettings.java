@@ -0,0 +1,226 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+
+import androidx.preference.PreferenceManager;
+
+import com.almothafar.simplebatterynotifier.R;
+import com.almothafar.simplebatterynotifier.model.LevelLadder;
+import com.almothafar.simplebatterynotifier.model.LevelThresholds;
+import com.almothafar.simplebatterynotifier.util.AppPrefs;
+import com.almothafar.simplebatterynotifier.util.TemperatureUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Every user setting the battery-broadcast path reads, as one immutable snapshot: the level-alert
+ * thresholds, ladder and toggles, the high-temperature alert, the fast-drain and slow-charge alerts, the
+ * built-in and custom alert rules (compiled here, once per change), the ongoing notification's rate display and
+ * refresh interval, the rate window's change sensitivity, the significance gate's margins, and the
+ * quiet-hours / silent-mode policy.
+ * <p>
+ * Each broadcast used to resolve a dozen {@code R.string._pref_key_*} strings and read each value out
+ * of the preferences map, re-clamping the drain limit and the fast-drain minutes every time. The
+ * snapshot is built once — with every value resolved, clamped ({@link AppPrefs#clampDrainLimit},
+ * {@link AppPrefs#clamp}, {@link FastDrainDetector#clampMinutesToMs}) and parsed or compiled
+ * ({@link QuietHours#compileSchedule}) — and rebuilt only when one of its keys changes, so
+ * {@link #current} is a single atomic read.
+ * <p>
+ * The snapshot follows the default preferences through a change listener registered on first use and
+ * re-bound when the application changes (a fresh process, or a fresh Robolectric test application).
+ * Keys outside the snapshot — the alert episode state the receiver persists every tick — are ignored.
+ *
+ * @param levels                    the critical/warning thresholds
+ * @param ladder                    the level-alert ladder, whose primary steps are {@code levels}
+ * @param warningEnabled            whether the warning alert is enabled
+ * @param fullNotifyEnabled         whether the full-battery alert is enabled
+ * @param alertEveryTick            whether the critical alert repeats on every level tick
+ * @param temperatureAlertEnabled   whether the high-temperature alert is enabled
+ * @param temperatureThresholdC     the high-temperature threshold in whole °C
+ * @param fastDrainEnabled          whether the fast-drain alert is enabled
+ * @param drainLimitPph             the clamped "high drain" limit in %/h
+ * @param fastDrainSustainedMs      the clamped fast-drain window
+ * @param fastDrainReminderGapMs    the clamped gap between fast-drain reminders
+ * @param slowChargeEnabled         whether the slow-charge alert is enabled
+ * @param alertRules                the built-in alerts and the fleet's and the user's rules, compiled
+ * @param showRateInNotification    whether the ongoing notification shows the rate/power and estimate
+ * @param ongoingRefreshIntervalMs  the minimum interval between ongoing-notification detail updates
+ * @param changeSensitivity         how readily the rate window restarts on an abrupt change in current
+ * @param spikeFilterEnabled        whether current spikes are kept out of the rate window's average
+ * @param jitterTemperatureTenths   the clamped temperature change, in 0.1 °C, that makes a broadcast significant
+ * @param jitterCurrentMicroAmps    the clamped current change, in µA, that makes a broadcast significant
+ * @param fullEvaluationMs          the clamped longest run of broadcasts without a full evaluation
+ * @param quietHoursEnabled         whether alerts are limited to the time window
+ * @param quietSchedule             the weekly windows alerts may sound in, compiled (with fallbacks)
+ * @param criticalIgnoresQuietHours whether critical alerts may break through quiet hours
+ * @param ignoreSilentMode          whether alert sounds override silent/DND mode
+ * @param vibrate                   whether alerts vibrate
+ */
+public record AlertSettings(LevelThresholds levels, LevelLadder ladder, boolean warningEnabled, boolean fullNotifyEnabled, boolean alertEveryTick,
+                            boolean temperatureAlertEnabled, int temperatureThresholdC,
+                            boolean fastDrainEnabled, int drainLimitPph, long fastDrainSustainedMs, long fastDrainReminderGapMs,
+                            boolean slowChargeEnabled, AlertRuleSet alertRules,
+                            boolean showRateInNotification, long ongoingRefreshIntervalMs,
+                            CurrentChangeDetector.Sensitivity changeSensitivity, boolean spikeFilterEnabled,
+                            int jitterTemperatureTenths, int jitterCurrentMicroAmps, long fullEvaluationMs,
+                            boolean quietHoursEnabled, QuietSchedule quietSchedule,
+                            boolean criticalIgnoresQuietHours, boolean ignoreSilentMode, boolean vibrate) {
+
+	// The keys read by load(); a change to any other key leaves the snapshot alone.
+	private static final int[] KEYS = {
+			R.string._pref_key_critical_battery_level, R.string._pref_key_warn_battery_level,
+			R.string._pref_key_discharge_ladder, R.string._pref_key_charge_ladder,
+			R.string._pref_key_notify_for_warning_level, R.string._pref_key_notify_for_full_level,
+			R.string._pref_key_notify_every_tick,
+			R.string._pref_key_notify_high_temperature, R.string._pref_key_high_temperature_threshold,
+			R.string._pref_key_notify_fast_drain, R.string._pref_key_fast_drain_limit,
+			R.string._pref_key_fast_drain_sustained_minutes, R.string._pref_key_fast_drain_reminder_minutes,
+			R.string._pref_key_notify_slow_charge, R.string._pref_key_custom_alert_rules,
+			R.string._pref_key_show_rate_in_notification,
+			R.string._pref_key_status_refresh_interval,
+			R.string._pref_key_workload_change_sensitivity, R.string._pref_key_current_spike_filter,
+			R.string._pref_key_jitter_temperature, R.string._pref_key_jitter_current,
+			R.string._pref_key_full_evaluation_interval,
+			R.string._pref_key_notifications_time_range, R.string._pref_key_notifications_time_range_start,
+			R.string._pref_key_notifications_time_range_end, R.string._pref_key_notifications_time_range_extra,
+			R.string._pref_key_notifications_time_range_weekend, R.string._pref_key_notifications_weekend_days,
+			R.string._pref_key_critical_ignore_quiet_hours,
+			R.string._pref_key_notifications_apply_silent_mode, R.string._pref_key_notifications_vibrate,
+	};
+
+	private static final AtomicReference<AlertSettings> CURRENT = new AtomicReference<>();
+	private static final Object LOCK = new Object();
+	private static volatile Context boundContext;
+	private static SharedPreferences boundPrefs;
+	private static Set<String> watchedKeys = Set.of();
+
+	// Held here for the life of the process: SharedPreferences only keeps weak references to listeners.
+	private static final OnSharedPreferenceChangeListener LISTENER = AlertSettings::onPreferenceChanged;
+
+	/**
+	 * The current snapshot, built (and the change listener registered) on first use.
+	 *
+	 * @param context any context of the app
+	 *
+	 * @return the settings as of the last change
+	 */
+	public static AlertSettings current(Context context) {
+		final Context appContext = context.getApplicationContext();
+		final AlertSettings settings = CURRENT.get();
+		if (nonNull(settings) && boundContext == appContext) {
+			return settings;
+		}
+		synchronized (LOCK) {
+			if (boundContext != appContext) {
+				bind(appContext);
+			}
+			return CURRENT.get();
+		}
+	}
+
+	private static void bind(Context appContext) {
+		if (nonNull(boundPrefs)) {
+			boundPrefs.unregisterOnSharedPreferenceChangeListener(LISTENER);
+		}
+		final Set<String> keys = new HashSet<>();
+		for (final int keyRes : KEYS) {
+			keys.add(appContext.getString(keyRes));
+		}
+		watchedKeys = keys;
+		boundPrefs = PreferenceManager.getDefaultSharedPreferences(appContext);
+		boundPrefs.registerOnSharedPreferenceChangeListener(LISTENER);
+		CURRENT.set(load(appContext, boundPrefs));
+		boundContext = appContext;
+	}
+
+	private static void onPreferenceChanged(SharedPreferences prefs, String key) {
+		// A null key is a clear() (API 30+): every value may have changed.
+		synchronized (LOCK) {
+			if (prefs == boundPrefs && (isNull(key) || watchedKeys.contains(key))) {
+				final AlertSettings settings = load(boundContext, prefs);
+				final AlertSettings previous = CURRENT.getAndSet(settings);
+				if (nonNull(previous) && previous.quietHoursEnabled() && !settings.quietHoursEnabled()) {
+					// Nothing is quiet any more: a deferred alert would sound long after the fact.
+					DeferredAlerts.cancel();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads, clamps and parses every setting once.
+	 *
+	 * @param context Application context
+	 * @param prefs   the default preferences
+	 *
+	 * @return the snapshot
+	 */
+	static AlertSettings load(Context context, SharedPreferences prefs) {
+		final String defaultStart = context.getString(R.string._pref_value_notifications_time_range_start);
+		final String defaultEnd = context.getString(R.string._pref_value_notifications_time_range_end);
+		final boolean temperatureAlertEnabled = prefs.getBoolean(context.getString(R.string._pref_key_notify_high_temperature), true);
+		// Stored canonically in Celsius, like the battery reading; see TemperatureUtils.
+		final int temperatureThresholdC = prefs.getInt(context.getString(R.string._pref_key_high_temperature_threshold),
+				TemperatureUtils.DEFAULT_HIGH_TEMP_THRESHOLD_C);
+		final boolean fastDrainEnabled = prefs.getBoolean(context.getString(R.string._pref_key_notify_fast_drain), true);
+		final int drainLimitPph = AppPrefs.drainLimitPph(context);
+		final long fastDrainSustainedMs = FastDrainDetector.clampMinutesToMs(
+				prefs.getInt(context.getString(R.string._pref_key_fast_drain_sustained_minutes), FastDrainDetector.DEFAULT_SUSTAINED_MINUTES),
+				FastDrainDetector.MIN_SUSTAINED_MINUTES, FastDrainDetector.MAX_SUSTAINED_MINUTES);
+		final long fastDrainReminderGapMs = FastDrainDetector.clampMinutesToMs(
+				prefs.getInt(context.getString(R.string._pref_key_fast_drain_reminder_minutes), FastDrainDetector.DEFAULT_REMINDER_MINUTES),
+				FastDrainDetector.MIN_REMINDER_MINUTES, FastDrainDetector.MAX_REMINDER_MINUTES);
+		final boolean slowChargeEnabled = prefs.getBoolean(context.getString(R.string._pref_key_notify_slow_charge), true);
+		// The built-ins in their AlertRuleSet slots, then the fleet's rules, then the user's.
+		final List<AlertRule> builtIns = List.of(
+				AlertRule.highTemperature(temperatureAlertEnabled, temperatureThresholdC),
+				AlertRule.fastDrain(fastDrainEnabled, drainLimitPph, fastDrainSustainedMs, fastDrainReminderGapMs),
+				AlertRule.slowCharge(slowChargeEnabled));
+		return new AlertSettings(
+				AppPrefs.batteryLevels(context),
+				AppPrefs.levelLadder(context),
+				prefs.getBoolean(context.getString(R.string._pref_key_notify_for_warning_level), true),
+				prefs.getBoolean(context.getString(R.string._pref_key_notify_for_full_level), true),
+				prefs.getBoolean(context.getString(R.string._pref_key_notify_every_tick), false),
+				temperatureAlertEnabled,
+				temperatureThresholdC,
+				fastDrainEnabled,
+				drainLimitPph,
+				fastDrainSustainedMs,
+				fastDrainReminderGapMs,
+				slowChargeEnabled,
+				AlertRuleSet.compile(builtIns, context.getString(R.string._fleet_alert_rules),
+						prefs.getString(context.getString(R.string._pref_key_custom_alert_rules), null)),
+				prefs.getBoolean(context.getString(R.string._pref_key_show_rate_in_notification), true),
+				OngoingNotificationThrottle.intervalFromPreference(
+						prefs.getString(context.getString(R.string._pref_key_status_refresh_interval), null)),
+				CurrentChangeDetector.Sensitivity.fromPreference(
+						prefs.getString(context.getString(R.string._pref_key_workload_change_sensitivity), null)),
+				prefs.getBoolean(context.getString(R.string._pref_key_current_spike_filter), true),
+				AppPrefs.jitterTemperatureC(context) * 10,
+				AppPrefs.jitterCurrentMilliAmps(context) * 1000,
+				AppPrefs.fullEvaluationSeconds(context) * 1000L,
+				// Default ON to match the toggle's XML default (pref_behaviour.xml), so quiet hours apply out of
+				// the box (#111).
+				prefs.getBoolean(context.getString(R.string._pref_key_notifications_time_range), true),
+				QuietHours.compileSchedule(
+						QuietHours.boundOrDefaultMinutes(
+								prefs.getString(context.getString(R.string._pref_key_notifications_time_range_start), defaultStart), defaultStart),
+						QuietHours.boundOrDefaultMinutes(
+								prefs.getString(context.getString(R.string._pref_key_notifications_time_range_end), defaultEnd), defaultEnd),
+						prefs.getString(context.getString(R.string._pref_key_notifications_time_range_extra), null),
+						prefs.getString(context.getString(R.string._pref_key_notifications_time_range_weekend), null),
+						prefs.getStringSet(context.getString(R.string._pref_key_notifications_weekend_days), null)),
+				prefs.getBoolean(context.getString(R.string._pref_key_critical_ignore_quiet_hours), true),
+				!prefs.getBoolean(context.getString(R.string._pref_key_notifications_apply_silent_mode), false),
+				AppPrefs.vibrateEnabled(context));
+	}
+}
@@ -3,7 +3,7 @@ package com.almothafar.simplebatterynotifier.service;
 import static java.util.Objects.isNull;
 
 /**
- * The battery-level alert types (critical, warning, full).
+ * The battery-level alert types (critical, warning, full, and a charge step of the alert ladder).
  * <p>
  * Replaces the old {@code int} constants (1/2/3): with an enum the notification-config switch is
  * exhaustive at compile time, so an invalid type — which used to fall into a default branch that
@@ -15,7 +15,8 @@ import static java.util.Objects.isNull;
 public enum AlertType {
 	CRITICAL(1),
 	WARNING(2),
-	FULL(3);
+	FULL(3),
+	CHARGE_LEVEL(4);
 
 	// Stable id used when the type is persisted in SharedPreferences (the level-alert de-dupe state,
 	// #164). Matches the old int constants so existing installs' persisted state stays valid.
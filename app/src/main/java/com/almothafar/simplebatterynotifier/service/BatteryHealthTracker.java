@@ -89,7 +89,8 @@ public class BatteryHealthTracker {
 			return;
 		}
 
-		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+		// Inside a broadcast this write joins the tick's single flush of the default prefs.
+		final SharedPreferences prefs = TickTransaction.wrap(PreferenceManager.getDefaultSharedPreferences(context));
 		final SharedPreferences.Editor editor = prefs.edit();
 		boolean dirty = false;
 
@@ -692,10 +693,12 @@ public class BatteryHealthTracker {
 	 * Gets debug information about the current tracking state.
 	 * DEBUG/TEST METHOD - Returns detailed tracking status.
 	 *
-	 * @param context Application context
+	 * @param context        Application context
+	 * @param skippedTicks   broadcasts the significance gate sent down the cheap path
+	 * @param evaluatedTicks broadcasts it let through the full stage chain
 	 * @return Debug information string
 	 */
-	public static String getDebugInfo(final Context context) {
+	public static String getDebugInfo(final Context context, final long skippedTicks, final long evaluatedTicks) {
 		if (isNull(context)) {
 			return "Context is null";
 		}
@@ -713,6 +716,14 @@ public class BatteryHealthTracker {
 				"- Effective Cycle Count: " + getEffectiveCycleCount(context) + "\n" +
 				"- Cycle accrual (toward next): " + accrualPoints + "/" + CYCLE_PERCENT_POINTS + "\n" +
 				"- Last Level: " + (lastLevel < 0 ? "Unknown" : lastLevel + "%") + "\n" +
-				"- Days Since First Use: " + getDaysSinceFirstUse(context);
+				"- Days Since First Use: " + getDaysSinceFirstUse(context) + "\n" +
+				"- Prefs writes coalesced: " + TickTransaction.savedWrites() + " of " + TickTransaction.requestedWrites() + "\n" +
+				"- Broadcasts short-circuited: " + skippedTicks + " of " + (skippedTicks + evaluatedTicks) + "\n" +
+				"- Scheduled samples: " + SamplingScheduler.scheduledSamples() + " (alarms set: " + SamplingScheduler.alarmsSet() + ")\n" +
+				"- Rate window restarts (workload change): " + BatteryRateTracker.workloadChanges() + "\n" +
+				"- Current spikes rejected: " + BatteryRateTracker.spikesRejected() + "\n" +
+				"- Status notification posts avoided: " + NotificationService.ongoingPostsSkipped() + " unchanged, "
+						+ NotificationService.ongoingPostsCoalesced() + " coalesced\n" +
+				"- Transient state file: " + TransientStore.costSummary();
 	}
 }
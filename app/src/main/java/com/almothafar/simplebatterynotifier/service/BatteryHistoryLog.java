@@ -0,0 +1,454 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Long-term, per-tick battery history: an append-only, segmented, compressed log of every
+ * {@code ACTION_BATTERY_CHANGED} snapshot (time, level, current, voltage, temperature, status, plugged),
+ * for months of fleet analysis. Everything else in the app forgets after the 10-minute
+ * {@link BatteryRateTracker#WINDOW_MS} window or keeps only a few scalars.
+ * <p>
+ * <b>Storage.</b> Records go into segment files under {@code files/history/}, each named by its first
+ * record's time and rolled at {@link #SEGMENT_MAX_BYTES}; segments past {@link #RETENTION_MS} are pruned
+ * on roll. The record format ({@link HistoryCodec}) uses delta-of-delta timestamps and zig-zag varint
+ * channel deltas, so a steady tick costs a handful of bytes and a year of ticks fits in a few MB.
+ * <p>
+ * <b>Sparse index.</b> Every {@link #KEYFRAME_INTERVAL} records (and on the first append of each
+ * process) a self-contained keyframe is written, and its time and byte offset are appended to the
+ * segment's {@code .idx} sidecar as a fixed 12-byte entry. A range query binary-searches the mapped
+ * index for the last keyframe at or before the range start and decodes forward from there through a
+ * {@link MappedByteBuffer} — it never loads the history onto the heap, and each record is handed to a
+ * {@link HistoryVisitor} as primitives.
+ * <p>
+ * <b>Crash tolerance.</b> A torn final record is skipped: records never span an indexed keyframe, so
+ * one that fails to decode or overruns the next keyframe sends the reader to that keyframe, and every
+ * process starts its appends with a fresh one, so nothing after a tear is lost. A segment whose header
+ * isn't this format's magic and version is skipped on read, and never appended to. Reads assume time
+ * moves forward within a segment (a wall-clock jump back only makes a range query end early).
+ */
+public final class BatteryHistoryLog {
+
+	private static final String TAG = BatteryHistoryLog.class.getSimpleName();
+
+	static final String DIR_NAME = "history";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String INDEX_SUFFIX = ".idx";
+
+	// Segment header: int magic | short version | short 0.
+	private static final int MAGIC = 0x48544253; // "SBTH" little-endian
+	private static final short VERSION = 1;
+	static final int SEGMENT_HEADER_BYTES = 8;
+	// Index entry: long keyframe time | int keyframe byte offset.
+	static final int INDEX_ENTRY_BYTES = 12;
+
+	// ~1 MB segments: large enough that a month of ticks spans only a few files, small enough that a
+	// mapped range query touches little beyond what it reads.
+	static final long SEGMENT_MAX_BYTES = 1024L * 1024;
+	// Keyframe spacing: a range query decodes at most this many records before reaching its start.
+	static final int KEYFRAME_INTERVAL = 128;
+	// Keep a little over a year, so year-on-year comparisons stay possible.
+	static final long RETENTION_MS = 400L * 24 * 60 * 60 * 1000;
+
+	// The process-wide appender; every access holds the lock.
+	private static final Object LOCK = new Object();
+	private static Appender appender;
+
+	private BatteryHistoryLog() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Appends the snapshot to the history log. Called from the battery receiver on every broadcast; a
+	 * failing write is logged and dropped — history is best-effort and never blocks alerting.
+	 *
+	 * @param context   Application context
+	 * @param batteryDO Current battery snapshot (may be null)
+	 */
+	public static void append(Context context, BatteryDO batteryDO) {
+		if (isNull(context) || isNull(batteryDO)) {
+			return;
+		}
+		appendAt(context, batteryDO, System.currentTimeMillis());
+	}
+
+	static void appendAt(Context context, BatteryDO batteryDO, long nowMillis) {
+		synchronized (LOCK) {
+			final Context appContext = context.getApplicationContext();
+			if (nonNull(appender) && !appender.belongsTo(appContext)) {
+				appender.close();
+				appender = null;
+			}
+			if (isNull(appender)) {
+				appender = new Appender(appContext, historyDir(appContext));
+			}
+			appender.append(batteryDO, nowMillis);
+		}
+	}
+
+	/**
+	 * Closes the open segment, flushing nothing further — every append is already written through.
+	 * Called when the monitoring service stops; the next append reopens and starts with a keyframe.
+	 */
+	public static void close() {
+		synchronized (LOCK) {
+			if (nonNull(appender)) {
+				appender.close();
+				appender = null;
+			}
+		}
+	}
+
+	/**
+	 * The lowest level recorded over a recent span, for the insights screen: a deep discharge the hourly
+	 * roll-ups average away. Decodes the span's records, so call it off the main thread.
+	 *
+	 * @param context Application context
+	 * @param spanMs  how far back to look
+	 *
+	 * @return the lowest level in percent, or -1 when nothing was recorded in the span
+	 */
+	public static int lowestLevel(Context context, long spanMs) {
+		final long now = System.currentTimeMillis();
+		final int[] lowest = {Integer.MAX_VALUE};
+		query(context, now - spanMs, now, (time, level, current, voltage, temperature, status, plugged) -> {
+			if (level >= 0 && level < lowest[0]) {
+				lowest[0] = level;
+			}
+		});
+		return lowest[0] == Integer.MAX_VALUE ? -1 : lowest[0];
+	}
+
+	/**
+	 * Streams every record with {@code fromMillis <= time <= toMillis} to the visitor, oldest first,
+	 * through mapped segments — only the segments overlapping the range are touched, and each is entered
+	 * at its last keyframe before the range via the sparse index.
+	 *
+	 * @param context    Application context
+	 * @param fromMillis range start, inclusive
+	 * @param toMillis   range end, inclusive
+	 * @param visitor    receives each record as primitives
+	 */
+	public static void query(Context context, long fromMillis, long toMillis, HistoryVisitor visitor) {
+		final File dir = historyDir(context.getApplicationContext());
+		final long[] starts = segmentStarts(dir);
+		for (int i = 0; i < starts.length; i++) {
+			if (starts[i] > toMillis) {
+				return;
+			}
+			final boolean endsBeforeRange = i + 1 < starts.length && starts[i + 1] <= fromMillis;
+			if (endsBeforeRange) {
+				continue;
+			}
+			scanSegment(dir, starts[i], fromMillis, toMillis, visitor);
+		}
+	}
+
+	private static void scanSegment(File dir, long start, long fromMillis, long toMillis, HistoryVisitor visitor) {
+		final File segment = segmentFile(dir, start);
+		try (RandomAccessFile segmentRaf = new RandomAccessFile(segment, "r");
+		     RandomAccessFile indexRaf = new RandomAccessFile(indexFile(dir, start), "r")) {
+			final MappedByteBuffer data = map(segmentRaf.getChannel());
+			if (!hasValidHeader(data)) {
+				Log.w(TAG, "Skipping unrecognised history segment " + segment.getName());
+				return;
+			}
+			final MappedByteBuffer index = map(indexRaf.getChannel());
+			final int entries = index.limit() / INDEX_ENTRY_BYTES;
+			int entry = Math.max(0, lastKeyframeAtOrBefore(index, entries, fromMillis));
+			data.position(entries == 0 ? SEGMENT_HEADER_BYTES : keyframeOffset(index, entries, entry));
+			int nextKeyframe = keyframeOffset(index, entries, entry + 1);
+
+			final HistoryCodec.State state = new HistoryCodec.State();
+			while (data.hasRemaining()) {
+				if (data.position() == nextKeyframe) {
+					entry++;
+					nextKeyframe = keyframeOffset(index, entries, entry + 1);
+				}
+				// A record never spans an indexed keyframe, so one that fails to decode or runs into the next
+				// keyframe is torn (a crash mid-append): resume at that keyframe, or stop if there is none.
+				if (!HistoryCodec.decode(data, state) || data.position() > nextKeyframe) {
+					if (nextKeyframe >= data.limit()) {
+						return;
+					}
+					data.position(nextKeyframe);
+					continue;
+				}
+				if (state.time > toMillis) {
+					return;
+				}
+				if (state.time >= fromMillis) {
+					final int[] v = state.values;
+					visitor.onRecord(state.time, v[HistoryCodec.LEVEL], v[HistoryCodec.CURRENT], v[HistoryCodec.VOLTAGE],
+							v[HistoryCodec.TEMPERATURE], v[HistoryCodec.STATUS], v[HistoryCodec.PLUGGED]);
+				}
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read history segment " + segment.getName() + ": " + e.getMessage());
+		}
+	}
+
+	private static MappedByteBuffer map(FileChannel channel) throws IOException {
+		final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * Whether a segment starts with this format's header. Anything else (a foreign file, or a segment
+	 * from another codec version) is not decoded.
+	 *
+	 * @param data the segment's bytes from offset 0, little-endian
+	 */
+	static boolean hasValidHeader(ByteBuffer data) {
+		return data.limit() >= SEGMENT_HEADER_BYTES && data.getInt(0) == MAGIC && data.getShort(4) == VERSION;
+	}
+
+	/**
+	 * Binary search over the mapped index for the last keyframe at or before {@code timeMillis}.
+	 *
+	 * @return the entry number, or -1 when every keyframe is later (or there are none)
+	 */
+	static int lastKeyframeAtOrBefore(ByteBuffer index, int entries, long timeMillis) {
+		int low = 0;
+		int high = entries - 1;
+		int found = -1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (index.getLong(mid * INDEX_ENTRY_BYTES) <= timeMillis) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * The byte offset of index entry {@code entry}, or {@link Integer#MAX_VALUE} past the last entry.
+	 */
+	private static int keyframeOffset(ByteBuffer index, int entries, int entry) {
+		return entry < entries ? index.getInt(entry * INDEX_ENTRY_BYTES + 8) : Integer.MAX_VALUE;
+	}
+
+	static File historyDir(Context appContext) {
+		return new File(appContext.getFilesDir(), DIR_NAME);
+	}
+
+	private static File segmentFile(File dir, long start) {
+		return new File(dir, start + SEGMENT_SUFFIX);
+	}
+
+	private static File indexFile(File dir, long start) {
+		return new File(dir, start + INDEX_SUFFIX);
+	}
+
+	/**
+	 * The start times of the existing segments, ascending. Names that aren't a segment are ignored
+	 * (validated, not caught).
+	 */
+	static long[] segmentStarts(File dir) {
+		final String[] names = dir.list();
+		if (isNull(names)) {
+			return new long[0];
+		}
+		final long[] starts = new long[names.length];
+		int count = 0;
+		for (final String name : names) {
+			if (!name.endsWith(SEGMENT_SUFFIX)) {
+				continue;
+			}
+			final String stem = name.substring(0, name.length() - SEGMENT_SUFFIX.length());
+			if (stem.matches("\\d{1,18}")) {
+				starts[count++] = Long.parseLong(stem); // safe: matched \d{1,18}
+			}
+		}
+		final long[] result = Arrays.copyOf(starts, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Receives history records as primitives, so a scan over months allocates nothing per record.
+	 */
+	@FunctionalInterface
+	public interface HistoryVisitor {
+
+		/**
+		 * @param timeMillis        record time in millis
+		 * @param level             battery level in percent
+		 * @param currentMicroAmps  instantaneous current in µA ({@link Integer#MIN_VALUE} when unsupported)
+		 * @param voltageMv         voltage in mV
+		 * @param temperatureTenths temperature in tenths of a degree Celsius
+		 * @param status            a {@code BatteryManager.BATTERY_STATUS_*} constant
+		 * @param plugged           a {@code BatteryManager.BATTERY_PLUGGED_*} value, 0 on battery
+		 */
+		void onRecord(long timeMillis, int level, int currentMicroAmps, int voltageMv, int temperatureTenths,
+		              int status, int plugged);
+	}
+
+	/**
+	 * The open segment and its index, with the reused encode buffers. Appends write through (no user-space
+	 * buffering), so nothing is lost if the process is killed between ticks.
+	 */
+	private static final class Appender {
+
+		private final Context appContext;
+		private final File dir;
+		private final HistoryCodec.State state = new HistoryCodec.State();
+		private final int[] values = new int[HistoryCodec.CHANNELS];
+		private final ByteBuffer recordBytes = ByteBuffer.allocate(HistoryCodec.MAX_RECORD_BYTES);
+		private final ByteBuffer indexBytes = ByteBuffer.allocate(INDEX_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+		private FileOutputStream segmentOut;
+		private FileOutputStream indexOut;
+		private long segmentBytes;
+		private int sinceKeyframe;
+
+		Appender(Context appContext, File dir) {
+			this.appContext = appContext;
+			this.dir = dir;
+		}
+
+		boolean belongsTo(Context context) {
+			return appContext == context;
+		}
+
+		void append(BatteryDO batteryDO, long nowMillis) {
+			if (isNull(segmentOut) && !open(nowMillis)) {
+				return;
+			}
+			values[HistoryCodec.LEVEL] = batteryDO.getBatteryPercentageInt();
+			values[HistoryCodec.CURRENT] = batteryDO.getCurrentMicroAmps();
+			values[HistoryCodec.VOLTAGE] = batteryDO.getVoltage();
+			values[HistoryCodec.TEMPERATURE] = batteryDO.getTemperature();
+			values[HistoryCodec.STATUS] = batteryDO.getStatus();
+			values[HistoryCodec.PLUGGED] = batteryDO.getPlugged();
+
+			final boolean keyframe = !state.primed || sinceKeyframe >= KEYFRAME_INTERVAL;
+			recordBytes.clear();
+			HistoryCodec.encode(recordBytes, state, nowMillis, values, keyframe);
+			recordBytes.flip();
+			try {
+				final long offset = segmentBytes;
+				segmentBytes += segmentOut.getChannel().write(recordBytes);
+				if (keyframe) {
+					indexBytes.clear();
+					indexBytes.putLong(nowMillis).putInt((int) offset).flip();
+					indexOut.getChannel().write(indexBytes);
+					sinceKeyframe = 0;
+				}
+				sinceKeyframe++;
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to append history record: " + e.getMessage());
+				close(); // reopen (and re-keyframe) on the next tick
+				return;
+			}
+			if (segmentBytes >= SEGMENT_MAX_BYTES) {
+				close();
+				prune(nowMillis);
+			}
+		}
+
+		/**
+		 * Opens the newest segment for appending, or starts a new one when there is none or it is full.
+		 * Always re-primes the codec, so the first record written is a keyframe.
+		 */
+		private boolean open(long nowMillis) {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				Log.w(TAG, "Unable to create history directory");
+				return false;
+			}
+			final long[] starts = segmentStarts(dir);
+			final boolean reuse = starts.length > 0 && canAppendTo(segmentFile(dir, starts[starts.length - 1]));
+			final long start = reuse ? starts[starts.length - 1] : nowMillis;
+			final File segment = segmentFile(dir, start);
+			try {
+				segmentOut = new FileOutputStream(segment, true);
+				indexOut = new FileOutputStream(indexFile(dir, start), true);
+				segmentBytes = segmentOut.getChannel().size();
+				if (segmentBytes == 0) {
+					final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+					header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).flip();
+					segmentBytes = segmentOut.getChannel().write(header);
+				}
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to open history segment " + segment.getName() + ": " + e.getMessage());
+				close();
+				return false;
+			}
+			state.primed = false;
+			return true;
+		}
+
+		/**
+		 * Whether the newest segment can take more records: not full, and empty or in this format.
+		 */
+		private static boolean canAppendTo(File segment) {
+			final long length = segment.length();
+			if (length == 0) {
+				return true;
+			}
+			if (length >= SEGMENT_MAX_BYTES) {
+				return false;
+			}
+			final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			try (RandomAccessFile raf = new RandomAccessFile(segment, "r")) {
+				raf.getChannel().read(header, 0);
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to read history segment header: " + e.getMessage());
+				return false;
+			}
+			header.flip();
+			return hasValidHeader(header);
+		}
+
+		/**
+		 * Deletes segments whose whole span ended before the retention horizon.
+		 */
+		private void prune(long nowMillis) {
+			final long[] starts = segmentStarts(dir);
+			final long horizon = nowMillis - RETENTION_MS;
+			// A segment ends where the next one starts; the newest never qualifies.
+			for (int i = 0; i + 1 < starts.length && starts[i + 1] < horizon; i++) {
+				if (!segmentFile(dir, starts[i]).delete() || !indexFile(dir, starts[i]).delete()) {
+					Log.w(TAG, "Unable to prune history segment " + starts[i]);
+				}
+			}
+		}
+
+		void close() {
+			closeQuietly(segmentOut);
+			closeQuietly(indexOut);
+			segmentOut = null;
+			indexOut = null;
+		}
+
+		private static void closeQuietly(FileOutputStream out) {
+			if (isNull(out)) {
+				return;
+			}
+			try {
+				out.close();
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to close history file: " + e.getMessage());
+			}
+		}
+	}
+}
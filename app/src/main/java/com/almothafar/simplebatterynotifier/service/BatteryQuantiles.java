@@ -0,0 +1,216 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.model.ChargeSpeed;
+
+import java.io.File;
+import java.util.TimeZone;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Streaming quantiles (p50/p95/p99) of the current, the charging power and the temperature, per
+ * charge/discharge session and per day, for the spikes the roll-ups' averages hide: a radio burst, a
+ * thermal peak.
+ * <p>
+ * Every battery broadcast — the jitter ones too, since a spike is exactly what the significance filter
+ * calls jitter — folds its readings into the open session's and the open day's {@link QuantileSketch}es
+ * in fixed memory. The session restarts on a plug or unplug; the day closes at local midnight into a
+ * four-week ring ({@link QuantileTable}), and a week is its days merged. The open sketches (about 1.6 KB)
+ * are written in place only on a significant tick, at a session or day boundary, and when monitoring
+ * stops ({@link #flush}), like the roll-ups; a killed process loses at most the readings since the last
+ * significant tick.
+ * <p>
+ * The receiver writes on the battery worker thread ({@link BatteryWorker}) while the insights screen
+ * reads on its own background thread; the lock serializes access to the open sketches, and the closed
+ * days are read from the file outside it.
+ */
+public final class BatteryQuantiles {
+
+	/** The span of the insights peaks. */
+	public static final long PEAKS_SPAN_MS = 7 * BatteryRollups.DAY_MS;
+
+	private static final Object LOCK = new Object();
+	private static Engine engine;
+
+	private BatteryQuantiles() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Folds one battery broadcast into the open session and day.
+	 *
+	 * @param context     Application context
+	 * @param batteryDO   Current battery snapshot (may be null)
+	 * @param significant Whether the reading passed the significance filter; only then, or at a session
+	 *                    or day boundary, are the open sketches written
+	 */
+	public static void record(Context context, BatteryDO batteryDO, boolean significant) {
+		if (isNull(context) || isNull(batteryDO)) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		recordAt(context, batteryDO, now, TimeZone.getDefault().getOffset(now), significant);
+	}
+
+	static void recordAt(Context context, BatteryDO batteryDO, long nowMillis, int zoneOffsetMs) {
+		recordAt(context, batteryDO, nowMillis, zoneOffsetMs, true);
+	}
+
+	static void recordAt(Context context, BatteryDO batteryDO, long nowMillis, int zoneOffsetMs, boolean persist) {
+		final boolean charging = BatteryRateTracker.isChargingDirection(batteryDO.getStatus());
+		final long dayStart = RollupBucket.bucketStart(nowMillis, BatteryRollups.DAY_MS, zoneOffsetMs);
+		synchronized (LOCK) {
+			final QuantileTable table = engine(context).table;
+			addReadings(table.advanceSession(charging, nowMillis), batteryDO, charging);
+			addReadings(table.advanceDay(dayStart), batteryDO, charging);
+			if (persist || table.crossedBoundary()) {
+				table.persist();
+			}
+		}
+	}
+
+	/**
+	 * Writes the open sketches, when monitoring stops. Called on the battery worker as it quits.
+	 */
+	public static void flush() {
+		synchronized (LOCK) {
+			if (nonNull(engine)) {
+				engine.table.persist();
+			}
+		}
+	}
+
+	/**
+	 * Adds one tick's readings to a bucket: the current magnitude when plausible, the charging power
+	 * while charging with a usable estimate, and the temperature.
+	 */
+	static void addReadings(QuantileBucket bucket, BatteryDO batteryDO, boolean charging) {
+		final int microAmps = batteryDO.getCurrentMicroAmps();
+		if (BatteryRateTracker.isPlausibleCurrentMicroAmps(microAmps)) {
+			bucket.current.add(Math.abs(microAmps / 1000.0));
+		}
+		if (charging) {
+			final ChargeSpeed speed = ChargeSpeed.fromMeasurements(microAmps, batteryDO.getVoltage());
+			if (speed.isKnown()) {
+				bucket.power.add(speed.getMilliwatts());
+			}
+		}
+		bucket.temperature.add(batteryDO.getTemperature());
+	}
+
+	/**
+	 * The peaks of the days overlapping the last {@code spanMillis}, including today. Reads the file, so
+	 * call it off the main thread; the lock is held only to copy the open day.
+	 *
+	 * @param context    Application context
+	 * @param spanMillis how far back to merge
+	 *
+	 * @return the peaks, or null when nothing has been recorded in the span
+	 */
+	public static Peaks recentPeaks(Context context, long spanMillis) {
+		final Context appContext = context.getApplicationContext();
+		final long sinceMillis = System.currentTimeMillis() - spanMillis;
+		final QuantileBucket merged = new QuantileBucket();
+		final boolean live;
+		long openDayStart = Long.MAX_VALUE;
+		synchronized (LOCK) {
+			// Only the live open day, which holds readings not written yet, is copied under the lock the
+			// worker takes every tick; without an engine the file is current.
+			live = nonNull(engine) && engine.belongsTo(appContext);
+			if (live) {
+				openDayStart = engine.table.copyOpenDaySince(sinceMillis, merged);
+			}
+		}
+		final File file = QuantileTable.fileFor(appContext);
+		if (live) {
+			QuantileTable.mergeClosedDaysBefore(file, sinceMillis, openDayStart, merged);
+		} else {
+			QuantileTable.mergeDaysSince(file, sinceMillis, merged);
+		}
+		return merged.isEmpty() ? null : Peaks.of(merged);
+	}
+
+	/**
+	 * The peaks of the current charge/discharge session.
+	 *
+	 * @param context Application context
+	 *
+	 * @return the peaks, or null before the first reading
+	 */
+	public static Peaks sessionPeaks(Context context) {
+		final Context appContext = context.getApplicationContext();
+		final QuantileBucket session = new QuantileBucket();
+		final boolean live;
+		boolean found = false;
+		synchronized (LOCK) {
+			live = nonNull(engine) && engine.belongsTo(appContext);
+			if (live) {
+				found = engine.table.mergeSession(session);
+			}
+		}
+		if (!live) {
+			// Without an engine the file is current; read it outside the lock.
+			found = QuantileTable.mergeSession(QuantileTable.fileFor(appContext), session);
+		}
+		return !found || session.isEmpty() ? null : Peaks.of(session);
+	}
+
+	private static Engine engine(Context context) {
+		final Context appContext = context.getApplicationContext();
+		if (isNull(engine) || !engine.belongsTo(appContext)) {
+			engine = new Engine(appContext);
+		}
+		return engine;
+	}
+
+	/**
+	 * The quantiles of a merged span. Each figure is only meaningful when its {@code has*} flag is set.
+	 *
+	 * @param hasCurrent              whether any plausible current was recorded
+	 * @param medianCurrentMa         p50 current magnitude in mA
+	 * @param p95CurrentMa            p95 current magnitude in mA
+	 * @param hasPower                whether any charging power was recorded
+	 * @param medianPowerMw           p50 charging power in mW
+	 * @param p95PowerMw              p95 charging power in mW
+	 * @param hasTemperature          whether any temperature was recorded
+	 * @param medianTemperatureTenths p50 temperature in tenths of a degree Celsius
+	 * @param p99TemperatureTenths    p99 temperature in tenths of a degree Celsius
+	 */
+	public record Peaks(boolean hasCurrent, int medianCurrentMa, int p95CurrentMa,
+	                    boolean hasPower, int medianPowerMw, int p95PowerMw,
+	                    boolean hasTemperature, int medianTemperatureTenths, int p99TemperatureTenths) {
+
+		static Peaks of(QuantileBucket bucket) {
+			return new Peaks(!bucket.current.isEmpty(), round(bucket.current, 0.5), round(bucket.current, 0.95),
+					!bucket.power.isEmpty(), round(bucket.power, 0.5), round(bucket.power, 0.95),
+					!bucket.temperature.isEmpty(), round(bucket.temperature, 0.5), round(bucket.temperature, 0.99));
+		}
+
+		private static int round(QuantileSketch sketch, double q) {
+			return sketch.isEmpty() ? 0 : (int) Math.round(sketch.quantile(q));
+		}
+	}
+
+	/**
+	 * The process's open table, reloaded when the application changes (a fresh process, or a fresh
+	 * Robolectric test application).
+	 */
+	private static final class Engine {
+
+		private final Context appContext;
+		private final QuantileTable table;
+
+		Engine(Context appContext) {
+			this.appContext = appContext;
+			this.table = QuantileTable.load(appContext);
+		}
+
+		boolean belongsTo(Context context) {
+			return nonNull(appContext) && appContext == context;
+		}
+	}
+}
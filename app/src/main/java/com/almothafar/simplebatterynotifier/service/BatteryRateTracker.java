@@ -1,16 +1,18 @@
 package com.almothafar.simplebatterynotifier.service;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.BatteryManager;
 
 import com.almothafar.simplebatterynotifier.R;
 import com.almothafar.simplebatterynotifier.model.BatteryDO;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 /**
  * Computes the live battery charge/drain <em>rate</em> in percentage-points per hour (%/h) and the
@@ -18,33 +20,48 @@ import static java.util.Objects.isNull;
  * <p>
  * The rate is deliberately <b>averaged over a stable window</b>, not instantaneous: a wobbling number
  * erodes trust, and the value of a drain readout is the <em>sustained</em> rate. There is <b>no polling
- * timer</b> — samples piggyback the existing {@code ACTION_BATTERY_CHANGED} broadcasts and the
- * MainActivity foreground refresh, both of which already run. The window is persisted in
- * {@link SharedPreferences} (like {@link BatteryHealthTracker}) so it survives process restarts.
+ * timer</b> of its own — samples piggyback the {@code ACTION_BATTERY_CHANGED} broadcasts, and the
+ * readings {@link SamplingScheduler} takes when those stall. The window lives in memory as a primitive
+ * ring ({@link RateSampleBuffer}) and is mirrored in place into a small binary file
+ * ({@link RateWindowStore}) so it survives process restarts without a per-tick string round-trip.
  * <p>
  * The %/h is derived best-effort and degrades gracefully:
  * <ol>
  *   <li>From the averaged instantaneous current &divide; full capacity, when both are trustworthy.</li>
- *   <li>Else from the level change over the window (capacity-free — the path that still works on
- *       Kirin/HiSilicon devices where the charge counter is unreliable, see #69 / #94).</li>
+ *   <li>Else from a least-squares line through every level in the window (capacity-free — the path
+ *       that still works on Kirin/HiSilicon devices where the charge counter is unreliable, see #69 /
+ *       #94).</li>
  *   <li>Else no rate (only the raw mA may still be shown).</li>
  * </ol>
  * Each output — the rate and the instantaneous current — is gated on its own merit, since on some
  * devices one reading is garbage while the other is fine (the Kirin Mate 10 Pro), mirroring #94.
+ * <p>
+ * Switching between sources made the value jump whenever the current average came or went. Every
+ * accepted sample therefore also feeds a {@link RateKalmanFilter} that fuses both sources by their
+ * noise, in constant time; once its estimate is settled it replaces the windowed one and carries a 95%
+ * interval ({@link BatteryRate#rateMarginPercentPerHour()}), shown as "12 ± 2%/h". The window's estimate
+ * above only covers the warm-up before that.
+ * <p>
+ * A ten-minute average is slow to follow an abrupt workload change, such as a game starting. A
+ * {@link CurrentChangeDetector} watches the current, and when it confirms a shift the window drops the
+ * samples from before it and the filter reopens its rate, so the rate (and the fast-drain streak built
+ * on it) follows the new load within tens of seconds. Direction flips never reach it: they reset the
+ * window, the filter and the detector together.
+ * <p>
+ * A single plausible burst (a camera flash, a modem burst at 4 A) would still lift the ten-minute mean,
+ * so each accepted reading's current first passes a {@link CurrentSpikeFilter} (median/MAD over the
+ * last two minutes); a spike keeps its level in the window but not its current. The screen can be
+ * turned off per device, for comparison, and counts what it rejects.
  */
 public final class BatteryRateTracker {
 
-	// Persisted trailing window of samples ("t:level:currentUa" joined by ';') and the direction it was
-	// captured in (1 charging / 0 discharging), so a charge/discharge flip resets the window.
-	private static final String PREF_RATE_SAMPLES = "_battery_rate_samples";
-	private static final String PREF_RATE_CHARGING = "_battery_rate_charging";
-
 	// Trailing window length: long enough that the level-over-time source sees a real change (at 20%/h,
 	// 1% takes ~3 min) and that the current average is stable, short enough to still track "right now".
 	static final long WINDOW_MS = 10L * 60 * 1000;
-	// Don't append more often than this, so the 3 s foreground refresh can't flood the window.
+	// Don't append more often than this, so a burst of broadcasts can't flood the window.
 	static final long MIN_SAMPLE_SPACING_MS = 20L * 1000;
-	// Hard cap on retained samples (defensive; the age + spacing rules already bound it).
+	// Hard cap on the samples the list-based helpers keep (defensive; the age + spacing rules already
+	// bound the window well below it).
 	private static final int MAX_SAMPLES = 60;
 
 	// Source A (current): needs a plausible full capacity and a few current readings spanning a short
@@ -53,6 +70,27 @@ public final class BatteryRateTracker {
 	static final long MIN_SPAN_CURRENT_MS = 45L * 1000;
 	// Source B (level-over-time): needs a longer span so a 1% tick resolves into a sensible rate.
 	static final long MIN_SPAN_LEVEL_MS = 3L * 60 * 1000;
+	// ...unless the level has already moved two or more steps: the fit over every sample then pins the
+	// slope well before a lone step would, which is what makes a fast drain readable early.
+	static final long MIN_SPAN_LEVEL_FIT_MS = 90L * 1000;
+	// With this many samples, the line must explain at least MIN_LEVEL_FIT_R2 of the level's variance, or
+	// the level is wobbling (a flapping reading) rather than trending. A single clean step explains up to
+	// 0.75, so it still passes; back-and-forth readings don't.
+	static final int MIN_LEVEL_FIT_SAMPLES = 4;
+	static final double MIN_LEVEL_FIT_R2 = 0.5;
+
+	// Multi-horizon rates (RateHorizons): the last minute, the window and the last hour, all read from the
+	// window's own ring, which keeps an hour of samples at the window's spacing (the window is its newest
+	// suffix), plus the session since the last plug/unplug. A horizon is only reported once its samples
+	// cover at least half of it, so "last hour" never just repeats ten minutes of data.
+	static final long HORIZON_MINUTE_MS = 60L * 1000;
+	static final long HORIZON_HOUR_MS = 60L * 60 * 1000;
+	// The ring capacity of the in-memory window and its binary file.
+	static final int HORIZON_CAPACITY = (int) (HORIZON_HOUR_MS / MIN_SAMPLE_SPACING_MS) + 1;
+	// Averaging the current over a horizon takes at least this many plausible readings.
+	static final int MIN_HORIZON_CURRENT_SAMPLES = 2;
+	// The sample horizons, shortest first: computeHorizons extends its sums across them in order.
+	private static final long[] HORIZON_SPANS_MS = {HORIZON_MINUTE_MS, WINDOW_MS, HORIZON_HOUR_MS};
 
 	// A phone never sources/sinks more than a few amps; anything past this is a bad/units-wrong reading.
 	static final int MAX_PLAUSIBLE_CURRENT_MA = 15000;
@@ -70,6 +108,23 @@ public final class BatteryRateTracker {
 	// getIntProperty returns this for an unsupported property.
 	private static final int PROPERTY_UNSUPPORTED = Integer.MIN_VALUE;
 
+	// Never appended to: stands in for the window on a direction flip, before record() resets it.
+	private static final RateSampleBuffer EMPTY_WINDOW = new RateSampleBuffer(1);
+
+	// The process-wide window (see windowStore); every access holds the lock. The receivers and the
+	// foreground refresh both read and feed it, so it is serialized here rather than relying on a looper.
+	private static final Object WINDOW_LOCK = new Object();
+	private static RateWindowStore windowStore;
+	// getHorizons' running fit and per-horizon rates, reused under WINDOW_LOCK so a read allocates only
+	// its result.
+	private static final LevelRegression HORIZON_FIT = new LevelRegression();
+	private static final int[] HORIZON_RATES = new int[HORIZON_SPANS_MS.length];
+
+	// Debug counter: window restarts on a confirmed workload change, since process start.
+	private static final AtomicLong WORKLOAD_CHANGES = new AtomicLong();
+	// Readings the spike filter kept out of the window's current, since process start.
+	private static final AtomicLong SPIKES_REJECTED = new AtomicLong();
+
 	private BatteryRateTracker() {
 		// Utility class - prevent instantiation
 	}
@@ -97,30 +152,54 @@ public final class BatteryRateTracker {
 
 		final long now = System.currentTimeMillis();
 		final boolean charging = isChargingDirection(batteryDO.getStatus());
-		// Rate window lives in the backup-excluded transient file (#167), not the default prefs.
-		final SharedPreferences prefs = TransientState.prefs(context);
-
-		final boolean sameDirection = sameDirection(prefs, charging);
-		final List<Sample> window = loadWindow(prefs, charging, now);
-
 		final int level = batteryDO.getBatteryPercentageInt();
-		final List<Sample> updated = appendAndTrim(window, new Sample(now, level, batteryDO.getCurrentMicroAmps()), now);
+		final int currentMicroAmps = batteryDO.getCurrentMicroAmps();
 
-		// Persist only when something actually changed. ACTION_BATTERY_CHANGED can fire every few seconds
-		// (voltage/temperature deltas); when the spacing throttle rejected the sample and nothing was
-		// trimmed, rewriting the whole preferences file would be needless disk I/O in a battery app.
-		if (!sameDirection || !updated.equals(window)) {
-			prefs.edit()
-			     .putString(PREF_RATE_SAMPLES, serializeSamples(updated))
-			     .putInt(PREF_RATE_CHARGING, charging ? 1 : 0)
-			     .apply();
-		}
+		final AlertSettings settings = AlertSettings.current(context);
+		synchronized (WINDOW_LOCK) {
+			final RateWindowStore store = windowStore(context);
+			if (!store.sameDirection(charging)) {
+				store.reset(charging);
+			}
+			final RateSampleBuffer window = store.buffer();
+			// The window's aged-out samples stay in the ring for the horizons until they are an hour old.
+			final boolean trimmed = window.trimToWindow(now, WINDOW_MS) | window.trimHistory(now, HORIZON_HOUR_MS);
+			// Only a reading the window will take is screened, so the spike filter sees the window's spacing.
+			final int windowMicroAmps = isSpaced(window, now)
+			                            ? screenSpike(store.spikeFilter(), currentMicroAmps, settings.spikeFilterEnabled())
+			                            : currentMicroAmps;
+			final int slot = appendIfSpaced(window, now, level, windowMicroAmps, now);
+			if (slot >= 0) {
+				if (!store.hasSession()) {
+					store.startSession(now, level);
+				}
+				// An abrupt workload change (a game starting, navigation ending) restarts the window at the
+				// change, rather than averaging across it until the old samples age out. The detector sees the
+				// raw current: it clips spikes itself, and the spike filter would hold back a genuine shift. The
+				// older samples only leave the window, so the horizons still span the change.
+				final long changedAt = store.changeDetector().update(now, currentMicroAmps, settings.changeSensitivity());
+				if (changedAt != CurrentChangeDetector.NO_CHANGE && window.dropBefore(changedAt)) {
+					store.filter().forgetRate();
+					store.spikeFilter().reset();
+					WORKLOAD_CHANGES.incrementAndGet();
+				}
+				store.filter().update(now, level, currentRatePercentPerHour(windowMicroAmps, batteryDO.getCapacity(), charging));
+			}
 
-		return computeRate(updated, batteryDO.getCapacity(), charging, now, batteryDO.getCurrentMicroAmps());
+			// Persist only what changed, in place: the accepted sample's slot, or just the header after a
+			// trim. ACTION_BATTERY_CHANGED can fire every few seconds (voltage/temperature deltas); when the
+			// spacing throttle rejects the sample and nothing was trimmed, nothing is written at all.
+			if (slot >= 0) {
+				store.persistSlot(slot);
+			} else if (trimmed) {
+				store.persistHeader();
+			}
+			return withFusedRate(computeRate(window, batteryDO.getCapacity(), charging, now, currentMicroAmps), store.filter());
+		}
 	}
 
 	/**
-	 * Reads the current rate from the persisted window without adding a sample. Used by the ongoing
+	 * Reads the current rate from the in-memory window without adding a sample. Used by the ongoing
 	 * status notification, which only displays the value; the window is fed by {@link #record}.
 	 *
 	 * @param context   Application context
@@ -134,10 +213,67 @@ public final class BatteryRateTracker {
 		}
 		final long now = System.currentTimeMillis();
 		final boolean charging = isChargingDirection(batteryDO.getStatus());
-		// Rate window lives in the backup-excluded transient file (#167), not the default prefs.
-		final SharedPreferences prefs = TransientState.prefs(context);
 
-		return computeRate(loadWindow(prefs, charging, now), batteryDO.getCapacity(), charging, now, batteryDO.getCurrentMicroAmps());
+		synchronized (WINDOW_LOCK) {
+			final RateWindowStore store = windowStore(context);
+			// A direction flip invalidates the window; the next record() resets it, this read shows nothing.
+			if (!store.sameDirection(charging)) {
+				return computeRate(EMPTY_WINDOW, batteryDO.getCapacity(), charging, now, batteryDO.getCurrentMicroAmps());
+			}
+			// Age-trim so a stale pre-restart window (e.g. read at boot before the first record()) can't
+			// surface as a current rate. Memory only: the file header catches up on the next record().
+			final RateSampleBuffer window = store.buffer();
+			window.trimToWindow(now, WINDOW_MS);
+			return withFusedRate(computeRate(window, batteryDO.getCapacity(), charging, now, batteryDO.getCurrentMicroAmps()),
+					store.filter());
+		}
+	}
+
+	/**
+	 * Reads the rate over several horizons — the last minute, the window, the last hour and the whole
+	 * charge/discharge session — from the window's ring, without adding a sample. For the details table
+	 * and the expanded ongoing notification; the ring is fed by {@link #record}.
+	 *
+	 * @param context   Application context
+	 * @param batteryDO Current battery snapshot (may be null)
+	 *
+	 * @return the per-horizon rates, or {@link RateHorizons#empty()} when {@code batteryDO} is null or the
+	 * direction just flipped
+	 */
+	public static RateHorizons getHorizons(Context context, BatteryDO batteryDO) {
+		if (isNull(context) || isNull(batteryDO)) {
+			return RateHorizons.empty();
+		}
+		final long now = System.currentTimeMillis();
+		final boolean charging = isChargingDirection(batteryDO.getStatus());
+
+		synchronized (WINDOW_LOCK) {
+			final RateWindowStore store = windowStore(context);
+			if (!store.sameDirection(charging) || !store.hasSession()) {
+				return RateHorizons.empty();
+			}
+			// Memory only, like getRate's trim; the file catches up on the next record().
+			final RateSampleBuffer ring = store.buffer();
+			ring.trimToWindow(now, WINDOW_MS);
+			ring.trimHistory(now, HORIZON_HOUR_MS);
+			return computeHorizons(ring, HORIZON_FIT, HORIZON_RATES, store.sessionStartMillis(), store.sessionStartLevel(),
+					batteryDO.getCapacity(), charging, now);
+		}
+	}
+
+	/**
+	 * Workload changes that restarted the window since process start (see {@link CurrentChangeDetector}).
+	 */
+	static long workloadChanges() {
+		return WORKLOAD_CHANGES.get();
+	}
+
+	/**
+	 * Current readings kept out of the window's average as spikes since process start (see
+	 * {@link CurrentSpikeFilter}).
+	 */
+	static long spikesRejected() {
+		return SPIKES_REJECTED.get();
 	}
 
 	/**
@@ -154,35 +290,22 @@ public final class BatteryRateTracker {
 	}
 
 	/**
-	 * Whether the persisted window was captured in the same charge/discharge direction as the current
-	 * snapshot. A flip invalidates the whole window (mixed slopes/currents), producing the brief
-	 * post-unplug warm-up during which no rate is shown.
+	 * The process-wide window, loaded from its binary file once per process (migrating the legacy string
+	 * form on first run) and kept in memory afterwards. Callers hold {@link #WINDOW_LOCK}.
 	 *
-	 * @param prefs    the default shared preferences
-	 * @param charging the current direction
+	 * @param context Application context
 	 *
-	 * @return true when a window exists and matches the direction
+	 * @return the loaded window store
 	 */
-	private static boolean sameDirection(final SharedPreferences prefs, final boolean charging) {
-		return prefs.contains(PREF_RATE_CHARGING) && (prefs.getInt(PREF_RATE_CHARGING, 0) == 1) == charging;
-	}
-
-	/**
-	 * Loads the persisted window for the current direction, age-trimmed to the trailing window so a
-	 * stale pre-restart window (e.g. read at boot before the first {@link #record}) can't surface as a
-	 * current rate. Returns an empty window on a direction flip.
-	 *
-	 * @param prefs    the default shared preferences
-	 * @param charging the current direction
-	 * @param now      current time in millis
-	 *
-	 * @return the loaded samples oldest-first (possibly empty)
-	 */
-	private static List<Sample> loadWindow(final SharedPreferences prefs, final boolean charging, final long now) {
-		if (!sameDirection(prefs, charging)) {
-			return new ArrayList<>();
+	private static RateWindowStore windowStore(Context context) {
+		final Context appContext = context.getApplicationContext();
+		if (isNull(windowStore) || !windowStore.belongsTo(appContext)) {
+			if (nonNull(windowStore)) {
+				windowStore.close();
+			}
+			windowStore = RateWindowStore.load(appContext, HORIZON_CAPACITY);
 		}
-		return trimToWindow(parseSamples(prefs.getString(PREF_RATE_SAMPLES, "")), now);
+		return windowStore;
 	}
 
 	/**
@@ -198,8 +321,50 @@ public final class BatteryRateTracker {
 	}
 
 	/**
-	 * Appends a sample under the spacing rule and drops anything older than the window. Pure so the
-	 * windowing can be unit-tested.
+	 * Appends a sample to the buffer under the spacing rule; the ring's capacity caps the retained count
+	 * (keeping the most recent {@link #MAX_SAMPLES}). The caller trims first.
+	 *
+	 * @param window           the trimmed window
+	 * @param timeMillis       the candidate sample's capture time
+	 * @param level            the candidate's battery level
+	 * @param currentMicroAmps the candidate's current in µA
+	 * @param now              current time in millis
+	 *
+	 * @return the physical slot written, or -1 when the sample was throttled/out of window
+	 */
+	private static int appendIfSpaced(RateSampleBuffer window, long timeMillis, int level,
+	                                  int currentMicroAmps, long now) {
+		if (!isSpaced(window, timeMillis) || timeMillis < now - WINDOW_MS) {
+			return -1;
+		}
+		return window.append(timeMillis, level, currentMicroAmps);
+	}
+
+	private static boolean isSpaced(RateSampleBuffer window, long timeMillis) {
+		return window.isEmpty() || timeMillis - window.lastTime() >= MIN_SAMPLE_SPACING_MS;
+	}
+
+	/**
+	 * Passes a reading through the spike filter when it is enabled, counting rejections. Disabled, the
+	 * filter is emptied, so turning it back on doesn't judge against readings from before.
+	 *
+	 * @return the reading, or {@link CurrentSpikeFilter#REJECTED} (read as unsupported) for a spike
+	 */
+	private static int screenSpike(CurrentSpikeFilter spikeFilter, int microAmps, boolean enabled) {
+		if (!enabled) {
+			spikeFilter.reset();
+			return microAmps;
+		}
+		final int screened = spikeFilter.screen(microAmps);
+		if (screened == CurrentSpikeFilter.REJECTED && microAmps != CurrentSpikeFilter.REJECTED) {
+			SPIKES_REJECTED.incrementAndGet();
+		}
+		return screened;
+	}
+
+	/**
+	 * List form of the append-under-spacing + age-trim step {@link #record} performs on the buffer. Pure
+	 * so the windowing rule can be unit-tested against plain lists.
 	 *
 	 * @param window existing samples, oldest first
 	 * @param sample the candidate new sample
@@ -208,23 +373,15 @@ public final class BatteryRateTracker {
 	 * @return the new window, oldest first
 	 */
 	static List<Sample> appendAndTrim(final List<Sample> window, final Sample sample, final long now) {
-		final List<Sample> result = trimToWindow(window, now);
-		final boolean spacedEnough = result.isEmpty()
-				|| sample.timeMillis() - result.get(result.size() - 1).timeMillis() >= MIN_SAMPLE_SPACING_MS;
-		if (spacedEnough && sample.timeMillis() >= now - WINDOW_MS) {
-			result.add(sample);
-		}
-		// Guard against unbounded growth if the clock jumps; keep the most recent MAX_SAMPLES.
-		if (result.size() > MAX_SAMPLES) {
-			return new ArrayList<>(result.subList(result.size() - MAX_SAMPLES, result.size()));
-		}
-		return result;
+		final RateSampleBuffer buffer = RateSampleBuffer.of(window, MAX_SAMPLES);
+		buffer.trimToWindow(now, WINDOW_MS);
+		appendIfSpaced(buffer, sample.timeMillis(), sample.level(), sample.currentMicroAmps(), now);
+		return buffer.toList();
 	}
 
 	/**
-	 * Drops samples outside the trailing window: older than {@link #WINDOW_MS} or future-dated (a clock
-	 * jump). Pure so the age trim can be unit-tested; shared by the load and append paths so the two
-	 * cannot disagree on what "fresh" means.
+	 * List form of the buffer's age trim: drops samples older than {@link #WINDOW_MS} or future-dated (a
+	 * clock jump). Pure so the trim rule can be unit-tested against plain lists.
 	 *
 	 * @param window samples oldest-first
 	 * @param now    current time in millis
@@ -232,14 +389,9 @@ public final class BatteryRateTracker {
 	 * @return a new list holding only the fresh samples, oldest-first
 	 */
 	static List<Sample> trimToWindow(final List<Sample> window, final long now) {
-		final List<Sample> result = new ArrayList<>(window.size() + 1);
-		final long cutoff = now - WINDOW_MS;
-		for (final Sample s : window) {
-			if (s.timeMillis() >= cutoff && s.timeMillis() <= now) {
-				result.add(s);
-			}
-		}
-		return result;
+		final RateSampleBuffer buffer = bufferOf(window);
+		buffer.trimToWindow(now, WINDOW_MS);
+		return buffer.toList();
 	}
 
 	/**
@@ -247,7 +399,7 @@ public final class BatteryRateTracker {
 	 * (apart from the {@code BatteryManager} status constants) so it is fully unit-testable.
 	 * <p>
 	 * The %/h magnitude prefers the averaged current &divide; capacity (source A) and falls back to the
-	 * level change over the window (source B). A rate is only reported once the window has enough data
+	 * least-squares level slope over the window (source B). A rate is only reported once the window has enough data
 	 * (the post-unplug warm-up shows nothing), and never when it rounds to 0 (a static level) or exceeds
 	 * a plausible ceiling (a garbage reading). The current is reported independently, signed by
 	 * direction so it reads negative while discharging and positive while charging regardless of the
@@ -268,11 +420,16 @@ public final class BatteryRateTracker {
 	 */
 	static BatteryRate computeRate(final List<Sample> window, final int capacityMah, final boolean charging,
 	                               final long nowMillis, final int latestCurrentMicroAmps) {
+		return computeRate(bufferOf(window), capacityMah, charging, nowMillis, latestCurrentMicroAmps);
+	}
+
+	private static BatteryRate computeRate(final RateSampleBuffer window, final int capacityMah, final boolean charging,
+	                                       final long nowMillis, final int latestCurrentMicroAmps) {
 		// Floor-gate on the windowed average when available (#173): the average moves slowly, so the
 		// row's visibility can't flicker with a momentary dip, and sustained garbage (Kirin pre-#152-v2
 		// calibration averages ~1 mA) stays hidden. The instant gates itself only while the window is
 		// still too fresh to average.
-		final int avgMicroAmps = averagedCurrentMicroAmps(window);
+		final int avgMicroAmps = window.averagedCurrentMicroAmps(MIN_CURRENT_SAMPLES, MIN_SPAN_CURRENT_MS);
 		final boolean hasAvg = avgMicroAmps != PROPERTY_UNSUPPORTED;
 		final int floorGateMicroAmps = hasAvg ? avgMicroAmps : latestCurrentMicroAmps;
 		final boolean hasCurrent = isPlausibleCurrentMicroAmps(latestCurrentMicroAmps)
@@ -281,12 +438,52 @@ public final class BatteryRateTracker {
 		final boolean hasAvgCurrent = hasCurrent && hasAvg;
 		final int signedAvgMilliAmps = hasAvgCurrent ? signedCurrentMilliAmps(avgMicroAmps, charging) : 0;
 
-		final int pph = ratePercentPerHour(window, capacityMah);
+		final int pph = ratePercentPerHour(window, capacityMah, avgMicroAmps);
 		final boolean hasRate = pph >= 1 && pph <= MAX_PLAUSIBLE_RATE_PPH;
 
 		return new BatteryRate(hasRate, hasRate ? pph : 0, charging, hasCurrent, signedMilliAmps, hasAvgCurrent, signedAvgMilliAmps);
 	}
 
+	/**
+	 * The rate a single current reading implies, signed like the level (positive while charging), for the
+	 * filter's direct rate measurement. Pure so it is unit-testable.
+	 *
+	 * @param microAmps   raw current in µA
+	 * @param capacityMah measured full capacity in mAh, or 0 when unknown/untrusted (#69)
+	 * @param charging    direction: true charging, false discharging
+	 *
+	 * @return the implied rate in %/h, or NaN when the current or capacity can't be trusted
+	 */
+	static double currentRatePercentPerHour(int microAmps, int capacityMah, boolean charging) {
+		if (capacityMah <= 0 || !isPlausibleCurrentMicroAmps(microAmps)) {
+			return Double.NaN;
+		}
+		final double magnitude = Math.abs(microAmps / 1000.0) / capacityMah * 100.0;
+		return charging ? magnitude : -magnitude;
+	}
+
+	/**
+	 * Replaces the windowed rate with the filter's once the filter has settled, with its 95% interval. A
+	 * settled estimate pointing against the direction (a heavy load on a weak charger, say) is no rate in
+	 * that direction, so it reads as none rather than falling back. Unsettled, the windowed result stands
+	 * unchanged — the warm-up. Pure so it is unit-testable.
+	 *
+	 * @param windowed the window's result (current fields included)
+	 * @param filter   the filter fed from the same window
+	 *
+	 * @return the result to report
+	 */
+	static BatteryRate withFusedRate(BatteryRate windowed, RateKalmanFilter filter) {
+		if (!filter.isSettled()) {
+			return windowed;
+		}
+		final double signed = windowed.charging() ? filter.rate() : -filter.rate();
+		final int pph = (int) Math.round(Math.max(0, signed));
+		final boolean hasRate = pph >= 1 && pph <= MAX_PLAUSIBLE_RATE_PPH;
+		return new BatteryRate(hasRate, hasRate ? pph : 0, windowed.charging(), windowed.hasCurrent(), windowed.currentMilliAmps(),
+				windowed.hasAvgCurrent(), windowed.avgCurrentMilliAmps(), hasRate ? (int) Math.round(filter.marginPercentPerHour()) : 0);
+	}
+
 	/**
 	 * The averaged instantaneous current over the window in µA, or {@link Integer#MIN_VALUE} when the
 	 * window doesn't yet hold enough spaced plausible readings — the same smoothing criteria source A
@@ -298,57 +495,144 @@ public final class BatteryRateTracker {
 	 * @return averaged current in µA, or {@link Integer#MIN_VALUE} when not enough data yet
 	 */
 	static int averagedCurrentMicroAmps(final List<Sample> window) {
-		if (window.size() < 2) {
-			return PROPERTY_UNSUPPORTED;
-		}
-		final long spanMs = window.get(window.size() - 1).timeMillis() - window.get(0).timeMillis();
-		double sumMicroAmps = 0;
-		int currentSamples = 0;
-		for (final Sample s : window) {
-			if (isPlausibleCurrentMicroAmps(s.currentMicroAmps())) {
-				sumMicroAmps += s.currentMicroAmps();
-				currentSamples++;
-			}
-		}
-		if (currentSamples < MIN_CURRENT_SAMPLES || spanMs < MIN_SPAN_CURRENT_MS) {
-			return PROPERTY_UNSUPPORTED;
-		}
-		return (int) Math.round(sumMicroAmps / currentSamples);
+		return bufferOf(window).averagedCurrentMicroAmps(MIN_CURRENT_SAMPLES, MIN_SPAN_CURRENT_MS);
 	}
 
 	/**
 	 * The smoothed %/h magnitude from a window: source A (averaged current &divide; capacity) preferred,
-	 * source B (level change over time) as the capacity-free fallback. Returns 0 when neither source has
+	 * source B (least-squares level slope over time) as the capacity-free fallback. Returns 0 when neither source has
 	 * enough trustworthy data yet.
 	 *
-	 * @param window      samples oldest-first
-	 * @param capacityMah measured full capacity in mAh, or 0 when unknown
+	 * @param window       samples oldest-first
+	 * @param capacityMah  measured full capacity in mAh, or 0 when unknown
+	 * @param avgMicroAmps the window's averaged current (already computed by the caller), or
+	 *                     {@link Integer#MIN_VALUE} when not enough data yet
 	 *
 	 * @return rounded %/h magnitude, or 0 when unavailable
 	 */
-	private static int ratePercentPerHour(final List<Sample> window, final int capacityMah) {
+	private static int ratePercentPerHour(final RateSampleBuffer window, final int capacityMah, final int avgMicroAmps) {
 		if (window.size() < 2) {
 			return 0;
 		}
-		final Sample first = window.get(0);
-		final Sample last = window.get(window.size() - 1);
-		final long spanMs = last.timeMillis() - first.timeMillis();
+		final long spanMs = window.lastTime() - window.firstTime();
 
 		// Source A: averaged current / capacity (average shared with the displayed avg current, #173).
-		final int avgMicroAmps = averagedCurrentMicroAmps(window);
 		if (capacityMah > 0 && avgMicroAmps != PROPERTY_UNSUPPORTED) {
 			return (int) Math.round(Math.abs(avgMicroAmps / 1000.0) / capacityMah * 100.0);
 		}
 
-		// Source B: level change over time (capacity-free).
-		if (spanMs >= MIN_SPAN_LEVEL_MS) {
-			final int deltaLevel = last.level() - first.level();
-			if (deltaLevel != 0) {
-				final double hours = spanMs / 3_600_000.0;
-				return (int) Math.round(Math.abs(deltaLevel) / hours);
+		// Source B: level slope over time (capacity-free). The fit uses every sample rather than the two
+		// endpoints, so one early or late step no longer swings the rate by a whole percent over the span.
+		final int steps = Math.abs(window.lastLevel() - window.firstLevel());
+		if (steps == 0 || (spanMs < MIN_SPAN_LEVEL_MS && (steps < 2 || spanMs < MIN_SPAN_LEVEL_FIT_MS))) {
+			return 0;
+		}
+		if (window.size() >= MIN_LEVEL_FIT_SAMPLES && !(window.levelFitRSquared() >= MIN_LEVEL_FIT_R2)) {
+			return 0;
+		}
+		final double slope = window.levelSlopePerHour();
+		return Double.isNaN(slope) ? 0 : (int) Math.round(Math.abs(slope));
+	}
+
+	/**
+	 * Computes every horizon's rate in one pass over the ring's history, newest sample first: the running
+	 * sums (a plausible-current total and a {@link LevelRegression}) grow backwards in time, and each
+	 * horizon's rate is read off as the pass crosses its start. The session rate needs no samples at all —
+	 * it is the level change since the session's first sample. Pure and Android-free, so it is unit-testable.
+	 * <p>
+	 * Each horizon uses the same sources as {@link #computeRate}: the averaged current &divide; capacity
+	 * when both are trustworthy, else the least-squares level slope under the same gates. A horizon whose
+	 * samples cover less than half of it is not reported.
+	 *
+	 * @param ring               the window's ring, its history trimmed to {@link #HORIZON_HOUR_MS}
+	 * @param fit                scratch for the running level fit; cleared first
+	 * @param rates              scratch for the per-horizon rates, one per horizon span
+	 * @param sessionStartMillis when the session's first sample was taken
+	 * @param sessionStartLevel  that sample's level
+	 * @param capacityMah        measured full capacity in mAh, or 0 when unknown
+	 * @param charging           the session's direction
+	 * @param now                current time in millis
+	 *
+	 * @return the per-horizon rates
+	 */
+	static RateHorizons computeHorizons(RateSampleBuffer ring, LevelRegression fit, int[] rates, long sessionStartMillis,
+	                                    int sessionStartLevel, int capacityMah, boolean charging, long now) {
+		final int newestIndex = ring.historySize() - 1;
+		if (newestIndex < 0) {
+			return RateHorizons.empty();
+		}
+		fit.clear();
+		Arrays.fill(rates, 0);
+		long currentSum = 0;
+		int currentCount = 0;
+		final int newestLevel = ring.historyLevelAt(newestIndex);
+		final long newestTime = ring.historyTimeAt(newestIndex);
+		int oldestLevel = newestLevel;
+		long oldestTime = newestTime;
+
+		int index = newestIndex;
+		for (int h = 0; h < HORIZON_SPANS_MS.length; h++) {
+			final long span = HORIZON_SPANS_MS[h];
+			for (; index >= 0 && ring.historyTimeAt(index) >= now - span; index--) {
+				oldestTime = ring.historyTimeAt(index);
+				oldestLevel = ring.historyLevelAt(index);
+				fit.add(oldestTime, oldestLevel);
+				final int microAmps = ring.historyCurrentAt(index);
+				if (isPlausibleCurrentMicroAmps(microAmps)) {
+					currentSum += microAmps;
+					currentCount++;
+				}
+			}
+			if (newestTime - oldestTime >= span / 2) {
+				rates[h] = horizonRate(fit, currentSum, currentCount, newestLevel - oldestLevel, newestTime - oldestTime, capacityMah);
+			}
+		}
+		return new RateHorizons(charging, rates[0], rates[1], rates[2],
+				sessionRate(sessionStartMillis, sessionStartLevel, newestTime, newestLevel));
+	}
+
+	/**
+	 * List form of {@link #computeHorizons}, for tests.
+	 */
+	static RateHorizons computeHorizons(List<Sample> ring, long sessionStartMillis, int sessionStartLevel,
+	                                    int capacityMah, boolean charging, long now) {
+		return computeHorizons(bufferOf(ring), new LevelRegression(), new int[HORIZON_SPANS_MS.length], sessionStartMillis,
+				sessionStartLevel, capacityMah, charging, now);
+	}
+
+	/**
+	 * One horizon's %/h from its running sums, by the same sources and gates as
+	 * {@link #ratePercentPerHour}; 0 when neither source has enough.
+	 */
+	private static int horizonRate(LevelRegression fit, long currentSum, int currentCount, int deltaLevel,
+	                               long spanMs, int capacityMah) {
+		final int pph;
+		if (capacityMah > 0 && currentCount >= MIN_HORIZON_CURRENT_SAMPLES) {
+			pph = (int) Math.round(Math.abs(currentSum / (double) currentCount / 1000.0) / capacityMah * 100.0);
+		} else {
+			final int steps = Math.abs(deltaLevel);
+			if (steps == 0 || spanMs < MIN_SPAN_LEVEL_MS
+					|| (fit.count() >= MIN_LEVEL_FIT_SAMPLES && !(fit.rSquared() >= MIN_LEVEL_FIT_R2))) {
+				return 0;
 			}
+			final double slope = fit.slopePerHour();
+			pph = Double.isNaN(slope) ? 0 : (int) Math.round(Math.abs(slope));
 		}
-		return 0;
+		return pph > MAX_PLAUSIBLE_RATE_PPH ? 0 : pph;
+	}
+
+	/**
+	 * The session's %/h from its level change since the first sample; 0 until the level has moved over
+	 * at least {@link #MIN_SPAN_LEVEL_MS}. Over a long session the endpoints are as good as a fit, and they
+	 * need nothing from samples that have long left the ring.
+	 */
+	private static int sessionRate(long startMillis, int startLevel, long newestTime, int newestLevel) {
+		final long spanMs = newestTime - startMillis;
+		if (startLevel < 0 || spanMs < MIN_SPAN_LEVEL_MS || newestLevel == startLevel) {
+			return 0;
+		}
+		final int pph = (int) Math.round(Math.abs(newestLevel - startLevel) / (spanMs / 3_600_000.0));
+		return pph > MAX_PLAUSIBLE_RATE_PPH ? 0 : pph;
 	}
 
 	/**
@@ -405,6 +689,23 @@ public final class BatteryRateTracker {
 		return context.getString(R.string.battery_rate_value, String.valueOf(percentPerHour));
 	}
 
+	/**
+	 * Formats the rate with its interval when it has one, e.g. {@code "12 ± 2%/h"}, else as
+	 * {@link #formatRateValue}. Western digits in every locale (#96).
+	 *
+	 * @param context Application context
+	 * @param rate    a result with {@code hasRate}
+	 *
+	 * @return the formatted rate string
+	 */
+	public static String formatRateWithMargin(Context context, BatteryRate rate) {
+		if (rate.rateMarginPercentPerHour() <= 0) {
+			return formatRateValue(context, rate.percentPerHour());
+		}
+		return context.getString(R.string.battery_rate_value_margin, String.valueOf(rate.percentPerHour()),
+				String.valueOf(rate.rateMarginPercentPerHour()));
+	}
+
 	/**
 	 * Formats the signed current for display, e.g. {@code "+900 mA"} or {@code "−450 mA"}, with Western
 	 * digits in every locale (#96).
@@ -495,7 +796,9 @@ public final class BatteryRateTracker {
 	}
 
 	/**
-	 * Serializes a window to a compact string ("t:level:currentUa" joined by ';'). Pure and testable.
+	 * Serializes a window to the legacy compact string ("t:level:currentUa" joined by ';'). Nothing writes
+	 * this form anymore; it stays as the exact inverse of {@link #parseSamples}, so the one-time migration
+	 * in {@link RateWindowStore} is tested against the format it replaces. Pure and testable.
 	 *
 	 * @param window samples oldest-first
 	 *
@@ -513,8 +816,9 @@ public final class BatteryRateTracker {
 	}
 
 	/**
-	 * Parses a serialized window. Malformed entries are validated and skipped (not caught) — mirroring
-	 * {@code SystemService.designCapacityMahFromMicroAmpHours} and the project's "no silent catch" rule.
+	 * Parses a legacy serialized window, read once by {@link RateWindowStore}'s migration. Malformed entries
+	 * are validated and skipped (not caught) — mirroring {@code SystemService.designCapacityMahFromMicroAmpHours}
+	 * and the project's "no silent catch" rule.
 	 *
 	 * @param serialized the serialized form (may be empty)
 	 *
@@ -552,8 +856,12 @@ public final class BatteryRateTracker {
 		return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
 	}
 
+	private static RateSampleBuffer bufferOf(List<Sample> window) {
+		return RateSampleBuffer.of(window, Math.max(window.size(), 1));
+	}
+
 	/**
-	 * One battery sample in the trailing window.
+	 * One battery sample in the trailing window (the list view of a {@link RateSampleBuffer} slot).
 	 *
 	 * @param timeMillis       capture time in millis
 	 * @param level            battery level as a percentage (0-100)
@@ -565,7 +873,7 @@ public final class BatteryRateTracker {
 	/**
 	 * Result of a rate computation: the smoothed %/h and the signed instantaneous current, each with a
 	 * flag saying whether it is trustworthy enough to display, plus the windowed average current shown
-	 * next to the instant (#173).
+	 * next to the instant (#173) and, once the fused estimate has settled, the rate's 95% interval.
 	 *
 	 * @param hasRate             whether a trustworthy %/h is available
 	 * @param percentPerHour      rate magnitude in %/h (valid only when {@code hasRate})
@@ -574,13 +882,47 @@ public final class BatteryRateTracker {
 	 * @param currentMilliAmps    signed current in mA (valid only when {@code hasCurrent})
 	 * @param hasAvgCurrent       whether the windowed average current is available for display
 	 * @param avgCurrentMilliAmps signed windowed-average current in mA (valid only when {@code hasAvgCurrent})
+	 * @param rateMarginPercentPerHour half-width of the rate's 95% interval in %/h; 0 when there is none
 	 */
 	public record BatteryRate(boolean hasRate, int percentPerHour, boolean charging,
 	                          boolean hasCurrent, int currentMilliAmps,
-	                          boolean hasAvgCurrent, int avgCurrentMilliAmps) {
+	                          boolean hasAvgCurrent, int avgCurrentMilliAmps,
+	                          int rateMarginPercentPerHour) {
+
+		/**
+		 * A result without an interval: the windowed estimate.
+		 */
+		public BatteryRate(boolean hasRate, int percentPerHour, boolean charging, boolean hasCurrent, int currentMilliAmps,
+		                   boolean hasAvgCurrent, int avgCurrentMilliAmps) {
+			this(hasRate, percentPerHour, charging, hasCurrent, currentMilliAmps, hasAvgCurrent, avgCurrentMilliAmps, 0);
+		}
 
 		static BatteryRate empty() {
 			return new BatteryRate(false, 0, false, false, 0, false, 0);
 		}
 	}
+
+	/**
+	 * The rate over several horizons side by side, for triage: what the battery is doing right now, over
+	 * the smoothing window, over the last hour, and over the whole charge/discharge session. Unlike
+	 * {@link BatteryRate} these are raw per-horizon estimates (no fusion, no interval). Each is a %/h
+	 * magnitude, 0 when that horizon has no trustworthy rate yet.
+	 *
+	 * @param charging     direction of the session: true charging, false discharging
+	 * @param minutePph    over the last minute
+	 * @param tenMinutePph over the last {@link #WINDOW_MS}
+	 * @param hourPph      over the last hour
+	 * @param sessionPph   since the last plug/unplug
+	 */
+	public record RateHorizons(boolean charging, int minutePph, int tenMinutePph, int hourPph, int sessionPph) {
+
+		static RateHorizons empty() {
+			return new RateHorizons(false, 0, 0, 0, 0);
+		}
+
+		/** How many horizons have a rate. */
+		public int available() {
+			return (minutePph > 0 ? 1 : 0) + (tenMinutePph > 0 ? 1 : 0) + (hourPph > 0 ? 1 : 0) + (sessionPph > 0 ? 1 : 0);
+		}
+	}
 }
@@ -0,0 +1,249 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+
+import java.io.File;
+import java.util.TimeZone;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Incrementally maintained hourly and daily roll-ups of the drain rate, charge rate, current,
+ * temperature and time charging vs discharging, so insights spanning days never re-scan raw ticks.
+ * <p>
+ * Each battery broadcast folds its readings into the open hourly and daily buckets in O(1) (see
+ * {@link RollupBucket}), in memory; when a tick crosses a bucket boundary the open bucket is closed in
+ * place and a new one opened. The open buckets are written only when one closes, on a significant tick,
+ * and when monitoring stops ({@link #flush}), so jitter ticks cost no file writes; a killed process
+ * loses at most the readings since the last significant tick. Time is attributed to the
+ * <em>previous</em> tick's direction, split at the boundary; gaps longer than {@link #MAX_GAP_MS} (the
+ * process was dead, or the device was off) are not attributed at all. Each resolution lives in its own
+ * fixed-width file ({@link RollupTable}), so a 90-day summary is one sequential read of about 2 200
+ * hourly records.
+ * <p>
+ * The receiver writes on the battery worker thread ({@link BatteryWorker}) while the insights screen
+ * reads on its own background thread; the lock serializes access to the open buckets, and the closed
+ * records are read from the file outside it.
+ */
+public final class BatteryRollups {
+
+	static final long HOUR_MS = 60L * 60 * 1000;
+	static final long DAY_MS = 24 * HOUR_MS;
+
+	/** Longest gap between ticks still attributed to charging/discharging time. */
+	static final long MAX_GAP_MS = HOUR_MS;
+
+	/** The span of the insights summary. */
+	public static final long SUMMARY_SPAN_MS = 90 * DAY_MS;
+
+	private static final Object LOCK = new Object();
+	private static Engine engine;
+
+	private BatteryRollups() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Folds one battery broadcast into the open hourly and daily buckets.
+	 *
+	 * @param context     Application context
+	 * @param batteryDO   Current battery snapshot (may be null)
+	 * @param rate        The rate computed from the same broadcast (may be null)
+	 * @param significant Whether the reading passed the significance filter; only then are the open
+	 *                    buckets written
+	 */
+	public static void record(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate, boolean significant) {
+		if (isNull(context) || isNull(batteryDO) || isNull(rate)) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		recordAt(context, batteryDO, rate, now, TimeZone.getDefault().getOffset(now), significant);
+	}
+
+	static void recordAt(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate,
+	                     long nowMillis, int zoneOffsetMs) {
+		recordAt(context, batteryDO, rate, nowMillis, zoneOffsetMs, true);
+	}
+
+	static void recordAt(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate,
+	                     long nowMillis, int zoneOffsetMs, boolean persist) {
+		final boolean charging = BatteryRateTracker.isChargingDirection(batteryDO.getStatus());
+		synchronized (LOCK) {
+			final Engine current = engine(context);
+			final long previous = current.hourly.lastTickMillis();
+			final boolean attribute = previous >= 0 && nowMillis > previous && nowMillis - previous <= MAX_GAP_MS;
+			final long elapsedFrom = attribute ? previous : -1;
+			final boolean wasCharging = current.hourly.lastCharging();
+			for (final RollupTable table : current.tables) {
+				addReadings(table.advance(nowMillis, zoneOffsetMs, elapsedFrom, wasCharging), batteryDO, rate);
+				table.note(nowMillis, charging);
+				if (persist) {
+					table.persist();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the open buckets, so the readings since the last significant tick outlive the process.
+	 * Called when monitoring stops.
+	 */
+	public static void flush() {
+		synchronized (LOCK) {
+			if (nonNull(engine)) {
+				for (final RollupTable table : engine.tables) {
+					table.persist();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds one tick's readings to a bucket: the smoothed rate into the drain or charge stat by direction,
+	 * the instantaneous current magnitude, and the temperature. Untrusted readings are skipped.
+	 */
+	static void addReadings(RollupBucket bucket, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate) {
+		if (rate.hasRate()) {
+			(rate.charging() ? bucket.charge : bucket.drain).add(rate.percentPerHour());
+		}
+		if (rate.hasCurrent()) {
+			bucket.current.add(Math.abs(rate.currentMilliAmps()));
+		}
+		bucket.temperature.add(batteryDO.getTemperature() / 10.0);
+	}
+
+	/**
+	 * Summarizes the buckets of one resolution overlapping the last {@code spanMillis}, including the
+	 * open bucket. Reads the file, so call it off the main thread; the lock is held only to copy the open
+	 * bucket.
+	 *
+	 * @param context    Application context
+	 * @param resolution which roll-up to read (hourly for spans up to a few months)
+	 * @param spanMillis how far back to summarize
+	 *
+	 * @return the summary, or null when nothing has been recorded in the span
+	 */
+	public static Summary summarize(Context context, Resolution resolution, long spanMillis) {
+		final Context appContext = context.getApplicationContext();
+		final long sinceMillis = System.currentTimeMillis() - spanMillis;
+		final File file = RollupTable.fileFor(appContext, resolution);
+		final RollupBucket merged = new RollupBucket();
+		final boolean live;
+		long openStart = Long.MAX_VALUE;
+		synchronized (LOCK) {
+			// Only the live open bucket, which holds ticks not written yet, is copied under the lock the
+			// worker takes every tick; without an engine the file is current.
+			live = nonNull(engine) && engine.belongsTo(appContext);
+			if (live) {
+				openStart = engine.table(resolution).copyOpenSince(sinceMillis, merged);
+			}
+		}
+		if (live) {
+			RollupTable.mergeClosedBefore(file, resolution, sinceMillis, openStart, merged);
+		} else {
+			RollupTable.mergeSince(file, resolution, sinceMillis, merged);
+		}
+		return merged.isEmpty() ? null : Summary.of(merged);
+	}
+
+	private static Engine engine(Context context) {
+		final Context appContext = context.getApplicationContext();
+		if (isNull(engine) || !engine.belongsTo(appContext)) {
+			engine = new Engine(appContext);
+		}
+		return engine;
+	}
+
+	/**
+	 * A roll-up resolution: its file, bucket length, and the closed-record cap at which the oldest are
+	 * compacted away (down to {@code keepRecords}).
+	 */
+	public enum Resolution {
+		/** ~100 days of hours: enough for the 90-day summary. */
+		HOURLY("battery_rollup_hourly.bin", HOUR_MS, 24 * 120, 24 * 100),
+		/** Two years of days. */
+		DAILY("battery_rollup_daily.bin", DAY_MS, 800, 731);
+
+		final String fileName;
+		final long lengthMs;
+		final int maxRecords;
+		final int keepRecords;
+
+		Resolution(String fileName, long lengthMs, int maxRecords, int keepRecords) {
+			this.fileName = fileName;
+			this.lengthMs = lengthMs;
+			this.maxRecords = maxRecords;
+			this.keepRecords = keepRecords;
+		}
+	}
+
+	/**
+	 * A merged span of buckets. Each figure is only meaningful when its {@code has*} flag is set.
+	 *
+	 * @param hasDrain                 whether any trustworthy drain rate was recorded
+	 * @param averageDrainPph          mean drain rate in %/h
+	 * @param peakDrainPph             highest drain rate in %/h
+	 * @param hasCharge                whether any trustworthy charge rate was recorded
+	 * @param averageChargePph         mean charge rate in %/h
+	 * @param hasCurrent               whether any trustworthy current was recorded
+	 * @param averageCurrentMa         mean current magnitude in mA
+	 * @param hasTemperature           whether any temperature was recorded
+	 * @param averageTemperatureTenths mean temperature in tenths of a degree Celsius
+	 * @param maxTemperatureTenths     highest temperature in tenths of a degree Celsius
+	 * @param chargingMs               time attributed to charging
+	 * @param dischargingMs            time attributed to discharging
+	 */
+	public record Summary(boolean hasDrain, int averageDrainPph, int peakDrainPph,
+	                      boolean hasCharge, int averageChargePph,
+	                      boolean hasCurrent, int averageCurrentMa,
+	                      boolean hasTemperature, int averageTemperatureTenths, int maxTemperatureTenths,
+	                      long chargingMs, long dischargingMs) {
+
+		static Summary of(RollupBucket bucket) {
+			return new Summary(bucket.drain.count > 0, (int) Math.round(bucket.drain.mean()), Math.round(bucket.drain.max),
+					bucket.charge.count > 0, (int) Math.round(bucket.charge.mean()),
+					bucket.current.count > 0, (int) Math.round(bucket.current.mean()),
+					bucket.temperature.count > 0, (int) Math.round(bucket.temperature.mean() * 10),
+					Math.round(bucket.temperature.max * 10),
+					bucket.chargingMs, bucket.dischargingMs);
+		}
+
+		/**
+		 * Share of the attributed time spent charging, in whole percent (0 when no time was attributed).
+		 */
+		public int chargingPercent() {
+			final long total = chargingMs + dischargingMs;
+			return total <= 0 ? 0 : (int) Math.round(chargingMs * 100.0 / total);
+		}
+	}
+
+	/**
+	 * The process's open tables, reloaded when the application changes (a fresh process, or a fresh
+	 * Robolectric test application).
+	 */
+	private static final class Engine {
+
+		private final Context appContext;
+		private final RollupTable hourly;
+		private final RollupTable daily;
+		private final RollupTable[] tables;
+
+		Engine(Context appContext) {
+			this.appContext = appContext;
+			this.hourly = RollupTable.load(appContext, Resolution.HOURLY);
+			this.daily = RollupTable.load(appContext, Resolution.DAILY);
+			this.tables = new RollupTable[]{hourly, daily};
+		}
+
+		RollupTable table(Resolution resolution) {
+			return resolution == Resolution.HOURLY ? hourly : daily;
+		}
+
+		boolean belongsTo(Context context) {
+			return nonNull(appContext) && appContext == context;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The latest processed battery reading and its rate, pushed to the screens that show them.
+ * <p>
+ * The battery receiver publishes every broadcast's {@link BatteryDO} and {@link BatteryRateTracker.BatteryRate}
+ * here (see {@code BatteryEventReceiver.Stage#LIVE_SNAPSHOT}); the home screen and the details table
+ * subscribe while resumed and redraw only when a new snapshot arrives. They used to poll every second,
+ * re-reading the sticky broadcast and the {@code BatteryManager} properties even when nothing had changed.
+ * <p>
+ * Lock-free: the value is one {@link AtomicReference}, the observers a copy-on-write list. Publishing
+ * happens on the battery worker; observers are called on the main thread, and a burst of publishes
+ * before the main thread gets to them is delivered once, with the newest snapshot.
+ */
+public final class BatterySnapshotFeed {
+
+	private static final AtomicReference<Snapshot> LATEST = new AtomicReference<>();
+	private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+	private static final AtomicBoolean DELIVERY_PENDING = new AtomicBoolean();
+	private static final Handler MAIN = new Handler(Looper.getMainLooper());
+	private static final Runnable DELIVER = BatterySnapshotFeed::deliver;
+
+	private BatterySnapshotFeed() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * The newest snapshot, or null before the first broadcast of this process.
+	 */
+	public static Snapshot latest() {
+		return LATEST.get();
+	}
+
+	/**
+	 * Replaces the snapshot and schedules one delivery to the observers, if any.
+	 *
+	 * @param batteryDO the broadcast's reading; observers treat it as read-only
+	 * @param rate      the rate computed for it
+	 */
+	public static void publish(BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate) {
+		LATEST.set(new Snapshot(batteryDO, rate));
+		if (!LISTENERS.isEmpty() && DELIVERY_PENDING.compareAndSet(false, true)) {
+			MAIN.post(DELIVER);
+		}
+	}
+
+	/**
+	 * Starts delivering new snapshots to {@code listener} on the main thread. Call from the main thread,
+	 * typically in {@code onResume}; the current snapshot is not replayed, so read {@link #latest()} first.
+	 *
+	 * @param listener the observer
+	 */
+	public static void subscribe(Listener listener) {
+		if (!LISTENERS.contains(listener)) {
+			LISTENERS.add(listener);
+		}
+	}
+
+	/**
+	 * Stops delivering to {@code listener}, typically in {@code onPause}.
+	 *
+	 * @param listener the observer
+	 */
+	public static void unsubscribe(Listener listener) {
+		LISTENERS.remove(listener);
+	}
+
+	private static void deliver() {
+		DELIVERY_PENDING.set(false);
+		final Snapshot snapshot = LATEST.get();
+		if (isNull(snapshot)) {
+			return;
+		}
+		for (final Listener listener : LISTENERS) {
+			listener.onSnapshot(snapshot);
+		}
+	}
+
+	/**
+	 * Receives new snapshots on the main thread.
+	 */
+	public interface Listener {
+
+		void onSnapshot(Snapshot snapshot);
+	}
+
+	/**
+	 * One processed broadcast.
+	 *
+	 * @param battery the reading
+	 * @param rate    the smoothed rate and current for it
+	 */
+	public record Snapshot(BatteryDO battery, BatteryRateTracker.BatteryRate rate) {
+	}
+}
@@ -0,0 +1,76 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The single background thread every battery broadcast is processed on.
+ * <p>
+ * {@code PowerConnectionService} registers the battery receiver with {@link #handler()}, so the
+ * preference I/O, the binary stores, the detectors and the ongoing-notification rebuild all run here
+ * instead of on the main thread, where they competed with the UI's refresh loop. One thread, one
+ * looper: broadcasts are still handled strictly one after another, exactly as on the main looper, so
+ * the stages' lock-free load → decide → save sequences (#164) still hold. The thread lives as long as
+ * the process, across service restarts, so there is never a second worker; idle, it only waits on its
+ * queue.
+ * Work that must touch the UI (the charge toast) hops to the main thread itself.
+ */
+public final class BatteryWorker {
+
+	private static final String THREAD_NAME = "battery-worker";
+
+	private static HandlerThread thread;
+	private static Handler handler;
+	// Whether the monitoring service is using the worker; running() hands the handler out only then.
+	private static boolean active;
+
+	private BatteryWorker() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * The worker's handler, starting the thread on first use. After {@link #quit(Runnable)} this is the
+	 * same thread again, so a restarted service's work queues behind the previous one's cleanup.
+	 *
+	 * @return a handler on the battery worker thread
+	 */
+	public static synchronized Handler handler() {
+		active = true;
+		return started();
+	}
+
+	/**
+	 * The worker's handler if the service is using it, without marking it in use. For work posted from
+	 * outside the broadcast path (a deferred flush, an alarm listener), which must not run after
+	 * {@link #quit(Runnable)}.
+	 *
+	 * @return a handler on the worker thread, or null after a quit or before the first {@link #handler()}
+	 */
+	public static synchronized Handler running() {
+		return active ? handler : null;
+	}
+
+	/**
+	 * Runs {@code last} on the worker after everything already queued. Used when the monitoring service
+	 * is destroyed, after its receivers are unregistered. The thread itself is kept: quitting it would let
+	 * a quick restart start a second worker while {@code last} still runs on the first.
+	 *
+	 * @param last final cleanup to run on the worker (e.g. closing the history log)
+	 */
+	public static synchronized void quit(Runnable last) {
+		active = false;
+		started().post(last);
+	}
+
+	private static Handler started() {
+		if (isNull(handler) || !thread.isAlive()) {
+			thread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+			thread.start();
+			handler = new Handler(thread.getLooper());
+		}
+		return handler;
+	}
+}
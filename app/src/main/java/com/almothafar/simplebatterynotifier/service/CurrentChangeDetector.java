@@ -0,0 +1,173 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import static java.util.Objects.isNull;
+
+/**
+ * An online two-sided CUSUM over the current's magnitude that tells {@link BatteryRateTracker} when the
+ * workload has abruptly changed — a game or navigation starting, or stopping — so the rate window can
+ * drop the samples from before the change instead of averaging across it for ten minutes.
+ * <p>
+ * Each plausible reading is compared with the baseline as a log ratio, {@code ln(|current| / baseline)},
+ * so the test is scale-free: tripling from 300 mA and from 1 A weigh the same, and a doubling weighs as
+ * much as a halving. Two sums accumulate evidence for a rise and for a fall, each less a drift
+ * allowance so ordinary wobble drains away, and a change is confirmed when either passes a threshold;
+ * the user's {@link Sensitivity} picks both. Each reading's contribution is clipped to
+ * {@link #CLIP_SHARE} of the threshold, so a single spike — a camera flash, a burst of sync — can never
+ * confirm a change on its own; it takes several readings in a row. The change began where the
+ * confirming sum last left zero, and the readings from there on seed the next baseline.
+ * <p>
+ * It only ever sees one direction's readings: {@link RateWindowStore#reset} on a plug/unplug flip resets
+ * it along with the window, so a flip (which already restarts everything) can't read as a change. The
+ * state is a handful of numbers in memory and is not persisted; a new process rebuilds the baseline
+ * within {@link #BASELINE_SAMPLES} readings.
+ * <p>
+ * Pure, with no Android dependencies, so it is unit-testable. Not thread-safe; {@link BatteryRateTracker}
+ * serializes every access.
+ */
+final class CurrentChangeDetector {
+
+	/** What {@link #update} returns when no change was confirmed. */
+	static final long NO_CHANGE = Long.MIN_VALUE;
+
+	/** Readings averaged into a fresh baseline before anything is tested against it. */
+	static final int BASELINE_SAMPLES = 3;
+	/** Past this many readings the baseline forgets its oldest evidence: about the window's span. */
+	static final int BASELINE_MEMORY = 30;
+	/** A reading adds at most this share of the threshold, so one spike can't confirm a change. */
+	static final double CLIP_SHARE = 0.6;
+	/** Magnitudes are floored here (µA) so a near-idle draw's noise doesn't read as huge ratios. */
+	static final int FLOOR_MICRO_AMPS = 50_000;
+
+	/**
+	 * How readily a shift is confirmed: the per-reading drift allowance and the CUSUM threshold, both in
+	 * log-ratio units. At every level a tripling (or a drop to a third) is confirmed on its third reading
+	 * — 40 s at the window's spacing; the levels differ in how small a shift counts, and how fast a
+	 * moderate one does (a 1.5x shift: 15 readings at low, 5 at normal, 3 at high).
+	 */
+	enum Sensitivity {
+		OFF("off", 0, Double.POSITIVE_INFINITY),
+		LOW("low", 0.3, 1.5),
+		NORMAL("normal", 0.2, 1.0),
+		HIGH("high", 0.1, 0.7);
+
+		private final String preferenceValue;
+		final double drift;
+		final double threshold;
+
+		Sensitivity(String preferenceValue, double drift, double threshold) {
+			this.preferenceValue = preferenceValue;
+			this.drift = drift;
+			this.threshold = threshold;
+		}
+
+		/**
+		 * Maps a stored preference value to a sensitivity, {@link #NORMAL} for a missing or unknown one.
+		 */
+		static Sensitivity fromPreference(String stored) {
+			if (isNull(stored)) {
+				return NORMAL;
+			}
+			for (final Sensitivity sensitivity : values()) {
+				if (sensitivity.preferenceValue.equals(stored)) {
+					return sensitivity;
+				}
+			}
+			return NORMAL;
+		}
+	}
+
+	// Baseline: the mean log magnitude of the current regime.
+	private int baselineCount;
+	private double baselineSum;
+
+	// Evidence for a rise and for a fall, and the readings since each last left zero (the candidate
+	// post-change regime, which becomes the next baseline on confirmation).
+	private double rise;
+	private long riseStart;
+	private int riseCount;
+	private double riseSum;
+	private double fall;
+	private long fallStart;
+	private int fallCount;
+	private double fallSum;
+
+	/**
+	 * Folds in one accepted reading.
+	 *
+	 * @param timeMillis       when it was taken
+	 * @param currentMicroAmps the raw current; implausible readings are ignored
+	 * @param sensitivity      the user's setting; {@link Sensitivity#OFF} keeps the detector idle
+	 *
+	 * @return the time of the first post-change reading when this one confirms a change, else
+	 * {@link #NO_CHANGE}
+	 */
+	long update(long timeMillis, int currentMicroAmps, Sensitivity sensitivity) {
+		if (sensitivity == Sensitivity.OFF) {
+			reset();
+			return NO_CHANGE;
+		}
+		if (!BatteryRateTracker.isPlausibleCurrentMicroAmps(currentMicroAmps)) {
+			return NO_CHANGE;
+		}
+		final double x = Math.log(Math.max(Math.abs((long) currentMicroAmps), FLOOR_MICRO_AMPS));
+		if (baselineCount < BASELINE_SAMPLES) {
+			baselineCount++;
+			baselineSum += x;
+			return NO_CHANGE;
+		}
+
+		final double clip = CLIP_SHARE * sensitivity.threshold;
+		final double deviation = Math.max(-clip, Math.min(clip, x - baselineSum / baselineCount));
+		if (rise == 0) {
+			riseStart = timeMillis;
+			riseCount = 0;
+			riseSum = 0;
+		}
+		rise = Math.max(0, rise + deviation - sensitivity.drift);
+		riseCount++;
+		riseSum += x;
+		if (fall == 0) {
+			fallStart = timeMillis;
+			fallCount = 0;
+			fallSum = 0;
+		}
+		fall = Math.max(0, fall - deviation - sensitivity.drift);
+		fallCount++;
+		fallSum += x;
+
+		if (rise > sensitivity.threshold) {
+			return confirm(riseStart, riseCount, riseSum);
+		}
+		if (fall > sensitivity.threshold) {
+			return confirm(fallStart, fallCount, fallSum);
+		}
+		if (rise == 0 && fall == 0) {
+			// Quiet: the reading belongs to the current regime.
+			if (baselineCount >= BASELINE_MEMORY) {
+				baselineSum -= baselineSum / baselineCount;
+				baselineCount--;
+			}
+			baselineCount++;
+			baselineSum += x;
+		}
+		return NO_CHANGE;
+	}
+
+	/**
+	 * Forgets the baseline and any evidence; the next readings build a new baseline.
+	 */
+	void reset() {
+		baselineCount = 0;
+		baselineSum = 0;
+		rise = 0;
+		fall = 0;
+	}
+
+	private long confirm(long start, int count, double sum) {
+		baselineCount = count;
+		baselineSum = sum;
+		rise = 0;
+		fall = 0;
+		return start;
+	}
+}
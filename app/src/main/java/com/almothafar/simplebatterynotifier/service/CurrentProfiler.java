@@ -0,0 +1,215 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Opt-in, foreground-only current profiler: samples current and voltage at up to 10 Hz so the user can
+ * see what one specific action costs.
+ * <p>
+ * {@link BatteryRateTracker} spaces its samples {@code MIN_SAMPLE_SPACING_MS} apart and caps its window,
+ * which is right for the headline rate and useless at this timescale. The profiler keeps its own dense
+ * {@link ProfileRing} (the last minute, for the sparkline) and, while the user has an interval marked,
+ * a {@link ProfileStats} over it. Neither is persisted and neither feeds the rate window — a
+ * profiling session leaves no trace once it stops.
+ * <p>
+ * Sampling runs on a single background scheduler thread, created by {@link #start()} and shut down by
+ * {@link #stop()}; the host calls these from its resume/pause so nothing samples while it is hidden.
+ * Readings come from sysfs where the device allows it ({@link PowerSupplyReader}), which is what makes
+ * 10 Hz cheap; elsewhere each sample is a {@code BatteryManager} binder call.
+ */
+public final class CurrentProfiler {
+
+	/** 10 Hz; the fixed delay also stretches the period on devices where one read is slower than this. */
+	static final long SAMPLE_PERIOD_MS = 100;
+	/** One minute of samples at the full rate. */
+	static final int RING_CAPACITY = 600;
+
+	private static final String THREAD_NAME = "current-profiler";
+	private static final int UNAVAILABLE = Integer.MIN_VALUE;
+	private static final long MICRO_AMP_MICRO_VOLTS_PER_MILLI_WATT = 1_000_000_000L;
+
+	private final Supplier<IntSupplier> currentSource;
+	// Taken from currentSource by start(), before the scheduler runs; read on the scheduler thread.
+	private IntSupplier currentMicroAmps;
+	private final IntSupplier voltageMicroVolts;
+	private final LongSupplier clock;
+
+	// Guards the ring and the interval statistics: written by the scheduler thread, read by the UI.
+	private final Object lock = new Object();
+	private final ProfileRing ring = new ProfileRing(RING_CAPACITY);
+	private ProfileStats interval;
+	private boolean marking;
+
+	// Main thread only.
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * A profiler reading the device's current and voltage.
+	 *
+	 * @param context any context; only the application context is kept
+	 */
+	public CurrentProfiler(Context context) {
+		final Context appContext = context.getApplicationContext();
+		this.currentSource = () -> calibratedCurrent(appContext);
+		this.voltageMicroVolts = CurrentProfiler::readVoltageMicroVolts;
+		this.clock = SystemClock::elapsedRealtime;
+	}
+
+	/**
+	 * @param currentMicroAmps  current source, µA, {@link Integer#MIN_VALUE} when unavailable
+	 * @param voltageMicroVolts voltage source, µV, 0 when unknown
+	 * @param clock             monotonic milliseconds
+	 */
+	CurrentProfiler(IntSupplier currentMicroAmps, IntSupplier voltageMicroVolts, LongSupplier clock) {
+		this.currentSource = () -> currentMicroAmps;
+		this.currentMicroAmps = currentMicroAmps;
+		this.voltageMicroVolts = voltageMicroVolts;
+		this.clock = clock;
+	}
+
+	/**
+	 * Starts sampling on the background scheduler; a no-op when already running. Main thread only.
+	 */
+	public void start() {
+		if (nonNull(scheduler)) {
+			return;
+		}
+		currentMicroAmps = currentSource.get();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(() -> {
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			runnable.run();
+		}, THREAD_NAME));
+		scheduler.scheduleWithFixedDelay(this::sampleOnce, 0, SAMPLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sampling at once and closes a marked interval, keeping its result. The sparkline history is
+	 * dropped: a gap of unknown length would make it misleading. Main thread only.
+	 */
+	public void stop() {
+		if (isNull(scheduler)) {
+			return;
+		}
+		scheduler.shutdownNow();
+		scheduler = null;
+		synchronized (lock) {
+			marking = false;
+			ring.clear();
+		}
+	}
+
+	public boolean isRunning() {
+		return nonNull(scheduler);
+	}
+
+	/**
+	 * Starts a new marked interval, discarding the previous result.
+	 */
+	public void startInterval() {
+		synchronized (lock) {
+			interval = new ProfileStats();
+			marking = true;
+		}
+	}
+
+	/**
+	 * Ends the marked interval; its statistics stay readable until the next {@link #startInterval()}.
+	 */
+	public void endInterval() {
+		synchronized (lock) {
+			marking = false;
+		}
+	}
+
+	public boolean isMarking() {
+		synchronized (lock) {
+			return marking;
+		}
+	}
+
+	/**
+	 * Takes one sample. Called on the scheduler thread; package-private so tests can drive it directly.
+	 */
+	void sampleOnce() {
+		final int current = currentMicroAmps.getAsInt();
+		if (current == UNAVAILABLE) {
+			return;
+		}
+		final int voltage = Math.max(0, voltageMicroVolts.getAsInt());
+		final long now = clock.getAsLong();
+		synchronized (lock) {
+			ring.append(now, current, voltage);
+			if (marking) {
+				interval.add(now, current, voltage);
+			}
+		}
+	}
+
+	/**
+	 * What the UI shows, copied out under the lock.
+	 *
+	 * @param sparkline receives the newest current magnitudes in mA, oldest first; reused across calls
+	 *
+	 * @return the readout; {@link Readout#sparklineCount()} says how much of {@code sparkline} was filled
+	 */
+	public Readout read(int[] sparkline) {
+		synchronized (lock) {
+			final int count = ring.copyRecentCurrents(sparkline);
+			for (int i = 0; i < count; i++) {
+				sparkline[i] = Math.abs(sparkline[i]) / 1000;
+			}
+			final int size = ring.size();
+			final int latestMicroAmps = size == 0 ? 0 : Math.abs(ring.currentAt(size - 1));
+			final int latestMicroVolts = size == 0 ? 0 : ring.voltageAt(size - 1);
+			final long spanMillis = size < 2 ? 0 : ring.timeAt(size - 1) - ring.timeAt(0);
+			return new Readout(count, spanMillis,
+					size == 0 ? UNAVAILABLE : latestMicroAmps / 1000,
+					(int) ((long) latestMicroAmps * latestMicroVolts / MICRO_AMP_MICRO_VOLTS_PER_MILLI_WATT),
+					marking, isNull(interval) ? null : interval.summary());
+		}
+	}
+
+	private static IntSupplier calibratedCurrent(Context context) {
+		// Sysfs first, then BatteryManager, scaled as every other surface's reading is — but with the
+		// unit conclusion as it stands at start, so 10 Hz sampling never touches the calibrator's
+		// persisted observation.
+		final IntUnaryOperator toMicroAmps = CurrentUnitCalibrator.snapshot(context);
+		return () -> toMicroAmps.applyAsInt(SystemService.readRawCurrent(context));
+	}
+
+	private static int readVoltageMicroVolts() {
+		// No binder property carries the voltage; the last broadcast's (mV) vets the node and is the fallback.
+		final int microVolts = PowerSupplyReader.system().read(PowerSupplyReader.Node.VOLTAGE_NOW, () -> {
+			final BatterySnapshotFeed.Snapshot snapshot = BatterySnapshotFeed.latest();
+			return isNull(snapshot) ? PowerSupplyReader.UNAVAILABLE : snapshot.battery().getVoltage() * 1000;
+		});
+		return microVolts == PowerSupplyReader.UNAVAILABLE ? 0 : microVolts;
+	}
+
+	/**
+	 * One UI refresh's worth of profiler state.
+	 *
+	 * @param sparklineCount   how many sparkline entries were filled
+	 * @param spanMillis       time covered by the sparkline
+	 * @param latestMilliAmps  newest current magnitude, or {@link Integer#MIN_VALUE} before the first sample
+	 * @param latestMilliWatts newest power, 0 when the voltage is unknown
+	 * @param marking          whether an interval is being marked
+	 * @param interval         the marked interval's statistics, live while marking; null when none
+	 */
+	public record Readout(int sparklineCount, long spanMillis, int latestMilliAmps, int latestMilliWatts, boolean marking,
+	                      ProfileStats.Summary interval) {
+	}
+}
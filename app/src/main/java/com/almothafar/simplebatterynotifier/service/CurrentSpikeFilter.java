@@ -0,0 +1,106 @@
+package com.almothafar.simplebatterynotifier.service;
+
+/**
+ * A streaming Hampel filter over the current readings that enter the rate window: a reading far from
+ * the median of the last {@link #WINDOW} readings, in units of their median absolute deviation, is a
+ * spike — a camera flash, a modem burst — and is kept out of the window's average.
+ * <p>
+ * {@link BatteryRateTracker#isPlausibleCurrentMicroAmps} only rejects the absurd (an unsupported sentinel,
+ * more than 15 A). A plausible 4 A burst among 400 mA readings would still lift the ten-minute mean,
+ * the drain rate with it, and possibly the fast-drain alert. The median and MAD barely move for one or
+ * two such readings, so the burst stands out however large it is.
+ * <p>
+ * Every plausible reading enters the ring, the rejected ones included, so a genuine shift in load
+ * carries the median over once it makes up most of the ring (four readings, about a minute at the
+ * window's spacing), and a confirmed {@link CurrentChangeDetector} change restarts the filter at once.
+ * A reading must also differ from the median by at least {@link #MIN_SPREAD_MICRO_AMPS} and by
+ * {@link #MIN_RELATIVE_SPREAD} of the median, so a very steady load (MAD near zero) doesn't turn
+ * ordinary wobble into rejections.
+ * <p>
+ * The ring and the scratch array for the median are fixed {@code int[]}s: nothing is allocated per
+ * reading. The state is in memory only and not persisted; a new process accepts everything until the
+ * ring holds {@link #MIN_READINGS}. Pure, with no Android dependencies, so it is unit-testable. Not
+ * thread-safe; {@link BatteryRateTracker} serializes every access.
+ */
+final class CurrentSpikeFilter {
+
+	/** What {@link #screen} returns for a rejected reading: the unsupported sentinel, kept out of the average. */
+	static final int REJECTED = Integer.MIN_VALUE;
+
+	/** Readings the median is taken over, the new one included: two minutes at the window's spacing. */
+	static final int WINDOW = 7;
+	/** Readings needed before anything is judged. */
+	static final int MIN_READINGS = 4;
+	/** How many scaled MADs from the median a reading may sit. */
+	static final double THRESHOLD = 3.0;
+	/** Scales the MAD to a standard deviation for normally distributed noise. */
+	static final double MAD_SCALE = 1.4826;
+	/** A reading closer than this (µA) to the median is never a spike. */
+	static final int MIN_SPREAD_MICRO_AMPS = 100_000;
+	/** Nor one closer than this share of the median's magnitude. */
+	static final double MIN_RELATIVE_SPREAD = 0.5;
+
+	private final int[] ring = new int[WINDOW];
+	private final int[] scratch = new int[WINDOW];
+	private int next;
+	private int size;
+
+	/**
+	 * Adds a reading to the ring and judges it against the ring's median and MAD.
+	 *
+	 * @param microAmps the raw current; implausible readings pass through untouched and unrecorded
+	 *
+	 * @return {@code microAmps}, or {@link #REJECTED} when it is a spike
+	 */
+	int screen(int microAmps) {
+		if (!BatteryRateTracker.isPlausibleCurrentMicroAmps(microAmps)) {
+			return microAmps;
+		}
+		ring[next] = microAmps;
+		next = (next + 1) % WINDOW;
+		if (size < WINDOW) {
+			size++;
+		}
+		if (size < MIN_READINGS) {
+			return microAmps;
+		}
+
+		final long median = median(ring);
+		for (int i = 0; i < size; i++) {
+			scratch[i] = (int) Math.min(Integer.MAX_VALUE, Math.abs((long) ring[i] - median));
+		}
+		final long mad = median(scratch);
+		final double limit = Math.max(THRESHOLD * MAD_SCALE * mad,
+				Math.max(MIN_SPREAD_MICRO_AMPS, MIN_RELATIVE_SPREAD * Math.abs(median)));
+		return Math.abs(microAmps - median) > limit ? REJECTED : microAmps;
+	}
+
+	/**
+	 * Forgets every reading; the next {@link #MIN_READINGS} are accepted as they come.
+	 */
+	void reset() {
+		next = 0;
+		size = 0;
+	}
+
+	/**
+	 * The median of the first {@code size} entries of {@code values}, sorted in {@link #scratch} (values
+	 * may be the scratch array itself). Insertion sort: the ring is seven long.
+	 */
+	private long median(int[] values) {
+		if (values != scratch) {
+			System.arraycopy(values, 0, scratch, 0, size);
+		}
+		for (int i = 1; i < size; i++) {
+			final int value = scratch[i];
+			int at = i;
+			while (at > 0 && scratch[at - 1] > value) {
+				scratch[at] = scratch[at - 1];
+				at--;
+			}
+			scratch[at] = value;
+		}
+		final int mid = size / 2;
+		return size % 2 == 1 ? scratch[mid] : ((long) scratch[mid - 1] + scratch[mid]) / 2;
+	}
+}
@@ -4,6 +4,8 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import androidx.preference.PreferenceManager;
 
+import java.util.function.IntUnaryOperator;
+
 import static java.util.Objects.isNull;
 
 /**
@@ -73,10 +75,10 @@ public final class CurrentUnitCalibrator {
 	 *         blank 0 pass through untouched
 	 */
 	public static int observeAndScale(final Context context, final int rawCurrent) {
-		if (isNull(context) || rawCurrent == PROPERTY_UNSUPPORTED || rawCurrent == Integer.MAX_VALUE || rawCurrent == 0) {
+		if (isNull(context) || passesThrough(rawCurrent)) {
 			return rawCurrent; // sentinel or blank: nothing to learn, nothing to scale
 		}
-		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+		final SharedPreferences prefs = TickTransaction.wrap(PreferenceManager.getDefaultSharedPreferences(context));
 		final Observation previous = loadObservation(prefs);
 		final Observation updated = observe(previous, rawCurrent, System.currentTimeMillis());
 
@@ -89,6 +91,21 @@ public final class CurrentUnitCalibrator {
 		return scaledMicroAmps(rawCurrent, isMilliAmpUnits(updated));
 	}
 
+	/**
+	 * The unit conclusion as it stands now, as a raw-to-µA scaling that neither reads nor writes the
+	 * persisted observation. For the profiler's 10&nbsp;Hz sampler: it takes one snapshot when it starts
+	 * rather than running every sample through {@link #observeAndScale}, whose preference reads and
+	 * writes are meant for the broadcast rate. Sentinels and a blank 0 pass through, as there.
+	 *
+	 * @param context Application context
+	 *
+	 * @return the scaling under the current conclusion
+	 */
+	static IntUnaryOperator snapshot(Context context) {
+		final boolean milliAmpUnits = isMilliAmpUnits(loadObservation(PreferenceManager.getDefaultSharedPreferences(context)));
+		return rawCurrent -> passesThrough(rawCurrent) ? rawCurrent : scaledMicroAmps(rawCurrent, milliAmpUnits);
+	}
+
 	/**
 	 * Folds one raw reading into the observation. Pure so it is unit-testable. The maximum is updated on
 	 * every reading; the count only for readings spaced {@link #MIN_COUNT_SPACING_MS} apart, and stops
@@ -139,6 +156,10 @@ public final class CurrentUnitCalibrator {
 		return milliAmpUnits ? rawCurrent * MICRO_AMPS_PER_MILLI_AMP : rawCurrent;
 	}
 
+	private static boolean passesThrough(int rawCurrent) {
+		return rawCurrent == PROPERTY_UNSUPPORTED || rawCurrent == Integer.MAX_VALUE || rawCurrent == 0;
+	}
+
 	private static Observation loadObservation(final SharedPreferences prefs) {
 		return new Observation(
 				prefs.getInt(PREF_MAX_ABS_RAW, 0),
@@ -0,0 +1,164 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.app.AlarmManager;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Handler;
+import android.service.notification.StatusBarNotification;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Alerts posted silently during quiet hours, sounded when the quiet window ends.
+ * <p>
+ * Outside the user's alert windows an alert is posted on the silent channel (#111) and its sound used
+ * to be dropped, so a low battery at 02:00 went unnoticed until the phone was next picked up. Each
+ * silenced alert now leaves its content here; the end of the quiet window is read from the compiled
+ * {@link QuietSchedule} ({@link QuietHours#quietWindowEndMillis}), so one alarm is set for that minute
+ * instead of polling. When it fires, every alert still showing is rebuilt on its audible channel as the
+ * channels stand then, and the latest one's sound plays. A dismissed alert, one cleared at plug-in, or
+ * one whose condition has since cleared ({@link #drop}) stays quiet, and turning quiet hours off drops
+ * them all.
+ * <p>
+ * The alarm is an in-process {@link AlarmManager} listener on the {@link BatteryWorker} handler, like
+ * {@link SamplingScheduler}'s, so a deferral doesn't survive the process or the monitoring service
+ * ({@link #cancel}): the silent notification then simply stays as it is, as before.
+ */
+final class DeferredAlerts {
+
+	private static final String TAG = DeferredAlerts.class.getSimpleName();
+	private static final String ALARM_TAG = "SimpleBatteryNotifier:quiet-end";
+	// A short window lets the system batch the wakeup while still sounding within minutes of the end.
+	private static final long WINDOW_MS = 60_000L;
+
+	// Guarded by the class lock; in the order deferred, latest last.
+	private static final Map<Integer, Deferred> PENDING = new LinkedHashMap<>();
+	private static Context appContext;
+	// When the pending alarm fires (0 = none pending); wall-clock millis.
+	private static long armedAt;
+
+	private static final AlarmManager.OnAlarmListener ALARM = DeferredAlerts::onAlarm;
+
+	private DeferredAlerts() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Keeps an alert that was posted silently, to sound it when the quiet window ends.
+	 *
+	 * @param context        The application context
+	 * @param spec     What the silent alert shows, and under which id
+	 * @param sticky   Whether the alert is a sticky level alert
+	 * @param soundUri The alert's sound, for the silent-mode override
+	 */
+	static synchronized void defer(Context context, AlertSpec spec, boolean sticky, String soundUri) {
+		final long endAt = QuietHours.quietWindowEndMillis(AlertSettings.current(context));
+		if (endAt < 0) {
+			return;
+		}
+		appContext = context.getApplicationContext();
+		PENDING.remove(spec.notificationId());
+		PENDING.put(spec.notificationId(), new Deferred(spec, sticky, soundUri));
+		if (armedAt != endAt) {
+			arm(endAt);
+		}
+	}
+
+	private static void onAlarm() {
+		final Map<Integer, Deferred> due;
+		final Context context;
+		synchronized (DeferredAlerts.class) {
+			armedAt = 0;
+			due = new LinkedHashMap<>(PENDING);
+			PENDING.clear();
+			context = appContext;
+		}
+		if (isNull(context) || due.isEmpty()) {
+			return;
+		}
+		final AlertSettings settings = AlertSettings.current(context);
+		if (!settings.quietHoursEnabled()) {
+			return;
+		}
+		if (!QuietHours.isWithinNotificationWindow(settings)) {
+			// The schedule was edited since; wait for the new end.
+			due.values().forEach(deferred -> defer(context, deferred.spec(), deferred.sticky(), deferred.soundUri()));
+			return;
+		}
+		final NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+		if (isNull(manager)) {
+			return;
+		}
+		final Set<Integer> showing = new HashSet<>();
+		for (final StatusBarNotification active : manager.getActiveNotifications()) {
+			showing.add(active.getId());
+		}
+		String sound = null;
+		for (final Map.Entry<Integer, Deferred> entry : due.entrySet()) {
+			if (showing.contains(entry.getKey())) {
+				final Deferred deferred = entry.getValue();
+				manager.notify(entry.getKey(), NotificationService.audibleCopy(context, deferred.spec(), deferred.sticky()));
+				sound = entry.getValue().soundUri();
+			}
+		}
+		if (nonNull(sound)) {
+			AlertSounds.playAlarm(context, sound, settings.ignoreSilentMode(), settings.vibrate());
+		}
+	}
+
+	/**
+	 * Drops one alert's deferral: its condition has cleared, so the end of the quiet window must not sound
+	 * it. The alarm stays armed for the others; with none left it fires and finds nothing to do.
+	 *
+	 * @param notificationId The id the silent alert was posted under
+	 */
+	static synchronized void drop(int notificationId) {
+		PENDING.remove(notificationId);
+	}
+
+	/**
+	 * Drops every deferred alert and cancels the alarm. Called when the monitoring service is destroyed,
+	 * before the worker the alarm is delivered on quits, and when quiet hours are turned off.
+	 */
+	static synchronized void cancel() {
+		PENDING.clear();
+		if (armedAt != 0 && nonNull(appContext)) {
+			final AlarmManager alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+			if (nonNull(alarmManager)) {
+				alarmManager.cancel(ALARM);
+			}
+		}
+		armedAt = 0;
+	}
+
+	private static void arm(long triggerAt) {
+		// Delivered on the running worker only; a quit worker means the service is stopping.
+		final Handler worker = BatteryWorker.running();
+		if (isNull(worker)) {
+			return;
+		}
+		final AlarmManager alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+		if (isNull(alarmManager)) {
+			Log.w(TAG, "AlarmManager service unavailable");
+			return;
+		}
+		if (armedAt != 0) {
+			alarmManager.cancel(ALARM);
+		}
+		alarmManager.setWindow(AlarmManager.RTC_WAKEUP, triggerAt, WINDOW_MS, ALARM_TAG, ALARM, worker);
+		armedAt = triggerAt;
+	}
+
+	/**
+	 * A silenced alert: what it shows, whether it is sticky, and its sound.
+	 */
+	private record Deferred(AlertSpec spec, boolean sticky, String soundUri) {
+	}
+}
@@ -0,0 +1,186 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The compact record encoding behind {@link BatteryHistoryLog}: delta-of-delta timestamps and
+ * zig-zag varint deltas for the integer channels. Pure and Android-free, so the byte format is
+ * unit-testable on its own.
+ * <p>
+ * Every record starts with one flags byte. A <b>keyframe</b> ({@link #FLAG_KEYFRAME}) carries the
+ * absolute time and every channel, and resets the delta state — a reader can start decoding at any
+ * keyframe, which is what the per-segment sparse index points at. A <b>delta</b> record carries the
+ * zig-zag delta-of-delta of the time, then one zig-zag delta per channel whose bit is set in the flags;
+ * unchanged channels cost nothing. Ticks arrive at a steady cadence and most channels hold still
+ * between them, so a typical delta record is 4-8 bytes.
+ */
+final class HistoryCodec {
+
+	// Channel order inside a record; also the bit position of each channel's "changed" flag.
+	static final int LEVEL = 0;
+	static final int CURRENT = 1;
+	static final int VOLTAGE = 2;
+	static final int TEMPERATURE = 3;
+	static final int STATUS = 4;
+	static final int PLUGGED = 5;
+	static final int CHANNELS = 6;
+
+	static final int FLAG_KEYFRAME = 0x80;
+
+	/** Upper bound of one encoded record: flags + a 10-byte time varint + 6 × 10-byte channel varints. */
+	static final int MAX_RECORD_BYTES = 1 + 10 + CHANNELS * 10;
+
+	private static final int MAX_VARINT_BYTES = 10;
+	// readVarint's "malformed" result. No encoded value collides with it: only zigZag(Long.MIN_VALUE) is
+	// all-ones, and millisecond times and int-channel deltas stay far inside the long range.
+	private static final long MALFORMED = -1L;
+
+	private HistoryCodec() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Encodes one record after the state's previous one, then advances the state to it.
+	 *
+	 * @param out      destination, with at least {@link #MAX_RECORD_BYTES} remaining
+	 * @param state    the stream's running state (the previous record)
+	 * @param time     record time in millis
+	 * @param values   the {@link #CHANNELS} channel values, in channel order
+	 * @param keyframe whether to write a self-contained keyframe (always true for an unprimed state)
+	 */
+	static void encode(ByteBuffer out, State state, long time, int[] values, boolean keyframe) {
+		if (keyframe || !state.primed) {
+			out.put((byte) FLAG_KEYFRAME);
+			writeVarint(out, zigZag(time));
+			for (int i = 0; i < CHANNELS; i++) {
+				writeVarint(out, zigZag(values[i]));
+			}
+			state.reset(time, values);
+			return;
+		}
+		int flags = 0;
+		for (int i = 0; i < CHANNELS; i++) {
+			if (values[i] != state.values[i]) {
+				flags |= 1 << i;
+			}
+		}
+		final long delta = time - state.time;
+		out.put((byte) flags);
+		writeVarint(out, zigZag(delta - state.timeDelta));
+		for (int i = 0; i < CHANNELS; i++) {
+			if ((flags & (1 << i)) != 0) {
+				writeVarint(out, zigZag((long) values[i] - state.values[i]));
+				state.values[i] = values[i];
+			}
+		}
+		state.time = time;
+		state.timeDelta = delta;
+	}
+
+	/**
+	 * Decodes the next record into the state. Malformed or truncated input is reported, not thrown:
+	 * a torn tail after a crash is an expected condition for an append-only log.
+	 *
+	 * @param in    source positioned at a record
+	 * @param state the stream's running state; holds the decoded record on success
+	 *
+	 * @return true when a whole record was decoded; false on truncation, a malformed varint, or a delta
+	 *         record with no preceding keyframe
+	 */
+	static boolean decode(ByteBuffer in, State state) {
+		if (!in.hasRemaining()) {
+			return false;
+		}
+		final int flags = in.get() & 0xFF;
+		if ((flags & FLAG_KEYFRAME) != 0) {
+			final long time = readVarint(in);
+			if (time == MALFORMED) {
+				return false;
+			}
+			for (int i = 0; i < CHANNELS; i++) {
+				final long raw = readVarint(in);
+				if (raw == MALFORMED) {
+					return false;
+				}
+				state.values[i] = (int) unZigZag(raw);
+			}
+			state.time = unZigZag(time);
+			state.timeDelta = 0;
+			state.primed = true;
+			return true;
+		}
+		if (!state.primed) {
+			return false;
+		}
+		final long dod = readVarint(in);
+		if (dod == MALFORMED) {
+			return false;
+		}
+		for (int i = 0; i < CHANNELS; i++) {
+			if ((flags & (1 << i)) != 0) {
+				final long raw = readVarint(in);
+				if (raw == MALFORMED) {
+					return false;
+				}
+				state.values[i] = (int) (state.values[i] + unZigZag(raw));
+			}
+		}
+		state.timeDelta += unZigZag(dod);
+		state.time += state.timeDelta;
+		return true;
+	}
+
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unZigZag(long encoded) {
+		return (encoded >>> 1) ^ -(encoded & 1);
+	}
+
+	static void writeVarint(ByteBuffer out, long value) {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			out.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		out.put((byte) remaining);
+	}
+
+	/**
+	 * Reads an unsigned varint, or {@link #MALFORMED} when the input ends mid-varint or runs past
+	 * {@link #MAX_VARINT_BYTES}.
+	 */
+	static long readVarint(ByteBuffer in) {
+		long result = 0;
+		for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+			if (!in.hasRemaining()) {
+				return MALFORMED;
+			}
+			final int b = in.get() & 0xFF;
+			result |= (long) (b & 0x7F) << (7 * i);
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		return MALFORMED;
+	}
+
+	/**
+	 * A stream's running codec state: the previous record's time, time delta and channel values.
+	 * Mutable and reused per stream, so encoding/decoding allocates nothing per record.
+	 */
+	static final class State {
+		long time;
+		long timeDelta;
+		final int[] values = new int[CHANNELS];
+		boolean primed;
+
+		void reset(long keyframeTime, int[] keyframeValues) {
+			time = keyframeTime;
+			timeDelta = 0;
+			System.arraycopy(keyframeValues, 0, values, 0, CHANNELS);
+			primed = true;
+		}
+	}
+}
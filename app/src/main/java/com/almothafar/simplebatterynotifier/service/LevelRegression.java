@@ -0,0 +1,102 @@
+package com.almothafar.simplebatterynotifier.service;
+
+/**
+ * An ordinary-least-squares line through the rate window's (time, level) samples, kept as running sums
+ * so adding or removing a sample is O(1) and the slope and R² are available at any moment.
+ * <p>
+ * The sums are exact {@code long}s over times measured from an anchor, not doubles: a window that
+ * slides for days adds and removes millions of samples, and floating-point sums would drift. The anchor
+ * follows the oldest sample ({@link #rebase}), which keeps the offsets within the window's span; moving
+ * it shifts the sums algebraically, still in O(1).
+ * <p>
+ * Pure, with no Android dependencies. Not thread-safe; {@link RateSampleBuffer} owns it.
+ */
+final class LevelRegression {
+
+	private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+	private long anchor;
+	private int n;
+	// x = time - anchor (ms), y = level (%).
+	private long sumX;
+	private long sumXX;
+	private long sumY;
+	private long sumYY;
+	private long sumXY;
+
+	void add(long timeMillis, int level) {
+		if (n == 0) {
+			anchor = timeMillis;
+		}
+		final long x = timeMillis - anchor;
+		n++;
+		sumX += x;
+		sumXX += x * x;
+		sumY += level;
+		sumYY += (long) level * level;
+		sumXY += x * level;
+	}
+
+	void remove(long timeMillis, int level) {
+		final long x = timeMillis - anchor;
+		n--;
+		sumX -= x;
+		sumXX -= x * x;
+		sumY -= level;
+		sumYY -= (long) level * level;
+		sumXY -= x * level;
+		if (n == 0) {
+			clear();
+		}
+	}
+
+	/**
+	 * Moves the anchor to {@code newAnchor} (the oldest remaining sample), shifting every sum so the fit
+	 * is unchanged.
+	 */
+	void rebase(long newAnchor) {
+		final long d = newAnchor - anchor;
+		sumXX += -2 * d * sumX + n * d * d;
+		sumXY -= d * sumY;
+		sumX -= n * d;
+		anchor = newAnchor;
+	}
+
+	void clear() {
+		n = 0;
+		sumX = 0;
+		sumXX = 0;
+		sumY = 0;
+		sumYY = 0;
+		sumXY = 0;
+	}
+
+	int count() {
+		return n;
+	}
+
+	/**
+	 * The fitted slope in %/h, positive while the level rises; NaN with fewer than two distinct times.
+	 */
+	double slopePerHour() {
+		final long sxx = n * sumXX - sumX * sumX;
+		if (n < 2 || sxx <= 0) {
+			return Double.NaN;
+		}
+		return (double) (n * sumXY - sumX * sumY) / sxx * MILLIS_PER_HOUR;
+	}
+
+	/**
+	 * How much of the level's variance the line explains, 0 to 1; NaN when the level or the time never
+	 * varied (a flat level has nothing to explain).
+	 */
+	double rSquared() {
+		final double sxx = (double) n * sumXX - (double) sumX * sumX;
+		final double syy = (double) n * sumYY - (double) sumY * sumY;
+		if (n < 2 || sxx <= 0 || syy <= 0) {
+			return Double.NaN;
+		}
+		final double sxy = (double) n * sumXY - (double) sumX * sumY;
+		return sxy * sxy / (sxx * syy);
+	}
+}
@@ -22,6 +22,13 @@ import static java.util.Objects.isNull;
  * (see {@link #versionedChannelId}) because Android un-deletes a channel recreated under the same ID,
  * restoring its old settings — which made the Vibrate toggle a no-op (issue #153).
  * {@link #refreshAlertChannels} bumps the version so a changed setting really applies.
+ * <p>
+ * Every alert used to re-create all eight channels first — eight binder calls before the one that
+ * posts. {@link #ensureChannels} now remembers what this process last ensured and skips a repeat; the
+ * channel set is fixed in code, so the key is the alert-channel version, the Vibrate setting, the locale
+ * (for the translated names) and the application. A memo hit doesn't re-check the NotificationManager:
+ * the user can block a channel but not delete it, so only this class deletes them (and
+ * {@link #refreshAlertChannels} resets the memo), and clearing the app's data also ends the process.
  */
 final class NotificationChannels {
 
@@ -43,26 +50,35 @@ final class NotificationChannels {
 	// (and any per-channel tweaks) until the user first changes the Vibrate preference.
 	private static final String PREF_ALERT_CHANNEL_VERSION = "alert_channel_version";
 
+	// What this process last created the channels with; null until the first ensureChannels.
+	private static volatile EnsuredKey ensured;
+
 	private NotificationChannels() {
 		// Utility class - prevent instantiation
 	}
 
 	/**
 	 * Create the notification channels if they don't exist, or refresh their name/description if they
-	 * do (so translated names reach upgraded installs — issue #165).
+	 * do (so translated names reach upgraded installs — issue #165). A no-op when this process already
+	 * did so with the same version, Vibrate setting and locale.
 	 *
 	 * @param context The application context
 	 */
 	static void ensureChannels(Context context) {
+		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+		final boolean vibrate = AppPrefs.vibrateEnabled(context);
+		final int version = alertChannelVersion(prefs);
+		final EnsuredKey key = new EnsuredKey(context.getApplicationContext(), version, vibrate,
+				context.getResources().getConfiguration().getLocales().toLanguageTags());
+		if (key.equals(ensured)) {
+			return;
+		}
+
 		final NotificationManager manager = getManager(context);
 		if (isNull(manager)) {
 			return;
 		}
 
-		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-		final boolean vibrate = AppPrefs.vibrateEnabled(context);
-		final int version = alertChannelVersion(prefs);
-
 		createOrUpdateAlertChannel(manager, versionedChannelId(CHANNEL_ID_CRITICAL, version),
 				context.getString(R.string.notification_critical_channel_name),
 				context.getString(R.string.notification_critical_channel_description), Color.RED, vibrate);
@@ -87,6 +103,7 @@ final class NotificationChannels {
 		createOrUpdateSilentChannel(manager, CHANNEL_ID_ALERTS_SILENT,
 				context.getString(R.string.notification_quiet_channel_name),
 				context.getString(R.string.notification_quiet_channel_description));
+		ensured = key;
 	}
 
 	/**
@@ -106,6 +123,7 @@ final class NotificationChannels {
 			return;
 		}
 
+		ensured = null;
 		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
 		final int oldVersion = alertChannelVersion(prefs);
 		manager.deleteNotificationChannel(versionedChannelId(CHANNEL_ID_CRITICAL, oldVersion));
@@ -219,4 +237,15 @@ final class NotificationChannels {
 	private static NotificationManager getManager(Context context) {
 		return (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
 	}
+
+	/**
+	 * What the channels were last created with.
+	 *
+	 * @param appContext the application (a fresh process, or a fresh Robolectric test application)
+	 * @param version    the alert-channel settings version
+	 * @param vibrate    the Vibrate setting the alert channels were created with
+	 * @param locales    the locales the names and descriptions were resolved in
+	 */
+	private record EnsuredKey(Context appContext, int version, boolean vibrate, String locales) {
+	}
 }
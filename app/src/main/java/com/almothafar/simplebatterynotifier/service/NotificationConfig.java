@@ -4,7 +4,6 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import com.almothafar.simplebatterynotifier.R;
-import com.almothafar.simplebatterynotifier.util.AppPrefs;
 
 /**
  * Configuration for a battery-level notification (reduces parameter count).
@@ -34,20 +33,19 @@ final class NotificationConfig {
 	 * @param context The application context
 	 * @param prefs   SharedPreferences containing user settings
 	 * @param type    Which battery-level alert to configure (non-null)
+	 * @param level   The ladder step the alert is for
 	 */
-	NotificationConfig(Context context, SharedPreferences prefs, AlertType type) {
+	NotificationConfig(Context context, SharedPreferences prefs, AlertType type, int level) {
 		this.type = type;
 
-		// Load common preferences
-		final int warningLevel = AppPrefs.warningLevel(context);
-		final int criticalLevel = AppPrefs.criticalLevel(context);
+		// Load common preferences (the alert policy comes from the settings snapshot)
+		final AlertSettings settings = AlertSettings.current(context);
 
 		this.stickyNotification = prefs.getBoolean(context.getString(R.string._pref_key_notifications_sticky), false);
-		final boolean withinWindow = QuietHours.isWithinNotificationWindow(context, prefs);
-		final boolean criticalIgnoresQuietHours = prefs.getBoolean(context.getString(R.string._pref_key_critical_ignore_quiet_hours), true);
-		this.alertsAllowed = QuietHours.alertsAllowedNow(withinWindow, type == AlertType.CRITICAL, criticalIgnoresQuietHours);
-		this.ignoreSilent = QuietHours.shouldIgnoreSilentMode(context, prefs);
-		this.vibrate = AppPrefs.vibrateEnabled(context);
+		final boolean withinWindow = QuietHours.isWithinNotificationWindow(settings);
+		this.alertsAllowed = QuietHours.alertsAllowedNow(withinWindow, type == AlertType.CRITICAL, settings.criticalIgnoresQuietHours());
+		this.ignoreSilent = settings.ignoreSilentMode();
+		this.vibrate = settings.vibrate();
 
 		final String defaultSound = context.getString(R.string._default_notification_sound_uri);
 
@@ -59,18 +57,18 @@ final class NotificationConfig {
 					NotificationChannels.CHANNEL_ID_CRITICAL,
 					R.drawable.ic_stat_device_battery_charging_20,
 					prefs.getString(context.getString(R.string._pref_key_notifications_alert_sound_ringtone), defaultSound),
-					context.getString(R.string.notification_critical_ticker, criticalLevel),
+					context.getString(R.string.notification_critical_ticker, level),
 					context.getString(R.string.notification_critical_title),
-					context.getString(R.string.notification_critical_content, criticalLevel),
-					context.getString(R.string.notification_critical_content_big, criticalLevel));
+					context.getString(R.string.notification_critical_content, level),
+					context.getString(R.string.notification_critical_content_big, level));
 			case WARNING -> new AlertStyle(
 					NotificationChannels.CHANNEL_ID_WARNING,
 					R.drawable.ic_stat_device_battery_charging_50,
 					prefs.getString(context.getString(R.string._pref_key_notifications_warning_sound_ringtone), defaultSound),
-					context.getString(R.string.notification_warning_ticker, warningLevel),
+					context.getString(R.string.notification_warning_ticker, level),
 					context.getString(R.string.notification_warning_title),
-					context.getString(R.string.notification_warning_content, warningLevel),
-					context.getString(R.string.notification_warning_content_big, warningLevel));
+					context.getString(R.string.notification_warning_content, level),
+					context.getString(R.string.notification_warning_content_big, level));
 			case FULL -> new AlertStyle(
 					NotificationChannels.CHANNEL_ID_FULL,
 					R.drawable.ic_stat_device_battery_charging_full,
@@ -79,6 +77,15 @@ final class NotificationConfig {
 					context.getString(R.string.notification_full_level_title),
 					context.getString(R.string.notification_full_level_content),
 					context.getString(R.string.notification_full_level_content_big));
+			// A charge step of the alert ladder shares the full alert's channel and sound.
+			case CHARGE_LEVEL -> new AlertStyle(
+					NotificationChannels.CHANNEL_ID_FULL,
+					R.drawable.ic_stat_device_battery_charging_full,
+					prefs.getString(context.getString(R.string._pref_key_notifications_full_sound_ringtone), defaultSound),
+					context.getString(R.string.notification_charge_level_ticker, level),
+					context.getString(R.string.notification_charge_level_title, level),
+					context.getString(R.string.notification_charge_level_content, level),
+					context.getString(R.string.notification_charge_level_content_big, level));
 		};
 		this.channelId = style.channelId();
 		this.iconRes = style.iconRes();
@@ -23,7 +23,6 @@ import com.almothafar.simplebatterynotifier.model.BatteryDO;
 import com.almothafar.simplebatterynotifier.model.ChargeSpeed;
 import com.almothafar.simplebatterynotifier.model.ChargeSpeedTier;
 import com.almothafar.simplebatterynotifier.ui.MainActivity;
-import com.almothafar.simplebatterynotifier.util.AppPrefs;
 import com.almothafar.simplebatterynotifier.util.TemperatureUtils;
 
 import java.lang.ref.WeakReference;
@@ -46,9 +45,6 @@ import static java.util.Objects.nonNull;
  * delivery, and the per-level {@link NotificationConfig}.
  */
 public final class NotificationService {
-	// Battery thresholds
-	public static final int RED_ALERT_LEVEL = 4;
-	public static final int FULL_PERCENTAGE = 95;
 	private static final String TAG = NotificationService.class.getSimpleName();
 
 	// Notification IDs — each alert gets its own so one can never replace another.
@@ -64,6 +60,8 @@ public final class NotificationService {
 	// "Charging started" doesn't replace a level alert (#155). The level alert is still dismissed at
 	// plug-in, but explicitly (see clearLevelAlert), not by ID collision.
 	private static final int CHARGE_CONNECTED_NOTIFICATION_ID = 1641992;
+	// Each custom alert rule posts under its own ID, from here up to AlertRuleSet.MAX_RULES above it.
+	private static final int CUSTOM_RULE_NOTIFICATION_ID = 1641993;
 
 	// Charge-connected notification style (values persisted by the ListPreference in pref_behaviour.xml).
 	// Toast is the default so plugging in stays low-clutter (issue #122).
@@ -78,17 +76,37 @@ public final class NotificationService {
 	 */
 	private static WeakReference<Bitmap> cachedLauncherIcon;
 
+	/** What the ongoing notification last showed, and the change it holds back (see {@link #updateOngoingNotification}). */
+	private static final OngoingNotificationThrottle ONGOING_THROTTLE = new OngoingNotificationThrottle();
+	private static final Runnable ONGOING_FLUSH = NotificationService::flushOngoingNotification;
+	private static volatile Context flushContext;
+	// The reading behind the held change, so the flush can add the per-horizon rates when it posts.
+	private static volatile BatteryDO flushBattery;
+	private static volatile BatteryRateTracker.BatteryRate flushRate;
+
 	private NotificationService() {
 		// Utility class - prevent instantiation
 	}
 
 	/**
-	 * Send a battery status notification
+	 * Send a battery status notification for the primary warning/critical step (or the full alert).
 	 *
 	 * @param context The application context
 	 * @param type    Which battery-level alert to send
 	 */
 	public static void sendNotification(Context context, AlertType type) {
+		final AlertSettings settings = AlertSettings.current(context);
+		sendNotification(context, type, type == AlertType.WARNING ? settings.levels().warning() : settings.levels().critical());
+	}
+
+	/**
+	 * Send a battery status notification
+	 *
+	 * @param context The application context
+	 * @param type    Which battery-level alert to send
+	 * @param level   The ladder step the alert is for, shown in its text
+	 */
+	public static void sendNotification(Context context, AlertType type, int level) {
 		if (isNull(type)) {
 			Log.w(TAG, "No alert type given, notification not sent");
 			return;
@@ -101,23 +119,22 @@ public final class NotificationService {
 		NotificationChannels.ensureChannels(context);
 
 		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-		final NotificationConfig config = new NotificationConfig(context, prefs, type);
+		final NotificationConfig config = new NotificationConfig(context, prefs, type, level);
 
+		final AlertSpec spec = config.toAlertSpec(NOTIFICATION_ID);
 		final String channelId = NotificationChannels.channelFor(context, config.alertsAllowed, config.channelId);
-		final NotificationCompat.Builder builder = alertBuilder(context, channelId, config.toAlertSpec(NOTIFICATION_ID));
+		final NotificationCompat.Builder builder = alertBuilder(context, channelId, spec);
 		if (!type.alertsEveryTime()) {
 			// Non-critical alerts update quietly when re-posted; only critical alerts alert every time.
 			builder.setOnlyAlertOnce(true);
 		}
-
-		final Notification notification = builder.build();
-		if (config.stickyNotification) {
-			notification.flags |= Notification.FLAG_NO_CLEAR | Notification.FLAG_ONGOING_EVENT;
-		}
-		post(context, NOTIFICATION_ID, notification);
+		post(context, NOTIFICATION_ID, levelNotification(builder, config.stickyNotification));
 
 		if (config.alertsAllowed) {
 			AlertSounds.playAlarm(context, config.alarmSound, config.ignoreSilent, config.vibrate);
+		} else {
+			// Sounded when the quiet window ends, if still showing; the copy must alert even as an update.
+			DeferredAlerts.defer(context, spec, config.stickyNotification, config.alarmSound);
 		}
 	}
 
@@ -198,6 +215,28 @@ public final class NotificationService {
 				content));
 	}
 
+	/**
+	 * Send a custom alert rule's notification ({@link AlertRules}). Each rule has its own ID, so one
+	 * rule never replaces another's alert; they share the warning channel and its quiet-hours handling.
+	 *
+	 * @param context   The application context
+	 * @param ruleIndex The rule's position in the compiled set
+	 * @param rule      The rule as written
+	 * @param value     The reading that tripped it, in the rule's unit
+	 */
+	public static void sendCustomRuleAlert(Context context, int ruleIndex, String rule, String value) {
+		final String content = context.getString(R.string.notification_custom_rule_content, rule, value);
+		sendQuietHoursAwareAlert(context, new AlertSpec(
+				"custom-rule",
+				NotificationChannels.CHANNEL_ID_WARNING,
+				CUSTOM_RULE_NOTIFICATION_ID + ruleIndex,
+				R.drawable.ic_stat_device_battery_charging_20,
+				context.getString(R.string.notification_custom_rule_ticker),
+				context.getString(R.string.notification_custom_rule_title),
+				content,
+				content));
+	}
+
 	/**
 	 * Warn that charging power has stayed abnormally low — a likely frayed cable, dirty/loose port, or
 	 * dying charger (issue #123).
@@ -237,6 +276,7 @@ public final class NotificationService {
 			manager.cancel(NOTIFICATION_ID);
 			manager.cancel(CHARGE_CONNECTED_NOTIFICATION_ID);
 		}
+		DeferredAlerts.drop(NOTIFICATION_ID);
 	}
 
 	/**
@@ -254,6 +294,7 @@ public final class NotificationService {
 		if (nonNull(manager)) {
 			manager.cancel(NOTIFICATION_ID);
 		}
+		DeferredAlerts.drop(NOTIFICATION_ID);
 	}
 
 	/**
@@ -272,6 +313,33 @@ public final class NotificationService {
 		if (nonNull(manager)) {
 			manager.cancel(FAST_DRAIN_NOTIFICATION_ID);
 		}
+		DeferredAlerts.drop(FAST_DRAIN_NOTIFICATION_ID);
+	}
+
+	/**
+	 * Withdraw a high-temperature alert's deferred sound once the battery has cooled past the hysteresis,
+	 * so the end of quiet hours doesn't sound a condition that no longer holds. The silent notification
+	 * stays, as it always has.
+	 */
+	public static void withdrawTemperatureAlert() {
+		DeferredAlerts.drop(TEMPERATURE_NOTIFICATION_ID);
+	}
+
+	/**
+	 * Withdraw a slow-charge warning's deferred sound once the charge session has ended or the power has
+	 * recovered.
+	 */
+	public static void withdrawSlowChargeWarning() {
+		DeferredAlerts.drop(SLOW_CHARGE_NOTIFICATION_ID);
+	}
+
+	/**
+	 * Withdraw a custom rule's deferred sound once its condition has cleared.
+	 *
+	 * @param ruleIndex The rule's position in the compiled set
+	 */
+	public static void withdrawCustomRuleAlert(int ruleIndex) {
+		DeferredAlerts.drop(CUSTOM_RULE_NOTIFICATION_ID + ruleIndex);
 	}
 
 	/**
@@ -319,33 +387,18 @@ public final class NotificationService {
 	 * @return The built ongoing notification
 	 */
 	public static Notification buildOngoingNotification(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate) {
-		NotificationChannels.ensureChannels(context);
-
-		final String collapsed = OngoingStatusContent.statusDetail(context, batteryDO, rate);
-		final String expanded = OngoingStatusContent.statusDetailExpanded(context, batteryDO, rate);
-		final NotificationCompat.Builder builder = new NotificationCompat.Builder(context, NotificationChannels.CHANNEL_ID_STATUS)
-				.setSmallIcon(OngoingStatusContent.ongoingIconRes(batteryDO))
-				.setContentTitle(OngoingStatusContent.statusTitle(context, batteryDO))
-				.setContentText(collapsed)
-				.setContentIntent(createMainActivityIntent(context))
-				.setOnlyAlertOnce(true)
-				.setOngoing(true)
-				.setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-				.setCategory(NotificationCompat.CATEGORY_STATUS);
-
-		// Make it expandable only when the pull-down actually adds something (a multi-line breakdown);
-		// a single-line expanded view (e.g. temperature only) would show a pointless expand chevron (#194).
-		if (expanded.indexOf('\n') >= 0) {
-			builder.setStyle(new NotificationCompat.BigTextStyle().bigText(expanded));
-		}
-		return builder.build();
+		return ongoingNotification(context, ongoingContent(context, batteryDO, rate),
+				expandedWithHorizons(context, batteryDO, rate));
 	}
 
 	/**
 	 * Refresh the persistent status notification with the latest battery data.
 	 * <p>
 	 * Called whenever the battery state changes so the ongoing notification stays live.
-	 * Uses the same notification ID as the foreground service, so it updates in place.
+	 * Uses the same notification ID as the foreground service, so it updates in place. Posts go through
+	 * {@link OngoingNotificationThrottle}: unchanged content isn't re-posted, and a change to the detail
+	 * line alone is posted at most once per the configured interval, the last one by a trailing flush on
+	 * the battery worker. The per-horizon rates are read only for a post, not for every offer.
 	 *
 	 * @param context   The application context
 	 * @param batteryDO Current battery snapshot, or null if unavailable
@@ -355,7 +408,114 @@ public final class NotificationService {
 		if (lacksNotificationPermission(context)) {
 			return;
 		}
-		post(context, ONGOING_NOTIFICATION_ID, buildOngoingNotification(context, batteryDO, rate));
+		final OngoingNotificationThrottle.Content content = ongoingContent(context, batteryDO, rate);
+		final long decision = ONGOING_THROTTLE.offer(content, System.currentTimeMillis(),
+				AlertSettings.current(context).ongoingRefreshIntervalMs());
+		// The running worker only: a broadcast still queued when the service quit must not restart it.
+		final Handler worker = BatteryWorker.running();
+		if (decision == OngoingNotificationThrottle.POST_NOW) {
+			if (nonNull(worker)) {
+				worker.removeCallbacks(ONGOING_FLUSH);
+			}
+			final String expanded = expandedWithHorizons(context, batteryDO, rate);
+			post(context, ONGOING_NOTIFICATION_ID, ongoingNotification(context, content, expanded));
+			return;
+		}
+		// Whatever the throttle holds now came from this reading.
+		flushBattery = batteryDO;
+		flushRate = rate;
+		if (decision > 0 && nonNull(worker)) {
+			flushContext = context.getApplicationContext();
+			worker.postDelayed(ONGOING_FLUSH, decision);
+		}
+	}
+
+	/**
+	 * Drops a pending throttled refresh of the ongoing notification. Called when the monitoring service
+	 * is destroyed, before the worker quits.
+	 */
+	public static void cancelOngoingFlush() {
+		final Handler worker = BatteryWorker.running();
+		if (nonNull(worker)) {
+			worker.removeCallbacks(ONGOING_FLUSH);
+		}
+		flushContext = null;
+		flushBattery = null;
+		flushRate = null;
+	}
+
+	/**
+	 * Forget what the ongoing notification was last posted with, so the next update posts whatever it
+	 * carries. Called when the foreground service (re)posts the notification itself.
+	 */
+	public static void resetOngoingNotificationCache() {
+		ONGOING_THROTTLE.forget();
+	}
+
+	/**
+	 * @return ongoing-notification updates not posted because nothing visible had changed
+	 */
+	public static long ongoingPostsSkipped() {
+		return OngoingNotificationThrottle.skippedUnchanged();
+	}
+
+	/**
+	 * @return ongoing-notification changes superseded while the throttle held them
+	 */
+	public static long ongoingPostsCoalesced() {
+		return OngoingNotificationThrottle.coalesced();
+	}
+
+	/**
+	 * The trailing flush: post the change the throttle held, if it still holds one.
+	 */
+	private static void flushOngoingNotification() {
+		final Context context = flushContext;
+		final OngoingNotificationThrottle.Content content = ONGOING_THROTTLE.flush(System.currentTimeMillis());
+		if (isNull(context) || isNull(content) || lacksNotificationPermission(context)) {
+			return;
+		}
+		final String expanded = expandedWithHorizons(context, flushBattery, flushRate);
+		post(context, ONGOING_NOTIFICATION_ID, ongoingNotification(context, content, expanded));
+	}
+
+	/**
+	 * What the throttle compares with what was last posted, computed before any builder is made. The
+	 * expanded detail leaves out the per-horizon rates: they are a pass over the hour-long ring, so they
+	 * are only read once the throttle decides to post (see {@link #expandedWithHorizons}).
+	 */
+	static OngoingNotificationThrottle.Content ongoingContent(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate) {
+		return new OngoingNotificationThrottle.Content(
+				OngoingStatusContent.statusTitle(context, batteryDO),
+				OngoingStatusContent.statusDetail(context, batteryDO, rate),
+				OngoingStatusContent.statusDetailExpanded(context, batteryDO, rate),
+				OngoingStatusContent.ongoingIconRes(batteryDO));
+	}
+
+	/** The expanded detail as posted: the throttled content's, plus the per-horizon rates. */
+	private static String expandedWithHorizons(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate) {
+		return OngoingStatusContent.statusDetailExpanded(context, batteryDO, rate, BatteryRateTracker.getHorizons(context, batteryDO));
+	}
+
+	private static Notification ongoingNotification(Context context, OngoingNotificationThrottle.Content content, String expanded) {
+		NotificationChannels.ensureChannels(context);
+
+		final NotificationCompat.Builder builder = new NotificationCompat.Builder(context, NotificationChannels.CHANNEL_ID_STATUS)
+				.setSmallIcon(content.iconRes())
+				.setContentTitle(content.title())
+				.setContentText(content.detail())
+				.setContentIntent(createMainActivityIntent(context))
+				.setOnlyAlertOnce(true)
+				.setOngoing(true)
+				.setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+				.setCategory(NotificationCompat.CATEGORY_STATUS);
+
+		// Make it expandable only when the pull-down actually adds something (a multi-line breakdown);
+		// a single-line expanded view (e.g. temperature only) would show a pointless expand chevron (#194).
+		if (expanded.indexOf('\n') >= 0) {
+			builder.setStyle(new NotificationCompat.BigTextStyle().bigText(expanded));
+		}
+		return builder.build();
 	}
 
 	// ========== Private Helper Methods ==========
@@ -366,8 +526,9 @@ public final class NotificationService {
 	 * <p>
 	 * The single home of the quiet-hours dance shared by the temperature (#18/#111), fast-drain (#109)
 	 * and slow-charge (#123) alerts: rerouting to the silent channel outside the notification window,
-	 * and gating the alarm sound/vibration on the window — so a quiet-hours fix can't be applied to one
-	 * alert and missed on another. All reuse the critical-alert ringtone preference, as before.
+	 * and gating the alarm sound/vibration on the window, deferring it to the window's end
+	 * ({@link DeferredAlerts}) — so a quiet-hours fix can't be applied to one alert and missed on
+	 * another. All reuse the critical-alert ringtone preference, as before.
 	 *
 	 * @param context The application context
 	 * @param spec    What to show: channel, id, icon and text content
@@ -380,15 +541,48 @@ public final class NotificationService {
 
 		post(context, spec.notificationId(), alertBuilder(context, routing.channelId(), spec).build());
 
+		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+		final String sound = prefs.getString(
+				context.getString(R.string._pref_key_notifications_alert_sound_ringtone),
+				context.getString(R.string._default_notification_sound_uri));
 		if (routing.withinWindow()) {
-			final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-			final String sound = prefs.getString(
-					context.getString(R.string._pref_key_notifications_alert_sound_ringtone),
-					context.getString(R.string._default_notification_sound_uri));
-			AlertSounds.playAlarm(context, sound, QuietHours.shouldIgnoreSilentMode(context, prefs), AppPrefs.vibrateEnabled(context));
+			final AlertSettings settings = AlertSettings.current(context);
+			AlertSounds.playAlarm(context, sound, settings.ignoreSilentMode(), settings.vibrate());
+		} else {
+			// Sounded when the quiet window ends, if still showing.
+			DeferredAlerts.defer(context, spec, false, sound);
 		}
 	}
 
+	/**
+	 * Build a deferred alert's audible copy when the quiet window ends ({@link DeferredAlerts}), on its
+	 * audible channel as the channels stand then.
+	 *
+	 * @param context The application context
+	 * @param spec    What the alert shows
+	 * @param sticky  Whether it is a sticky level alert
+	 * @return the notification to re-post
+	 */
+	static Notification audibleCopy(Context context, AlertSpec spec, boolean sticky) {
+		final String channelId = NotificationChannels.channelFor(context, true, spec.audibleChannelId());
+		return levelNotification(alertBuilder(context, channelId, spec), sticky);
+	}
+
+	/**
+	 * Build a level alert, made un-dismissable when the user chose sticky alerts.
+	 *
+	 * @param builder The alert's builder
+	 * @param sticky  Whether the alert is sticky
+	 * @return the notification to post
+	 */
+	private static Notification levelNotification(NotificationCompat.Builder builder, boolean sticky) {
+		final Notification notification = builder.build();
+		if (sticky) {
+			notification.flags |= Notification.FLAG_NO_CLEAR | Notification.FLAG_ONGOING_EVENT;
+		}
+		return notification;
+	}
+
 	/**
 	 * Resolve where an own-channel alert posts: its quiet-hours-aware channel and whether alerts may sound
 	 * now. The single home of the permission guard, channel setup and window resolution shared by
@@ -407,9 +601,8 @@ public final class NotificationService {
 
 		NotificationChannels.ensureChannels(context);
 
-		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
 		// These are not critical battery alerts, so they respect quiet hours (#111).
-		final boolean withinWindow = QuietHours.isWithinNotificationWindow(context, prefs);
+		final boolean withinWindow = QuietHours.isWithinNotificationWindow(AlertSettings.current(context));
 		return new AlertRouting(NotificationChannels.channelFor(context, withinWindow, spec.audibleChannelId()), withinWindow);
 	}
 
@@ -428,7 +621,7 @@ public final class NotificationService {
 	 * Plugging in during quiet hours shouldn't ding: shown on the silent channel outside the window
 	 * instead of the audible full-battery channel (issue #111). Posted under its own ID so it can
 	 * never replace a level alert (#155) — the level alert's dismissal at plug-in is the explicit
-	 * {@link #clearLevelAlert} call in {@code PowerConnectionReceiver}, not an ID collision here.
+	 * {@link #clearLevelAlert} call in {@code PowerConnectionStage}, not an ID collision here.
 	 *
 	 * @param context The application context
 	 * @param content The charge message to display
@@ -0,0 +1,174 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Decides whether a rebuilt ongoing status notification is worth posting. Every post is a
+ * {@code NotificationManager} IPC and a SystemUI re-layout, and the battery receiver refreshes the
+ * notification on every broadcast — most of which change nothing the user can see.
+ * <p>
+ * The throttle remembers the last posted {@link Content} (title, collapsed and expanded detail, small
+ * icon):
+ * <ul>
+ *   <li>identical content is not posted again;</li>
+ *   <li>a new title or icon (a level tick, a plug or unplug) is posted at once;</li>
+ *   <li>a change to the detail alone (the rate, current and estimate, which move on most broadcasts) is
+ *       posted at most once per minimum interval. Inside the interval the newest content is held and a
+ *       single trailing flush posts it when the interval ends, so the final state is never lost.</li>
+ * </ul>
+ * Pure, with no Android dependencies, so it is unit-testable; the caller builds and posts the
+ * notification and schedules the flush. Thread-safe: the receiver offers on the battery worker while the
+ * foreground service may {@link #forget} on the main thread.
+ */
+final class OngoingNotificationThrottle {
+
+	/** What {@link #offer} returns when the caller should post the content now. */
+	static final long POST_NOW = 0;
+	/** What {@link #offer} returns when there is nothing to do now. */
+	static final long SKIP = -1;
+
+	/** The default minimum interval between detail-only posts. */
+	static final long DEFAULT_MIN_INTERVAL_MS = 30_000;
+
+	private static final AtomicLong SKIPPED_UNCHANGED = new AtomicLong();
+	private static final AtomicLong COALESCED = new AtomicLong();
+
+	private Content posted;
+	private long postedAtMillis;
+	private Content pending;
+	private boolean flushScheduled;
+	// When the scheduled flush is due; an earlier flush call was queued before a post since and is stale.
+	private long flushDueMillis;
+
+	/**
+	 * Offers freshly built content.
+	 *
+	 * @param content       what the notification would show now
+	 * @param nowMillis     the current time
+	 * @param minIntervalMs the minimum interval between detail-only posts (0 posts every change)
+	 *
+	 * @return {@link #POST_NOW} to post {@code content} now, {@link #SKIP} when there is nothing to do, or
+	 * a positive delay after which the caller must run {@link #flush}
+	 */
+	synchronized long offer(Content content, long nowMillis, long minIntervalMs) {
+		if (content.equals(posted)) {
+			// Back to what is showing: a held change no longer needs posting.
+			dropPending();
+			SKIPPED_UNCHANGED.incrementAndGet();
+			return SKIP;
+		}
+		if (content.equals(pending)) {
+			SKIPPED_UNCHANGED.incrementAndGet();
+			return SKIP;
+		}
+		final long wait = postedAtMillis + minIntervalMs - nowMillis;
+		// A clock stepping back (wait beyond the interval) must not hold the notification for hours.
+		if (isNull(posted) || !content.sameHeadline(posted) || wait <= 0 || wait > minIntervalMs) {
+			dropPending();
+			flushScheduled = false;
+			markPosted(content, nowMillis);
+			return POST_NOW;
+		}
+		dropPending();
+		pending = content;
+		if (flushScheduled) {
+			return SKIP;
+		}
+		flushScheduled = true;
+		flushDueMillis = nowMillis + wait;
+		return wait;
+	}
+
+	/**
+	 * Runs the trailing flush. A flush that comes before the one last scheduled is due — one scheduled
+	 * before a post that the caller did not cancel — is ignored, so it cannot post a later change early.
+	 *
+	 * @param nowMillis the current time
+	 *
+	 * @return the held content to post now, or null when nothing is held any more or the flush is stale
+	 */
+	synchronized Content flush(long nowMillis) {
+		if (!flushScheduled || nowMillis < flushDueMillis) {
+			return null;
+		}
+		flushScheduled = false;
+		final Content content = pending;
+		pending = null;
+		if (nonNull(content)) {
+			markPosted(content, nowMillis);
+		}
+		return content;
+	}
+
+	/**
+	 * Forgets what was posted, so the next offer posts whatever it carries. Used when the notification
+	 * was (re)posted behind the throttle's back — the foreground service starting — or may be gone.
+	 */
+	synchronized void forget() {
+		posted = null;
+		pending = null;
+	}
+
+	/**
+	 * Maps the persisted refresh-interval preference (whole seconds, as a string) to milliseconds.
+	 *
+	 * @param stored the stored value, or null when unset
+	 *
+	 * @return the interval, or {@link #DEFAULT_MIN_INTERVAL_MS} when unset or unparseable
+	 */
+	static long intervalFromPreference(String stored) {
+		if (isNull(stored)) {
+			return DEFAULT_MIN_INTERVAL_MS;
+		}
+		try {
+			final long seconds = Long.parseLong(stored.trim());
+			return seconds < 0 ? DEFAULT_MIN_INTERVAL_MS : seconds * 1000;
+		} catch (NumberFormatException e) {
+			return DEFAULT_MIN_INTERVAL_MS;
+		}
+	}
+
+	/**
+	 * @return offers skipped because the notification already showed (or was about to show) that content
+	 */
+	static long skippedUnchanged() {
+		return SKIPPED_UNCHANGED.get();
+	}
+
+	/**
+	 * @return changes held by the throttle and then superseded before they were posted
+	 */
+	static long coalesced() {
+		return COALESCED.get();
+	}
+
+	private void markPosted(Content content, long nowMillis) {
+		posted = content;
+		postedAtMillis = nowMillis;
+	}
+
+	private void dropPending() {
+		if (nonNull(pending)) {
+			pending = null;
+			COALESCED.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Everything the ongoing notification shows.
+	 *
+	 * @param title    the headline ("85% · Discharging")
+	 * @param detail   the collapsed detail line
+	 * @param expanded the expanded (pull-down) detail
+	 * @param iconRes  the small icon resource
+	 */
+	record Content(String title, String detail, String expanded, int iconRes) {
+
+		boolean sameHeadline(Content other) {
+			return iconRes == other.iconRes && title.equals(other.title);
+		}
+	}
+}
@@ -6,7 +6,6 @@ import android.view.View;
 
 import androidx.core.text.BidiFormatter;
 import androidx.core.text.TextUtilsCompat;
-import androidx.preference.PreferenceManager;
 
 import com.almothafar.simplebatterynotifier.R;
 import com.almothafar.simplebatterynotifier.model.BatteryDO;
@@ -90,19 +89,23 @@ final class OngoingStatusContent {
 	 * Temperature while charging. "Now" is the instantaneous current (plus the charge wattage while
 	 * charging); "Average" is the windowed average, carrying the smoothed %/h while discharging — the app
 	 * computes a single smoothed rate, which is itself an average, so there is no separate instantaneous
-	 * %/h. Every line is dropped when its data is absent; the temperature always shows. Returns a single
-	 * line (no expansion) when nothing but temperature is available.
+	 * %/h. A "Rates" line then lists the rate over each horizon that has one (last minute, window, last
+	 * hour, session) once at least two do. Every line is dropped when its data is absent; the temperature
+	 * always shows. Returns a single line (no expansion) when nothing but temperature is available.
 	 *
 	 * @param context   The application context
 	 * @param batteryDO Current battery snapshot, or null if unavailable
 	 * @param rate      The precomputed charge/drain rate
+	 * @param horizons  The per-horizon rates, or null for none
 	 * @return newline-joined expanded text (may be a single line or empty)
 	 */
-	static String statusDetailExpanded(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate) {
-		final List<String> lines = new ArrayList<>(4);
+	static String statusDetailExpanded(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate,
+	                                   BatteryRateTracker.RateHorizons horizons) {
+		final List<String> lines = new ArrayList<>(5);
 		if (showRateEnabled(context) && nonNull(batteryDO) && nonNull(rate)) {
 			addLine(context, lines, R.string.notification_label_now, nowSegment(context, batteryDO, rate));
 			addAverageLine(context, lines, rate);
+			addLine(context, lines, R.string.notification_label_rates, horizonsValue(context, horizons));
 			addTimeLine(context, lines, batteryDO, rate);
 		}
 		if (nonNull(batteryDO)) {
@@ -111,6 +114,14 @@ final class OngoingStatusContent {
 		return String.join("\n", lines);
 	}
 
+	/**
+	 * {@link #statusDetailExpanded(Context, BatteryDO, BatteryRateTracker.BatteryRate, BatteryRateTracker.RateHorizons)}
+	 * without the per-horizon rates.
+	 */
+	static String statusDetailExpanded(Context context, BatteryDO batteryDO, BatteryRateTracker.BatteryRate rate) {
+		return statusDetailExpanded(context, batteryDO, rate, null);
+	}
+
 	/**
 	 * Choose a small icon for the ongoing notification that reflects the actual battery state: a
 	 * charging bolt only while actively charging, otherwise a plain battery whose fill matches the
@@ -145,19 +156,42 @@ final class OngoingStatusContent {
 	}
 
 	/**
-	 * The "Average" expanded line: the windowed-average current, with the smoothed %/h appended while
-	 * discharging (the %/h is itself a windowed average). When the average current isn't ready yet but a
-	 * rate is, a plain "Drain rate" line stands in so the %/h isn't lost from the breakdown.
+	 * The "Average" expanded line: the windowed-average current, with the smoothed %/h (and its interval,
+	 * once it has one) appended while discharging. When the average current isn't ready yet but a rate
+	 * is, a plain "Drain rate" line stands in so the %/h isn't lost from the breakdown. The collapsed line
+	 * keeps the bare %/h: it has no room for the interval.
 	 */
 	private static void addAverageLine(Context context, List<String> lines, BatteryRateTracker.BatteryRate rate) {
 		if (rate.hasAvgCurrent()) {
 			String value = BatteryRateTracker.formatCurrentValue(context, rate.avgCurrentMilliAmps());
 			if (!rate.charging() && rate.hasRate()) {
-				value = value + DETAIL_SEPARATOR + BatteryRateTracker.formatRateValue(context, rate.percentPerHour());
+				value = value + DETAIL_SEPARATOR + BatteryRateTracker.formatRateWithMargin(context, rate);
 			}
 			addLine(context, lines, R.string.notification_label_average, value);
 		} else if (!rate.charging() && rate.hasRate()) {
-			addLine(context, lines, R.string.drain_rate, BatteryRateTracker.formatRateValue(context, rate.percentPerHour()));
+			addLine(context, lines, R.string.drain_rate, BatteryRateTracker.formatRateWithMargin(context, rate));
+		}
+	}
+
+	/**
+	 * The "Rates" value: each horizon's rate, shortest first, e.g. "1m 24 · 10m 18 · 1h 15 · session 12%/h".
+	 * Null unless at least two horizons have a rate — a lone one would only repeat the "Average" line.
+	 */
+	private static String horizonsValue(Context context, BatteryRateTracker.RateHorizons horizons) {
+		if (isNull(horizons) || horizons.available() < 2) {
+			return null;
+		}
+		final List<String> parts = new ArrayList<>(4);
+		addHorizon(context, parts, R.string.rate_horizon_minute, horizons.minutePph());
+		addHorizon(context, parts, R.string.rate_horizon_ten_minutes, horizons.tenMinutePph());
+		addHorizon(context, parts, R.string.rate_horizon_hour, horizons.hourPph());
+		addHorizon(context, parts, R.string.rate_horizon_session, horizons.sessionPph());
+		return context.getString(R.string.battery_rate_value, String.join(DETAIL_SEPARATOR, parts));
+	}
+
+	private static void addHorizon(Context context, List<String> parts, int formatRes, int percentPerHour) {
+		if (percentPerHour > 0) {
+			parts.add(context.getString(formatRes, String.valueOf(percentPerHour)));
 		}
 	}
 
@@ -293,7 +327,6 @@ final class OngoingStatusContent {
 	 * @return true when the rate/power (and its derived estimate) should be shown
 	 */
 	private static boolean showRateEnabled(Context context) {
-		return PreferenceManager.getDefaultSharedPreferences(context)
-		                        .getBoolean(context.getString(R.string._pref_key_show_rate_in_notification), true);
+		return AlertSettings.current(context).showRateInNotification();
 	}
 }
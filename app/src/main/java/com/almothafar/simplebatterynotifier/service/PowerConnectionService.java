@@ -10,19 +10,20 @@ import android.os.Build;
 import android.os.IBinder;
 import androidx.core.app.ServiceCompat;
 import com.almothafar.simplebatterynotifier.model.BatteryDO;
-import com.almothafar.simplebatterynotifier.receiver.BatteryLevelReceiver;
-import com.almothafar.simplebatterynotifier.receiver.PowerConnectionReceiver;
+import com.almothafar.simplebatterynotifier.receiver.BatteryEventReceiver;
+import com.almothafar.simplebatterynotifier.receiver.PowerConnectionStage;
 
 import static java.util.Objects.nonNull;
 
 /**
- * Service to register battery monitoring receivers.
- * Registers PowerConnectionReceiver and BatteryLevelReceiver on service creation.
+ * Service to register the battery monitoring receiver.
+ * Registers BatteryEventReceiver on service creation, on the {@link BatteryWorker} thread so
+ * broadcast processing stays off the main thread, and starts the {@link SamplingScheduler} that fills
+ * in readings when broadcasts stall.
  */
 public class PowerConnectionService extends Service {
 
-	private PowerConnectionReceiver powerConnectionReceiver;
-	private BatteryLevelReceiver batteryLevelReceiver;
+	private BatteryEventReceiver batteryEventReceiver;
 
 	@Override
 	public IBinder onBind(final Intent intent) {
@@ -34,13 +35,24 @@ public class PowerConnectionService extends Service {
 		super.onCreate();
 		// Promote to foreground first so the OS keeps the process (and our receivers) alive on Android 8+.
 		startForegroundWithStatus();
-		registerPowerConnectionReceiver();
+		registerBatteryReceiver();
 	}
 
 	@Override
 	public void onDestroy() {
 		super.onDestroy();
 		unregisterReceivers();
+		SamplingScheduler.stop();
+		DeferredAlerts.cancel();
+		NotificationService.cancelOngoingFlush();
+		// Close the log and write the open roll-ups, sketches and rule streaks on the worker, after any
+		// broadcast still queued there.
+		BatteryWorker.quit(() -> {
+			BatteryHistoryLog.close();
+			BatteryRollups.flush();
+			BatteryQuantiles.flush();
+			AlertRules.flush();
+		});
 	}
 
 	@Override
@@ -67,46 +79,40 @@ public class PowerConnectionService extends Service {
 		                        : 0;
 
 		ServiceCompat.startForeground(this, NotificationService.getOngoingNotificationId(), notification, serviceType);
+		// Posted behind the update throttle's back: the next battery update must not be skipped as unchanged.
+		NotificationService.resetOngoingNotificationCache();
 	}
 
 	/**
-	 * Register battery monitoring receivers.
+	 * Register the battery monitoring receiver.
 	 * Initializes the current plugged state to avoid unnecessary triggers on the first battery change event.
+	 * The receiver runs every stage for a broadcast before the worker looper delivers the next one.
 	 */
-	private void registerPowerConnectionReceiver() {
+	private void registerBatteryReceiver() {
 		final Intent batteryStatus = getApplicationContext().registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
 		final int plugged = batteryStatus == null ? -1 : batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, -1);
 
-		powerConnectionReceiver = new PowerConnectionReceiver();
-		PowerConnectionReceiver.setCurrentState(plugged);
+		PowerConnectionStage.setCurrentState(plugged);
 
-		batteryLevelReceiver = new BatteryLevelReceiver();
+		batteryEventReceiver = new BatteryEventReceiver();
+		registerReceiver(batteryEventReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED), null, BatteryWorker.handler());
 
-		final IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-		registerReceiver(powerConnectionReceiver, filter);
-		registerReceiver(batteryLevelReceiver, filter);
+		// Take a reading ourselves when broadcasts stall; the receiver's first reading sets the deadline.
+		final BatteryEventReceiver receiver = batteryEventReceiver;
+		SamplingScheduler.start(this, () -> receiver.sampleNow(getApplicationContext()));
 	}
 
 	/**
-	 * Unregister battery monitoring receivers to prevent memory leaks
+	 * Unregister the battery monitoring receiver to prevent memory leaks
 	 */
 	private void unregisterReceivers() {
-		if (nonNull(powerConnectionReceiver)) {
+		if (nonNull(batteryEventReceiver)) {
 			try {
-				unregisterReceiver(powerConnectionReceiver);
+				unregisterReceiver(batteryEventReceiver);
 			} catch (IllegalArgumentException e) {
 				// Receiver was already unregistered, ignore
 			}
-			powerConnectionReceiver = null;
-		}
-
-		if (nonNull(batteryLevelReceiver)) {
-			try {
-				unregisterReceiver(batteryLevelReceiver);
-			} catch (IllegalArgumentException e) {
-				// Receiver was already unregistered, ignore
-			}
-			batteryLevelReceiver = null;
+			batteryEventReceiver = null;
 		}
 	}
 }
@@ -0,0 +1,295 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.function.IntSupplier;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Reads the battery's live values straight from its {@code /sys/class/power_supply} node.
+ * <p>
+ * Every {@code BatteryManager.getIntProperty} is a binder call into the battery service, which itself
+ * reads these same files. Where the app may read them directly, this skips the round trip: the battery
+ * supply is discovered once, each node is opened once and kept open, and every read is a
+ * {@code seek(0)} plus one {@code read} into a buffer reused across reads, parsed without allocating —
+ * cheap enough for the high-rate sampling paths.
+ * <p>
+ * Many devices' SELinux policy denies apps these nodes. A node that can't be opened, or whose read
+ * fails, reports {@link #UNAVAILABLE} from then on and callers fall back to {@code BatteryManager}
+ * (see {@link SystemService}); nothing here throws.
+ * <p>
+ * The node is not always what {@code BatteryManager} reports: some OEMs' battery HAL rescales or flips
+ * the sign of the kernel value on its way out. So a node is trusted only once its value has agreed with
+ * the platform's own reading ({@link #read(Node, IntSupplier)}); one that disagrees is closed, and the
+ * platform answers for the rest of the process.
+ */
+public final class PowerSupplyReader {
+
+	/** Returned for a node that is absent, blocked or unparsable; the same sentinel {@code getIntProperty} uses. */
+	public static final int UNAVAILABLE = Integer.MIN_VALUE;
+
+	static final String POWER_SUPPLY_DIR = "/sys/class/power_supply";
+
+	private static final String TAG = PowerSupplyReader.class.getSimpleName();
+	private static final String TYPE_NODE = "type";
+	private static final String BATTERY_TYPE = "Battery";
+	// The longest value is a signed µV/µA/µAh integer plus a newline; anything longer is not a number we read.
+	private static final int BUFFER_SIZE = 32;
+
+	/**
+	 * The nodes this reader keeps open, in the kernel's units.
+	 */
+	public enum Node {
+		/** Instantaneous current, µA; the sign convention varies by OEM, as with {@code CURRENT_NOW}. */
+		CURRENT_NOW("current_now"),
+		/** Battery voltage, µV. */
+		VOLTAGE_NOW("voltage_now"),
+		/** Remaining charge, µAh. */
+		CHARGE_COUNTER("charge_counter"),
+		/** Remaining charge, percent. */
+		CAPACITY("capacity");
+
+		final String fileName;
+
+		Node(String fileName) {
+			this.fileName = fileName;
+		}
+	}
+
+	private final RandomAccessFile[] files = new RandomAccessFile[Node.values().length];
+	private final boolean[] verified = new boolean[Node.values().length];
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * Discovers the battery supply under {@code powerSupplyDir} and opens its nodes.
+	 *
+	 * @param powerSupplyDir the {@code power_supply} class directory; a fake tree in tests
+	 */
+	PowerSupplyReader(File powerSupplyDir) {
+		final File battery = findBatterySupply(powerSupplyDir);
+		if (isNull(battery)) {
+			return;
+		}
+		for (final Node node : Node.values()) {
+			files[node.ordinal()] = open(new File(battery, node.fileName));
+		}
+	}
+
+	/**
+	 * The process-wide reader over the real sysfs tree, discovered on first use.
+	 */
+	public static PowerSupplyReader system() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Reads one node.
+	 *
+	 * @param node the value to read
+	 *
+	 * @return the value in the node's units, or {@link #UNAVAILABLE}
+	 */
+	public synchronized int read(Node node) {
+		final RandomAccessFile file = files[node.ordinal()];
+		if (isNull(file)) {
+			return UNAVAILABLE;
+		}
+		try {
+			file.seek(0);
+			return parseInt(buffer, file.read(buffer));
+		} catch (IOException e) {
+			// Readable at open but not now (policy change, driver unbound): stop trying and fall back.
+			Log.d(TAG, "Dropping " + node.fileName + ": " + e.getMessage());
+			closeQuietly(file);
+			files[node.ordinal()] = null;
+			return UNAVAILABLE;
+		}
+	}
+
+	/**
+	 * Reads one node, trusting it only once it has matched the platform's reading of the same value.
+	 * Until then every read also asks {@code reference} and returns that: the node is trusted when the
+	 * two agree in sign and scale ({@link #agrees}), closed when they don't, and left to the next read to
+	 * decide when either is zero or unavailable. Once trusted, the reference is not asked again.
+	 *
+	 * @param node      the value to read
+	 * @param reference the platform's reading, in the node's units; {@link #UNAVAILABLE} when it has none
+	 *
+	 * @return the value in the node's units, or {@link #UNAVAILABLE}
+	 */
+	public synchronized int read(Node node, IntSupplier reference) {
+		final int direct = read(node);
+		if (direct == UNAVAILABLE || verified[node.ordinal()]) {
+			return direct == UNAVAILABLE ? reference.getAsInt() : direct;
+		}
+		final int platform = reference.getAsInt();
+		if (platform == UNAVAILABLE || direct == 0 || platform == 0) {
+			return platform;
+		}
+		if (agrees(direct, platform)) {
+			verified[node.ordinal()] = true;
+			return direct;
+		}
+		Log.i(TAG, "Dropping " + node.fileName + ": reads " + direct + " where the platform reports " + platform);
+		closeQuietly(files[node.ordinal()]);
+		files[node.ordinal()] = null;
+		return platform;
+	}
+
+	/**
+	 * Whether a node's value and the platform's reading of it are the same quantity in the same unit:
+	 * the same sign, and within a factor of two of each other — near-simultaneous reads of a moving
+	 * current differ a little, a mA/µA mix-up by a thousandfold.
+	 *
+	 * @param direct   the node's value, non-zero
+	 * @param platform the platform's reading, non-zero
+	 *
+	 * @return true when the node can stand in for the platform
+	 */
+	static boolean agrees(int direct, int platform) {
+		if ((direct < 0) != (platform < 0)) {
+			return false;
+		}
+		final long a = Math.abs((long) direct);
+		final long b = Math.abs((long) platform);
+		return a <= 2 * b && b <= 2 * a;
+	}
+
+	/**
+	 * Whether {@code node} is open, i.e. {@link #read} may return a value rather than {@link #UNAVAILABLE}.
+	 *
+	 * @param node the value to check
+	 *
+	 * @return true when the node is open
+	 */
+	public synchronized boolean isOpen(Node node) {
+		return nonNull(files[node.ordinal()]);
+	}
+
+	/**
+	 * Whether {@code node} has matched the platform's reading, so a plain {@link #read(Node)} can stand in
+	 * for it without the check.
+	 *
+	 * @param node the value to check
+	 *
+	 * @return true when the node is trusted
+	 */
+	public synchronized boolean isVerified(Node node) {
+		return verified[node.ordinal()];
+	}
+
+	/**
+	 * Closes every open node; reads return {@link #UNAVAILABLE} afterwards.
+	 */
+	public synchronized void close() {
+		for (int i = 0; i < files.length; i++) {
+			if (nonNull(files[i])) {
+				closeQuietly(files[i]);
+				files[i] = null;
+			}
+			verified[i] = false;
+		}
+	}
+
+	/**
+	 * Parses a decimal integer, as sysfs prints it, from the start of {@code bytes}. Pure and allocation-free
+	 * so it is unit-testable and safe on the sampling path: optional leading whitespace, an optional minus
+	 * sign, then digits up to the first non-digit (normally the trailing newline).
+	 *
+	 * @param bytes  the bytes read
+	 * @param length how many of them are valid; negative at end of file
+	 *
+	 * @return the value, or {@link #UNAVAILABLE} when there are no digits or the value overflows an int
+	 */
+	static int parseInt(byte[] bytes, int length) {
+		int i = 0;
+		while (i < length && (bytes[i] == ' ' || bytes[i] == '\t')) {
+			i++;
+		}
+		final boolean negative = i < length && bytes[i] == '-';
+		if (negative) {
+			i++;
+		}
+		final int firstDigit = i;
+		long value = 0;
+		while (i < length && bytes[i] >= '0' && bytes[i] <= '9') {
+			value = value * 10 + (bytes[i] - '0');
+			if (value > Integer.MAX_VALUE) {
+				return UNAVAILABLE;
+			}
+			i++;
+		}
+		if (i == firstDigit) {
+			return UNAVAILABLE;
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * The supply whose {@code type} is {@code Battery}; several devices also list chargers, USB ports and
+	 * fuel-gauge helpers here. An unlistable directory (SELinux) means no supply.
+	 *
+	 * @param powerSupplyDir the {@code power_supply} class directory
+	 *
+	 * @return the battery supply directory, or null when none is visible
+	 */
+	private static File findBatterySupply(File powerSupplyDir) {
+		final File[] supplies = powerSupplyDir.listFiles();
+		if (isNull(supplies)) {
+			return null;
+		}
+		for (final File supply : supplies) {
+			if (BATTERY_TYPE.equals(readType(new File(supply, TYPE_NODE)))) {
+				return supply;
+			}
+		}
+		return null;
+	}
+
+	private static String readType(File node) {
+		if (!node.canRead()) {
+			return null;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(node, "r")) {
+			final String line = file.readLine();
+			return isNull(line) ? null : line.trim();
+		} catch (IOException e) {
+			Log.d(TAG, "Unable to read " + node + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a node for repeated reads. The expected "missing" case (absent or not readable) is checked
+	 * up front; an open that still fails is logged and treated the same way.
+	 */
+	private static RandomAccessFile open(File node) {
+		if (!node.canRead()) {
+			return null;
+		}
+		try {
+			return new RandomAccessFile(node, "r");
+		} catch (IOException e) {
+			Log.d(TAG, "Unable to open " + node + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static void closeQuietly(RandomAccessFile file) {
+		try {
+			file.close();
+		} catch (IOException e) {
+			Log.d(TAG, "Unable to close a power_supply node: " + e.getMessage());
+		}
+	}
+
+	// Lazy holder: the sysfs scan happens on the first read, not at class load.
+	private static final class Holder {
+		static final PowerSupplyReader INSTANCE = new PowerSupplyReader(new File(POWER_SUPPLY_DIR));
+	}
+}
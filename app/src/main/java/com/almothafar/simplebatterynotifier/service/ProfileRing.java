@@ -0,0 +1,96 @@
+package com.almothafar.simplebatterynotifier.service;
+
+/**
+ * The profiler's recent samples as a fixed-capacity ring of primitive arrays: parallel {@code long[]}
+ * times and {@code int[]} currents and voltages, oldest first from {@link #head}. Once full, each append
+ * overwrites the oldest slot, so sampling at 10 Hz allocates nothing.
+ * <p>
+ * Deliberately separate from {@link RateSampleBuffer}: the rate window is throttled, trimmed by age and
+ * persisted; this one is dense, in-memory only and dropped with the profiling session.
+ * <p>
+ * Not thread-safe; {@link CurrentProfiler} serializes every access.
+ */
+final class ProfileRing {
+
+	private final long[] times;
+	private final int[] currents;
+	private final int[] voltages;
+
+	private int head;
+	private int size;
+
+	ProfileRing(int capacity) {
+		times = new long[capacity];
+		currents = new int[capacity];
+		voltages = new int[capacity];
+	}
+
+	int capacity() {
+		return times.length;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Appends one sample, evicting the oldest when full.
+	 *
+	 * @param timeMillis       when it was taken
+	 * @param currentMicroAmps the current, µA
+	 * @param voltageMicroVolts the voltage, µV; 0 when unknown
+	 */
+	void append(long timeMillis, int currentMicroAmps, int voltageMicroVolts) {
+		final int slot;
+		if (size < times.length) {
+			slot = (head + size) % times.length;
+			size++;
+		} else {
+			slot = head;
+			head = (head + 1) % times.length;
+		}
+		times[slot] = timeMillis;
+		currents[slot] = currentMicroAmps;
+		voltages[slot] = voltageMicroVolts;
+	}
+
+	/** The {@code index}-th sample's time, 0 = oldest. */
+	long timeAt(int index) {
+		return times[slot(index)];
+	}
+
+	/** The {@code index}-th sample's current in µA, 0 = oldest. */
+	int currentAt(int index) {
+		return currents[slot(index)];
+	}
+
+	/** The {@code index}-th sample's voltage in µV, 0 = oldest. */
+	int voltageAt(int index) {
+		return voltages[slot(index)];
+	}
+
+	/**
+	 * Copies the newest currents, oldest first, into {@code destination} without allocating.
+	 *
+	 * @param destination receives up to {@code destination.length} currents in µA
+	 *
+	 * @return how many were copied
+	 */
+	int copyRecentCurrents(int[] destination) {
+		final int count = Math.min(size, destination.length);
+		final int first = size - count;
+		for (int i = 0; i < count; i++) {
+			destination[i] = currents[slot(first + i)];
+		}
+		return count;
+	}
+
+	void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	private int slot(int index) {
+		return (head + index) % times.length;
+	}
+}
@@ -0,0 +1,99 @@
+package com.almothafar.simplebatterynotifier.service;
+
+/**
+ * Running statistics over a user-marked profiling interval: min, average and 95th-percentile current,
+ * and the energy drawn. Every sample updates a handful of primitives and one histogram slot, so the
+ * summary is available at any moment in O(buckets) without keeping the samples — the interval may
+ * outlast {@link ProfileRing}.
+ * <p>
+ * Currents are taken as magnitudes: the sign convention of {@code CURRENT_NOW} varies by OEM, and the
+ * profiler answers "how much", not "which way". The percentile is resolved to {@link #BUCKET_MILLI_AMPS}.
+ * Pure, with no Android dependencies, so it is unit-testable. Not thread-safe; {@link CurrentProfiler}
+ * serializes every access; {@link Summary} is what leaves it.
+ */
+public final class ProfileStats {
+
+	static final int BUCKET_MILLI_AMPS = 10;
+	// 0 to 12 A in 10 mA steps; anything above lands in the last bucket.
+	private static final int BUCKETS = 1201;
+	private static final double MICRO_AMP_MICRO_VOLTS_PER_MILLI_WATT = 1e9;
+	private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+	private final int[] histogram = new int[BUCKETS];
+
+	private long firstMillis;
+	private long lastMillis;
+	private int count;
+	private int minMicroAmps;
+	private long sumMicroAmps;
+
+	// Energy integrates power between consecutive samples that both carry a voltage (trapezoid rule).
+	private double energyMilliWattHours;
+	private double lastPowerMilliWatts = Double.NaN;
+
+	/**
+	 * Folds one sample in. Unavailable currents ({@link Integer#MIN_VALUE}) are skipped by the caller.
+	 *
+	 * @param timeMillis        when it was taken; non-decreasing
+	 * @param currentMicroAmps  the current, µA, either sign
+	 * @param voltageMicroVolts the voltage, µV; 0 when unknown, which leaves a gap in the energy sum
+	 */
+	void add(long timeMillis, int currentMicroAmps, int voltageMicroVolts) {
+		final int magnitude = Math.abs(currentMicroAmps);
+		if (count == 0) {
+			firstMillis = timeMillis;
+			minMicroAmps = magnitude;
+		} else {
+			minMicroAmps = Math.min(minMicroAmps, magnitude);
+		}
+		final double power = voltageMicroVolts > 0 ? (double) magnitude * voltageMicroVolts / MICRO_AMP_MICRO_VOLTS_PER_MILLI_WATT : Double.NaN;
+		if (count > 0 && !Double.isNaN(power) && !Double.isNaN(lastPowerMilliWatts) && timeMillis > lastMillis) {
+			energyMilliWattHours += (lastPowerMilliWatts + power) / 2d * (timeMillis - lastMillis) / MILLIS_PER_HOUR;
+		}
+		lastPowerMilliWatts = power;
+		lastMillis = timeMillis;
+		sumMicroAmps += magnitude;
+		histogram[Math.min(BUCKETS - 1, magnitude / 1000 / BUCKET_MILLI_AMPS)]++;
+		count++;
+	}
+
+	/**
+	 * The statistics so far, or null before the first sample.
+	 */
+	Summary summary() {
+		if (count == 0) {
+			return null;
+		}
+		return new Summary(lastMillis - firstMillis, count, minMicroAmps / 1000,
+				(int) (sumMicroAmps / count / 1000), percentileMilliAmps(0.95), energyMilliWattHours);
+	}
+
+	/**
+	 * The smallest bucket at or below which {@code fraction} of the samples fall, as its lower edge in mA.
+	 */
+	private int percentileMilliAmps(double fraction) {
+		final int rank = (int) Math.ceil(fraction * count);
+		int seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += histogram[bucket];
+			if (seen >= rank) {
+				return bucket * BUCKET_MILLI_AMPS;
+			}
+		}
+		return (BUCKETS - 1) * BUCKET_MILLI_AMPS;
+	}
+
+	/**
+	 * One interval's statistics.
+	 *
+	 * @param durationMillis       first to last sample
+	 * @param samples              how many samples were folded in
+	 * @param minMilliAmps         smallest current magnitude
+	 * @param avgMilliAmps         mean current magnitude
+	 * @param p95MilliAmps         95th-percentile current magnitude, to {@link #BUCKET_MILLI_AMPS}
+	 * @param energyMilliWattHours energy over the samples that carried a voltage
+	 */
+	public record Summary(long durationMillis, int samples, int minMilliAmps, int avgMilliAmps, int p95MilliAmps,
+	                      double energyMilliWattHours) {
+	}
+}
@@ -0,0 +1,63 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One day's or one charge/discharge session's quantile sketches for {@link BatteryQuantiles}: the current
+ * magnitude, the charging power and the temperature, each a {@link QuantileSketch}. Merging another
+ * bucket merges the sketches, so a week is its days merged. Encodes to a fixed {@value #RECORD_BYTES}-byte
+ * little-endian record:
+ * <pre>
+ *   long startMillis | current sketch | power sketch | temperature sketch
+ * </pre>
+ * Pure and Android-free, so it is unit-testable.
+ */
+final class QuantileBucket {
+
+	static final int RECORD_BYTES = 8 + 3 * QuantileSketch.BYTES;
+
+	long startMillis;
+	/** Instantaneous current magnitude in mA, from plausible readings. */
+	final QuantileSketch current = new QuantileSketch();
+	/** Charging power in mW ({@code ChargeSpeed}), from charging ticks with a usable estimate. */
+	final QuantileSketch power = new QuantileSketch();
+	/** Battery temperature in tenths of a degree Celsius. */
+	final QuantileSketch temperature = new QuantileSketch();
+
+	/**
+	 * Empties the bucket and starts it at {@code startMillis}.
+	 */
+	void reset(long startMillis) {
+		this.startMillis = startMillis;
+		current.clear();
+		power.clear();
+		temperature.clear();
+	}
+
+	/**
+	 * Folds another bucket into this one (the start time is left as is).
+	 */
+	void merge(QuantileBucket other) {
+		current.merge(other.current);
+		power.merge(other.power);
+		temperature.merge(other.temperature);
+	}
+
+	boolean isEmpty() {
+		return current.isEmpty() && power.isEmpty() && temperature.isEmpty();
+	}
+
+	void writeTo(ByteBuffer out) {
+		out.putLong(startMillis);
+		current.writeTo(out);
+		power.writeTo(out);
+		temperature.writeTo(out);
+	}
+
+	void readFrom(ByteBuffer in) {
+		startMillis = in.getLong();
+		current.readFrom(in);
+		power.readFrom(in);
+		temperature.readFrom(in);
+	}
+}
@@ -0,0 +1,235 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A small merging t-digest: a streaming estimate of a metric's quantiles (p50/p95/p99) in fixed memory,
+ * for the spikes an average hides — radio bursts in the current, thermal peaks in the temperature.
+ * <p>
+ * The data is summarized as at most {@link #MAX_CENTROIDS} centroids (mean, weight) in value order.
+ * Readings are buffered and folded in {@link #BUFFER_SIZE} at a time: the centroids and the buffer are
+ * sorted together and swept once, merging neighbours while the merged centroid spans at most one unit
+ * of the k1 scale {@code k(q) = δ/2π · asin(2q − 1)}. That scale is steep near q = 0 and 1, so the tails
+ * keep small centroids (precise p99) and the middle large ones; and two neighbours always span more
+ * than one unit between them, which bounds the count by {@link #COMPRESSION} + 1 no matter how much
+ * data arrives. Merging another sketch is the same sweep with its centroids as the buffered points, so
+ * daily sketches roll up into weekly ones with the same accuracy as one sketch fed the whole week.
+ * The exact minimum and maximum are kept alongside, as the ends of the interpolation.
+ * <p>
+ * Encodes to a fixed {@value #BYTES}-byte little-endian record:
+ * <pre>
+ *   short centroidCount | short 0 | float min | float max | MAX_CENTROIDS × (float mean | int weight)
+ * </pre>
+ * Pure and Android-free, so it is unit-testable. Allocates nothing after construction. Not thread-safe;
+ * {@link BatteryQuantiles} serializes every access.
+ */
+final class QuantileSketch {
+
+	/** The t-digest compression δ: the k1 scale spans δ/2 units, so at most δ + 1 centroids survive a sweep. */
+	static final int COMPRESSION = 31;
+	static final int MAX_CENTROIDS = COMPRESSION + 1;
+	/** Readings buffered before a sweep. */
+	static final int BUFFER_SIZE = 32;
+	static final int BYTES = 2 + 2 + 4 + 4 + MAX_CENTROIDS * (4 + 4);
+
+	// Centroids in ascending mean order.
+	private final double[] means = new double[MAX_CENTROIDS];
+	private final int[] weights = new int[MAX_CENTROIDS];
+	private int centroids;
+
+	// Readings (or another sketch's centroids) not yet swept in.
+	private final double[] bufferMeans = new double[BUFFER_SIZE];
+	private final int[] bufferWeights = new int[BUFFER_SIZE];
+	private int buffered;
+
+	// The sweep's scratch space: the centroids and the buffer, sorted together.
+	private final double[] sortMeans = new double[MAX_CENTROIDS + BUFFER_SIZE];
+	private final int[] sortWeights = new int[MAX_CENTROIDS + BUFFER_SIZE];
+
+	private long count;
+	private double min;
+	private double max;
+
+	void add(double value) {
+		add(value, 1);
+	}
+
+	/**
+	 * Folds another sketch in; {@code other} is left as it was (apart from its buffer being swept).
+	 */
+	void merge(QuantileSketch other) {
+		other.flush();
+		for (int i = 0; i < other.centroids; i++) {
+			add(other.means[i], other.weights[i]);
+		}
+		if (other.count > 0) {
+			// The centroid means lie inside the other's range; its exact ends still count.
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+		}
+	}
+
+	/** How many readings the sketch summarizes. */
+	long count() {
+		return count;
+	}
+
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * The estimated {@code q}-quantile: the value with a share {@code q} of the readings at or below it,
+	 * interpolated linearly between the centroids (each standing at the middle of its weight) and the
+	 * exact minimum and maximum at the ends.
+	 *
+	 * @param q the quantile, 0 to 1
+	 *
+	 * @return the estimate, or NaN when the sketch is empty
+	 */
+	double quantile(double q) {
+		flush();
+		if (count == 0) {
+			return Double.NaN;
+		}
+		final double index = Math.max(0, Math.min(1, q)) * count;
+		double previousIndex = 0;
+		double previousValue = min;
+		double cumulative = 0;
+		for (int i = 0; i < centroids; i++) {
+			final double center = cumulative + weights[i] / 2.0;
+			if (index < center) {
+				return interpolate(previousIndex, previousValue, center, means[i], index);
+			}
+			previousIndex = center;
+			previousValue = means[i];
+			cumulative += weights[i];
+		}
+		return interpolate(previousIndex, previousValue, count, max, index);
+	}
+
+	void clear() {
+		centroids = 0;
+		buffered = 0;
+		count = 0;
+		min = 0;
+		max = 0;
+	}
+
+	void writeTo(ByteBuffer out) {
+		flush();
+		out.putShort((short) centroids).putShort((short) 0).putFloat((float) min).putFloat((float) max);
+		for (int i = 0; i < MAX_CENTROIDS; i++) {
+			out.putFloat(i < centroids ? (float) means[i] : 0f).putInt(i < centroids ? weights[i] : 0);
+		}
+	}
+
+	/**
+	 * Reads a record written by {@link #writeTo}; a record with an impossible centroid count reads as
+	 * empty (its bytes are consumed either way).
+	 */
+	void readFrom(ByteBuffer in) {
+		clear();
+		final int stored = in.getShort();
+		in.getShort();
+		final float storedMin = in.getFloat();
+		final float storedMax = in.getFloat();
+		final boolean valid = stored >= 0 && stored <= MAX_CENTROIDS;
+		for (int i = 0; i < MAX_CENTROIDS; i++) {
+			final float mean = in.getFloat();
+			final int weight = in.getInt();
+			if (valid && i < stored && weight > 0) {
+				means[centroids] = mean;
+				weights[centroids] = weight;
+				centroids++;
+				count += weight;
+			}
+		}
+		if (count > 0) {
+			min = storedMin;
+			max = storedMax;
+		}
+	}
+
+	private void add(double value, int weight) {
+		if (Double.isNaN(value) || weight <= 0) {
+			return;
+		}
+		if (buffered == BUFFER_SIZE) {
+			flush();
+		}
+		if (count == 0) {
+			min = value;
+			max = value;
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		bufferMeans[buffered] = value;
+		bufferWeights[buffered] = weight;
+		buffered++;
+		count += weight;
+	}
+
+	/**
+	 * Sweeps the buffer into the centroids: sorts both together (insertion sort — the centroids are
+	 * already in order and the whole is at most {@code MAX_CENTROIDS + BUFFER_SIZE} long), then merges
+	 * neighbours left to right while the merged centroid stays within one k-unit.
+	 */
+	private void flush() {
+		if (buffered == 0) {
+			return;
+		}
+		int n = 0;
+		for (int i = 0; i < centroids; i++, n++) {
+			sortMeans[n] = means[i];
+			sortWeights[n] = weights[i];
+		}
+		for (int i = 0; i < buffered; i++, n++) {
+			insert(n, bufferMeans[i], bufferWeights[i]);
+		}
+		buffered = 0;
+
+		centroids = 0;
+		double mean = sortMeans[0];
+		long weight = sortWeights[0];
+		long before = 0;
+		for (int i = 1; i < n; i++) {
+			final long merged = weight + sortWeights[i];
+			if (centroids < MAX_CENTROIDS - 1 && k((double) (before + merged) / count) - k((double) before / count) > 1) {
+				means[centroids] = mean;
+				weights[centroids] = (int) weight;
+				centroids++;
+				before += weight;
+				mean = sortMeans[i];
+				weight = sortWeights[i];
+			} else {
+				mean += (sortMeans[i] - mean) * sortWeights[i] / merged;
+				weight = merged;
+			}
+		}
+		means[centroids] = mean;
+		weights[centroids] = (int) Math.min(Integer.MAX_VALUE, weight);
+		centroids++;
+	}
+
+	private void insert(int size, double mean, int weight) {
+		int at = size;
+		while (at > 0 && sortMeans[at - 1] > mean) {
+			sortMeans[at] = sortMeans[at - 1];
+			sortWeights[at] = sortWeights[at - 1];
+			at--;
+		}
+		sortMeans[at] = mean;
+		sortWeights[at] = weight;
+	}
+
+	/** The k1 scale function. */
+	private static double k(double q) {
+		return COMPRESSION / (2 * Math.PI) * Math.asin(Math.max(-1, Math.min(1, 2 * q - 1)));
+	}
+
+	private static double interpolate(double x0, double y0, double x1, double y1, double x) {
+		return x1 <= x0 ? y1 : y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+	}
+}
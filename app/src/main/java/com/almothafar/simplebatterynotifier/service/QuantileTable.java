@@ -0,0 +1,352 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The quantile-sketch file for {@link BatteryQuantiles}: the open session's bucket, the open day's, and a
+ * ring of the last {@value #DAY_SLOTS} closed days, each a fixed {@link QuantileBucket#RECORD_BYTES}-byte
+ * record after a {@value #HEADER_BYTES}-byte little-endian header:
+ * <pre>
+ *   header: int magic | short version | short recordBytes | short head | short size | byte flags | byte 0
+ *           | short 0
+ *   record: session, open day, then DAY_SLOTS closed-day slots (a ring, oldest at head)
+ * </pre>
+ * with flags bit 0 = has a session, bit 1 = the session is charging, bit 2 = has an open day. The whole
+ * file is about 24 KB. The open session and day are kept in memory and rewritten in place only by
+ * {@link #persist} — which {@link BatteryQuantiles} calls on significant ticks, at a session or day
+ * boundary ({@link #crossedBoundary}) and when monitoring stops; closing a day writes it once into the
+ * ring, over the oldest when the ring is full. A file failing the header checks is ignored and rebuilt,
+ * like the roll-ups.
+ * <p>
+ * Not thread-safe; {@link BatteryQuantiles} serializes every access to a table. The static readers only
+ * read the file, so they run outside that lock.
+ */
+final class QuantileTable {
+
+	private static final String TAG = QuantileTable.class.getSimpleName();
+
+	static final String FILE_NAME = "battery_quantiles.bin";
+
+	private static final int MAGIC = 0x51534242; // "BBSQ" little-endian
+	private static final short VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	/** Closed days kept: four weeks, for weekly roll-ups. */
+	static final int DAY_SLOTS = 28;
+
+	private static final int FLAG_SESSION = 1;
+	private static final int FLAG_CHARGING = 1 << 1;
+	private static final int FLAG_DAY = 1 << 2;
+
+	private final File file;
+	private final QuantileBucket session = new QuantileBucket();
+	private final QuantileBucket day = new QuantileBucket();
+	private boolean hasSession;
+	private boolean sessionCharging;
+	private boolean hasDay;
+	private int head;
+	private int size;
+	// A session restarted or a day opened or closed since the last persist.
+	private boolean boundary;
+
+	// Reused encode buffers, so a tick allocates nothing.
+	private final ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer recordBytes = ByteBuffer.allocate(QuantileBucket.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+	private QuantileTable(File file) {
+		this.file = file;
+	}
+
+	static File fileFor(Context appContext) {
+		return new File(appContext.getFilesDir(), FILE_NAME);
+	}
+
+	/**
+	 * Loads the header and the open session and day (never the closed days).
+	 */
+	static QuantileTable load(Context appContext) {
+		final QuantileTable table = new QuantileTable(fileFor(appContext));
+		if (table.file.exists()) {
+			table.readHeaderAndOpen();
+		}
+		return table;
+	}
+
+	/**
+	 * The open session's bucket, restarted when the direction flips (a plug or an unplug).
+	 *
+	 * @param charging  this tick's direction
+	 * @param nowMillis this tick's time, the start of a new session
+	 *
+	 * @return the bucket to add this tick's readings to
+	 */
+	QuantileBucket advanceSession(boolean charging, long nowMillis) {
+		if (!hasSession || charging != sessionCharging) {
+			session.reset(nowMillis);
+			hasSession = true;
+			sessionCharging = charging;
+			boundary = true;
+		}
+		return session;
+	}
+
+	/**
+	 * The open day's bucket, closing the previous day into the ring when the tick has left it. A clock
+	 * stepping back keeps adding to the open day, so the ring stays in time order.
+	 *
+	 * @param dayStart the start of the local day containing this tick
+	 *
+	 * @return the bucket to add this tick's readings to
+	 */
+	QuantileBucket advanceDay(long dayStart) {
+		if (hasDay && dayStart > day.startMillis) {
+			closeDay();
+		}
+		if (!hasDay) {
+			day.reset(dayStart);
+			hasDay = true;
+			boundary = true;
+		}
+		return day;
+	}
+
+	/**
+	 * @return whether a session restarted or a day opened or closed since the last {@link #persist}, so
+	 *         the file's header no longer describes the ring and the open records
+	 */
+	boolean crossedBoundary() {
+		return boundary;
+	}
+
+	/**
+	 * Writes the open session and day and the header in place.
+	 */
+	void persist() {
+		boundary = false;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			final FileChannel channel = raf.getChannel();
+			writeRecord(channel, session, 0);
+			writeRecord(channel, day, 1);
+			encodeHeader();
+			writeFully(channel, headerBytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist quantile sketches: " + e.getMessage());
+		}
+	}
+
+	private void closeDay() {
+		final int slot = (head + size) % DAY_SLOTS;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			writeRecord(raf.getChannel(), day, 2 + slot);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to close the day's quantile sketches: " + e.getMessage());
+			return;
+		}
+		if (size == DAY_SLOTS) {
+			head = (head + 1) % DAY_SLOTS;
+		} else {
+			size++;
+		}
+		hasDay = false;
+	}
+
+	private void writeRecord(FileChannel channel, QuantileBucket bucket, int index) throws IOException {
+		recordBytes.clear();
+		bucket.writeTo(recordBytes);
+		recordBytes.flip();
+		writeFully(channel, recordBytes, recordOffset(index));
+	}
+
+	/**
+	 * Merges the live open session, which may hold readings not written yet, into {@code into}.
+	 *
+	 * @return whether there is a session
+	 */
+	boolean mergeSession(QuantileBucket into) {
+		if (hasSession) {
+			into.merge(session);
+		}
+		return hasSession;
+	}
+
+	/**
+	 * Copies the live open day, which may hold readings not written yet, into {@code into} when it
+	 * overlaps {@code [sinceMillis, now]}. Memory only, so the caller can hold the lock the worker takes
+	 * for it and read the closed days with {@link #mergeClosedDaysBefore} afterwards.
+	 *
+	 * @return the open day's start, which bounds the closed days to merge with it, or
+	 * {@code Long.MAX_VALUE} when no day is open
+	 */
+	long copyOpenDaySince(long sinceMillis, QuantileBucket into) {
+		if (!hasDay) {
+			return Long.MAX_VALUE;
+		}
+		if (day.startMillis + BatteryRollups.DAY_MS > sinceMillis) {
+			into.merge(day);
+		}
+		return day.startMillis;
+	}
+
+	/**
+	 * Merges the open session into {@code into}.
+	 *
+	 * @return whether the file holds a session
+	 */
+	static boolean mergeSession(File file, QuantileBucket into) {
+		final ByteBuffer bytes = readAll(file);
+		if (bytes == null || (bytes.get(12) & FLAG_SESSION) == 0) {
+			return false;
+		}
+		final QuantileBucket bucket = new QuantileBucket();
+		bytes.position(HEADER_BYTES);
+		bucket.readFrom(bytes);
+		into.merge(bucket);
+		return true;
+	}
+
+	/**
+	 * Merges every day overlapping {@code [sinceMillis, now]} — closed and open — into {@code into}, with
+	 * one sequential read of the file.
+	 *
+	 * @return the number of days merged
+	 */
+	static int mergeDaysSince(File file, long sinceMillis, QuantileBucket into) {
+		return mergeDaysSince(file, sinceMillis, Long.MAX_VALUE, into, true);
+	}
+
+	/**
+	 * Merges the closed days overlapping {@code [sinceMillis, beforeMillis)} into {@code into}, without
+	 * the lock. A day closes into its ring slot before the header counts it, and only the oldest slot is
+	 * ever overwritten; the bound drops a day that closed after its open copy was taken with
+	 * {@link #copyOpenDaySince}, so it is not counted twice.
+	 *
+	 * @return the number of days merged
+	 */
+	static int mergeClosedDaysBefore(File file, long sinceMillis, long beforeMillis, QuantileBucket into) {
+		return mergeDaysSince(file, sinceMillis, beforeMillis, into, false);
+	}
+
+	private static int mergeDaysSince(File file, long sinceMillis, long beforeMillis, QuantileBucket into,
+	                                  boolean withOpen) {
+		final ByteBuffer bytes = readAll(file);
+		if (bytes == null) {
+			return 0;
+		}
+		final int storedHead = bytes.getShort(8);
+		final int storedSize = bytes.getShort(10);
+		final boolean storedDay = withOpen && (bytes.get(12) & FLAG_DAY) != 0;
+		if (storedHead < 0 || storedHead >= DAY_SLOTS || storedSize < 0 || storedSize > DAY_SLOTS) {
+			return 0;
+		}
+		final QuantileBucket bucket = new QuantileBucket();
+		int merged = 0;
+		for (int i = 0; i <= storedSize; i++) {
+			final boolean open = i == storedSize;
+			if (open && !storedDay) {
+				break;
+			}
+			bytes.position((int) recordOffset(open ? 1 : 2 + (storedHead + i) % DAY_SLOTS));
+			bucket.readFrom(bytes);
+			if (bucket.startMillis + BatteryRollups.DAY_MS > sinceMillis && bucket.startMillis < beforeMillis) {
+				into.merge(bucket);
+				merged++;
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * The whole file when its header checks out and it is complete, else null.
+	 */
+	private static ByteBuffer readAll(File file) {
+		if (!file.exists()) {
+			return null;
+		}
+		final ByteBuffer bytes = ByteBuffer.allocate((int) recordOffset(2 + DAY_SLOTS)).order(ByteOrder.LITTLE_ENDIAN);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			readFully(raf.getChannel(), bytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read quantile sketches: " + e.getMessage());
+			return null;
+		}
+		// Closed-day slots past the ring's size may never have been written: zero-fill is fine.
+		if (bytes.position() < recordOffset(2) || bytes.getInt(0) != MAGIC || bytes.getShort(4) != VERSION
+				|| bytes.getShort(6) != QuantileBucket.RECORD_BYTES) {
+			return null;
+		}
+		return bytes;
+	}
+
+	private void readHeaderAndOpen() {
+		final ByteBuffer bytes = ByteBuffer.allocate((int) recordOffset(2)).order(ByteOrder.LITTLE_ENDIAN);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			readFully(raf.getChannel(), bytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read quantile sketches, starting empty: " + e.getMessage());
+			return;
+		}
+		if (bytes.position() < bytes.capacity() || bytes.getInt(0) != MAGIC || bytes.getShort(4) != VERSION
+				|| bytes.getShort(6) != QuantileBucket.RECORD_BYTES) {
+			Log.w(TAG, "Ignoring unrecognised quantile sketch file");
+			return;
+		}
+		final int storedHead = bytes.getShort(8);
+		final int storedSize = bytes.getShort(10);
+		if (storedHead < 0 || storedHead >= DAY_SLOTS || storedSize < 0 || storedSize > DAY_SLOTS) {
+			Log.w(TAG, "Ignoring corrupt quantile sketch file");
+			return;
+		}
+		final int flags = bytes.get(12);
+		bytes.position(HEADER_BYTES);
+		session.readFrom(bytes);
+		day.readFrom(bytes);
+		head = storedHead;
+		size = storedSize;
+		hasSession = (flags & FLAG_SESSION) != 0;
+		sessionCharging = (flags & FLAG_CHARGING) != 0;
+		hasDay = (flags & FLAG_DAY) != 0;
+	}
+
+	private void encodeHeader() {
+		final int flags = (hasSession ? FLAG_SESSION : 0) | (sessionCharging ? FLAG_CHARGING : 0) | (hasDay ? FLAG_DAY : 0);
+		headerBytes.clear();
+		headerBytes.putInt(MAGIC)
+		           .putShort(VERSION)
+		           .putShort((short) QuantileBucket.RECORD_BYTES)
+		           .putShort((short) head)
+		           .putShort((short) size)
+		           .put((byte) flags)
+		           .put((byte) 0)
+		           .putShort((short) 0)
+		           .flip();
+	}
+
+	private static long recordOffset(int index) {
+		return HEADER_BYTES + (long) index * QuantileBucket.RECORD_BYTES;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+		long at = position;
+		while (bytes.hasRemaining()) {
+			final int read = channel.read(bytes, at);
+			if (read < 0) {
+				return; // end of file: the caller checks what arrived
+			}
+			at += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+		long at = position;
+		while (bytes.hasRemaining()) {
+			at += channel.write(bytes, at);
+		}
+	}
+}
@@ -1,17 +1,23 @@
 package com.almothafar.simplebatterynotifier.service;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
 
-import com.almothafar.simplebatterynotifier.R;
 import com.almothafar.simplebatterynotifier.util.GeneralHelper;
 
-import java.time.LocalTime;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.isNull;
 
 /**
- * The quiet-hours and silent-mode <em>policy</em> for alerts (issue #166): given the user's time-range
- * window and the critical-alert override, decide whether an alert may sound/vibrate right now.
+ * The quiet-hours and silent-mode <em>policy</em> for alerts (issue #166): given the user's weekly
+ * schedule of time-range windows ({@link QuietSchedule}) and the critical-alert override, decide whether
+ * an alert may sound/vibrate right now, and when a silenced one may sound.
  * <p>
  * Split out of {@code NotificationService} so the single-responsibility line is clear and the pure
  * decision cores stay easy to unit-test. The core checks ({@link #isWithinTimeRange},
@@ -27,68 +33,92 @@ final class QuietHours {
 	}
 
 	/**
-	 * Whether the current time falls inside the user's allowed notification window
-	 * (always true when the time-range limit is disabled).
+	 * Whether the current time falls inside the user's allowed notification windows
+	 * (always true when the time-range limit is disabled). The weekly schedule was compiled once, with
+	 * its malformed-value fallbacks, when the {@link AlertSettings} snapshot was built, so this is a
+	 * single bit test.
 	 *
-	 * @param context The application context
-	 * @param prefs   SharedPreferences containing user settings
+	 * @param settings the current settings snapshot
 	 * @return true if alerts are allowed at the current time
 	 */
-	static boolean isWithinNotificationWindow(Context context, SharedPreferences prefs) {
-		// Default ON to match the toggle's XML default (pref_behaviour.xml). Reading false here let a
-		// fresh install that never opened Time Settings alert around the clock, so quiet hours silently
-		// did nothing (issue #111). Now quiet hours apply by default (06:30–23:30).
-		final boolean limitedTime = prefs.getBoolean(context.getString(R.string._pref_key_notifications_time_range), true);
-		final String defaultStartTime = context.getString(R.string._pref_value_notifications_time_range_start);
-		final String defaultEndTime = context.getString(R.string._pref_value_notifications_time_range_end);
-		final String startTime = prefs.getString(context.getString(R.string._pref_key_notifications_time_range_start), defaultStartTime);
-		final String endTime = prefs.getString(context.getString(R.string._pref_key_notifications_time_range_end), defaultEndTime);
-		return isWithinTime(startTime, endTime, defaultStartTime, defaultEndTime) || !limitedTime;
+	static boolean isWithinNotificationWindow(AlertSettings settings) {
+		return !settings.quietHoursEnabled() || settings.quietSchedule().allowsAt(LocalDateTime.now());
 	}
 
 	/**
-	 * Whether an alert may sound/vibrate right now, given the quiet-hours window and the critical-alert
-	 * override. Alerts are allowed inside the window; a critical alert may additionally be allowed to
-	 * break through quiet hours when the user has left that option on (default), so a genuinely low
-	 * battery still wakes them (issue #111). Pure and Android-free so it is unit-testable.
+	 * When the current quiet window ends, so an alert posted silently inside it can sound then.
 	 *
-	 * @param withinWindow             whether now falls inside the allowed notification window
-	 * @param isCritical               whether this is a critical (about-to-die) alert
-	 * @param criticalIgnoresQuietHours whether critical alerts are allowed to break through quiet hours
-	 * @return true when the alert may sound/vibrate now
+	 * @param settings the current settings snapshot
+	 * @return the epoch millis alerts may next sound, or −1 when quiet hours are off or never end
 	 */
-	static boolean alertsAllowedNow(boolean withinWindow, boolean isCritical, boolean criticalIgnoresQuietHours) {
-		return withinWindow || (isCritical && criticalIgnoresQuietHours);
+	static long quietWindowEndMillis(AlertSettings settings) {
+		if (!settings.quietHoursEnabled()) {
+			return -1;
+		}
+		return settings.quietSchedule().nextAllowedMillis(ZonedDateTime.now());
 	}
 
 	/**
-	 * Whether the user opted to override silent/DND mode for alerts.
+	 * Compiles the weekly schedule from the stored settings (issue #154's never-throw rule applies: a
+	 * malformed extra or weekend window list is logged and ignored, never fatal).
+	 * <ul>
+	 *   <li>weekdays: the start/end window of the time pickers, plus any extra windows;</li>
+	 *   <li>weekend days: their own windows, or the weekday schedule when left blank.</li>
+	 * </ul>
 	 *
-	 * @param context The application context
-	 * @param prefs   SharedPreferences containing user settings
-	 * @return true if silent mode should be overridden
+	 * @param startMinutes   the pickers' window start in minutes since midnight
+	 * @param endMinutes     the pickers' window end in minutes since midnight
+	 * @param extraWindows   the stored extra weekday windows (may be null)
+	 * @param weekendWindows the stored weekend windows (may be null)
+	 * @param weekendDays    the stored ISO day numbers ("1" = Monday) of the weekend, or null for the default
+	 * @return the compiled schedule
 	 */
-	static boolean shouldIgnoreSilentMode(Context context, SharedPreferences prefs) {
-		return !prefs.getBoolean(context.getString(R.string._pref_key_notifications_apply_silent_mode), false);
+	static QuietSchedule compileSchedule(int startMinutes, int endMinutes, String extraWindows, String weekendWindows,
+	                                     Set<String> weekendDays) {
+		final List<QuietSchedule.Window> weekday = new ArrayList<>();
+		weekday.add(new QuietSchedule.Window(startMinutes, endMinutes));
+		weekday.addAll(windowsOrNone(extraWindows));
+		final List<QuietSchedule.Window> weekend = windowsOrNone(weekendWindows);
+		return QuietSchedule.compile(weekday, weekend.isEmpty() ? weekday : weekend, weekendDays(weekendDays));
+	}
+
+	private static List<QuietSchedule.Window> windowsOrNone(String stored) {
+		final List<QuietSchedule.Window> windows = QuietSchedule.parseWindows(stored);
+		if (isNull(windows)) {
+			Log.w(TAG, "Malformed quiet-hours windows \"" + stored + "\"; ignoring them");
+			return List.of();
+		}
+		return windows;
+	}
+
+	private static Set<DayOfWeek> weekendDays(Set<String> stored) {
+		if (isNull(stored)) {
+			return QuietSchedule.DEFAULT_WEEKEND;
+		}
+		final Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+		for (final String day : stored) {
+			try {
+				days.add(DayOfWeek.of(Integer.parseInt(day)));
+			} catch (RuntimeException e) {
+				Log.w(TAG, "Malformed weekend day \"" + day + "\"; ignoring it");
+			}
+		}
+		return days;
 	}
 
 	/**
-	 * Check if current time is within notification time range. Never throws: this runs on the
-	 * broadcast path of every alert, and a corrupt stored bound must not turn alerting into a crash
-	 * loop (issue #154) — a malformed bound falls back to that bound's default instead.
+	 * Whether an alert may sound/vibrate right now, given the quiet-hours window and the critical-alert
+	 * override. Alerts are allowed inside the window; a critical alert may additionally be allowed to
+	 * break through quiet hours when the user has left that option on (default), so a genuinely low
+	 * battery still wakes them (issue #111). Pure and Android-free so it is unit-testable.
 	 *
-	 * @param startTime        Start time string (HH:mm format)
-	 * @param endTime          End time string (HH:mm format)
-	 * @param defaultStartTime Default window start, used when {@code startTime} is malformed
-	 * @param defaultEndTime   Default window end, used when {@code endTime} is malformed
-	 * @return true if current time is within range
+	 * @param withinWindow             whether now falls inside the allowed notification window
+	 * @param isCritical               whether this is a critical (about-to-die) alert
+	 * @param criticalIgnoresQuietHours whether critical alerts are allowed to break through quiet hours
+	 * @return true when the alert may sound/vibrate now
 	 */
-	private static boolean isWithinTime(String startTime, String endTime, String defaultStartTime, String defaultEndTime) {
-		final LocalTime now = LocalTime.now();
-		final int nowMinutes = now.getHour() * 60 + now.getMinute();
-		final int startMinutes = boundOrDefaultMinutes(startTime, defaultStartTime);
-		final int endMinutes = boundOrDefaultMinutes(endTime, defaultEndTime);
-		return isWithinTimeRange(nowMinutes, startMinutes, endMinutes);
+	static boolean alertsAllowedNow(boolean withinWindow, boolean isCritical, boolean criticalIgnoresQuietHours) {
+		return withinWindow || (isCritical && criticalIgnoresQuietHours);
 	}
 
 	/**
@@ -0,0 +1,234 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.util.GeneralHelper;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The weekly quiet-hours schedule, compiled into a 10,080-bit minute-of-week bitmap: a set bit is a
+ * minute when alerts may sound. Weekdays and weekend days each have their own list of allowed windows,
+ * and which days are the weekend is the user's choice.
+ * <p>
+ * Each window keeps {@link QuietHours#isWithinTimeRange}'s semantics — start inclusive, end exclusive,
+ * equal times a whole day — with an overnight window belonging to the day it starts on, so Friday's
+ * {@code 22:00-02:00} runs into Saturday morning. With the same single window every day the bitmap
+ * answers exactly as the old daily check did.
+ * <p>
+ * Compiled once per settings change (into {@link AlertSettings#quietSchedule}), so "may an alert sound
+ * now" is one bit test ({@link #allowsAt}), and the same bits answer when the quiet window next ends
+ * ({@link #minutesUntilAllowed}, {@link #nextAllowedMillis}) for deferring an alert's sound. Pure and
+ * Android-free, so it is unit-testable.
+ * <p>
+ * <b>Text form</b> (the settings editors'): {@code HH:mm-HH:mm} windows separated by commas or spaces,
+ * e.g. {@code 06:30-12:00, 13:00-23:30}.
+ */
+public final class QuietSchedule {
+
+	public static final int MINUTES_PER_DAY = 24 * 60;
+	public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+	/** The weekend until the user picks other days. */
+	public static final Set<DayOfWeek> DEFAULT_WEEKEND = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+	private final long[] allowed = new long[(MINUTES_PER_WEEK + 63) / 64];
+
+	private QuietSchedule() {
+	}
+
+	/**
+	 * Compiles the weekly schedule.
+	 *
+	 * @param weekdayWindows the windows alerts may sound in on weekdays
+	 * @param weekendWindows the windows for weekend days
+	 * @param weekend        which days are the weekend
+	 *
+	 * @return the compiled schedule
+	 */
+	public static QuietSchedule compile(List<Window> weekdayWindows, List<Window> weekendWindows, Set<DayOfWeek> weekend) {
+		final QuietSchedule schedule = new QuietSchedule();
+		for (final DayOfWeek day : DayOfWeek.values()) {
+			final int dayStart = (day.getValue() - 1) * MINUTES_PER_DAY;
+			for (final Window window : weekend.contains(day) ? weekendWindows : weekdayWindows) {
+				final int length = window.lengthMinutes();
+				final int start = dayStart + window.startMinutes();
+				// The last day's overnight window wraps into Monday morning.
+				schedule.set(start, Math.min(start + length, MINUTES_PER_WEEK));
+				if (start + length > MINUTES_PER_WEEK) {
+					schedule.set(0, start + length - MINUTES_PER_WEEK);
+				}
+			}
+		}
+		return schedule;
+	}
+
+	/**
+	 * Parses windows in the editors' text form.
+	 *
+	 * @param text the windows, or null/blank for none
+	 *
+	 * @return the windows in order, or null when the text doesn't follow the syntax
+	 */
+	public static List<Window> parseWindows(String text) {
+		final List<Window> windows = new ArrayList<>();
+		if (isNull(text) || text.isBlank()) {
+			return windows;
+		}
+		// "06:30 - 12:00" and an en dash read as "06:30-12:00".
+		final String compact = text.replaceAll("\\s*[-\u2013]\\s*", "-").replaceAll("^[\\s,]+|[\\s,]+$", "");
+		for (final String token : compact.split("[\\s,]+")) {
+			final int dash = token.indexOf('-');
+			if (dash < 0) {
+				return null;
+			}
+			final int start = GeneralHelper.parseTimeToMinutes(token.substring(0, dash));
+			final int end = GeneralHelper.parseTimeToMinutes(token.substring(dash + 1));
+			if (start < 0 || end < 0) {
+				return null;
+			}
+			windows.add(new Window(start, end));
+		}
+		return windows;
+	}
+
+	/**
+	 * @return the windows in the editors' text form
+	 */
+	public static String windowsText(List<Window> windows) {
+		final StringBuilder text = new StringBuilder();
+		for (final Window window : windows) {
+			text.append(text.length() == 0 ? "" : ", ").append(window);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @param minuteOfWeek minutes since Monday 00:00
+	 *
+	 * @return whether alerts may sound at that minute
+	 */
+	public boolean allowsAt(int minuteOfWeek) {
+		return (allowed[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0;
+	}
+
+	/**
+	 * @return whether alerts may sound at a local date-time
+	 */
+	public boolean allowsAt(LocalDateTime time) {
+		return allowsAt(minuteOfWeek(time));
+	}
+
+	/**
+	 * How long until alerts may sound again: the end of the quiet window around a minute.
+	 *
+	 * @param minuteOfWeek minutes since Monday 00:00
+	 *
+	 * @return 0 when alerts may sound at that minute, the minutes until they may, or −1 when they never may
+	 */
+	public int minutesUntilAllowed(int minuteOfWeek) {
+		final int next = nextSetBit(minuteOfWeek, MINUTES_PER_WEEK);
+		if (next >= 0) {
+			return next - minuteOfWeek;
+		}
+		final int wrapped = nextSetBit(0, minuteOfWeek);
+		return wrapped >= 0 ? MINUTES_PER_WEEK - minuteOfWeek + wrapped : -1;
+	}
+
+	/**
+	 * When alerts may next sound, on the local wall clock (so a DST shift inside the quiet window moves
+	 * the end with the clock).
+	 *
+	 * @param now the current time in the user's zone
+	 *
+	 * @return the epoch millis the quiet window ends, {@code now} itself when alerts may sound now, or −1
+	 *         when they never may
+	 */
+	public long nextAllowedMillis(ZonedDateTime now) {
+		final int minutes = minutesUntilAllowed(minuteOfWeek(now.toLocalDateTime()));
+		if (minutes <= 0) {
+			return minutes == 0 ? now.toInstant().toEpochMilli() : -1;
+		}
+		return now.toLocalDateTime().truncatedTo(ChronoUnit.MINUTES).plusMinutes(minutes)
+				.atZone(now.getZone()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * @return minutes since Monday 00:00
+	 */
+	public static int minuteOfWeek(LocalDateTime time) {
+		return (time.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof final QuietSchedule other && Arrays.equals(allowed, other.allowed);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(allowed);
+	}
+
+	/**
+	 * Sets bits {@code [from, to)}, a word at a time.
+	 */
+	private void set(int from, int to) {
+		for (int minute = from; minute < to; ) {
+			final int word = minute >>> 6;
+			final int wordEnd = Math.min(to, (word + 1) << 6);
+			final int bits = wordEnd - minute;
+			allowed[word] |= (bits == 64 ? -1L : (1L << bits) - 1) << minute;
+			minute = wordEnd;
+		}
+	}
+
+	/**
+	 * @return the first set bit in {@code [from, to)}, or −1
+	 */
+	private int nextSetBit(int from, int to) {
+		int word = from >>> 6;
+		long bits = from < to ? allowed[word] & (-1L << from) : 0;
+		while (true) {
+			if (bits != 0) {
+				final int found = (word << 6) + Long.numberOfTrailingZeros(bits);
+				return found < to ? found : -1;
+			}
+			if (++word >= allowed.length || word << 6 >= to) {
+				return -1;
+			}
+			bits = allowed[word];
+		}
+	}
+
+	/**
+	 * One window alerts may sound in, with {@link QuietHours#isWithinTimeRange}'s semantics.
+	 *
+	 * @param startMinutes the start in minutes since midnight, inclusive
+	 * @param endMinutes   the end in minutes since midnight, exclusive (before the start = the next day)
+	 */
+	public record Window(int startMinutes, int endMinutes) {
+
+		/**
+		 * @return the window's length; equal times are a whole day
+		 */
+		int lengthMinutes() {
+			final int length = Math.floorMod(endMinutes - startMinutes, MINUTES_PER_DAY);
+			return length == 0 ? MINUTES_PER_DAY : length;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%02d:%02d-%02d:%02d",
+					startMinutes / 60, startMinutes % 60, endMinutes / 60, endMinutes % 60);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package com.almothafar.simplebatterynotifier.service;
+
+/**
+ * A two-state Kalman filter over the battery level (%) and its rate (%/h, positive while rising), fusing
+ * the two sources {@link BatteryRateTracker} used to switch between: the instantaneous current as a
+ * direct rate reading, and the whole-percent level.
+ * <p>
+ * Each accepted sample costs a constant handful of arithmetic operations — predict over the elapsed
+ * time, then fold in whichever readings it carries — instead of a pass over the window. The state is
+ * seven numbers, so {@link RateWindowStore} persists it next to the window and a new process carries on
+ * where the last one stopped rather than warming up again.
+ * <p>
+ * <b>Noise model.</b>
+ * <ul>
+ *   <li>The rate drifts as a random walk ({@link #RATE_DRIFT_VARIANCE_PER_HOUR}): load changes, so the
+ *       filter never stops listening.</li>
+ *   <li>A current reading is a direct but noisy rate: an instant of a spiky load, off by up to half
+ *       its own value ({@link #CURRENT_NOISE_FRACTION}) plus a floor.</li>
+ *   <li>The level is quantized to whole percent, and consecutive identical readings are not
+ *       independent evidence of a flat level. So the level only counts when it says something: a step
+ *       pins the true level to the boundary just crossed, and while it holds still the estimate is only
+ *       pulled back if it has drifted outside the reading's step. Either way the reading is uniform over
+ *       one percent, variance {@link #LEVEL_QUANTIZATION_VARIANCE}.</li>
+ * </ul>
+ * Pure, with no Android dependencies, so it is unit-testable. Not thread-safe; {@link BatteryRateTracker}
+ * serializes every access.
+ */
+final class RateKalmanFilter {
+
+	/** A whole-percent reading is uniform over its one-percent step: variance 1/12. */
+	static final double LEVEL_QUANTIZATION_VARIANCE = 1d / 12;
+	/** How far the true rate wanders, (%/h)² per hour. */
+	static final double RATE_DRIFT_VARIANCE_PER_HOUR = 25;
+	/** The rate prior before any evidence: 50 %/h either way. */
+	static final double INITIAL_RATE_VARIANCE = 50d * 50;
+	static final double CURRENT_NOISE_FRACTION = 0.5;
+	static final double CURRENT_NOISE_FLOOR_PPH = 2;
+	/** A state older than this says nothing about now; the filter starts over. */
+	static final long STALE_AFTER_MS = 60L * 60 * 1000;
+	/** The rate is settled once its 95% half-width is within this share of the rate... */
+	static final double SETTLED_MARGIN_RATIO = 0.5;
+	/** ...or within this many %/h, whichever is wider (a slow rate is settled at a few %/h). */
+	static final double SETTLED_MARGIN_FLOOR_PPH = 2;
+
+	private static final double Z_95 = 1.96;
+	private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+	private boolean initialized;
+	private long lastMillis;
+	private int lastReading;
+	// State (level %, rate %/h) and its symmetric covariance.
+	private double level;
+	private double rate;
+	private double p00;
+	private double p01;
+	private double p11;
+
+	/**
+	 * Folds one sample in: predicts to {@code timeMillis}, then applies the level and, when present, the
+	 * current-derived rate. A first sample, a backwards clock jump or a gap past {@link #STALE_AFTER_MS}
+	 * starts the filter over from this sample.
+	 *
+	 * @param timeMillis     capture time in millis
+	 * @param reading        battery level as a whole percentage
+	 * @param currentRatePph the rate the current implies, signed like the level (%/h), or NaN when
+	 *                       there is no trustworthy current or capacity
+	 */
+	void update(long timeMillis, int reading, double currentRatePph) {
+		if (!initialized || timeMillis < lastMillis || timeMillis - lastMillis > STALE_AFTER_MS) {
+			start(timeMillis, reading);
+		} else {
+			predict((timeMillis - lastMillis) / MILLIS_PER_HOUR);
+			lastMillis = timeMillis;
+			if (reading != lastReading) {
+				// A step just crossed the boundary between the two readings, nearest the new one.
+				observeLevel(reading < lastReading ? reading + 0.5 : reading - 0.5);
+			} else if (level > reading + 0.5) {
+				observeLevel(reading + 0.5);
+			} else if (level < reading - 0.5) {
+				observeLevel(reading - 0.5);
+			}
+			lastReading = reading;
+		}
+		if (!Double.isNaN(currentRatePph)) {
+			final double noise = CURRENT_NOISE_FRACTION * Math.abs(currentRatePph) + CURRENT_NOISE_FLOOR_PPH;
+			observeRate(currentRatePph, noise * noise);
+		}
+	}
+
+	void reset() {
+		initialized = false;
+	}
+
+	/**
+	 * Reopens the rate to its prior uncertainty, keeping the level: after a confirmed workload change the
+	 * old rate says little about the new one, so the next current reading should move it almost all the
+	 * way rather than be weighed against minutes of the old regime.
+	 */
+	void forgetRate() {
+		if (initialized) {
+			p01 = 0;
+			p11 = Math.max(p11, INITIAL_RATE_VARIANCE);
+		}
+	}
+
+	boolean isInitialized() {
+		return initialized;
+	}
+
+	/** The estimated rate, %/h, positive while the level rises. */
+	double rate() {
+		return rate;
+	}
+
+	/** Half-width of the 95% interval around {@link #rate()}, %/h. */
+	double marginPercentPerHour() {
+		return Z_95 * Math.sqrt(Math.max(0, p11));
+	}
+
+	/**
+	 * Whether the rate is known well enough to show: initialized, with its interval narrower than
+	 * {@link #SETTLED_MARGIN_RATIO} of the rate or {@link #SETTLED_MARGIN_FLOOR_PPH}, whichever is wider.
+	 */
+	boolean isSettled() {
+		return initialized && marginPercentPerHour() <= Math.max(SETTLED_MARGIN_RATIO * Math.abs(rate), SETTLED_MARGIN_FLOOR_PPH);
+	}
+
+	long lastMillis() {
+		return lastMillis;
+	}
+
+	int lastReading() {
+		return lastReading;
+	}
+
+	double level() {
+		return level;
+	}
+
+	double levelVariance() {
+		return p00;
+	}
+
+	double covariance() {
+		return p01;
+	}
+
+	double rateVariance() {
+		return p11;
+	}
+
+	/**
+	 * Adopts a persisted state verbatim, for {@link RateWindowStore}'s load path.
+	 */
+	void restore(long restoredMillis, int restoredReading, double restoredLevel, double restoredRate,
+	             double levelVariance, double covariance, double rateVariance) {
+		initialized = true;
+		lastMillis = restoredMillis;
+		lastReading = restoredReading;
+		level = restoredLevel;
+		rate = restoredRate;
+		p00 = levelVariance;
+		p01 = covariance;
+		p11 = rateVariance;
+	}
+
+	private void start(long timeMillis, int reading) {
+		initialized = true;
+		lastMillis = timeMillis;
+		lastReading = reading;
+		level = reading;
+		rate = 0;
+		p00 = LEVEL_QUANTIZATION_VARIANCE;
+		p01 = 0;
+		p11 = INITIAL_RATE_VARIANCE;
+	}
+
+	/**
+	 * Constant-rate motion over {@code hours}, with the rate's random walk integrated into both states.
+	 */
+	private void predict(double hours) {
+		final double q = RATE_DRIFT_VARIANCE_PER_HOUR;
+		level += rate * hours;
+		p00 += 2 * hours * p01 + hours * hours * p11 + q * hours * hours * hours / 3;
+		p01 += hours * p11 + q * hours * hours / 2;
+		p11 += q * hours;
+	}
+
+	private void observeLevel(double measured) {
+		final double s = p00 + LEVEL_QUANTIZATION_VARIANCE;
+		final double k0 = p00 / s;
+		final double k1 = p01 / s;
+		final double innovation = measured - level;
+		level += k0 * innovation;
+		rate += k1 * innovation;
+		p11 -= k1 * p01;
+		p01 -= k0 * p01;
+		p00 -= k0 * p00;
+	}
+
+	private void observeRate(double measured, double variance) {
+		final double s = p11 + variance;
+		final double k0 = p01 / s;
+		final double k1 = p11 / s;
+		final double innovation = measured - rate;
+		level += k0 * innovation;
+		rate += k1 * innovation;
+		p00 -= k0 * p01;
+		p01 -= k0 * p11;
+		p11 -= k1 * p11;
+	}
+}
@@ -0,0 +1,304 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.Sample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The trailing rate window held as a fixed-capacity ring of primitive arrays (issue #108's window,
+ * rebuilt for the always-on case): times and currents in a {@link SlidingWindowAccumulator}, with a
+ * parallel {@code short[]} of levels indexed by the same physical slots, oldest first from {@link #head}.
+ * <p>
+ * The old window was a {@code List<Sample>} round-tripped through a {@code "t:level:currentUa;..."}
+ * string on every broadcast — a full re-serialize per accepted sample and a split + regex re-parse per
+ * read. Here an append writes three array slots, a trim only advances the head or pulls back the tail,
+ * and the accumulator carries the plausible-current sum and count along, so
+ * {@link #averagedCurrentMicroAmps} is O(1) and nothing is allocated per tick. A {@link LevelRegression}
+ * rides along the same way, so the least-squares level slope is O(1) too. {@link RateWindowStore}
+ * mirrors the same slots into a binary file.
+ * <p>
+ * The ring also holds the samples that have aged out of the window, up to an hour of them, for the
+ * multi-horizon rates: a trim or a workload change {@link SlidingWindowAccumulator#retireOldest retires}
+ * the oldest samples from the window, its current aggregate and its level fit, but keeps them in the
+ * ring until {@link #trimHistory} ages them out. The window is always the ring's newest suffix, so one
+ * ring and one file serve both, and the {@code history*} accessors read the whole of it.
+ * <p>
+ * Not thread-safe; {@link BatteryRateTracker} serializes every access.
+ */
+final class RateSampleBuffer {
+
+	// Times and currents, with the running aggregate over the plausible current readings.
+	private final SlidingWindowAccumulator currents;
+	private final short[] levels;
+	// Least-squares fit of level over time; sees every append and eviction.
+	private final LevelRegression levelFit = new LevelRegression();
+
+	RateSampleBuffer(int capacity) {
+		currents = new SlidingWindowAccumulator(capacity, BatteryRateTracker::isPlausibleCurrentMicroAmps);
+		levels = new short[capacity];
+	}
+
+	/**
+	 * Builds a buffer holding the given samples, for the list-based helpers and tests. Keeps the most
+	 * recent {@code capacity} when the list is longer.
+	 *
+	 * @param window   samples oldest-first
+	 * @param capacity the buffer capacity
+	 *
+	 * @return a new buffer holding the samples
+	 */
+	static RateSampleBuffer of(List<Sample> window, int capacity) {
+		final RateSampleBuffer buffer = new RateSampleBuffer(capacity);
+		for (final Sample s : window) {
+			buffer.append(s.timeMillis(), s.level(), s.currentMicroAmps());
+		}
+		return buffer;
+	}
+
+	int capacity() {
+		return levels.length;
+	}
+
+	int size() {
+		return currents.size();
+	}
+
+	boolean isEmpty() {
+		return currents.isEmpty();
+	}
+
+	/** Physical slot of the oldest sample; persisted by {@link RateWindowStore} so a restore is exact. */
+	int head() {
+		return currents.head();
+	}
+
+	long firstTime() {
+		return currents.firstTime();
+	}
+
+	long lastTime() {
+		return currents.lastTime();
+	}
+
+	int firstLevel() {
+		return levels[currents.head()];
+	}
+
+	int lastLevel() {
+		return levels[currents.physical(currents.size() - 1)];
+	}
+
+	/**
+	 * The sample at a logical position, allocating a {@link Sample}; for tests and the list adapters only.
+	 *
+	 * @param index 0 = oldest
+	 *
+	 * @return the sample
+	 */
+	Sample get(int index) {
+		final int slot = currents.physical(index);
+		return new Sample(currents.timeAtSlot(slot), levels[slot], currents.valueAtSlot(slot));
+	}
+
+	/** Capture time at a logical position, 0 = oldest; like {@link #get} without the allocation. */
+	long timeAt(int index) {
+		return currents.timeAtSlot(currents.physical(index));
+	}
+
+	int levelAt(int index) {
+		return levels[currents.physical(index)];
+	}
+
+	int currentAt(int index) {
+		return currents.valueAtSlot(currents.physical(index));
+	}
+
+	/**
+	 * Appends a sample at the tail, evicting the oldest when full.
+	 *
+	 * @param timeMillis       capture time in millis
+	 * @param level            battery level as a percentage (0-100)
+	 * @param currentMicroAmps instantaneous current in µA, or {@link Integer#MIN_VALUE} when unsupported
+	 *
+	 * @return the physical slot written, so the caller can persist just that slot
+	 */
+	int append(long timeMillis, int level, int currentMicroAmps) {
+		if (size() == capacity()) {
+			evictOldest();
+		}
+		// With history in the ring the accumulator overwrites its oldest history sample, which the fit never held.
+		final int slot = currents.append(timeMillis, currentMicroAmps);
+		levels[slot] = (short) level;
+		levelFit.add(timeMillis, level);
+		return slot;
+	}
+
+	/**
+	 * Drops samples outside the trailing window: older than {@code windowMs} from the head, and
+	 * future-dated (a backwards clock jump) from the tail; see {@link SlidingWindowAccumulator#trimToWindow}.
+	 *
+	 * @param now      current time in millis
+	 * @param windowMs the trailing window length
+	 *
+	 * @return true when anything was dropped
+	 */
+	boolean trimToWindow(long now, long windowMs) {
+		final int before = size();
+		while (size() > 0 && lastTime() > now) {
+			final int slot = currents.physical(size() - 1);
+			levelFit.remove(currents.timeAtSlot(slot), levels[slot]);
+			currents.evictNewest();
+		}
+		// Once the window is gone the trail is the newest; a clock jump back leaves it future-dated too.
+		final boolean trailDropped = isEmpty() && historySize() > 0 && historyTimeAt(historySize() - 1) > now
+				&& currents.clearTrail();
+		dropBefore(now - windowMs);
+		return size() != before || trailDropped;
+	}
+
+	/**
+	 * Drops the samples that left the window more than {@code spanMs} before {@code now}.
+	 *
+	 * @return true when anything was dropped
+	 */
+	boolean trimHistory(long now, long spanMs) {
+		return currents.dropTrailBefore(now - spanMs);
+	}
+
+	/**
+	 * Retires the samples taken before {@code cutoff} from the window, e.g. those from before a workload
+	 * change; they stay in the ring's history.
+	 *
+	 * @param cutoff the earliest time to keep in the window, in millis
+	 *
+	 * @return true when anything was retired
+	 */
+	boolean dropBefore(long cutoff) {
+		final int before = size();
+		while (size() > 0 && firstTime() < cutoff) {
+			final int slot = currents.head();
+			levelFit.remove(currents.timeAtSlot(slot), levels[slot]);
+			currents.retireOldest();
+			if (!currents.isEmpty()) {
+				levelFit.rebase(currents.firstTime());
+			}
+		}
+		return size() != before;
+	}
+
+	/**
+	 * The least-squares slope of the level over every sample, in %/h (positive while rising), or NaN with
+	 * fewer than two samples.
+	 */
+	double levelSlopePerHour() {
+		return levelFit.slopePerHour();
+	}
+
+	/**
+	 * How well a straight line fits the levels (R², 0 to 1), or NaN when the level never moved.
+	 */
+	double levelFitRSquared() {
+		return levelFit.rSquared();
+	}
+
+	/**
+	 * The averaged plausible current over the window from the running aggregate, or
+	 * {@link Integer#MIN_VALUE} when fewer than {@code minSamples} plausible readings span at least
+	 * {@code minSpanMs}.
+	 *
+	 * @param minSamples minimum plausible readings
+	 * @param minSpanMs  minimum first-to-last span
+	 *
+	 * @return averaged current in µA, or {@link Integer#MIN_VALUE} when not enough data yet
+	 */
+	int averagedCurrentMicroAmps(int minSamples, long minSpanMs) {
+		if (currents.size() < 2) {
+			return SlidingWindowAccumulator.NO_AVERAGE;
+		}
+		return currents.average(minSamples, minSpanMs);
+	}
+
+	void clear() {
+		currents.clear();
+		levelFit.clear();
+	}
+
+	/**
+	 * Restores a persisted slot verbatim, for {@link RateWindowStore}'s load path.
+	 */
+	void restoreSlot(int slot, long timeMillis, int level, int currentMicroAmps) {
+		currents.restoreSlot(slot, timeMillis, currentMicroAmps);
+		levels[slot] = (short) level;
+	}
+
+	/**
+	 * Adopts the persisted head, size and history after the slots were restored, rebuilding the running
+	 * aggregate.
+	 */
+	void restoreBounds(int restoredHead, int restoredSize, int restoredHistory) {
+		currents.restoreBounds(restoredHead, restoredSize, restoredHistory);
+		levelFit.clear();
+		for (int i = 0; i < restoredSize; i++) {
+			final int slot = currents.physical(i);
+			levelFit.add(currents.timeAtSlot(slot), levels[slot]);
+		}
+	}
+
+	/** Samples held before the window, which only the history accessors see. */
+	int trailSize() {
+		return currents.trailSize();
+	}
+
+	/** Every sample the ring holds, the window's and the history's. */
+	int historySize() {
+		return currents.trailSize() + currents.size();
+	}
+
+	/** Capture time at a position in the whole ring, 0 = oldest history sample. */
+	long historyTimeAt(int index) {
+		return currents.timeAtSlot(currents.trailPhysical(index));
+	}
+
+	int historyLevelAt(int index) {
+		return levels[currents.trailPhysical(index)];
+	}
+
+	int historyCurrentAt(int index) {
+		return currents.valueAtSlot(currents.trailPhysical(index));
+	}
+
+	long timeAtSlot(int slot) {
+		return currents.timeAtSlot(slot);
+	}
+
+	int levelAtSlot(int slot) {
+		return levels[slot];
+	}
+
+	int currentAtSlot(int slot) {
+		return currents.valueAtSlot(slot);
+	}
+
+	/**
+	 * Copies the window into a list, oldest first; for tests and the list adapters only.
+	 *
+	 * @return the samples oldest-first
+	 */
+	List<Sample> toList() {
+		final List<Sample> result = new ArrayList<>(size());
+		for (int i = 0; i < size(); i++) {
+			result.add(get(i));
+		}
+		return result;
+	}
+
+	private void evictOldest() {
+		final int slot = currents.head();
+		levelFit.remove(currents.timeAtSlot(slot), levels[slot]);
+		currents.evictOldest();
+		if (!currents.isEmpty()) {
+			levelFit.rebase(currents.firstTime());
+		}
+	}
+}
@@ -0,0 +1,405 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.Sample;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Keeps the rate window's {@link RateSampleBuffer} — an hour of samples, the window being its newest
+ * suffix and the rest the history behind {@link BatteryRateTracker.RateHorizons} — and the
+ * {@link RateKalmanFilter} fed from it in memory for the life of the process, and mirrors both into a
+ * compact little-endian binary file in the app's files dir, updated in place.
+ * <p>
+ * <b>Layout</b> ({@link #FILE_NAME}, {@value #HEADER_BYTES}-byte header then one fixed
+ * {@value #SLOT_BYTES}-byte record per ring slot, then the {@value #FILTER_BYTES}-byte filter state and
+ * the {@value #SESSION_BYTES}-byte session block):
+ * <pre>
+ *   header:  int magic | short version | byte charging | byte 0 | short capacity | short head | short size | short history
+ *   slot:    long timeMillis | short level | int currentMicroAmps
+ *   filter:  long lastMillis | int lastLevel | byte initialized | 3 × byte 0 | 5 × double (level, rate, covariance)
+ *   session: long sessionStartMillis | short sessionStartLevel | 3 × short 0
+ * </pre>
+ * {@code head} and {@code size} bound the window; {@code history} counts the older samples held just
+ * before {@code head}. The slots are the ring's physical slots, so an accepted sample rewrites exactly one
+ * slot, the filter block, the session block and the header, and a trim rewrites only the header — never
+ * the whole ring.
+ * Restoring the filter is a read of seven numbers, not a replay. The file stays open on one channel for
+ * the life of the store, so a tick is a few positional writes, not an open and close.
+ * <p>
+ * {@link #VERSION} goes up with every layout change. A file that fails the header checks (foreign,
+ * truncated, from another capacity, or written in an older layout) is ignored and rebuilt; the window
+ * self-heals within a few samples, like the rest of the transient state (#167).
+ * <p>
+ * <b>Migration.</b> Until this file exists, the window lives in the legacy {@code "t:level:currentUa;..."}
+ * string in the {@code battery_transient} XML ({@link TransientState#legacyPrefs}). The first load
+ * parses it once, writes the binary file, and removes the legacy keys, so the string path is never
+ * taken again.
+ * <p>
+ * Not thread-safe; {@link BatteryRateTracker} serializes every access.
+ */
+final class RateWindowStore {
+
+	private static final String TAG = RateWindowStore.class.getSimpleName();
+
+	/** File name in {@code getFilesDir()}; excluded from backup like {@code battery_transient.xml}. */
+	static final String FILE_NAME = "battery_rate_window.bin";
+
+	// Legacy persisted window ("t:level:currentUa" joined by ';') and its direction, read once for migration.
+	static final String LEGACY_PREF_RATE_SAMPLES = "_battery_rate_samples";
+	static final String LEGACY_PREF_RATE_CHARGING = "_battery_rate_charging";
+
+	private static final int MAGIC = 0x4E575242; // "BRWN" little-endian
+	// 1: window ring; 2: + filter block; 3: + horizon ring; 4: one hour-long ring + session block.
+	private static final short VERSION = 4;
+	static final int HEADER_BYTES = 16;
+	static final int SLOT_BYTES = 14;
+	static final int FILTER_BYTES = 56;
+	static final int SESSION_BYTES = 16;
+	// sessionStartLevel before the session's first sample.
+	private static final int NO_SESSION = -1;
+
+	private final Context appContext;
+	private final File file;
+	private final RateSampleBuffer buffer;
+	private final RateKalmanFilter filter = new RateKalmanFilter();
+	// In memory only; a new process rebuilds their baselines within a few samples.
+	private final CurrentChangeDetector changeDetector = new CurrentChangeDetector();
+	private final CurrentSpikeFilter spikeFilter = new CurrentSpikeFilter();
+	// Where this charge/discharge session began.
+	private long sessionStartMillis;
+	private int sessionStartLevel = NO_SESSION;
+	// Direction the window was captured in; hasDirection is false until the first sample is recorded.
+	private boolean hasDirection;
+	private boolean charging;
+	// Opened on first use and kept for the life of the store; null again after a failed write.
+	private FileChannel channel;
+
+	// Reused encode buffers, so an in-place update allocates nothing per tick.
+	private final ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer slotBytes = ByteBuffer.allocate(SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer filterBytes = ByteBuffer.allocate(FILTER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer sessionBytes = ByteBuffer.allocate(SESSION_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+	private RateWindowStore(Context appContext, File file, int capacity) {
+		this.appContext = appContext;
+		this.file = file;
+		this.buffer = new RateSampleBuffer(capacity);
+	}
+
+	/**
+	 * Loads the window for this process: from the binary file when present and valid, else migrated once
+	 * from the legacy string, else empty.
+	 *
+	 * @param appContext Application context
+	 * @param capacity   the ring capacity (an hour of samples at the tracker's spacing)
+	 *
+	 * @return the loaded store
+	 */
+	static RateWindowStore load(Context appContext, int capacity) {
+		final RateWindowStore store = new RateWindowStore(appContext, new File(appContext.getFilesDir(), FILE_NAME), capacity);
+		if (store.file.exists()) {
+			store.readFile();
+		} else {
+			store.migrateLegacy(TransientState.legacyPrefs(appContext));
+		}
+		return store;
+	}
+
+	/**
+	 * Whether this store was loaded for the given application context — a new application (a fresh
+	 * process, or a fresh Robolectric test application) must reload rather than reuse stale memory.
+	 */
+	boolean belongsTo(Context appContext) {
+		return this.appContext == appContext;
+	}
+
+	RateSampleBuffer buffer() {
+		return buffer;
+	}
+
+	RateKalmanFilter filter() {
+		return filter;
+	}
+
+	CurrentChangeDetector changeDetector() {
+		return changeDetector;
+	}
+
+	CurrentSpikeFilter spikeFilter() {
+		return spikeFilter;
+	}
+
+	boolean hasSession() {
+		return sessionStartLevel != NO_SESSION;
+	}
+
+	long sessionStartMillis() {
+		return sessionStartMillis;
+	}
+
+	int sessionStartLevel() {
+		return sessionStartLevel;
+	}
+
+	/**
+	 * Anchors the session at its first sample; persisted with that sample's {@link #persistSlot}.
+	 */
+	void startSession(long timeMillis, int level) {
+		sessionStartMillis = timeMillis;
+		sessionStartLevel = level;
+	}
+
+	/**
+	 * Whether the window was captured in the same charge/discharge direction as {@code charging}.
+	 */
+	boolean sameDirection(boolean charging) {
+		return hasDirection && this.charging == charging;
+	}
+
+	/**
+	 * Starts an empty window, filter, change detector and session in a new direction (a charge/discharge
+	 * flip invalidates them all).
+	 */
+	void reset(boolean charging) {
+		buffer.clear();
+		filter.reset();
+		changeDetector.reset();
+		spikeFilter.reset();
+		sessionStartLevel = NO_SESSION;
+		hasDirection = true;
+		this.charging = charging;
+		encodeFilter();
+		encodeSession();
+		encodeHeader();
+		try {
+			final FileChannel channel = channel();
+			writeFully(channel, filterBytes, filterOffset());
+			writeFully(channel, sessionBytes, sessionOffset());
+			writeFully(channel, headerBytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist rate window reset: " + e.getMessage());
+			close();
+		}
+	}
+
+	/**
+	 * Persists one freshly appended slot, the filter state and session it updated, and the header that
+	 * now covers it.
+	 *
+	 * @param slot the physical slot {@link RateSampleBuffer#append} wrote
+	 */
+	void persistSlot(int slot) {
+		encodeSlot(slot);
+		encodeFilter();
+		encodeSession();
+		encodeHeader();
+		try {
+			final FileChannel channel = channel();
+			writeFully(channel, slotBytes, HEADER_BYTES + (long) slot * SLOT_BYTES);
+			writeFully(channel, filterBytes, filterOffset());
+			writeFully(channel, sessionBytes, sessionOffset());
+			writeFully(channel, headerBytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist rate sample: " + e.getMessage());
+			close();
+		}
+	}
+
+	/**
+	 * Persists only the header, after a trim moved the ring's bounds.
+	 */
+	void persistHeader() {
+		encodeHeader();
+		try {
+			writeFully(channel(), headerBytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist rate window header: " + e.getMessage());
+			close();
+		}
+	}
+
+	/**
+	 * Closes the file channel; a later write reopens it.
+	 */
+	void close() {
+		if (nonNull(channel)) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to close rate window: " + e.getMessage());
+			}
+			channel = null;
+		}
+	}
+
+	private FileChannel channel() throws IOException {
+		if (isNull(channel)) {
+			channel = new RandomAccessFile(file, "rw").getChannel();
+		}
+		return channel;
+	}
+
+	private void encodeSlot(int slot) {
+		slotBytes.clear();
+		slotBytes.putLong(buffer.timeAtSlot(slot))
+		         .putShort((short) buffer.levelAtSlot(slot))
+		         .putInt(buffer.currentAtSlot(slot))
+		         .flip();
+	}
+
+	private void encodeHeader() {
+		headerBytes.clear();
+		headerBytes.putInt(MAGIC)
+		           .putShort(VERSION)
+		           .put((byte) (charging ? 1 : 0))
+		           .put((byte) 0)
+		           .putShort((short) buffer.capacity())
+		           .putShort((short) buffer.head())
+		           .putShort((short) buffer.size())
+		           .putShort((short) buffer.trailSize())
+		           .flip();
+	}
+
+	private void encodeFilter() {
+		filterBytes.clear();
+		filterBytes.putLong(filter.lastMillis())
+		           .putInt(filter.lastReading())
+		           .put((byte) (filter.isInitialized() ? 1 : 0))
+		           .put((byte) 0)
+		           .putShort((short) 0)
+		           .putDouble(filter.level())
+		           .putDouble(filter.rate())
+		           .putDouble(filter.levelVariance())
+		           .putDouble(filter.covariance())
+		           .putDouble(filter.rateVariance())
+		           .flip();
+	}
+
+	private void encodeSession() {
+		sessionBytes.clear();
+		sessionBytes.putLong(sessionStartMillis)
+		            .putShort((short) sessionStartLevel)
+		            .putShort((short) 0)
+		            .putInt(0)
+		            .flip();
+	}
+
+	private int filterOffset() {
+		return HEADER_BYTES + buffer.capacity() * SLOT_BYTES;
+	}
+
+	private int sessionOffset() {
+		return filterOffset() + FILTER_BYTES;
+	}
+
+	private int fileBytes() {
+		return sessionOffset() + SESSION_BYTES;
+	}
+
+	private void readFile() {
+		final int capacity = buffer.capacity();
+		final ByteBuffer bytes = ByteBuffer.allocate(fileBytes()).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			final FileChannel channel = channel();
+			while (bytes.hasRemaining() && channel.read(bytes, bytes.position()) > 0) {
+				// read until the buffer is full or the file ends
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read rate window, starting empty: " + e.getMessage());
+			close();
+			return;
+		}
+		bytes.flip();
+		// Every reset writes the header, the filter and the session block, so a shorter file is truncated.
+		if (bytes.remaining() < fileBytes()) {
+			return; // empty/truncated: start empty, the next reset rewrites it
+		}
+		final int magic = bytes.getInt();
+		final short version = bytes.getShort();
+		final boolean storedCharging = bytes.get() == 1;
+		bytes.get();
+		final int storedCapacity = bytes.getShort();
+		final int head = bytes.getShort();
+		final int size = bytes.getShort();
+		final int history = bytes.getShort();
+		if (magic != MAGIC || version != VERSION || storedCapacity != capacity
+				|| head < 0 || head >= capacity || size < 0 || history < 0 || size + history > capacity) {
+			Log.w(TAG, "Ignoring unrecognised rate window file");
+			return;
+		}
+		for (int slot = 0; slot < capacity; slot++) {
+			final int offset = HEADER_BYTES + slot * SLOT_BYTES;
+			buffer.restoreSlot(slot, bytes.getLong(offset), bytes.getShort(offset + 8), bytes.getInt(offset + 10));
+		}
+		buffer.restoreBounds(head, size, history);
+		hasDirection = true;
+		charging = storedCharging;
+		final int offset = filterOffset();
+		if (bytes.get(offset + 12) == 1) {
+			filter.restore(bytes.getLong(offset), bytes.getInt(offset + 8), bytes.getDouble(offset + 16), bytes.getDouble(offset + 24),
+					bytes.getDouble(offset + 32), bytes.getDouble(offset + 40), bytes.getDouble(offset + 48));
+		}
+		sessionStartMillis = bytes.getLong(sessionOffset());
+		sessionStartLevel = bytes.getShort(sessionOffset() + 8);
+	}
+
+	/**
+	 * One-time migration from the legacy string window: parse it, write the binary file, drop the keys.
+	 */
+	private void migrateLegacy(SharedPreferences prefs) {
+		if (!prefs.contains(LEGACY_PREF_RATE_CHARGING)) {
+			return; // nothing recorded yet; the first sample creates the file
+		}
+		final List<Sample> legacy = BatteryRateTracker.parseSamples(prefs.getString(LEGACY_PREF_RATE_SAMPLES, ""));
+		hasDirection = true;
+		charging = prefs.getInt(LEGACY_PREF_RATE_CHARGING, 0) == 1;
+		for (final Sample s : legacy) {
+			buffer.append(s.timeMillis(), s.level(), s.currentMicroAmps());
+		}
+		writeAll();
+		prefs.edit()
+		     .remove(LEGACY_PREF_RATE_SAMPLES)
+		     .remove(LEGACY_PREF_RATE_CHARGING)
+		     .apply();
+	}
+
+	private void writeAll() {
+		final ByteBuffer bytes = ByteBuffer.allocate(fileBytes()).order(ByteOrder.LITTLE_ENDIAN);
+		encodeHeader();
+		bytes.put(headerBytes);
+		for (int slot = 0; slot < buffer.capacity(); slot++) {
+			bytes.putLong(buffer.timeAtSlot(slot)).putShort((short) buffer.levelAtSlot(slot)).putInt(buffer.currentAtSlot(slot));
+		}
+		encodeFilter();
+		bytes.put(filterBytes);
+		encodeSession();
+		bytes.put(sessionBytes);
+		bytes.flip();
+		try {
+			writeFully(channel(), bytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to write migrated rate window: " + e.getMessage());
+			close();
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+		long at = position;
+		while (bytes.hasRemaining()) {
+			at += channel.write(bytes, at);
+		}
+	}
+}
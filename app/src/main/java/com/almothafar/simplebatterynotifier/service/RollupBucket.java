@@ -0,0 +1,176 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One hourly or daily roll-up bucket for {@link BatteryRollups}: count/sum/min/max of the drain rate,
+ * charge rate, current magnitude and temperature, plus the time spent charging vs discharging. Adding a
+ * tick or merging another bucket is O(1), and the bucket encodes to a fixed {@value #RECORD_BYTES}-byte
+ * little-endian record, so a span of buckets is one sequential read. Pure and Android-free, so it is
+ * unit-testable.
+ * <p>
+ * <b>Record layout</b>:
+ * <pre>
+ *   long startMillis | 4 × (int count | double sum | float min | float max) | int chargingMs | int dischargingMs
+ * </pre>
+ * with the stats in the order drain, charge, current, temperature. A day is 86 400 000 ms, so the times
+ * fit an int; merged summaries keep them as longs in memory.
+ */
+final class RollupBucket {
+
+	static final int RECORD_BYTES = 8 + 4 * Stat.BYTES + 4 + 4;
+
+	long startMillis;
+	/** Drain rate in %/h, from ticks with a trustworthy discharging rate. */
+	final Stat drain = new Stat();
+	/** Charge rate in %/h, from ticks with a trustworthy charging rate. */
+	final Stat charge = new Stat();
+	/** Instantaneous current magnitude in mA (direction is in the charging/discharging times). */
+	final Stat current = new Stat();
+	/** Battery temperature in °C. */
+	final Stat temperature = new Stat();
+	long chargingMs;
+	long dischargingMs;
+
+	/**
+	 * Empties the bucket and starts it at {@code startMillis}.
+	 */
+	void reset(long startMillis) {
+		this.startMillis = startMillis;
+		drain.clear();
+		charge.clear();
+		current.clear();
+		temperature.clear();
+		chargingMs = 0;
+		dischargingMs = 0;
+	}
+
+	/**
+	 * Folds another bucket into this one (the start time is left as is).
+	 */
+	void merge(RollupBucket other) {
+		drain.merge(other.drain);
+		charge.merge(other.charge);
+		current.merge(other.current);
+		temperature.merge(other.temperature);
+		chargingMs += other.chargingMs;
+		dischargingMs += other.dischargingMs;
+	}
+
+	/**
+	 * Attributes {@code elapsedMs} of wall time to charging or discharging.
+	 */
+	void addTime(boolean charging, long elapsedMs) {
+		if (elapsedMs <= 0) {
+			return;
+		}
+		if (charging) {
+			chargingMs += elapsedMs;
+		} else {
+			dischargingMs += elapsedMs;
+		}
+	}
+
+	boolean isEmpty() {
+		return temperature.count == 0 && current.count == 0 && drain.count == 0 && charge.count == 0
+				&& chargingMs == 0 && dischargingMs == 0;
+	}
+
+	void writeTo(ByteBuffer out) {
+		out.putLong(startMillis);
+		drain.writeTo(out);
+		charge.writeTo(out);
+		current.writeTo(out);
+		temperature.writeTo(out);
+		out.putInt((int) Math.min(Integer.MAX_VALUE, chargingMs));
+		out.putInt((int) Math.min(Integer.MAX_VALUE, dischargingMs));
+	}
+
+	void readFrom(ByteBuffer in) {
+		startMillis = in.getLong();
+		drain.readFrom(in);
+		charge.readFrom(in);
+		current.readFrom(in);
+		temperature.readFrom(in);
+		chargingMs = in.getInt();
+		dischargingMs = in.getInt();
+	}
+
+	/**
+	 * The start of the bucket of length {@code lengthMs} containing {@code timeMillis}, aligned to local
+	 * time (so hourly buckets follow half-hour zones and daily buckets start at local midnight).
+	 *
+	 * @param timeMillis   a wall-clock time
+	 * @param lengthMs     bucket length (an hour or a day)
+	 * @param zoneOffsetMs the local zone's offset from UTC at {@code timeMillis}
+	 *
+	 * @return the bucket's start in millis
+	 */
+	static long bucketStart(long timeMillis, long lengthMs, int zoneOffsetMs) {
+		return Math.floorDiv(timeMillis + zoneOffsetMs, lengthMs) * lengthMs - zoneOffsetMs;
+	}
+
+	/**
+	 * Count, sum, min and max of one metric. Float min/max keep the record compact; the double sum keeps
+	 * a day of µA-scale currents exact enough.
+	 */
+	static final class Stat {
+
+		static final int BYTES = 4 + 8 + 4 + 4;
+
+		int count;
+		double sum;
+		float min;
+		float max;
+
+		void add(double value) {
+			final float v = (float) value;
+			if (count == 0) {
+				min = v;
+				max = v;
+			} else {
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			count++;
+			sum += value;
+		}
+
+		void merge(Stat other) {
+			if (other.count == 0) {
+				return;
+			}
+			if (count == 0) {
+				min = other.min;
+				max = other.max;
+			} else {
+				min = Math.min(min, other.min);
+				max = Math.max(max, other.max);
+			}
+			count += other.count;
+			sum += other.sum;
+		}
+
+		double mean() {
+			return count == 0 ? 0 : sum / count;
+		}
+
+		void clear() {
+			count = 0;
+			sum = 0;
+			min = 0;
+			max = 0;
+		}
+
+		void writeTo(ByteBuffer out) {
+			out.putInt(count).putDouble(sum).putFloat(min).putFloat(max);
+		}
+
+		void readFrom(ByteBuffer in) {
+			count = in.getInt();
+			sum = in.getDouble();
+			min = in.getFloat();
+			max = in.getFloat();
+		}
+	}
+}
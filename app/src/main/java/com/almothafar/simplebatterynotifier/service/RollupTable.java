@@ -0,0 +1,353 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * One resolution's roll-up file for {@link BatteryRollups}: the closed buckets in time order, followed
+ * by the open bucket, each a fixed {@link RollupBucket#RECORD_BYTES}-byte record after a
+ * {@value #HEADER_BYTES}-byte little-endian header:
+ * <pre>
+ *   header: int magic | short version | short recordBytes | int closedCount | byte hasOpen | byte lastCharging
+ *           | short 0 | long lastTickMillis
+ *   record: closedCount closed buckets, then the open bucket (when hasOpen)
+ * </pre>
+ * Ticks accrue into the open bucket in memory; {@link #persist} rewrites the open record and the header
+ * in place. Closing the bucket writes its slot and a header with {@code closedCount} bumped straight
+ * away, so the open slot becomes the next closed record in place and a closed bucket is never lost. When
+ * the closed records pass the resolution's cap, the oldest are dropped by a write-then-rename
+ * compaction. A file failing the header checks is ignored and rebuilt, like the rate window (#167).
+ * <p>
+ * Not thread-safe; {@link BatteryRollups} serializes every access to a table. The static readers only
+ * read the file, so they run outside that lock.
+ */
+final class RollupTable {
+
+	private static final String TAG = RollupTable.class.getSimpleName();
+
+	private static final int MAGIC = 0x55525342; // "BSRU" little-endian
+	private static final short VERSION = 1;
+	static final int HEADER_BYTES = 24;
+
+	private final File file;
+	private final BatteryRollups.Resolution resolution;
+	private final RollupBucket open = new RollupBucket();
+	private boolean hasOpen;
+	private int closedCount;
+	private long lastTickMillis = -1;
+	private boolean lastCharging;
+
+	// Reused encode buffers, so a tick allocates nothing.
+	private final ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer recordBytes = ByteBuffer.allocate(RollupBucket.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+	private RollupTable(File file, BatteryRollups.Resolution resolution) {
+		this.file = file;
+		this.resolution = resolution;
+	}
+
+	static File fileFor(Context appContext, BatteryRollups.Resolution resolution) {
+		return new File(appContext.getFilesDir(), resolution.fileName);
+	}
+
+	/**
+	 * Loads the table's header and open bucket (never the closed records).
+	 */
+	static RollupTable load(Context appContext, BatteryRollups.Resolution resolution) {
+		final RollupTable table = new RollupTable(fileFor(appContext, resolution), resolution);
+		if (table.file.exists()) {
+			table.readHeaderAndOpen();
+		}
+		return table;
+	}
+
+	long lastTickMillis() {
+		return lastTickMillis;
+	}
+
+	boolean lastCharging() {
+		return lastCharging;
+	}
+
+	/**
+	 * Moves the table to the bucket containing {@code nowMillis}: attributes the time since the previous
+	 * tick to the previous tick's direction (split at the bucket boundary), and closes the open bucket
+	 * when the tick has left it. A clock stepping back keeps accruing into the open bucket, so the closed
+	 * records stay in time order.
+	 *
+	 * @param nowMillis    this tick's time
+	 * @param zoneOffsetMs the local zone offset at {@code nowMillis}
+	 * @param elapsedFrom  the previous tick's time, or -1 when no time should be attributed
+	 * @param wasCharging  the previous tick's direction
+	 *
+	 * @return the open bucket to add this tick's readings to
+	 */
+	RollupBucket advance(long nowMillis, int zoneOffsetMs, long elapsedFrom, boolean wasCharging) {
+		final long start = RollupBucket.bucketStart(nowMillis, resolution.lengthMs, zoneOffsetMs);
+		final boolean attribute = elapsedFrom >= 0;
+		if (hasOpen && start > open.startMillis) {
+			if (attribute) {
+				open.addTime(wasCharging, start - Math.max(elapsedFrom, open.startMillis));
+			}
+			closeOpen();
+		}
+		if (!hasOpen) {
+			open.reset(start);
+			hasOpen = true;
+		}
+		if (attribute) {
+			open.addTime(wasCharging, nowMillis - Math.max(elapsedFrom, open.startMillis));
+		}
+		return open;
+	}
+
+	/**
+	 * Notes this tick's time and direction, in memory; the next {@link #persist} writes them.
+	 */
+	void note(long tickMillis, boolean charging) {
+		lastTickMillis = tickMillis;
+		lastCharging = charging;
+	}
+
+	/**
+	 * Writes the open bucket and the header in place.
+	 */
+	void persist() {
+		writeOpen(true);
+	}
+
+	private void writeOpen(boolean withHeader) {
+		recordBytes.clear();
+		open.writeTo(recordBytes);
+		recordBytes.flip();
+		encodeHeader();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			final FileChannel channel = raf.getChannel();
+			writeFully(channel, recordBytes, recordOffset(closedCount));
+			if (withHeader) {
+				writeFully(channel, headerBytes, 0);
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist " + resolution + " roll-up: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Closes the open bucket: writes its slot with the time attributed up to the boundary, then the
+	 * header with the count moved. Compacts when the closed records reach the cap.
+	 */
+	private void closeOpen() {
+		writeOpen(false);
+		hasOpen = false;
+		closedCount++;
+		if (closedCount >= resolution.maxRecords) {
+			compact(resolution.keepRecords);
+		}
+		writeHeader();
+	}
+
+	private void writeHeader() {
+		encodeHeader();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			writeFully(raf.getChannel(), headerBytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist " + resolution + " roll-up header: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Keeps only the newest {@code keep} closed records: reads them in one pass, writes a new file and
+	 * renames it over the old one, so a crash mid-compaction leaves the old file intact.
+	 */
+	private void compact(int keep) {
+		final int drop = closedCount - keep;
+		final ByteBuffer kept = ByteBuffer.allocate(HEADER_BYTES + keep * RollupBucket.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		kept.position(HEADER_BYTES);
+		final File tmp = new File(file.getPath() + ".tmp");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			readFully(raf.getChannel(), kept, recordOffset(drop));
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to compact " + resolution + " roll-ups: " + e.getMessage());
+			return;
+		}
+		if (kept.hasRemaining()) {
+			Log.w(TAG, "Skipping compaction of truncated " + resolution + " roll-ups");
+			return;
+		}
+		closedCount = keep;
+		encodeHeader();
+		kept.clear();
+		kept.put(headerBytes);
+		kept.position(0);
+		try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+			raf.setLength(0);
+			writeFully(raf.getChannel(), kept, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to write compacted " + resolution + " roll-ups: " + e.getMessage());
+			closedCount = keep + drop;
+			return;
+		}
+		if (!tmp.renameTo(file)) {
+			Log.w(TAG, "Unable to replace " + resolution + " roll-ups with the compacted file");
+			closedCount = keep + drop;
+		}
+	}
+
+	/**
+	 * Copies the open bucket, with the ticks not persisted yet, into {@code into} when it overlaps
+	 * {@code [sinceMillis, now]}. Memory only, so the caller can hold the lock the worker takes for it and
+	 * read the closed records with {@link #mergeClosedBefore} afterwards.
+	 *
+	 * @return the open bucket's start, which bounds the closed records to merge with it, or
+	 * {@code Long.MAX_VALUE} when no bucket is open
+	 */
+	long copyOpenSince(long sinceMillis, RollupBucket into) {
+		if (!hasOpen) {
+			return Long.MAX_VALUE;
+		}
+		if (open.startMillis + resolution.lengthMs > sinceMillis) {
+			into.merge(open);
+		}
+		return open.startMillis;
+	}
+
+	/**
+	 * Merges every bucket overlapping {@code [sinceMillis, now]} — closed and open — into {@code into},
+	 * with one sequential read of the record area.
+	 *
+	 * @return the number of buckets merged
+	 */
+	static int mergeSince(File file, BatteryRollups.Resolution resolution, long sinceMillis, RollupBucket into) {
+		return mergeSince(file, resolution, sinceMillis, Long.MAX_VALUE, into, true);
+	}
+
+	/**
+	 * Merges the closed buckets overlapping {@code [sinceMillis, beforeMillis)} into {@code into}. Safe
+	 * without the lock while the table is being written: a closed slot is written before the header
+	 * counts it, and compaction renames a new file over the old one. The bound drops a bucket that
+	 * closed after its open copy was taken with {@link #copyOpenSince}, so it is not counted twice.
+	 *
+	 * @return the number of buckets merged
+	 */
+	static int mergeClosedBefore(File file, BatteryRollups.Resolution resolution, long sinceMillis, long beforeMillis,
+	                             RollupBucket into) {
+		return mergeSince(file, resolution, sinceMillis, beforeMillis, into, false);
+	}
+
+	private static int mergeSince(File file, BatteryRollups.Resolution resolution, long sinceMillis, long beforeMillis,
+	                              RollupBucket into, boolean withOpen) {
+		if (!file.exists()) {
+			return 0;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final FileChannel channel = raf.getChannel();
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			header.flip();
+			if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getShort() != VERSION
+					|| header.getShort() != RollupBucket.RECORD_BYTES) {
+				return 0;
+			}
+			final int closed = header.getInt();
+			final int records = closed + (withOpen && header.get() == 1 ? 1 : 0);
+			if (records < 0 || recordOffset(records) > channel.size()) {
+				return 0;
+			}
+			final ByteBuffer data = ByteBuffer.allocate(records * RollupBucket.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, data, HEADER_BYTES);
+			data.flip();
+			final RollupBucket bucket = new RollupBucket();
+			int merged = 0;
+			while (data.remaining() >= RollupBucket.RECORD_BYTES) {
+				bucket.readFrom(data);
+				if (bucket.startMillis + resolution.lengthMs > sinceMillis && bucket.startMillis < beforeMillis) {
+					into.merge(bucket);
+					merged++;
+				}
+			}
+			return merged;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read " + resolution + " roll-ups: " + e.getMessage());
+			return 0;
+		}
+	}
+
+	private void readHeaderAndOpen() {
+		final ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final FileChannel channel = raf.getChannel();
+			readFully(channel, bytes, 0);
+			bytes.flip();
+			if (bytes.remaining() < HEADER_BYTES || bytes.getInt() != MAGIC || bytes.getShort() != VERSION
+					|| bytes.getShort() != RollupBucket.RECORD_BYTES) {
+				Log.w(TAG, "Ignoring unrecognised " + resolution + " roll-up file");
+				return;
+			}
+			final int storedClosed = bytes.getInt();
+			final boolean storedOpen = bytes.get() == 1;
+			final boolean storedCharging = bytes.get() == 1;
+			bytes.getShort();
+			final long storedLastTick = bytes.getLong();
+			if (storedClosed < 0 || recordOffset(storedClosed) > channel.size()) {
+				Log.w(TAG, "Ignoring truncated " + resolution + " roll-up file");
+				return;
+			}
+			if (storedOpen) {
+				readFully(channel, recordBytes, recordOffset(storedClosed));
+				recordBytes.flip();
+				if (recordBytes.remaining() < RollupBucket.RECORD_BYTES) {
+					return;
+				}
+				open.readFrom(recordBytes);
+			}
+			closedCount = storedClosed;
+			hasOpen = storedOpen;
+			lastCharging = storedCharging;
+			lastTickMillis = storedLastTick;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read " + resolution + " roll-ups, starting empty: " + e.getMessage());
+		}
+	}
+
+	private void encodeHeader() {
+		headerBytes.clear();
+		headerBytes.putInt(MAGIC)
+		           .putShort(VERSION)
+		           .putShort((short) RollupBucket.RECORD_BYTES)
+		           .putInt(closedCount)
+		           .put((byte) (hasOpen ? 1 : 0))
+		           .put((byte) (lastCharging ? 1 : 0))
+		           .putShort((short) 0)
+		           .putLong(lastTickMillis)
+		           .flip();
+	}
+
+	private static long recordOffset(int index) {
+		return HEADER_BYTES + (long) index * RollupBucket.RECORD_BYTES;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+		long at = position;
+		while (bytes.hasRemaining()) {
+			final int read = channel.read(bytes, at);
+			if (read < 0) {
+				return; // end of file: the caller checks what arrived
+			}
+			at += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+		long at = position;
+		while (bytes.hasRemaining()) {
+			at += channel.write(bytes, at);
+		}
+	}
+}
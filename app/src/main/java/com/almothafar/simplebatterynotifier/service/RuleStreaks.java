@@ -0,0 +1,206 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.util.Log;
+
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Streak;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Every alert rule's streak in one compact record: three parallel {@code long} arrays (start, last
+ * seen, last reminder) and the alerted flags as a bitmask, for an {@link AlertRuleSet}. Persisted as
+ * one small file after a {@value #HEADER_BYTES}-byte little-endian header:
+ * <pre>
+ *   header: int magic | short version | short ruleCount | int signature | int alertedMask
+ *   record: long start | long lastSeen | long lastReminder   (one per rule)
+ * </pre>
+ * The file is rewritten in place only on a tick that starts, alerts, reminds or clears a streak; a tick
+ * that only moves a running streak's last-seen time keeps it in memory until the next such change or
+ * {@link #flush}. A process killed before that reloads an older last-seen time, which can only lapse a
+ * streak early — the conservative direction. A file written for another rule set (its signature or size
+ * differs) keeps only the built-ins' streaks; one failing the header checks starts every streak clear.
+ * <p>
+ * Not thread-safe; {@link AlertRules} only touches it on the battery worker.
+ */
+final class RuleStreaks {
+
+	private static final String TAG = RuleStreaks.class.getSimpleName();
+
+	private static final int MAGIC = 0x52524242; // "BBRR" little-endian
+	// 2: the built-in alerts lead the records.
+	private static final short VERSION = 2;
+	static final int HEADER_BYTES = 16;
+	static final int RECORD_BYTES = 24;
+
+	private final int signature;
+	private final long[] start;
+	private final long[] lastSeen;
+	private final long[] lastReminder;
+	private int alertedMask;
+	private boolean dirty;
+	// A last-seen time moved since the last persist; written by the next persist or flush.
+	private boolean stale;
+	private boolean fresh = true;
+
+	RuleStreaks(int signature, int size) {
+		this.signature = signature;
+		this.start = new long[size];
+		this.lastSeen = new long[size];
+		this.lastReminder = new long[size];
+	}
+
+	int signature() {
+		return signature;
+	}
+
+	int size() {
+		return start.length;
+	}
+
+	/**
+	 * @return whether rule {@code index} has a running streak (its condition held on the last observation)
+	 */
+	boolean holding(int index) {
+		return start[index] != 0;
+	}
+
+	/**
+	 * @return a bit per rule whose streak has alerted
+	 */
+	int alertedMask() {
+		return alertedMask;
+	}
+
+	Streak get(int index) {
+		return new Streak(start[index], (alertedMask & (1 << index)) != 0, lastSeen[index], lastReminder[index]);
+	}
+
+	/**
+	 * Stores rule {@code index}'s new streak, noting whether it started, alerted, reminded or cleared.
+	 */
+	void set(int index, Streak streak) {
+		final int bit = 1 << index;
+		if (start[index] != streak.start() || lastReminder[index] != streak.lastReminder()
+				|| ((alertedMask & bit) != 0) != streak.alerted()) {
+			start[index] = streak.start();
+			lastReminder[index] = streak.lastReminder();
+			alertedMask = streak.alerted() ? alertedMask | bit : alertedMask & ~bit;
+			dirty = true;
+		}
+		if (lastSeen[index] != streak.lastSeen()) {
+			lastSeen[index] = streak.lastSeen();
+			stale = true;
+		}
+	}
+
+	/**
+	 * @return whether a streak started, alerted, reminded or cleared since the last load or persist
+	 */
+	boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * @return whether nothing was loaded — no usable file — so every streak started clear
+	 */
+	boolean isFresh() {
+		return fresh;
+	}
+
+	/**
+	 * Loads the streaks of a rule set, all clear when the file is missing or unreadable; a file written for
+	 * another set keeps only the leading built-ins' streaks.
+	 *
+	 * @param file      the streak file
+	 * @param signature the rule set's {@link AlertRuleSet#signature}
+	 * @param size      the rule set's size
+	 * @param builtIns  how many leading rules are the same in every set ({@link AlertRuleSet#builtIns})
+	 */
+	static RuleStreaks load(File file, int signature, int size, int builtIns) {
+		final RuleStreaks streaks = new RuleStreaks(signature, size);
+		if (!file.exists()) {
+			return streaks;
+		}
+		final ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + AlertRuleSet.MAX_RULES * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			readFully(raf.getChannel(), bytes);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read rule streaks, starting clear: " + e.getMessage());
+			return streaks;
+		}
+		final int stored = bytes.position() < HEADER_BYTES ? 0 : bytes.getShort(6);
+		if (stored <= 0 || bytes.getInt(0) != MAGIC || bytes.getShort(4) != VERSION
+				|| bytes.position() < HEADER_BYTES + stored * RECORD_BYTES) {
+			return streaks;
+		}
+		final int kept = stored == size && bytes.getInt(8) == signature ? size : Math.min(builtIns, Math.min(stored, size));
+		streaks.alertedMask = bytes.getInt(12) & (kept >= Integer.SIZE ? -1 : (1 << kept) - 1);
+		bytes.position(HEADER_BYTES);
+		for (int i = 0; i < kept; i++) {
+			streaks.start[i] = bytes.getLong();
+			streaks.lastSeen[i] = bytes.getLong();
+			streaks.lastReminder[i] = bytes.getLong();
+		}
+		streaks.fresh = false;
+		return streaks;
+	}
+
+	/**
+	 * Writes the streaks when one started, alerted, reminded or cleared since the last load or persist.
+	 */
+	void persistIfDirty(File file) {
+		if (dirty) {
+			write(file);
+		}
+	}
+
+	/**
+	 * Writes the streaks when anything changed, last-seen times included. Called when monitoring stops.
+	 */
+	void flush(File file) {
+		if (dirty || stale) {
+			write(file);
+		}
+	}
+
+	private void write(File file) {
+		final ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + size() * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		bytes.putInt(MAGIC)
+		     .putShort(VERSION)
+		     .putShort((short) size())
+		     .putInt(signature)
+		     .putInt(alertedMask);
+		for (int i = 0; i < size(); i++) {
+			bytes.putLong(start[i]).putLong(lastSeen[i]).putLong(lastReminder[i]);
+		}
+		bytes.flip();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			final FileChannel channel = raf.getChannel();
+			long at = 0;
+			while (bytes.hasRemaining()) {
+				at += channel.write(bytes, at);
+			}
+			raf.setLength(at);
+			dirty = false;
+			stale = false;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist rule streaks: " + e.getMessage());
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+		long at = 0;
+		while (bytes.hasRemaining()) {
+			final int read = channel.read(bytes, at);
+			if (read < 0) {
+				return; // end of file: the caller checks what arrived
+			}
+			at += read;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.model.LevelLadder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Decides when the next battery reading is due and takes one if no broadcast has delivered it by then.
+ * <p>
+ * Readings used to arrive only when the OS sent {@code ACTION_BATTERY_CHANGED}; when broadcasts stall
+ * (doze, a device that only broadcasts on whole-percent changes) the rate window, the fast-drain
+ * detector and the level alerts simply waited. Each processed reading now sets a deadline from what it
+ * shows ({@link #nextDelayMillis}):
+ * <ul>
+ *   <li>{@link #DENSE_DELAY_MS} while the current swings, the temperature climbs or nears the alert, or
+ *       the level is within {@link #NEAR_THRESHOLD_PERCENT} of any step of the alert ladder;</li>
+ *   <li>{@link #IDLE_DELAY_MS} when resting at full on a charger, or in deep idle on battery;</li>
+ *   <li>{@link #NORMAL_DELAY_MS} otherwise.</li>
+ * </ul>
+ * If a broadcast arrives first, the deadline just moves; only when it passes with no reading does the
+ * sampler run the stage chain over a fresh read. The deadline is an inexact, non-wakeup
+ * {@link AlarmManager} alarm delivered on the {@link BatteryWorker} handler, so a scheduled reading is
+ * processed in line with the broadcasts. It never wakes the device on its own: while the device is awake
+ * it fills the gaps between stalled broadcasts, and while it sleeps the alarm waits for the next wakeup
+ * the system or another app causes — a reading then, where there would have been none, at no cost in
+ * battery. The alarm is only re-armed when it fires or when a reading asks for an earlier deadline — a
+ * steady stream of broadcasts costs no alarm calls.
+ */
+public final class SamplingScheduler {
+
+	/** Densest cadence; matches {@link BatteryRateTracker#MIN_SAMPLE_SPACING_MS}, so no denser reading is thrown away. */
+	static final long DENSE_DELAY_MS = BatteryRateTracker.MIN_SAMPLE_SPACING_MS;
+	static final long NORMAL_DELAY_MS = 2L * 60 * 1000;
+	static final long IDLE_DELAY_MS = 15L * 60 * 1000;
+
+	/** A level this close above a discharge step (or below a charge step or 100% while charging) samples densely. */
+	static final int NEAR_THRESHOLD_PERCENT = 2;
+	/** A change of at least this much current between readings is a swing. */
+	static final int CURRENT_SWING_MICRO_AMPS = 150_000;
+	/** A rise of at least this much (tenths of a °C) between readings is a climb. */
+	static final int TEMPERATURE_CLIMB_TENTHS_C = 5;
+	/** Within this many °C of the high-temperature alert, sample densely. */
+	static final int NEAR_TEMPERATURE_C = 2;
+	/** Below this much current on battery the device is in deep idle. */
+	static final int DEEP_IDLE_MICRO_AMPS = 50_000;
+
+	private static final String TAG = SamplingScheduler.class.getSimpleName();
+	private static final String ALARM_TAG = "SimpleBatteryNotifier:sample";
+	// A deadline this close counts as reached, so an alarm delivered slightly early still samples.
+	private static final long DEADLINE_TOLERANCE_MS = 1000;
+	private static final int UNAVAILABLE = Integer.MIN_VALUE;
+
+	private static final AtomicLong SCHEDULED_SAMPLES = new AtomicLong();
+	private static final AtomicLong ALARMS_SET = new AtomicLong();
+
+	private static Context appContext;
+	private static Runnable sampler;
+	private static Observation last;
+	// When the next reading is due, and when the pending alarm fires (0 = none pending); elapsed realtime.
+	private static long dueAt;
+	private static long armedAt;
+
+	private static final AlarmManager.OnAlarmListener ALARM = SamplingScheduler::onAlarm;
+
+	private SamplingScheduler() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Starts scheduling; the first deadline is set by the first reading.
+	 *
+	 * @param context any context; only the application context is kept
+	 * @param sample  takes and processes one reading on the battery worker
+	 */
+	public static synchronized void start(Context context, Runnable sample) {
+		appContext = context.getApplicationContext();
+		sampler = sample;
+	}
+
+	/**
+	 * Stops scheduling and cancels the pending alarm. Call before {@link BatteryWorker#quit(Runnable)}.
+	 */
+	public static synchronized void stop() {
+		cancelAlarm();
+		sampler = null;
+		appContext = null;
+		last = null;
+		dueAt = 0;
+	}
+
+	/**
+	 * Readings taken by the scheduler because no broadcast arrived in time, since process start.
+	 */
+	public static long scheduledSamples() {
+		return SCHEDULED_SAMPLES.get();
+	}
+
+	/**
+	 * Alarms set since process start.
+	 */
+	public static long alarmsSet() {
+		return ALARMS_SET.get();
+	}
+
+	/**
+	 * Moves the deadline after a processed reading, broadcast or scheduled. A no-op until {@link #start}.
+	 *
+	 * @param batteryDO the reading
+	 * @param settings  the alert settings the thresholds come from
+	 */
+	public static synchronized void onReading(BatteryDO batteryDO, AlertSettings settings) {
+		if (isNull(sampler)) {
+			return;
+		}
+		final long now = SystemClock.elapsedRealtime();
+		final Observation observation = Observation.of(batteryDO);
+		final int temperatureAlertC = settings.temperatureAlertEnabled() ? settings.temperatureThresholdC() : UNAVAILABLE;
+		final long delay = nextDelayMillis(last, observation, settings.ladder(), temperatureAlertC);
+		last = observation;
+		dueAt = now + delay;
+		// Only an earlier deadline needs the alarm moved; a later one is handled when the alarm fires.
+		if (armedAt == 0 || dueAt < armedAt) {
+			arm(dueAt, delay);
+		}
+	}
+
+	/**
+	 * Pure cadence rule, unit-testable with no Android dependencies.
+	 *
+	 * @param previous          the previous reading, or null after start
+	 * @param now               this reading
+	 * @param ladder            the level-alert ladder
+	 * @param temperatureAlertC the high-temperature alert in °C, or {@link Integer#MIN_VALUE} when disabled
+	 *
+	 * @return how long until the next reading is due
+	 */
+	static long nextDelayMillis(Observation previous, Observation now, LevelLadder ladder,
+	                            int temperatureAlertC) {
+		final boolean onCharger = now.plugged() != 0;
+		if (onCharger && (now.status() == BatteryManager.BATTERY_STATUS_FULL || now.level() >= 100)) {
+			return IDLE_DELAY_MS;
+		}
+		if (isSwinging(previous, now) || isHeating(previous, now, temperatureAlertC) || isNearLevelStep(now, onCharger, ladder)) {
+			return DENSE_DELAY_MS;
+		}
+		if (!onCharger && now.currentMicroAmps() != UNAVAILABLE && Math.abs(now.currentMicroAmps()) < DEEP_IDLE_MICRO_AMPS) {
+			return IDLE_DELAY_MS;
+		}
+		return NORMAL_DELAY_MS;
+	}
+
+	private static boolean isSwinging(Observation previous, Observation now) {
+		return nonNull(previous) && previous.currentMicroAmps() != UNAVAILABLE && now.currentMicroAmps() != UNAVAILABLE
+		       && Math.abs((long) now.currentMicroAmps() - previous.currentMicroAmps()) >= CURRENT_SWING_MICRO_AMPS;
+	}
+
+	private static boolean isHeating(Observation previous, Observation now, int temperatureAlertC) {
+		if (temperatureAlertC != UNAVAILABLE && now.temperatureTenthsC() >= (temperatureAlertC - NEAR_TEMPERATURE_C) * 10) {
+			return true;
+		}
+		return nonNull(previous) && now.temperatureTenthsC() - previous.temperatureTenthsC() >= TEMPERATURE_CLIMB_TENTHS_C;
+	}
+
+	/**
+	 * Whether a step lies within {@link #NEAR_THRESHOLD_PERCENT} ahead of the level, read from the ladder's
+	 * compiled tables: the steps counted a few percent on differ from those counted at the level.
+	 */
+	private static boolean isNearLevelStep(Observation now, boolean onCharger, LevelLadder ladder) {
+		final int level = now.level();
+		if (onCharger) {
+			return 100 - level <= NEAR_THRESHOLD_PERCENT
+			       || LevelLadder.reached(ladder.chargeEntry(level + NEAR_THRESHOLD_PERCENT)) > LevelLadder.reached(ladder.chargeEntry(level));
+		}
+		return LevelLadder.crossed(ladder.dischargeEntry(level - NEAR_THRESHOLD_PERCENT)) > LevelLadder.crossed(ladder.dischargeEntry(level));
+	}
+
+	/**
+	 * The alarm fired on the battery worker: sample if the deadline has passed with no reading, otherwise
+	 * re-arm for the deadline a later reading set.
+	 */
+	private static void onAlarm() {
+		final Runnable sample;
+		synchronized (SamplingScheduler.class) {
+			armedAt = 0;
+			if (isNull(sampler)) {
+				return;
+			}
+			final long now = SystemClock.elapsedRealtime();
+			if (dueAt - now > DEADLINE_TOLERANCE_MS) {
+				arm(dueAt, dueAt - now);
+				return;
+			}
+			sample = sampler;
+		}
+		SCHEDULED_SAMPLES.incrementAndGet();
+		// Processing the reading calls onReading, which arms the next deadline.
+		sample.run();
+		synchronized (SamplingScheduler.class) {
+			if (nonNull(sampler) && armedAt == 0) {
+				// No reading came out of it (no sticky broadcast); try again at the normal cadence.
+				dueAt = SystemClock.elapsedRealtime() + NORMAL_DELAY_MS;
+				arm(dueAt, NORMAL_DELAY_MS);
+			}
+		}
+	}
+
+	private static void arm(long triggerAt, long delay) {
+		// Delivered on the running worker only; a quit worker means the service is stopping.
+		final Handler worker = BatteryWorker.running();
+		if (isNull(worker)) {
+			return;
+		}
+		final AlarmManager alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+		if (isNull(alarmManager)) {
+			Log.w(TAG, "AlarmManager service unavailable");
+			return;
+		}
+		if (armedAt != 0) {
+			alarmManager.cancel(ALARM);
+		}
+		// An inexact window lets the system batch this with other wakeups; a quarter of the delay keeps
+		// the dense cadence dense.
+		alarmManager.setWindow(AlarmManager.ELAPSED_REALTIME, triggerAt, delay / 4, ALARM_TAG, ALARM, worker);
+		armedAt = triggerAt;
+		ALARMS_SET.incrementAndGet();
+	}
+
+	private static void cancelAlarm() {
+		if (armedAt == 0 || isNull(appContext)) {
+			return;
+		}
+		final AlarmManager alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+		if (nonNull(alarmManager)) {
+			alarmManager.cancel(ALARM);
+		}
+		armedAt = 0;
+	}
+
+	/**
+	 * The fields of a reading the cadence rule looks at.
+	 *
+	 * @param level              whole battery percentage
+	 * @param status             {@code BatteryManager.BATTERY_STATUS_*}
+	 * @param plugged            {@code BatteryManager.BATTERY_PLUGGED_*}, 0 on battery
+	 * @param temperatureTenthsC temperature in tenths of a °C
+	 * @param currentMicroAmps   current in µA, {@link Integer#MIN_VALUE} when unavailable
+	 */
+	record Observation(int level, int status, int plugged, int temperatureTenthsC, int currentMicroAmps) {
+
+		static Observation of(BatteryDO batteryDO) {
+			return new Observation(batteryDO.getBatteryPercentageInt(), batteryDO.getStatus(), batteryDO.getPlugged(),
+					batteryDO.getTemperature(), batteryDO.getCurrentMicroAmps());
+		}
+	}
+}
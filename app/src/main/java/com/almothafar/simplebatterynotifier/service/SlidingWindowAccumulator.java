@@ -0,0 +1,286 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A time-ordered sliding window of {@code int} readings held as a fixed-capacity ring of primitive
+ * arrays — parallel {@code long[]} times and {@code int[]} values, oldest first from {@link #head()} —
+ * with a running sum and count of the readings that {@link #counts} accepts.
+ * <p>
+ * Appends and evictions adjust the sum and count as they go, so the mean and the first/last timestamps
+ * are O(1) at any moment, and nothing is allocated after construction. The filter decides what enters
+ * the aggregate without keeping anything out of the window: the rate window keeps an unsupported
+ * current reading for its level, but must not average it. Callers that keep more per sample (the rate
+ * window's levels) index their own parallel arrays by the physical slot {@link #append} returns.
+ * <p>
+ * An owner that reads further back than it averages can {@link #retireOldest retire} readings instead of
+ * evicting them: they leave the window and the aggregate but stay in the ring, just before the head, as
+ * the trail, until an append needs their slot or {@link #dropTrailBefore} ages them out. The rate window
+ * keeps its hour of horizon samples this way, with the 10-minute window as the ring's newest suffix.
+ * <p>
+ * Shared by {@link RateSampleBuffer} (the averaged current behind the rate, #173) and
+ * {@link SustainedConditionTracker.AveragedReading} (the averaged charge power behind
+ * {@link SlowChargeDetector}). Pure, with no Android dependencies. Not thread-safe; each owner serializes
+ * its own access.
+ */
+final class SlidingWindowAccumulator {
+
+	/** What {@link #average} returns when the window doesn't hold enough counted readings yet. */
+	static final int NO_AVERAGE = Integer.MIN_VALUE;
+
+	private final long[] times;
+	private final int[] values;
+	private final IntPredicate counts;
+
+	private int head;
+	private int size;
+	// Readings retired from the window but still held, in the slots just before head.
+	private int trail;
+
+	// Running aggregate over the counted readings, updated on every append/evict.
+	private long sum;
+	private int count;
+
+	/**
+	 * @param capacity how many readings the ring holds; an append past it evicts the oldest
+	 * @param counts   which readings enter the sum and count
+	 */
+	SlidingWindowAccumulator(int capacity, IntPredicate counts) {
+		times = new long[capacity];
+		values = new int[capacity];
+		this.counts = counts;
+	}
+
+	/**
+	 * A window that counts every reading.
+	 */
+	SlidingWindowAccumulator(int capacity) {
+		this(capacity, value -> true);
+	}
+
+	int capacity() {
+		return times.length;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Physical slot of the oldest reading. */
+	int head() {
+		return head;
+	}
+
+	long firstTime() {
+		return times[head];
+	}
+
+	long lastTime() {
+		return times[physical(size - 1)];
+	}
+
+	/** How many retired readings are still held before the window. */
+	int trailSize() {
+		return trail;
+	}
+
+	/** How many readings in the window are counted. */
+	int count() {
+		return count;
+	}
+
+	/** The sum of the counted readings. */
+	long sum() {
+		return sum;
+	}
+
+	/**
+	 * Appends a reading at the tail. When the ring is full this overwrites the oldest trail reading, or
+	 * with no trail evicts the oldest reading in the window.
+	 *
+	 * @param timeMillis when it was taken; not before {@link #lastTime()}
+	 * @param value      the reading
+	 *
+	 * @return the physical slot written
+	 */
+	int append(long timeMillis, int value) {
+		if (size + trail == times.length) {
+			if (trail > 0) {
+				trail--;
+			} else {
+				evictOldest();
+			}
+		}
+		final int slot = physical(size);
+		times[slot] = timeMillis;
+		values[slot] = value;
+		size++;
+		if (counts.test(value)) {
+			sum += value;
+			count++;
+		}
+		return slot;
+	}
+
+	/**
+	 * Drops readings outside the trailing window: older than {@code windowMs} from the head, and
+	 * future-dated (a backwards clock jump) from the tail. Appends are time-ordered, so the stale ones are
+	 * always at the head and the future ones at the tail — O(1) amortized.
+	 *
+	 * @param now      current time in millis
+	 * @param windowMs the trailing window length
+	 *
+	 * @return true when anything was dropped
+	 */
+	boolean trimToWindow(long now, long windowMs) {
+		final int before = size;
+		while (size > 0 && lastTime() > now) {
+			evictNewest();
+		}
+		final long cutoff = now - windowMs;
+		while (size > 0 && firstTime() < cutoff) {
+			evictOldest();
+		}
+		return size != before;
+	}
+
+	/**
+	 * The rounded mean of the counted readings, or {@link #NO_AVERAGE} when fewer than {@code minCount}
+	 * are counted or the window spans less than {@code minSpanMs}.
+	 *
+	 * @param minCount  minimum counted readings
+	 * @param minSpanMs minimum first-to-last span; 0 accepts a single reading
+	 *
+	 * @return the mean, or {@link #NO_AVERAGE}
+	 */
+	int average(int minCount, long minSpanMs) {
+		if (size == 0 || count == 0 || count < minCount || lastTime() - firstTime() < minSpanMs) {
+			return NO_AVERAGE;
+		}
+		return (int) Math.round((double) sum / count);
+	}
+
+	void clear() {
+		head = 0;
+		size = 0;
+		trail = 0;
+		sum = 0;
+		count = 0;
+	}
+
+	/**
+	 * Restores a persisted slot verbatim; call {@link #restoreBounds} once every slot is back.
+	 */
+	void restoreSlot(int slot, long timeMillis, int value) {
+		times[slot] = timeMillis;
+		values[slot] = value;
+	}
+
+	/**
+	 * Adopts the persisted head/size after the slots were restored, rebuilding the running aggregate.
+	 */
+	void restoreBounds(int restoredHead, int restoredSize) {
+		restoreBounds(restoredHead, restoredSize, 0);
+	}
+
+	/**
+	 * Adopts the persisted head, size and trail after the slots were restored, rebuilding the running
+	 * aggregate.
+	 */
+	void restoreBounds(int restoredHead, int restoredSize, int restoredTrail) {
+		head = restoredHead;
+		size = restoredSize;
+		trail = restoredTrail;
+		sum = 0;
+		count = 0;
+		for (int i = 0; i < size; i++) {
+			final int value = values[physical(i)];
+			if (counts.test(value)) {
+				sum += value;
+				count++;
+			}
+		}
+	}
+
+	long timeAtSlot(int slot) {
+		return times[slot];
+	}
+
+	int valueAtSlot(int slot) {
+		return values[slot];
+	}
+
+	/** Physical slot of a logical position, 0 = oldest. */
+	int physical(int index) {
+		return (head + index) % times.length;
+	}
+
+	/** Physical slot of a position counted from the oldest trail reading, through the trail into the window. */
+	int trailPhysical(int index) {
+		return (head - trail + index + times.length) % times.length;
+	}
+
+	/**
+	 * Moves the oldest reading out of the window and the aggregate into the trail, keeping its slot. The
+	 * window must not be empty.
+	 */
+	void retireOldest() {
+		forget(values[head]);
+		head = (head + 1) % times.length;
+		size--;
+		trail++;
+	}
+
+	/**
+	 * Drops the trail readings taken before {@code cutoff}.
+	 *
+	 * @return true when anything was dropped
+	 */
+	boolean dropTrailBefore(long cutoff) {
+		final int before = trail;
+		while (trail > 0 && times[trailPhysical(0)] < cutoff) {
+			trail--;
+		}
+		return trail != before;
+	}
+
+	/**
+	 * Drops the whole trail, e.g. when a backwards clock jump leaves it future-dated.
+	 *
+	 * @return true when anything was dropped
+	 */
+	boolean clearTrail() {
+		final boolean had = trail > 0;
+		trail = 0;
+		return had;
+	}
+
+	/**
+	 * Drops the oldest reading; for owners that must see each eviction (the rate window's level fit).
+	 * The window must not be empty, and the trail must be (an evicted slot would join it).
+	 */
+	void evictOldest() {
+		forget(values[head]);
+		head = (head + 1) % times.length;
+		size--;
+	}
+
+	/**
+	 * Drops the newest reading, as {@link #evictOldest()} does the oldest. The window must not be empty.
+	 */
+	void evictNewest() {
+		forget(values[physical(size - 1)]);
+		size--;
+	}
+
+	private void forget(int value) {
+		if (counts.test(value)) {
+			sum -= value;
+			count--;
+		}
+	}
+}
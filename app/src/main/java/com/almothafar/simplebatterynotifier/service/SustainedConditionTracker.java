@@ -19,8 +19,13 @@ import android.content.SharedPreferences;
  *   <li>the <b>repeat policy</b> — {@link #fireOnce()} (slow charge) vs {@link #withReminders} (fast drain
  *       reminds while the screen is off/locked).</li>
  * </ul>
- * The {@link #decide} core is pure and Android-free; persistence is a thin {@link StreakStore} keyed by
- * each detector's own preference keys, so no stored state is lost on upgrade.
+ * The {@link #decide} core is pure and Android-free. The streaks persist in one {@link RuleStreaks} file;
+ * {@link StreakStore} only reads each detector's former preference keys once, so no stored state is lost
+ * on upgrade.
+ * <p>
+ * {@link AlertRule} puts a declarative face on it — metric, comparison, threshold, sustained window,
+ * hysteresis and repeat policy — which the built-in alerts and the custom rules ({@link AlertRuleSet})
+ * share.
  */
 final class SustainedConditionTracker {
 
@@ -69,6 +74,25 @@ final class SustainedConditionTracker {
                           long sustainedMs,
                           long nowMillis,
                           RepeatPolicy policy) {
+        return decide(state, measurable, conditionActive, sustainedMs, nowMillis, policy, MAX_OBSERVATION_GAP_MS);
+    }
+
+    /**
+     * {@link #decide(Streak, boolean, boolean, long, long, RepeatPolicy)} with the lapse gap given: an
+     * {@link AlertRule} on a raw reading (temperature, voltage) rather than a windowed rate may hold its
+     * streak across any gap — {@link Long#MAX_VALUE} never lapses.
+     *
+     * @param maxGapMs how long the streak survives without a fresh in-condition observation
+     *
+     * @return whether to notify now, the new streak to persist, and the streak's elapsed time
+     */
+    static Outcome decide(Streak state,
+                          boolean measurable,
+                          boolean conditionActive,
+                          long sustainedMs,
+                          long nowMillis,
+                          RepeatPolicy policy,
+                          long maxGapMs) {
         if (!measurable) {
             return new Outcome(false, state, 0); // sleep — keep the streak, don't fire
         }
@@ -76,7 +100,7 @@ final class SustainedConditionTracker {
             return new Outcome(false, CLEARED, 0); // condition cleared — re-arm (hysteresis)
         }
 
-        final boolean lapsed = state.start() != 0 && nowMillis - state.lastSeen() > MAX_OBSERVATION_GAP_MS;
+        final boolean lapsed = state.start() != 0 && nowMillis - state.lastSeen() > maxGapMs;
         final long start = (state.start() == 0 || lapsed) ? nowMillis : state.start();
         final long elapsed = nowMillis - start;
         final boolean alerted = !lapsed && state.alerted();
@@ -124,6 +148,54 @@ final class SustainedConditionTracker {
         };
     }
 
+    /**
+     * A condition's reading averaged over a trailing window before it is judged, so one noisy reading
+     * can't clear a genuine streak and restart its clock — the power behind {@link SlowChargeDetector}.
+     * Backed by a {@link SlidingWindowAccumulator}, so folding a reading in is O(1). Memory only: after a
+     * process restart it refills within one window, and the streak itself is persisted. Not thread-safe;
+     * the owner serializes access (the detectors run on the battery worker).
+     */
+    static final class AveragedReading {
+
+        private final SlidingWindowAccumulator window;
+        private final long windowMs;
+
+        /**
+         * @param capacity how many readings the window holds; the newest are kept
+         * @param windowMs how far back the average reaches
+         */
+        AveragedReading(int capacity, long windowMs) {
+            this.window = new SlidingWindowAccumulator(capacity);
+            this.windowMs = windowMs;
+        }
+
+        /**
+         * Folds this tick's reading in and returns the mean over the window. An unknown reading adds
+         * nothing but still ages the window out, so a stretch of unmeasurable readings ends as
+         * "unmeasurable" rather than judging stale values.
+         *
+         * @param known     whether the reading could be measured this tick
+         * @param value     the reading (valid when {@code known})
+         * @param nowMillis current time in millis
+         *
+         * @return the mean, or {@link SlidingWindowAccumulator#NO_AVERAGE} when the window is empty
+         */
+        int fold(boolean known, int value, long nowMillis) {
+            window.trimToWindow(nowMillis, windowMs);
+            if (known) {
+                window.append(nowMillis, value);
+            }
+            return window.average(1, 0);
+        }
+
+        /**
+         * Drops every reading, at the end of an episode's session.
+         */
+        void clear() {
+            window.clear();
+        }
+    }
+
     /**
      * Persists a {@link Streak} under a detector's own preference keys (so no stored state is lost on
      * upgrade), with the shared persist-only-on-change churn guard. Detectors without a reminder concept
@@ -27,6 +27,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.function.IntSupplier;
 
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
@@ -45,7 +46,6 @@ public final class SystemService {
 
 	// Linux power-supply sysfs directory; a supply's charge_full_design node holds the rated capacity
 	// in µAh. Readable on some devices, blocked by SELinux on many newer ones (issue #104).
-	private static final String POWER_SUPPLY_DIR = "/sys/class/power_supply";
 	private static final String CHARGE_FULL_DESIGN_NODE = "charge_full_design";
 
 	// The single alert vibration pattern (issue #166): the alert channels' vibration and the manual
@@ -87,9 +87,30 @@ public final class SystemService {
 		final Resources resources = context.getResources();
 		final BatteryExtras extras = extractBatteryExtras(batteryStatus);
 		final String chargerType = determineChargerType(extras.plugged, resources);
-		final int batteryCapacity = getBatteryCapacity(context);
-		final int currentMicroAmps = getInstantaneousCurrentMicroAmps(context);
-		final int chargeCounterUah = getTrustedChargeCounterUah(context, batteryCapacity);
+
+		// Each BatteryManager property is a binder call: read each one once per snapshot, and from sysfs
+		// where the device allows it (PowerSupplyReader). The charge counter feeds both the capacity
+		// estimate and the trusted counter, which used to read it twice.
+		final BatteryManager batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+		final int rawChargeCounterUah;
+		final int batteryCapacity;
+		final int rawCurrentMicroAmps;
+		if (isNull(batteryManager)) {
+			Log.w(TAG, "BatteryManager service unavailable");
+			rawChargeCounterUah = Integer.MIN_VALUE;
+			batteryCapacity = 0;
+			rawCurrentMicroAmps = Integer.MIN_VALUE;
+		} else {
+			rawChargeCounterUah = readIntProperty(batteryManager, PowerSupplyReader.Node.CHARGE_COUNTER,
+					BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+			batteryCapacity = estimateFullCapacityMah(rawChargeCounterUah,
+					readIntProperty(batteryManager, PowerSupplyReader.Node.CAPACITY, BatteryManager.BATTERY_PROPERTY_CAPACITY));
+			rawCurrentMicroAmps = readIntProperty(batteryManager, PowerSupplyReader.Node.CURRENT_NOW,
+					BatteryManager.BATTERY_PROPERTY_CURRENT_NOW);
+		}
+		// The calibrator passes the "unsupported" sentinel through untouched.
+		final int currentMicroAmps = CurrentUnitCalibrator.observeAndScale(context, rawCurrentMicroAmps);
+		final int chargeCounterUah = getTrustedChargeCounterUah(context, batteryCapacity, rawChargeCounterUah);
 
 		// The sub-percent display divides the counter by a STABLE learned capacity, never by this
 		// tick's counter-derived estimate — dividing the counter by itself is what pinned the
@@ -374,11 +395,37 @@ public final class SystemService {
 			return 0;
 		}
 
-		final int chargeCounterUah = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
-		final int capacityPercent = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+		final int chargeCounterUah = readIntProperty(batteryManager, PowerSupplyReader.Node.CHARGE_COUNTER,
+				BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+		final int capacityPercent = readIntProperty(batteryManager, PowerSupplyReader.Node.CAPACITY, BatteryManager.BATTERY_PROPERTY_CAPACITY);
 		return estimateFullCapacityMah(chargeCounterUah, capacityPercent);
 	}
 
+	/**
+	 * One battery property read: straight from sysfs when this device lets the app read the node and
+	 * the node has matched the {@link BatteryManager} value in sign and scale, otherwise the binder
+	 * call. Some OEMs' battery HAL rescales or flips the kernel value, so a node is only trusted after
+	 * that check ({@link PowerSupplyReader#read(PowerSupplyReader.Node, IntSupplier)}). Only that check
+	 * takes a reference supplier; a closed or verified node costs no allocation per read.
+	 *
+	 * @param batteryManager the battery service
+	 * @param node           the matching {@code power_supply} node
+	 * @param property       a {@code BatteryManager.BATTERY_PROPERTY_*} id
+	 *
+	 * @return the property value, or {@link Integer#MIN_VALUE} when unavailable
+	 */
+	private static int readIntProperty(BatteryManager batteryManager, PowerSupplyReader.Node node, int property) {
+		final PowerSupplyReader reader = PowerSupplyReader.system();
+		if (!reader.isOpen(node)) {
+			return batteryManager.getIntProperty(property);
+		}
+		if (reader.isVerified(node)) {
+			final int direct = reader.read(node);
+			return direct == PowerSupplyReader.UNAVAILABLE ? batteryManager.getIntProperty(property) : direct;
+		}
+		return reader.read(node, () -> batteryManager.getIntProperty(property));
+	}
+
 	/**
 	 * The raw remaining-charge counter ({@link BatteryManager#BATTERY_PROPERTY_CHARGE_COUNTER}, µAh),
 	 * gated for trustworthiness so downstream consumers can synthesize a sub-percent battery fraction
@@ -392,21 +439,18 @@ public final class SystemService {
 	 *
 	 * @param context                 The application context
 	 * @param estimatedFullCapacityMah The already-computed full-capacity estimate in mAh (0 = untrusted)
+	 * @param chargeCounterUah         The counter reading the estimate was computed from
 	 *
 	 * @return trusted remaining charge in µAh, or 0 when the counter can't be trusted on this device
 	 */
-	private static int getTrustedChargeCounterUah(final Context context, final int estimatedFullCapacityMah) {
+	private static int getTrustedChargeCounterUah(final Context context, final int estimatedFullCapacityMah, final int chargeCounterUah) {
 		if (estimatedFullCapacityMah <= 0) {
 			return 0; // Counter unavailable or implausible (#69) — integer display instead of fake decimals.
 		}
 		if (BatteryHealthTracker.isEstimateImplausible(estimatedFullCapacityMah, BatteryHealthTracker.getDesignCapacity(context))) {
 			return 0; // Counter inconsistent with the known design capacity (#94).
 		}
-		final BatteryManager batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
-		if (isNull(batteryManager)) {
-			return 0;
-		}
-		return Math.max(0, batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER));
+		return Math.max(0, chargeCounterUah);
 	}
 
 	/**
@@ -419,7 +463,7 @@ public final class SystemService {
 	 * current, so callers fall back to a plain "Charging" message.
 	 * <p>
 	 * This is the <em>fresh-read</em> path, meant only for the deliberately-delayed plug-in sample in
-	 * {@link com.almothafar.simplebatterynotifier.receiver.PowerConnectionReceiver} (#122). Surfaces
+	 * {@link com.almothafar.simplebatterynotifier.receiver.PowerConnectionStage} (#122). Surfaces
 	 * reacting to a battery broadcast must instead derive the speed from the {@code BatteryDO} in hand
 	 * ({@link ChargeSpeed#fromMeasurements}), so all of them judge the same reading within a tick (#157).
 	 *
@@ -438,7 +482,9 @@ public final class SystemService {
 
 	/**
 	 * Read the live instantaneous battery current from {@link BatteryManager#BATTERY_PROPERTY_CURRENT_NOW}
-	 * (µA), used to derive the charge/drain rate and the signed "Current" row (issue #108).
+	 * (µA), used to derive the charge/drain rate and the signed "Current" row (issue #108). Read from the
+	 * sysfs node directly where the device allows it and the node agrees with the property
+	 * ({@link PowerSupplyReader}), the same value without the binder call.
 	 * <p>
 	 * The reading passes through {@link CurrentUnitCalibrator}, which rescales it on devices concluded to
 	 * report mA instead of µA (the Kirin unit bug, #152) — the single read point, so every consumer sees
@@ -451,12 +497,24 @@ public final class SystemService {
 	 * @return instantaneous current in µA, or {@link Integer#MIN_VALUE} when unavailable
 	 */
 	public static int getInstantaneousCurrentMicroAmps(final Context context) {
+		return CurrentUnitCalibrator.observeAndScale(context, readRawCurrent(context));
+	}
+
+	/**
+	 * The raw {@code CURRENT_NOW} reading, before {@link CurrentUnitCalibrator}: for the profiler's
+	 * high-rate sampler, which scales with a calibration snapshot instead of observing every sample.
+	 *
+	 * @param context The application context
+	 *
+	 * @return the raw reading, or {@link Integer#MIN_VALUE} when unavailable
+	 */
+	static int readRawCurrent(Context context) {
 		final BatteryManager batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
 		if (isNull(batteryManager)) {
 			Log.w(TAG, "BatteryManager service unavailable");
 			return Integer.MIN_VALUE;
 		}
-		return CurrentUnitCalibrator.observeAndScale(context, batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW));
+		return readIntProperty(batteryManager, PowerSupplyReader.Node.CURRENT_NOW, BatteryManager.BATTERY_PROPERTY_CURRENT_NOW);
 	}
 
 	/**
@@ -500,7 +558,7 @@ public final class SystemService {
 	 * @return design capacity in mAh, or 0 when it cannot be read
 	 */
 	public static int getDesignCapacityFromSystem() {
-		final File[] supplies = new File(POWER_SUPPLY_DIR).listFiles();
+		final File[] supplies = new File(PowerSupplyReader.POWER_SUPPLY_DIR).listFiles();
 		if (isNull(supplies)) {
 			return 0; // Directory not listable (e.g. SELinux) — fall back to manual entry.
 		}
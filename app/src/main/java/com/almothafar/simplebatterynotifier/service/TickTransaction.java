@@ -0,0 +1,367 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * A write-behind transaction scoped to one battery broadcast: every tracker's {@code apply()} during the
+ * tick is collected per preferences file, and each dirty file is flushed with a single {@code apply()}
+ * when the tick ends.
+ * <p>
+ * A broadcast used to trigger up to seven separate applies — the cycle accrual, the level-alert and
+ * temperature state, the fast-drain and slow-charge streaks, the current-unit calibration and the
+ * capacity learner — and each one snapshots the whole file's map in memory and queues a rewrite of its
+ * XML. Batched, the default prefs and {@code battery_transient} are each written at most once per tick.
+ * <p>
+ * <b>Read-your-writes.</b> Inside a tick, {@link #wrap} returns a view that overlays the tick's pending
+ * changes on the real file, so a tracker that reads a key written earlier in the same broadcast sees the
+ * new value, and every load → decide → save-on-change sequence (#164) behaves exactly as with immediate
+ * applies. Outside a tick (UI, tests, other receivers), {@link #wrap}
+ * returns the real preferences and every write goes straight through, exactly as before.
+ * <p>
+ * A tick belongs to the thread that began it; other threads see no transaction. Nested
+ * {@link #begin()} calls join the outer tick.
+ */
+public final class TickTransaction {
+
+	private static final String TAG = TickTransaction.class.getSimpleName();
+
+	private static final ThreadLocal<Tick> CURRENT = new ThreadLocal<>();
+
+	// Lifetime counters (since process start): applies the trackers asked for, and the ones actually issued.
+	private static final AtomicLong REQUESTED_WRITES = new AtomicLong();
+	private static final AtomicLong FLUSHED_WRITES = new AtomicLong();
+
+	private TickTransaction() {
+		// Utility class - prevent instantiation
+	}
+
+	/**
+	 * Opens a tick on the calling thread. Must be paired with {@link #end()} in a {@code finally}.
+	 */
+	public static void begin() {
+		final Tick tick = CURRENT.get();
+		if (nonNull(tick)) {
+			tick.depth++;
+			return;
+		}
+		CURRENT.set(new Tick());
+	}
+
+	/**
+	 * Closes the calling thread's tick, flushing each file it dirtied with one {@code apply()}.
+	 */
+	public static void end() {
+		final Tick tick = CURRENT.get();
+		if (isNull(tick)) {
+			Log.w(TAG, "end() without begin()");
+			return;
+		}
+		if (tick.depth > 0) {
+			tick.depth--;
+			return;
+		}
+		CURRENT.remove();
+		for (final TickPrefs prefs : tick.files.values()) {
+			prefs.flush(false);
+		}
+	}
+
+	/**
+	 * The preferences to read and write through during the current tick: an overlay view when a tick is
+	 * open on this thread, else {@code prefs} itself.
+	 *
+	 * @param prefs the real preferences file
+	 *
+	 * @return the view to use
+	 */
+	public static SharedPreferences wrap(SharedPreferences prefs) {
+		final Tick tick = CURRENT.get();
+		if (isNull(tick) || prefs instanceof TickPrefs) {
+			return prefs;
+		}
+		return tick.files.computeIfAbsent(prefs, TickPrefs::new);
+	}
+
+	/**
+	 * Applies requested by the trackers since process start.
+	 */
+	public static long requestedWrites() {
+		return REQUESTED_WRITES.get();
+	}
+
+	/**
+	 * Applies saved by batching since process start (requested minus actually issued).
+	 */
+	public static long savedWrites() {
+		return REQUESTED_WRITES.get() - FLUSHED_WRITES.get();
+	}
+
+	/**
+	 * The open tick: one overlay per preferences file touched, keyed by identity (the framework caches one
+	 * instance per file).
+	 */
+	private static final class Tick {
+		private final Map<SharedPreferences, TickPrefs> files = new IdentityHashMap<>();
+		private int depth;
+	}
+
+	/**
+	 * Overlay view of one preferences file for the duration of a tick. Pending values shadow the file;
+	 * {@link #REMOVED} marks a pending removal.
+	 */
+	private static final class TickPrefs implements SharedPreferences {
+
+		private static final Object REMOVED = new Object();
+
+		private final SharedPreferences delegate;
+		private final Map<String, Object> pending = new HashMap<>();
+		private boolean cleared;
+		private int requested;
+
+		TickPrefs(SharedPreferences delegate) {
+			this.delegate = delegate;
+		}
+
+		private Object lookup(String key) {
+			final Object value = pending.get(key);
+			if (nonNull(value)) {
+				return value;
+			}
+			return cleared ? REMOVED : null;
+		}
+
+		@Override
+		public Map<String, ?> getAll() {
+			final Map<String, Object> all = cleared ? new HashMap<>() : new HashMap<>(delegate.getAll());
+			for (final Map.Entry<String, Object> entry : pending.entrySet()) {
+				if (entry.getValue() == REMOVED) {
+					all.remove(entry.getKey());
+				} else {
+					all.put(entry.getKey(), entry.getValue());
+				}
+			}
+			return all;
+		}
+
+		@Override
+		public String getString(String key, String defValue) {
+			final Object value = lookup(key);
+			if (isNull(value)) {
+				return delegate.getString(key, defValue);
+			}
+			return value == REMOVED ? defValue : (String) value;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Set<String> getStringSet(String key, Set<String> defValues) {
+			final Object value = lookup(key);
+			if (isNull(value)) {
+				return delegate.getStringSet(key, defValues);
+			}
+			return value == REMOVED ? defValues : (Set<String>) value;
+		}
+
+		@Override
+		public int getInt(String key, int defValue) {
+			final Object value = lookup(key);
+			if (isNull(value)) {
+				return delegate.getInt(key, defValue);
+			}
+			return value == REMOVED ? defValue : (Integer) value;
+		}
+
+		@Override
+		public long getLong(String key, long defValue) {
+			final Object value = lookup(key);
+			if (isNull(value)) {
+				return delegate.getLong(key, defValue);
+			}
+			return value == REMOVED ? defValue : (Long) value;
+		}
+
+		@Override
+		public float getFloat(String key, float defValue) {
+			final Object value = lookup(key);
+			if (isNull(value)) {
+				return delegate.getFloat(key, defValue);
+			}
+			return value == REMOVED ? defValue : (Float) value;
+		}
+
+		@Override
+		public boolean getBoolean(String key, boolean defValue) {
+			final Object value = lookup(key);
+			if (isNull(value)) {
+				return delegate.getBoolean(key, defValue);
+			}
+			return value == REMOVED ? defValue : (Boolean) value;
+		}
+
+		@Override
+		public boolean contains(String key) {
+			final Object value = lookup(key);
+			return isNull(value) ? delegate.contains(key) : value != REMOVED;
+		}
+
+		@Override
+		public Editor edit() {
+			return new TickEditor(this);
+		}
+
+		@Override
+		public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+			delegate.registerOnSharedPreferenceChangeListener(listener);
+		}
+
+		@Override
+		public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+			delegate.unregisterOnSharedPreferenceChangeListener(listener);
+		}
+
+		/**
+		 * Folds one editor's changes into the tick, with the framework's ordering: its clear() first,
+		 * then its puts and removes.
+		 */
+		void merge(boolean clear, Map<String, Object> changes) {
+			if (clear) {
+				cleared = true;
+				pending.clear();
+			}
+			pending.putAll(changes);
+			requested++;
+			REQUESTED_WRITES.incrementAndGet();
+		}
+
+		/**
+		 * Writes the tick's changes to the real file with one apply() (or commit() when {@code sync}),
+		 * when there are any.
+		 *
+		 * @return the commit result, or true for an apply or when there was nothing to write
+		 */
+		boolean flush(boolean sync) {
+			if (requested == 0) {
+				return true;
+			}
+			final Editor editor = delegate.edit();
+			if (cleared) {
+				editor.clear();
+			}
+			for (final Map.Entry<String, Object> entry : pending.entrySet()) {
+				put(editor, entry.getKey(), entry.getValue());
+			}
+			FLUSHED_WRITES.incrementAndGet();
+			pending.clear();
+			cleared = false;
+			requested = 0;
+			if (sync) {
+				return editor.commit();
+			}
+			editor.apply();
+			return true;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static void put(Editor editor, String key, Object value) {
+			if (value == REMOVED) {
+				editor.remove(key);
+			} else if (value instanceof Integer i) {
+				editor.putInt(key, i);
+			} else if (value instanceof Long l) {
+				editor.putLong(key, l);
+			} else if (value instanceof Float f) {
+				editor.putFloat(key, f);
+			} else if (value instanceof Boolean b) {
+				editor.putBoolean(key, b);
+			} else if (value instanceof String s) {
+				editor.putString(key, s);
+			} else if (value instanceof Set<?> set) {
+				editor.putStringSet(key, (Set<String>) set);
+			}
+		}
+	}
+
+	/**
+	 * Editor over a {@link TickPrefs}: collects changes like the framework editor and hands them to the
+	 * tick on apply(). commit() also flushes the file at once, keeping its synchronous-write contract.
+	 */
+	private static final class TickEditor implements SharedPreferences.Editor {
+
+		private final TickPrefs prefs;
+		private final Map<String, Object> changes = new HashMap<>();
+		private boolean clear;
+
+		TickEditor(TickPrefs prefs) {
+			this.prefs = prefs;
+		}
+
+		@Override
+		public SharedPreferences.Editor putString(String key, String value) {
+			changes.put(key, isNull(value) ? TickPrefs.REMOVED : value);
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor putStringSet(String key, Set<String> values) {
+			changes.put(key, isNull(values) ? TickPrefs.REMOVED : Set.copyOf(values));
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor putInt(String key, int value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor putLong(String key, long value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor putFloat(String key, float value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor putBoolean(String key, boolean value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor remove(String key) {
+			changes.put(key, TickPrefs.REMOVED);
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor clear() {
+			clear = true;
+			return this;
+		}
+
+		@Override
+		public void apply() {
+			prefs.merge(clear, changes);
+		}
+
+		@Override
+		public boolean commit() {
+			prefs.merge(clear, changes);
+			return prefs.flush(true);
+		}
+	}
+}
@@ -4,9 +4,10 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 /**
- * The dedicated {@link SharedPreferences} file for volatile, device-specific tracker state (issue #167):
- * the drain/charge rate sample window (#108), the fast-drain / slow-charge streak state (#109/#123), and
- * the learned stable-capacity stats (#204).
+ * The dedicated store for volatile, device-specific tracker state (issue #167):
+ * the fast-drain / slow-charge streak state (#109/#123) and the learned stable-capacity stats (#204). The
+ * drain/charge rate sample window (#108) started here too; it now lives in its own in-place binary file
+ * ({@link RateWindowStore}), migrated out of this file once.
  * <p>
  * Kept out of the default preferences so it can be excluded from cloud backup and device transfer — see
  * {@code res/xml/backup_rules.xml} and {@code res/xml/data_extraction_rules.xml}. Restoring another
@@ -15,11 +16,15 @@ import android.content.SharedPreferences;
  * hours of trusted readings. (Android backup rules exclude whole files, not individual keys, which is why
  * this state lives in its own file rather than the default prefs.)
  * <p>
+ * The state now lives in a fixed-schema binary file ({@link TransientStore}) behind the same
+ * {@link SharedPreferences} accessor; the {@code battery_transient} XML file is only read once, to
+ * migrate it.
+ * <p>
  * Note: installs upgraded from before #167 leave inert copies of these keys in the default prefs — nothing
  * reads them there anymore, so they never affect behaviour; they are simply unused dead weight.
  */
 final class TransientState {
-	/** SharedPreferences file name; excluded from backup as {@code battery_transient.xml}. */
+	/** Legacy SharedPreferences file name; excluded from backup as {@code battery_transient.xml}. */
 	static final String PREFS_FILE = "battery_transient";
 
 	private TransientState() {
@@ -27,13 +32,25 @@ final class TransientState {
 	}
 
 	/**
-	 * The transient-state preferences file (private, app-owned), separate from the backed-up default
-	 * preferences.
+	 * The transient-state store (private, app-owned), separate from the backed-up default preferences.
+	 * Inside a battery broadcast this is the {@link TickTransaction} view, so the streak and capacity
+	 * writes of one tick flush together.
 	 *
 	 * @param context Application context
-	 * @return the {@code battery_transient} SharedPreferences
+	 * @return the {@link TransientStore}, as SharedPreferences
 	 */
 	static SharedPreferences prefs(Context context) {
+		return TickTransaction.wrap(TransientStore.get(context));
+	}
+
+	/**
+	 * The legacy {@code battery_transient} XML file, read only by the one-time migrations out of it
+	 * ({@link TransientStore}, {@link RateWindowStore}).
+	 *
+	 * @param context Application context
+	 * @return the legacy SharedPreferences
+	 */
+	static SharedPreferences legacyPrefs(Context context) {
 		return context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE);
 	}
 }
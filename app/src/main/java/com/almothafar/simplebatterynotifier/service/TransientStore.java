@@ -0,0 +1,652 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * The transient tracker state ({@link TransientState}) as a compact, fixed-schema binary file, served
+ * behind the {@link SharedPreferences} interface so every tracker reads and writes it exactly as before.
+ * <p>
+ * <b>Layout</b> ({@link #FILE_NAME}, {@value #HEADER_BYTES}-byte little-endian header, then one fixed
+ * {@value #RECORD_BYTES}-byte record per tracker):
+ * <pre>
+ *   header: int magic | short version | short recordCount | short recordBytes | short 0 | int 0
+ *   record: short presentMask | short 0 | 6 × long field | int crc32 (of the 52 bytes before it)
+ * </pre>
+ * The records are the fast-drain streak, the slow-charge streak and the capacity stats; each key of the
+ * schema ({@link Field}) owns one 8-byte slot of its record and one bit of the mask, which is what makes
+ * {@code contains()} and {@code remove()} behave like the XML file. An edit rewrites only the records it
+ * changed, in place at their fixed offsets — a typical tick writes one 56-byte record instead of
+ * re-serializing the whole XML. A record whose CRC fails (a torn in-place write) is dropped on load and
+ * its tracker starts clean, which the streaks and capacity stats already tolerate (#167). Whole-file
+ * writes — the first write, the migration, and the rewrite after a bad file — go to a temp file renamed
+ * over the old one, so a crash never leaves a half-written header.
+ * <p>
+ * <b>Migration.</b> Until this file exists, the state lives in {@code battery_transient.xml}. The first
+ * load copies the schema keys out of it, writes this file, and removes them from the XML.
+ * <p>
+ * <b>Cost.</b> The load and every record write are timed ({@link #costSummary()}), alongside the one-time
+ * read of the legacy XML at migration, so both paths can be compared on a device.
+ * <p>
+ * {@code apply()} updates the image at once and hands the record writes to one background writer thread,
+ * coalescing the records dirtied before it runs; {@code commit()} writes on the caller's thread. A key
+ * outside the schema, or a value of the wrong type, is logged and ignored at the {@code put}: the edits
+ * run on the broadcast path, which never throws (#154), and the warning names a new tracker key the
+ * schema is missing. Thread-safe: one lock guards the image.
+ */
+final class TransientStore implements SharedPreferences {
+
+	private static final String TAG = TransientStore.class.getSimpleName();
+
+	/** File name in {@code getFilesDir()}; excluded from backup like {@code battery_transient.xml}. */
+	static final String FILE_NAME = "battery_transient.bin";
+
+	private static final int MAGIC = 0x53544242; // "BBTS" little-endian
+	private static final short VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	static final int SLOTS = 6;
+	static final int RECORD_BYTES = 4 + SLOTS * 8 + 4;
+	private static final int CRC_COVERED = RECORD_BYTES - 4;
+
+	static final int RECORD_FAST_DRAIN = 0;
+	static final int RECORD_SLOW_CHARGE = 1;
+	static final int RECORD_CAPACITY = 2;
+	static final int RECORDS = 3;
+
+	private static final Map<String, Field> SCHEMA = new HashMap<>();
+
+	static {
+		for (final Field field : Field.values()) {
+			SCHEMA.put(field.key, field);
+		}
+	}
+
+	// Lifetime cost counters (since process start), in nanoseconds.
+	private static final AtomicLong LOAD_NANOS = new AtomicLong();
+	private static final AtomicLong WRITE_NANOS = new AtomicLong();
+	private static final AtomicLong WRITES = new AtomicLong();
+	private static final AtomicLong LEGACY_READ_NANOS = new AtomicLong(-1);
+
+	// Runs apply()'s writes in order, off the caller's thread; one for the process, like AlertSounds' player.
+	private static final ExecutorService WRITER = Executors.newSingleThreadExecutor();
+
+	private static TransientStore instance;
+
+	private final Context appContext;
+	private final File file;
+	private final Object lock = new Object();
+	private final ByteBuffer image = ByteBuffer.allocate(HEADER_BYTES + RECORDS * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer recordBytes = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private final CRC32 crc = new CRC32();
+	private final Set<OnSharedPreferenceChangeListener> listeners = Collections.newSetFromMap(new WeakHashMap<>());
+	// True when the file on disk is missing or untrustworthy, so the next write must replace it whole.
+	private boolean rewriteFile;
+	// Records changed by apply() and not written yet; a writer task is queued while non-zero.
+	private int pendingRecords;
+
+	private TransientStore(Context appContext, File file) {
+		this.appContext = appContext;
+		this.file = file;
+	}
+
+	/**
+	 * The process's store, loaded (and migrated once from the XML) on first use and reloaded when the
+	 * application changes (a fresh process, or a fresh Robolectric test application).
+	 *
+	 * @param context any context of the app
+	 *
+	 * @return the store
+	 */
+	static TransientStore get(Context context) {
+		final Context appContext = context.getApplicationContext();
+		synchronized (TransientStore.class) {
+			if (isNull(instance) || instance.appContext != appContext) {
+				instance = load(appContext);
+			}
+			return instance;
+		}
+	}
+
+	/**
+	 * Reads the file (or migrates the legacy XML when there is none) into a new store.
+	 */
+	static TransientStore load(Context appContext) {
+		final long started = System.nanoTime();
+		final TransientStore store = new TransientStore(appContext, new File(appContext.getFilesDir(), FILE_NAME));
+		store.encodeHeader();
+		if (store.file.exists()) {
+			store.readFile();
+		} else {
+			store.migrateLegacy(TransientState.legacyPrefs(appContext));
+		}
+		LOAD_NANOS.set(System.nanoTime() - started);
+		return store;
+	}
+
+	/**
+	 * Waits for the writes queued by {@code apply()} so far. For tests.
+	 */
+	static void awaitWrites() throws ExecutionException, InterruptedException {
+		WRITER.submit(() -> {
+		}).get();
+	}
+
+	/**
+	 * One line for the debug info: the binary load time and the average in-place write, plus the one-time
+	 * legacy XML read when this process migrated.
+	 */
+	static String costSummary() {
+		final long writes = WRITES.get();
+		final long legacy = LEGACY_READ_NANOS.get();
+		return "load " + LOAD_NANOS.get() / 1000 + " µs, " + writes + " writes avg "
+				+ (writes == 0 ? 0 : WRITE_NANOS.get() / writes / 1000) + " µs"
+				+ (legacy < 0 ? "" : ", legacy XML read " + legacy / 1000 + " µs");
+	}
+
+	// --- reads ----------------------------------------------------------------
+
+	private Object value(String key) {
+		final Field field = SCHEMA.get(key);
+		if (isNull(field)) {
+			return null;
+		}
+		synchronized (lock) {
+			return isPresent(field) ? field.decode(image.getLong(field.offset())) : null;
+		}
+	}
+
+	@Override
+	public Map<String, ?> getAll() {
+		final Map<String, Object> all = new HashMap<>();
+		synchronized (lock) {
+			for (final Field field : Field.values()) {
+				if (isPresent(field)) {
+					all.put(field.key, field.decode(image.getLong(field.offset())));
+				}
+			}
+		}
+		return all;
+	}
+
+	@Override
+	public String getString(String key, String defValue) {
+		return defValue; // the schema holds no strings
+	}
+
+	@Override
+	public Set<String> getStringSet(String key, Set<String> defValues) {
+		return defValues;
+	}
+
+	@Override
+	public int getInt(String key, int defValue) {
+		return value(key) instanceof Integer i ? i : defValue;
+	}
+
+	@Override
+	public long getLong(String key, long defValue) {
+		return value(key) instanceof Long l ? l : defValue;
+	}
+
+	@Override
+	public float getFloat(String key, float defValue) {
+		return value(key) instanceof Float f ? f : defValue;
+	}
+
+	@Override
+	public boolean getBoolean(String key, boolean defValue) {
+		return value(key) instanceof Boolean b ? b : defValue;
+	}
+
+	@Override
+	public boolean contains(String key) {
+		return nonNull(value(key));
+	}
+
+	@Override
+	public Editor edit() {
+		return new StoreEditor();
+	}
+
+	@Override
+	public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+		synchronized (lock) {
+			listeners.add(listener);
+		}
+	}
+
+	@Override
+	public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+		synchronized (lock) {
+			listeners.remove(listener);
+		}
+	}
+
+	// --- writes ---------------------------------------------------------------
+
+	/**
+	 * Applies one editor's changes to the image (its clear() first, then its puts and removes) and writes
+	 * the records whose bytes actually changed: at once, with any still pending, when {@code sync}, else
+	 * on the writer thread.
+	 *
+	 * @return false when a synchronous write failed (memory still holds the new values)
+	 */
+	private boolean applyChanges(boolean clear, Map<String, Object> changes, boolean sync) {
+		final List<String> changedKeys = new ArrayList<>();
+		final List<OnSharedPreferenceChangeListener> notify;
+		final boolean written;
+		synchronized (lock) {
+			int dirty = 0;
+			if (clear) {
+				for (final Field field : Field.values()) {
+					if (isPresent(field)) {
+						dirty |= 1 << field.record;
+						changedKeys.add(field.key);
+						setSlot(field, false, 0);
+					}
+				}
+			}
+			// The editor has checked every key and value against the schema.
+			for (final Map.Entry<String, Object> change : changes.entrySet()) {
+				final Field field = SCHEMA.get(change.getKey());
+				final Object value = change.getValue();
+				final boolean present = value != StoreEditor.REMOVED;
+				if (setSlot(field, present, present ? field.encode(value) : 0)) {
+					dirty |= 1 << field.record;
+					changedKeys.add(field.key);
+				}
+			}
+			if (sync) {
+				final int records = dirty | pendingRecords;
+				pendingRecords = 0;
+				written = records == 0 || persist(records);
+			} else {
+				if (dirty != 0 && pendingRecords == 0) {
+					WRITER.execute(this::writePending);
+				}
+				pendingRecords |= dirty;
+				written = true;
+			}
+			notify = changedKeys.isEmpty() ? List.of() : new ArrayList<>(listeners);
+		}
+		for (final OnSharedPreferenceChangeListener listener : notify) {
+			for (final String key : changedKeys) {
+				listener.onSharedPreferenceChanged(this, key);
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * The writer task: writes the records apply() dirtied since the last write.
+	 */
+	private void writePending() {
+		synchronized (lock) {
+			final int records = pendingRecords;
+			pendingRecords = 0;
+			if (records != 0) {
+				persist(records);
+			}
+		}
+	}
+
+	/**
+	 * Sets one field's slot and presence bit in the image.
+	 *
+	 * @return whether the record's bytes changed
+	 */
+	private boolean setSlot(Field field, boolean present, long bits) {
+		final int maskAt = recordOffset(field.record);
+		final short mask = image.getShort(maskAt);
+		final short newMask = (short) (present ? mask | field.bit() : mask & ~field.bit());
+		final long old = image.getLong(field.offset());
+		if (newMask == mask && old == bits) {
+			return false;
+		}
+		image.putShort(maskAt, newMask);
+		image.putLong(field.offset(), bits);
+		return true;
+	}
+
+	private boolean isPresent(Field field) {
+		return (image.getShort(recordOffset(field.record)) & field.bit()) != 0;
+	}
+
+	/**
+	 * Seals the dirty records with their CRCs and writes them in place, or the whole file when it has to
+	 * be replaced.
+	 */
+	private boolean persist(int dirtyRecords) {
+		final long started = System.nanoTime();
+		for (int record = 0; record < RECORDS; record++) {
+			if ((dirtyRecords & (1 << record)) != 0) {
+				seal(record);
+			}
+		}
+		final boolean written = rewriteFile ? writeAll() : writeRecords(dirtyRecords);
+		WRITE_NANOS.addAndGet(System.nanoTime() - started);
+		WRITES.incrementAndGet();
+		return written;
+	}
+
+	private boolean writeRecords(int dirtyRecords) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			final FileChannel channel = raf.getChannel();
+			for (int record = 0; record < RECORDS; record++) {
+				if ((dirtyRecords & (1 << record)) != 0) {
+					recordBytes.clear();
+					recordBytes.put(image.array(), recordOffset(record), RECORD_BYTES).flip();
+					writeFully(channel, recordBytes, recordOffset(record));
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to persist transient state: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the whole image to a temp file and renames it over the store, so the old file stays intact
+	 * until the new one is complete.
+	 */
+	private boolean writeAll() {
+		for (int record = 0; record < RECORDS; record++) {
+			seal(record);
+		}
+		final File tmp = new File(file.getPath() + ".tmp");
+		try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+			raf.setLength(0);
+			writeFully(raf.getChannel(), ByteBuffer.wrap(image.array(), 0, image.capacity()), 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to write transient state: " + e.getMessage());
+			return false;
+		}
+		if (!tmp.renameTo(file)) {
+			Log.w(TAG, "Unable to replace the transient state file");
+			return false;
+		}
+		rewriteFile = false;
+		return true;
+	}
+
+	private void seal(int record) {
+		final int at = recordOffset(record);
+		crc.reset();
+		crc.update(image.array(), at, CRC_COVERED);
+		image.putInt(at + CRC_COVERED, (int) crc.getValue());
+	}
+
+	private boolean sealed(int record) {
+		final int at = recordOffset(record);
+		crc.reset();
+		crc.update(image.array(), at, CRC_COVERED);
+		return image.getInt(at + CRC_COVERED) == (int) crc.getValue();
+	}
+
+	// --- load -----------------------------------------------------------------
+
+	private void readFile() {
+		final ByteBuffer bytes = ByteBuffer.allocate(image.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			readFully(raf.getChannel(), bytes, 0);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read transient state, starting clean: " + e.getMessage());
+			rewriteFile = true;
+			return;
+		}
+		bytes.flip();
+		if (bytes.remaining() < image.capacity() || bytes.getInt() != MAGIC || bytes.getShort() != VERSION
+				|| bytes.getShort() != RECORDS || bytes.getShort() != RECORD_BYTES) {
+			Log.w(TAG, "Ignoring unrecognised transient state file");
+			rewriteFile = true;
+			return;
+		}
+		bytes.position(HEADER_BYTES);
+		image.position(HEADER_BYTES);
+		image.put(bytes);
+		image.clear();
+		for (int record = 0; record < RECORDS; record++) {
+			if (!sealed(record)) {
+				Log.w(TAG, "Dropping transient record " + record + " with a bad checksum");
+				clearRecord(record);
+				rewriteFile = true;
+			}
+		}
+	}
+
+	private void clearRecord(int record) {
+		final int at = recordOffset(record);
+		for (int i = 0; i < RECORD_BYTES; i++) {
+			image.put(at + i, (byte) 0);
+		}
+	}
+
+	/**
+	 * Copies the schema keys out of the legacy XML file, writes the binary file, and removes them from
+	 * the XML (other keys, such as the legacy rate window, are left for their own migration).
+	 */
+	private void migrateLegacy(SharedPreferences legacy) {
+		rewriteFile = true;
+		final long started = System.nanoTime();
+		final Map<String, ?> values = legacy.getAll();
+		LEGACY_READ_NANOS.set(System.nanoTime() - started);
+		final SharedPreferences.Editor cleanup = legacy.edit();
+		boolean migrated = false;
+		for (final Field field : Field.values()) {
+			final Object value = values.get(field.key);
+			if (nonNull(value) && field.accepts(value)) {
+				setSlot(field, true, field.encode(value));
+				cleanup.remove(field.key);
+				migrated = true;
+			}
+		}
+		if (migrated && writeAll()) {
+			cleanup.apply();
+		}
+	}
+
+	private void encodeHeader() {
+		image.putInt(0, MAGIC)
+		     .putShort(4, VERSION)
+		     .putShort(6, (short) RECORDS)
+		     .putShort(8, (short) RECORD_BYTES);
+	}
+
+	private static int recordOffset(int record) {
+		return HEADER_BYTES + record * RECORD_BYTES;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+		long at = position;
+		while (bytes.hasRemaining()) {
+			final int read = channel.read(bytes, at);
+			if (read < 0) {
+				return; // end of file: the caller checks what arrived
+			}
+			at += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+		long at = position;
+		while (bytes.hasRemaining()) {
+			at += channel.write(bytes, at);
+		}
+	}
+
+	/**
+	 * The fixed schema: each key's record, slot and type. The keys are the trackers' existing preference
+	 * keys, so nothing above this class changes. Appending a field to a record's free slot needs no
+	 * version bump; moving one does.
+	 * <p>
+	 * The fast-drain and slow-charge records are no longer written: those alerts keep their streaks in
+	 * {@link AlertRules}' own file. They stay so an install upgraded from before the rules still has its
+	 * streaks to hand over ({@link FastDrainDetector#LEGACY_STORE} and
+	 * {@link SlowChargeDetector#LEGACY_STORE}, read and cleared once), and because records sit at fixed
+	 * offsets: dropping them would move the capacity record and need a version bump, losing its stats.
+	 */
+	enum Field {
+		FAST_DRAIN_STREAK_START("_fast_drain_streak_start", RECORD_FAST_DRAIN, 0, Long.class),
+		FAST_DRAIN_ALERTED("_fast_drain_alerted", RECORD_FAST_DRAIN, 1, Boolean.class),
+		FAST_DRAIN_LAST_SEEN_ABOVE("_fast_drain_last_seen_above", RECORD_FAST_DRAIN, 2, Long.class),
+		FAST_DRAIN_LAST_REMINDER("_fast_drain_last_reminder", RECORD_FAST_DRAIN, 3, Long.class),
+		SLOW_CHARGE_STREAK_START("_slow_charge_streak_start", RECORD_SLOW_CHARGE, 0, Long.class),
+		SLOW_CHARGE_ALERTED("_slow_charge_alerted", RECORD_SLOW_CHARGE, 1, Boolean.class),
+		SLOW_CHARGE_LAST_SEEN_BELOW("_slow_charge_last_seen_below", RECORD_SLOW_CHARGE, 2, Long.class),
+		CAPACITY_AVERAGE_MAH("_capacity_average_mah", RECORD_CAPACITY, 0, Float.class),
+		CAPACITY_SAMPLE_COUNT("_capacity_sample_count", RECORD_CAPACITY, 1, Integer.class),
+		CAPACITY_MIN_MAH("_capacity_min_mah", RECORD_CAPACITY, 2, Integer.class),
+		CAPACITY_MAX_MAH("_capacity_max_mah", RECORD_CAPACITY, 3, Integer.class),
+		CAPACITY_LAST_SAMPLE_AT("_capacity_last_sample_at", RECORD_CAPACITY, 4, Long.class);
+
+		final String key;
+		final int record;
+		final int slot;
+		final Class<?> type;
+
+		Field(String key, int record, int slot, Class<?> type) {
+			this.key = key;
+			this.record = record;
+			this.slot = slot;
+			this.type = type;
+		}
+
+		int offset() {
+			return recordOffset(record) + 4 + slot * 8;
+		}
+
+		int bit() {
+			return 1 << slot;
+		}
+
+		boolean accepts(Object value) {
+			return type.isInstance(value);
+		}
+
+		long encode(Object value) {
+			if (value instanceof Long l) {
+				return l;
+			} else if (value instanceof Integer i) {
+				return i;
+			} else if (value instanceof Float f) {
+				return Float.floatToIntBits(f);
+			}
+			return (Boolean) value ? 1 : 0;
+		}
+
+		Object decode(long bits) {
+			if (type == Long.class) {
+				return bits;
+			} else if (type == Integer.class) {
+				return (int) bits;
+			} else if (type == Float.class) {
+				return Float.intBitsToFloat((int) bits);
+			}
+			return bits != 0;
+		}
+	}
+
+	/**
+	 * Collects changes like the framework editor, checking each against the schema as it is put;
+	 * apply() writes on the writer thread, commit() on the caller's.
+	 */
+	private final class StoreEditor implements SharedPreferences.Editor {
+
+		private static final Object REMOVED = new Object();
+
+		private final Map<String, Object> changes = new HashMap<>();
+		private boolean clear;
+
+		@Override
+		public SharedPreferences.Editor putString(String key, String value) {
+			return put(key, isNull(value) ? REMOVED : value);
+		}
+
+		@Override
+		public SharedPreferences.Editor putStringSet(String key, Set<String> values) {
+			return put(key, isNull(values) ? REMOVED : values);
+		}
+
+		@Override
+		public SharedPreferences.Editor putInt(String key, int value) {
+			return put(key, value);
+		}
+
+		@Override
+		public SharedPreferences.Editor putLong(String key, long value) {
+			return put(key, value);
+		}
+
+		@Override
+		public SharedPreferences.Editor putFloat(String key, float value) {
+			return put(key, value);
+		}
+
+		@Override
+		public SharedPreferences.Editor putBoolean(String key, boolean value) {
+			return put(key, value);
+		}
+
+		@Override
+		public SharedPreferences.Editor remove(String key) {
+			return put(key, REMOVED);
+		}
+
+		private SharedPreferences.Editor put(String key, Object value) {
+			// Edits run on the broadcast path, which must never throw (#154): a change the schema can't hold
+			// is logged and dropped.
+			final Field field = SCHEMA.get(key);
+			if (isNull(field)) {
+				Log.w(TAG, "Ignoring key outside the transient schema: " + key);
+				return this;
+			}
+			if (value != REMOVED && !field.accepts(value)) {
+				Log.w(TAG, "Ignoring " + value.getClass().getSimpleName() + " for " + key + ", expected "
+						+ field.type.getSimpleName());
+				return this;
+			}
+			changes.put(key, value);
+			return this;
+		}
+
+		@Override
+		public SharedPreferences.Editor clear() {
+			clear = true;
+			return this;
+		}
+
+		@Override
+		public void apply() {
+			applyChanges(clear, changes, false);
+		}
+
+		@Override
+		public boolean commit() {
+			return applyChanges(clear, changes, true);
+		}
+	}
+}
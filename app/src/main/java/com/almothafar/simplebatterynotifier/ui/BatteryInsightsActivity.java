@@ -1,6 +1,7 @@
 package com.almothafar.simplebatterynotifier.ui;
 
 import android.content.ActivityNotFoundException;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ApplicationInfo;
 import android.net.Uri;
@@ -21,10 +22,18 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 import com.almothafar.simplebatterynotifier.R;
 import com.almothafar.simplebatterynotifier.model.BatteryHealthGrade;
+import com.almothafar.simplebatterynotifier.receiver.SignificanceFilter;
 import com.almothafar.simplebatterynotifier.service.BatteryCapacityTracker;
 import com.almothafar.simplebatterynotifier.service.BatteryHealthTracker;
+import com.almothafar.simplebatterynotifier.service.BatteryHistoryLog;
+import com.almothafar.simplebatterynotifier.service.BatteryQuantiles;
+import com.almothafar.simplebatterynotifier.service.BatteryRollups;
 import com.almothafar.simplebatterynotifier.service.SystemService;
 import com.almothafar.simplebatterynotifier.util.GeneralHelper;
+import com.almothafar.simplebatterynotifier.util.TemperatureUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
@@ -38,6 +47,9 @@ public class BatteryInsightsActivity extends BaseActivity {
 	// bounds the input and guarantees Integer.parseInt can't overflow.
 	private static final int MAX_DESIGN_CAPACITY_DIGITS = 5;
 
+	// Reads the usage-trend files off the main thread; one thread, so refreshes run in order.
+	private static final ExecutorService TRENDS_LOADER = Executors.newSingleThreadExecutor();
+
 	private TextView healthPercentageText;
 	private TextView healthStatusText;
 	private TextView healthBasisText;
@@ -51,6 +63,7 @@ public class BatteryInsightsActivity extends BaseActivity {
 	private View measuredCapacityRange;
 	private TextView measuredCapacityMinText;
 	private TextView measuredCapacityMaxText;
+	private TextView usageTrendsText;
 
 	@Override
 	protected void onCreate(final Bundle savedInstanceState) {
@@ -81,6 +94,7 @@ public class BatteryInsightsActivity extends BaseActivity {
 		measuredCapacityRange = findViewById(R.id.measuredCapacityRange);
 		measuredCapacityMinText = findViewById(R.id.measuredCapacityMinText);
 		measuredCapacityMaxText = findViewById(R.id.measuredCapacityMaxText);
+		usageTrendsText = findViewById(R.id.usageTrendsText);
 
 		// Tap the warning icon (shown only when the reading can't be trusted, #94) to explain why
 		healthWarningIcon.setOnClickListener(v -> showUnreliableReadingDialog());
@@ -103,6 +117,92 @@ public class BatteryInsightsActivity extends BaseActivity {
 		super.onResume();
 		// Refresh data when returning to the activity
 		updateHealthData();
+		updateUsageTrends();
+	}
+
+	/**
+	 * Loads the 90-day usage trends from the hourly roll-ups on {@link #TRENDS_LOADER}: one sequential
+	 * read of the closed buckets plus the open one, never a re-scan of raw ticks. Then the last week's
+	 * peaks from the daily quantile sketches, which the averages hide, and the week's lowest level from
+	 * the per-tick history log. The file reads stay off the main thread; the results are shown by
+	 * {@link #showUsageTrends}.
+	 */
+	private void updateUsageTrends() {
+		final Context appContext = getApplicationContext();
+		TRENDS_LOADER.execute(() -> {
+			final BatteryRollups.Summary summary = BatteryRollups.summarize(appContext, BatteryRollups.Resolution.HOURLY,
+					BatteryRollups.SUMMARY_SPAN_MS);
+			final BatteryQuantiles.Peaks peaks = isNull(summary) ? null
+			                                     : BatteryQuantiles.recentPeaks(appContext, BatteryQuantiles.PEAKS_SPAN_MS);
+			final int lowestLevel = isNull(summary) ? -1 : BatteryHistoryLog.lowestLevel(appContext, BatteryQuantiles.PEAKS_SPAN_MS);
+			runOnUiThread(() -> showUsageTrends(summary, peaks, lowestLevel));
+		});
+	}
+
+	/**
+	 * Shows the loaded trends, peaks and lowest level (-1 when none was recorded). Lines whose metric
+	 * was never recorded are left out.
+	 */
+	private void showUsageTrends(BatteryRollups.Summary summary, BatteryQuantiles.Peaks peaks, int lowestLevel) {
+		if (isDestroyed()) {
+			return;
+		}
+		if (isNull(summary)) {
+			usageTrendsText.setText(R.string.usage_trends_empty);
+			return;
+		}
+		// Pass the numbers as Strings so they render in Western digits (0-9) in every locale (#96).
+		final StringBuilder text = new StringBuilder();
+		appendTrends(text, summary);
+		appendPeaks(text, peaks);
+		if (lowestLevel >= 0) {
+			appendLine(text, getString(R.string.usage_history_lowest_level, String.valueOf(lowestLevel)));
+		}
+		usageTrendsText.setText(text.length() > 0 ? text : getString(R.string.usage_trends_empty));
+	}
+
+	private void appendTrends(StringBuilder text, BatteryRollups.Summary summary) {
+		if (summary.hasDrain()) {
+			appendLine(text, getString(R.string.usage_trends_drain,
+					String.valueOf(summary.averageDrainPph()), String.valueOf(summary.peakDrainPph())));
+		}
+		if (summary.hasCharge()) {
+			appendLine(text, getString(R.string.usage_trends_charge, String.valueOf(summary.averageChargePph())));
+		}
+		if (summary.hasCurrent()) {
+			appendLine(text, getString(R.string.usage_trends_current, String.valueOf(summary.averageCurrentMa())));
+		}
+		if (summary.hasTemperature()) {
+			appendLine(text, getString(R.string.usage_trends_temperature,
+					TemperatureUtils.format(this, summary.averageTemperatureTenths()),
+					TemperatureUtils.format(this, summary.maxTemperatureTenths())));
+		}
+		if (summary.chargingMs() + summary.dischargingMs() > 0) {
+			appendLine(text, getString(R.string.usage_trends_charging_share, String.valueOf(summary.chargingPercent())));
+		}
+	}
+
+	/**
+	 * The typical and p95 current, and the p99 temperature: how hard and how hot the bad moments were.
+	 */
+	private void appendPeaks(StringBuilder text, BatteryQuantiles.Peaks peaks) {
+		if (isNull(peaks)) {
+			return;
+		}
+		if (peaks.hasCurrent()) {
+			appendLine(text, getString(R.string.usage_peaks_current,
+					String.valueOf(peaks.medianCurrentMa()), String.valueOf(peaks.p95CurrentMa())));
+		}
+		if (peaks.hasTemperature()) {
+			appendLine(text, getString(R.string.usage_peaks_temperature, TemperatureUtils.format(this, peaks.p99TemperatureTenths())));
+		}
+	}
+
+	private static void appendLine(StringBuilder text, String line) {
+		if (text.length() > 0) {
+			text.append('\n');
+		}
+		text.append(line);
 	}
 
 	/**
@@ -304,7 +404,8 @@ public class BatteryInsightsActivity extends BaseActivity {
 	 * Shows detailed debug information about tracking state.
 	 */
 	private void showDebugInfo() {
-		final String debugInfo = BatteryHealthTracker.getDebugInfo(this);
+		final String debugInfo = BatteryHealthTracker.getDebugInfo(this, SignificanceFilter.skippedTicks(),
+				SignificanceFilter.evaluatedTicks());
 		new MaterialAlertDialogBuilder(this)
 				.setTitle("Tracking Debug Info")
 				.setMessage(debugInfo)
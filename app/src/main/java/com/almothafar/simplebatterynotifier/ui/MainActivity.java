@@ -14,10 +14,10 @@ import android.provider.Settings;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import android.widget.Toast;
-import com.almothafar.simplebatterynotifier.ui.fragment.BatteryDetailsFragment;
 import com.almothafar.simplebatterynotifier.ui.preference.BatteryRangeSliderHelper;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
@@ -32,14 +32,19 @@ import com.almothafar.simplebatterynotifier.R;
 import com.almothafar.simplebatterynotifier.model.BatteryDO;
 import com.almothafar.simplebatterynotifier.model.LevelThresholds;
 import com.almothafar.simplebatterynotifier.service.BatteryHealthTracker;
+import com.almothafar.simplebatterynotifier.service.CurrentProfiler;
 import com.almothafar.simplebatterynotifier.service.BatteryRateTracker;
+import com.almothafar.simplebatterynotifier.service.BatterySnapshotFeed;
 import com.almothafar.simplebatterynotifier.service.PowerConnectionService;
+import com.almothafar.simplebatterynotifier.service.ProfileStats;
 import com.almothafar.simplebatterynotifier.service.SystemService;
 import com.almothafar.simplebatterynotifier.ui.widget.HorseshoeProgressBar;
+import com.almothafar.simplebatterynotifier.ui.widget.SparklineView;
 import com.almothafar.simplebatterynotifier.util.AppPrefs;
 import com.almothafar.simplebatterynotifier.util.BatteryPercentFormatter;
 
 import java.util.List;
+import java.util.Locale;
 
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
@@ -51,11 +56,16 @@ public class MainActivity extends BaseActivity {
 
 	private static final String TAG = "MainActivity";
 	private static final long UPDATER_DELAY = 300;
-	// Gauge refresh cadence. 1 s (not 3) so the live percentage — including the synthesized sub-percent
-	// decimals — tracks fast charge/discharge closely instead of lurching between updates. This loop
-	// runs only while the screen is foreground (started onPostResume, stopped onPause), so it adds no
-	// background or notification cost.
+	// Gauge title cadence. 1 s so the interpolated sub-percent decimals (#217) glide between readings.
+	// The loop only re-renders the last snapshot locally — new readings are pushed by
+	// BatterySnapshotFeed — and runs only while the screen is foreground (started onPostResume, stopped
+	// onPause), so it adds no IPC, background or notification cost.
 	private static final long UPDATER_PERIOD = 1000;
+	// The profiler samples at up to 10 Hz on its own thread; the panel only needs to redraw a few times a second.
+	private static final long PROFILER_REFRESH_PERIOD = 250;
+	// One point per sample the profiler keeps (a minute at 10 Hz).
+	private static final int SPARKLINE_POINTS = 600;
+	private static final String STATE_PROFILER_ON = "profilerOn";
 
 	// Use Handler(Looper) constructor - Handler() deprecated to prevent null Looper
 	private final Handler handler = new Handler(Looper.getMainLooper());
@@ -64,6 +74,7 @@ public class MainActivity extends BaseActivity {
 	private String batteryPercentageText;
 	private String subTitle;
 	private BatteryDO batteryDO;
+	private BatteryRateTracker.BatteryRate rate;
 	// Glides the displayed percentage between the device's infrequent counter updates (#217); a no-op
 	// on devices without genuine sub-percent data or a trustworthy rate. Bound to this activity, since
 	// it only smooths the on-screen gauge.
@@ -76,18 +87,39 @@ public class MainActivity extends BaseActivity {
 	private MaterialButton batteryInsightsButton;
 	private RangeSlider thresholdSlider;
 	private HorseshoeProgressBar batteryGauge;
-	private BatteryDetailsFragment batteryDetailsFragment;
 
-	// Self-reposting refresh loop, bound to the foreground lifecycle (started in onPostResume,
-	// stopped in onPause) so it never stacks across resumes or keeps polling in the background.
+	// Self-reposting gauge-title loop, bound to the foreground lifecycle (started in onPostResume,
+	// stopped in onPause) so it never stacks across resumes or keeps running in the background.
 	private final Runnable updateTask = new Runnable() {
 		@Override
 		public void run() {
-			refreshBatteryUi();
+			refreshGaugeTitle();
 			handler.postDelayed(this, UPDATER_PERIOD);
 		}
 	};
 
+	// Each reading the battery receiver processes, delivered on the main thread while resumed.
+	private final BatterySnapshotFeed.Listener snapshotListener = this::refreshBatteryUi;
+
+	// Opt-in current profiler, toggled from the overflow menu. It samples only while this screen is
+	// resumed with the panel on, and never feeds the rate window.
+	private CurrentProfiler profiler;
+	private boolean profilerOn;
+	private final int[] sparklineValues = new int[SPARKLINE_POINTS];
+	private View profilerSection;
+	private SparklineView profilerSparkline;
+	private TextView profilerLiveText;
+	private TextView profilerIntervalText;
+	private MaterialButton profilerMarkButton;
+
+	private final Runnable profilerRefreshTask = new Runnable() {
+		@Override
+		public void run() {
+			renderProfiler();
+			handler.postDelayed(this, PROFILER_REFRESH_PERIOD);
+		}
+	};
+
 	/**
 	 * Create the options menu
 	 *
@@ -100,6 +132,21 @@ public class MainActivity extends BaseActivity {
 		return true;
 	}
 
+	/**
+	 * Reflect the profiler toggle in the menu
+	 *
+	 * @param menu The options menu
+	 * @return True so the menu is shown
+	 */
+	@Override
+	public boolean onPrepareOptionsMenu(Menu menu) {
+		final MenuItem profilerItem = menu.findItem(R.id.action_profiler);
+		if (nonNull(profilerItem)) {
+			profilerItem.setChecked(profilerOn);
+		}
+		return super.onPrepareOptionsMenu(menu);
+	}
+
 	/**
 	 * Handle options menu item selection
 	 *
@@ -113,6 +160,10 @@ public class MainActivity extends BaseActivity {
 			openSettings();
 			return true;
 		}
+		if (id == R.id.action_profiler) {
+			setProfilerOn(!profilerOn);
+			return true;
+		}
 		if (id == R.id.action_feedback) {
 			showFeedbackChooser();
 			return true;
@@ -178,8 +229,6 @@ public class MainActivity extends BaseActivity {
 		// Initialize UI elements
 		batteryInsightsButton = findViewById(R.id.batteryInsightsButton);
 		batteryGauge = findViewById(R.id.batteryPercentage);
-		// The details fragment is declared in the layout, so it exists for the activity's lifetime.
-		batteryDetailsFragment = (BatteryDetailsFragment) getSupportFragmentManager().findFragmentById(R.id.detailsFragmentLayout);
 
 		// Set up button click listeners
 		batteryInsightsButton.setOnClickListener(v -> openBatteryInsights());
@@ -197,6 +246,8 @@ public class MainActivity extends BaseActivity {
 		// Wire the in-fly critical/warning threshold slider (portrait home screen).
 		setupThresholdSlider();
 
+		setupProfiler(nonNull(savedInstanceState) && savedInstanceState.getBoolean(STATE_PROFILER_ON));
+
 		// Best-effort: auto-fill the battery design capacity from the device on first run, so the
 		// measured health/capacity works without the user having to look up and type it in (#104).
 		// No-op on devices where the kernel node isn't readable — manual entry still applies there.
@@ -216,7 +267,12 @@ public class MainActivity extends BaseActivity {
 
 		initializeFirstValues();
 
+		// Redraw on each new reading rather than polling; the details fragment subscribes on its own.
+		BatterySnapshotFeed.subscribe(snapshotListener);
 		startUpdateTimer();
+		if (profilerOn) {
+			startProfiler();
+		}
 
 		// Resume the motion paused in onPause(); restarts only what the battery state still
 		// warrants (charging/discharging wave, full pulse, or critical breathing).
@@ -230,13 +286,27 @@ public class MainActivity extends BaseActivity {
 	@Override
 	protected void onPause() {
 		super.onPause();
+		BatterySnapshotFeed.unsubscribe(snapshotListener);
 		stopUpdateTimer();
+		// The profiler only ever samples in the foreground; it stops here even while toggled on.
+		stopProfiler();
 
 		// Motion is only auto-stopped when the view is destroyed (onDetachedFromWindow),
 		// not on backgrounding, so pause it here for the same reason we stop the timer.
 		batteryGauge.pauseAnimations();
 	}
 
+	/**
+	 * Keep the profiler toggle across configuration changes; its samples are not kept.
+	 *
+	 * @param outState Bundle to save into
+	 */
+	@Override
+	protected void onSaveInstanceState(@NonNull Bundle outState) {
+		super.onSaveInstanceState(outState);
+		outState.putBoolean(STATE_PROFILER_ON, profilerOn);
+	}
+
 	/**
 	 * Clean up resources when activity is destroyed
 	 */
@@ -247,11 +317,14 @@ public class MainActivity extends BaseActivity {
 	}
 
 	/**
-	 * Fill battery information from system
-	 * Updates batteryDO, batteryPercentage, and subTitle fields
+	 * Fill battery information from a snapshot
+	 * Updates batteryDO, rate, batteryPercentage, and subTitle fields
+	 *
+	 * @param snapshot the latest reading and rate; null when unavailable
 	 */
-	protected void fillBatteryInfo() {
-		batteryDO = SystemService.getBatteryInfo(this);
+	protected void fillBatteryInfo(final BatterySnapshotFeed.Snapshot snapshot) {
+		batteryDO = isNull(snapshot) ? null : snapshot.battery();
+		rate = isNull(snapshot) ? null : snapshot.rate();
 
 		// CRITICAL: Check for null batteryDO
 		if (isNull(batteryDO)) {
@@ -284,14 +357,18 @@ public class MainActivity extends BaseActivity {
 			gaugeSmoother.reset();
 			return BatteryPercentFormatter.formatLive(batteryDO);
 		}
-		final BatteryRateTracker.BatteryRate rate = BatteryRateTracker.getRate(this, batteryDO);
+		if (isNull(rate)) {
+			// No rate published for this reading yet: show the measured value unsmoothed.
+			gaugeSmoother.reset();
+			return BatteryPercentFormatter.formatPrecise(batteryDO.getPrecisePercentage());
+		}
 		final float shown = gaugeSmoother.displayValue(
 				batteryDO.getPrecisePercentage(), rate.hasRate(), rate.percentPerHour(), rate.charging(), System.currentTimeMillis());
 		return BatteryPercentFormatter.formatPrecise(shown);
 	}
 
 	/**
-	 * Start the periodic battery refresh loop.
+	 * Start the periodic gauge-title loop.
 	 * <p>
 	 * Removes any pending run first so repeated resume cycles can't stack multiple loops.
 	 */
@@ -301,18 +378,19 @@ public class MainActivity extends BaseActivity {
 	}
 
 	/**
-	 * Stop the periodic battery refresh loop and drop any pending run.
+	 * Stop the periodic gauge-title loop and drop any pending run.
 	 */
 	private void stopUpdateTimer() {
 		handler.removeCallbacks(updateTask);
 	}
 
 	/**
-	 * Refresh the battery UI (circular gauge + details fragment) with the latest reading.
-	 * Runs on the main thread via {@link #handler}.
+	 * Refresh the circular gauge with a newly pushed reading. Runs on the main thread.
+	 *
+	 * @param snapshot the reading and rate from {@link BatterySnapshotFeed}
 	 */
-	private void refreshBatteryUi() {
-		fillBatteryInfo();
+	private void refreshBatteryUi(final BatterySnapshotFeed.Snapshot snapshot) {
+		fillBatteryInfo(snapshot);
 		batteryGauge.setLevel(batteryPercentage);
 		batteryGauge.setTitle(batteryPercentageText);
 		batteryGauge.setStatusText(subTitle);
@@ -321,9 +399,16 @@ public class MainActivity extends BaseActivity {
 		if (nonNull(batteryDO)) {
 			batteryGauge.setFlow(flowOf(batteryDO.getStatus()));
 		}
+	}
 
-		if (nonNull(batteryDetailsFragment) && nonNull(batteryDO)) {
-			batteryDetailsFragment.updateBatteryDetails(batteryDO);
+	/**
+	 * Re-render only the gauge title from the last reading, so the interpolated decimals keep moving
+	 * between pushed readings. No system reads. Runs on the main thread via {@link #handler}.
+	 */
+	private void refreshGaugeTitle() {
+		if (nonNull(batteryDO)) {
+			batteryPercentageText = smoothedPercentageText(batteryDO);
+			batteryGauge.setTitle(batteryPercentageText);
 		}
 	}
 
@@ -342,11 +427,24 @@ public class MainActivity extends BaseActivity {
 		}
 	}
 
+	/**
+	 * The snapshot to open the screen with: the last one the battery receiver published, or — before the
+	 * first broadcast of this process — a one-off read of the sticky broadcast and the persisted rate.
+	 */
+	private BatterySnapshotFeed.Snapshot currentSnapshot() {
+		final BatterySnapshotFeed.Snapshot latest = BatterySnapshotFeed.latest();
+		if (nonNull(latest)) {
+			return latest;
+		}
+		final BatteryDO reading = SystemService.getBatteryInfo(this);
+		return isNull(reading) ? null : new BatterySnapshotFeed.Snapshot(reading, BatteryRateTracker.getRate(this, reading));
+	}
+
 	/**
 	 * Initialize first values and animate the progress bar
 	 */
 	private void initializeFirstValues() {
-		fillBatteryInfo();
+		fillBatteryInfo(currentSnapshot());
 
 		final LevelThresholds levels = AppPrefs.batteryLevels(this);
 		batteryGauge.setThresholds(levels.critical(), levels.warning());
@@ -362,6 +460,79 @@ public class MainActivity extends BaseActivity {
 		});
 	}
 
+	/**
+	 * Wire the opt-in current profiler panel. Sampling starts in {@link #onPostResume()} when the
+	 * panel is on, so restoring the toggle here only restores the panel.
+	 *
+	 * @param on whether the profiler was on before a configuration change
+	 */
+	private void setupProfiler(boolean on) {
+		profiler = new CurrentProfiler(this);
+		profilerSection = findViewById(R.id.profilerSection);
+		profilerSparkline = findViewById(R.id.profilerSparkline);
+		profilerLiveText = findViewById(R.id.profilerLiveText);
+		profilerIntervalText = findViewById(R.id.profilerIntervalText);
+		profilerMarkButton = findViewById(R.id.profilerMarkButton);
+		profilerMarkButton.setOnClickListener(v -> {
+			if (profiler.isMarking()) {
+				profiler.endInterval();
+			} else {
+				profiler.startInterval();
+			}
+			renderProfiler();
+		});
+		profilerOn = on;
+		profilerSection.setVisibility(on ? View.VISIBLE : View.GONE);
+	}
+
+	/**
+	 * Turn the profiler panel and its sampling on or off from the menu.
+	 *
+	 * @param on the new state
+	 */
+	private void setProfilerOn(boolean on) {
+		profilerOn = on;
+		profilerSection.setVisibility(on ? View.VISIBLE : View.GONE);
+		if (on) {
+			startProfiler();
+		} else {
+			stopProfiler();
+		}
+		invalidateOptionsMenu();
+	}
+
+	private void startProfiler() {
+		profiler.start();
+		handler.removeCallbacks(profilerRefreshTask);
+		handler.post(profilerRefreshTask);
+	}
+
+	private void stopProfiler() {
+		handler.removeCallbacks(profilerRefreshTask);
+		profiler.stop();
+	}
+
+	/**
+	 * Redraw the profiler panel from one readout: the sparkline, the newest current and power, and the
+	 * marked interval's min/avg/p95 and energy. Numbers are Western digits in every locale (#96).
+	 */
+	private void renderProfiler() {
+		final CurrentProfiler.Readout readout = profiler.read(sparklineValues);
+		profilerSparkline.setValues(sparklineValues, readout.sparklineCount());
+		profilerLiveText.setText(readout.latestMilliAmps() == Integer.MIN_VALUE
+		                         ? getString(R.string.profiler_waiting)
+		                         : getString(R.string.profiler_live, String.valueOf(readout.latestMilliAmps()),
+				                         String.valueOf(readout.latestMilliWatts()), String.valueOf(readout.spanMillis() / 1000)));
+		final ProfileStats.Summary interval = readout.interval();
+		profilerIntervalText.setText(isNull(interval)
+		                             ? getString(R.string.profiler_interval_hint)
+		                             : getString(R.string.profiler_interval, String.valueOf(interval.durationMillis() / 1000),
+				                             String.valueOf(interval.minMilliAmps()), String.valueOf(interval.avgMilliAmps()),
+				                             String.valueOf(interval.p95MilliAmps()),
+				                             String.format(Locale.ROOT, "%.2f", interval.energyMilliWattHours())));
+		profilerMarkButton.setText(readout.marking() ? R.string.profiler_mark_end : R.string.profiler_mark_start);
+	}
+
 	/**
 	 * Wire the in-fly critical/warning threshold slider on the home screen.
 	 * <p>
@@ -27,6 +27,7 @@ import com.almothafar.simplebatterynotifier.R;
 import com.almothafar.simplebatterynotifier.model.BatteryDO;
 import com.almothafar.simplebatterynotifier.service.BatteryHealthTracker;
 import com.almothafar.simplebatterynotifier.service.BatteryRateTracker;
+import com.almothafar.simplebatterynotifier.service.BatterySnapshotFeed;
 import com.almothafar.simplebatterynotifier.service.SystemService;
 import com.almothafar.simplebatterynotifier.util.AppPrefs;
 import com.almothafar.simplebatterynotifier.util.GeneralHelper;
@@ -64,12 +65,14 @@ public class BatteryDetailsFragment extends Fragment {
 	private static final int VALUE_CELL_INDEX = 2;
 
 	private BatteryDO batteryDO;
+	// The rate the battery receiver computed for batteryDO; the table no longer records into the window.
+	private BatteryRateTracker.BatteryRate rate;
 	private Map<String, CharSequence> valuesMap;
 	private View viewRef;
 
 	// The rows currently in the table, keyed by label (#161): each refresh updates the value cells in
 	// place and only adds/removes rows whose keys changed, instead of rebuilding the whole table —
-	// which lost accessibility focus every 3 s and churned allocations. Rebuilt with the view.
+	// which lost accessibility focus on every refresh and churned allocations. Rebuilt with the view.
 	private final Map<String, TableRow> rowViews = new LinkedHashMap<>();
 	private TableLayout tableLayout;
 	private int cellPadding;
@@ -93,6 +96,9 @@ public class BatteryDetailsFragment extends Fragment {
 	private final Map<String, Integer> valueColorByLabel = new LinkedHashMap<>();
 	private final Map<String, int[]> pendingInfoByLabel = new LinkedHashMap<>();
 
+	// New readings from the battery receiver, delivered on the main thread while resumed.
+	private final BatterySnapshotFeed.Listener snapshotListener = this::updateBatteryDetails;
+
 	/**
 	 * Default constructor required for fragment instantiation
 	 */
@@ -115,7 +121,12 @@ public class BatteryDetailsFragment extends Fragment {
 	                         final Bundle savedInstanceState) {
 		final View view = inflater.inflate(R.layout.fragment_battery_details, container, false);
 		this.viewRef = view;
-		batteryDO = SystemService.getBatteryInfo(view.getContext());
+		applySnapshot(BatterySnapshotFeed.latest());
+		if (isNull(batteryDO)) {
+			// No broadcast processed yet in this process: one-off read until the first snapshot arrives.
+			batteryDO = SystemService.getBatteryInfo(view.getContext());
+			rate = BatteryRateTracker.getRate(view.getContext(), batteryDO);
+		}
 
 		setupTable(view);
 
@@ -131,6 +142,26 @@ public class BatteryDetailsFragment extends Fragment {
 		return view;
 	}
 
+	/**
+	 * Start receiving live readings while the table is visible.
+	 */
+	@Override
+	public void onResume() {
+		super.onResume();
+		BatterySnapshotFeed.subscribe(snapshotListener);
+		// Catch up on anything published while paused.
+		updateBatteryDetails(BatterySnapshotFeed.latest());
+	}
+
+	/**
+	 * Stop receiving live readings once the table is no longer in the foreground.
+	 */
+	@Override
+	public void onPause() {
+		super.onPause();
+		BatterySnapshotFeed.unsubscribe(snapshotListener);
+	}
+
 	/**
 	 * One-time table setup for a freshly inflated view: column behaviour, cached paddings, and a clean
 	 * row registry (the old view's rows are gone with it).
@@ -157,7 +188,7 @@ public class BatteryDetailsFragment extends Fragment {
 	/**
 	 * Refresh the battery details table with the current {@code batteryDO}.
 	 * <p>
-	 * Steady-state refreshes (every 3 s while the screen is open) update the existing rows' value
+	 * Steady-state refreshes (each pushed reading while the screen is open) update the existing rows' value
 	 * cells in place; rows are only created or removed when their key genuinely appears or vanishes
 	 * (rate warm-up, time-to-full gating, capacity turning unknown). This keeps accessibility focus,
 	 * scroll position and the view tree stable across refreshes (#161).
@@ -247,17 +278,27 @@ public class BatteryDetailsFragment extends Fragment {
 	}
 
 	/**
-	 * Update the battery details with new data
+	 * Update the battery details with a newly published reading. Main thread only.
 	 *
-	 * @param batteryDO The new battery data object
+	 * @param snapshot The reading and its rate, or null when none has been published yet
 	 */
-	public void updateBatteryDetails(final BatteryDO batteryDO) {
-		this.batteryDO = batteryDO;
-		if (nonNull(viewRef) && nonNull(batteryDO)) {
+	public void updateBatteryDetails(final BatterySnapshotFeed.Snapshot snapshot) {
+		if (isNull(snapshot)) {
+			return;
+		}
+		applySnapshot(snapshot);
+		if (nonNull(viewRef)) {
 			refreshDetailsTable(viewRef);
 		}
 	}
 
+	private void applySnapshot(BatterySnapshotFeed.Snapshot snapshot) {
+		if (nonNull(snapshot)) {
+			batteryDO = snapshot.battery();
+			rate = snapshot.rate();
+		}
+	}
+
 	/**
 	 * #75: on first display, gently bob the details list down and back up when rows sit below the
 	 * fold — a short motion cue that (with the always-on fading edge) shows the table scrolls. Bobs
@@ -475,9 +516,10 @@ public class BatteryDetailsFragment extends Fragment {
 
 		// #108/#188: live charge/drain rate, time estimate and signed current at the very top. These rows
 		// stay put across refreshes; a not-yet-ready value shows a placeholder + info icon rather than
-		// hiding. Recording here also feeds the smoothing window from the foreground refresh (the other
-		// feed is the battery broadcast) without any polling timer of our own.
+		// hiding. The rate is the one the battery receiver computed for this reading, so the table never
+		// feeds the smoothing window itself.
 		addLiveRows(view);
+		addHorizonRows(view);
 
 		valuesMap.put(getResources().getString(R.string.technology), batteryDO.getTechnology());
 
@@ -543,14 +585,13 @@ public class BatteryDetailsFragment extends Fragment {
 	 * @param view The fragment view
 	 */
 	private void addLiveRows(View view) {
-		final BatteryRateTracker.BatteryRate rate = BatteryRateTracker.record(view.getContext(), batteryDO);
 		final boolean charging = rate.charging();
 
-		// Rate row: real %/h (coloured amber/red near the limit while discharging), else the smoothing
-		// window is still filling — "calculating".
+		// Rate row: real %/h with its interval once the fused estimate has one (coloured amber/red near the
+		// limit while discharging), else the smoothing window is still filling — "calculating".
 		final String rateLabel = getString(charging ? R.string.charge_rate : R.string.drain_rate);
 		if (rate.hasRate()) {
-			valuesMap.put(rateLabel, BatteryRateTracker.formatRateValue(view.getContext(), rate.percentPerHour()));
+			valuesMap.put(rateLabel, BatteryRateTracker.formatRateWithMargin(view.getContext(), rate));
 			final int color = rateColor(view.getContext(), rate);
 			if (color != 0) {
 				valueColorByLabel.put(rateLabel, color);
@@ -574,6 +615,28 @@ public class BatteryDetailsFragment extends Fragment {
 		}
 	}
 
+	/**
+	 * Adds the rate over the other horizons below the live rows — the last minute, the last 10 minutes,
+	 * the last hour and the session since the last plug/unplug — for comparing "right now" with "lately".
+	 * Unlike the live rows these are extras, so each appears only once its horizon has a rate. Read from
+	 * the tracker's horizon ring in one pass.
+	 *
+	 * @param view The fragment view
+	 */
+	private void addHorizonRows(View view) {
+		final BatteryRateTracker.RateHorizons horizons = BatteryRateTracker.getHorizons(view.getContext(), batteryDO);
+		putHorizonRow(view, R.string.rate_last_minute, horizons.minutePph());
+		putHorizonRow(view, R.string.rate_last_ten_minutes, horizons.tenMinutePph());
+		putHorizonRow(view, R.string.rate_last_hour, horizons.hourPph());
+		putHorizonRow(view, horizons.charging() ? R.string.rate_since_plugged : R.string.rate_since_unplugged, horizons.sessionPph());
+	}
+
+	private void putHorizonRow(View view, int labelRes, int percentPerHour) {
+		if (percentPerHour > 0) {
+			valuesMap.put(getString(labelRes), BatteryRateTracker.formatRateValue(view.getContext(), percentPerHour));
+		}
+	}
+
 	/**
 	 * Adds the estimated-time row directly below the rate it is derived from: "Time to full" while charging,
 	 * "Time remaining" while discharging (#124/#188). A rough capacity-free linear projection (see
@@ -10,6 +10,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
+import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -26,12 +27,16 @@ import androidx.preference.PreferenceScreen;
 import androidx.preference.SeekBarPreference;
 
 import com.almothafar.simplebatterynotifier.R;
+import com.almothafar.simplebatterynotifier.model.LevelLadder;
 import com.almothafar.simplebatterynotifier.service.NotificationService;
+import com.almothafar.simplebatterynotifier.service.QuietSchedule;
 import com.almothafar.simplebatterynotifier.ui.preference.RingtonePreference;
+import com.almothafar.simplebatterynotifier.util.AppPrefs;
 import com.almothafar.simplebatterynotifier.util.TemperatureUtils;
 import com.almothafar.simplebatterynotifier.ui.preference.TimePickerPreference;
 import com.almothafar.simplebatterynotifier.ui.preference.TimePickerPreferenceDialogFragmentCompat;
 
+import java.util.List;
 import java.util.Set;
 
 import static java.util.Objects.isNull;
@@ -122,8 +127,10 @@ public class GenericPreferenceFragment extends CardPreferenceFragment
 				} else if (category.equals(getString(R.string.pref_category_alerts))) {
 					setPreferencesFromResource(R.xml.pref_alerts, rootKey);
 					configureTemperatureThreshold();
+					configureLevelLadder();
 				} else if (category.equals(getString(R.string.pref_category_behaviour))) {
 					setPreferencesFromResource(R.xml.pref_behaviour, rootKey);
+					configureQuietHoursWindows();
 				}
 			}
 		}
@@ -203,6 +210,79 @@ public class GenericPreferenceFragment extends CardPreferenceFragment
 		pref.setSummary(pref.getValue() + temperatureUnitSuffix(fahrenheit));
 	}
 
+	/**
+	 * Wire up the discharge and charge alert-ladder editors.
+	 * <p>
+	 * Both are non-persistent: the ladder is validated and normalized by {@link LevelLadder#parse} and
+	 * stored through {@link AppPrefs#setLevelLadder}, which also moves the slider's warning/critical
+	 * pair. A ladder that doesn't parse is rejected with a toast and the stored one is kept.
+	 */
+	private void configureLevelLadder() {
+		final EditTextPreference discharge = findPreference(getString(R.string._pref_key_discharge_ladder));
+		final EditTextPreference charge = findPreference(getString(R.string._pref_key_charge_ladder));
+		if (isNull(discharge) || isNull(charge)) {
+			return;
+		}
+		refreshLevelLadder();
+
+		final Preference.OnPreferenceChangeListener listener = (preference, newValue) -> {
+			final LevelLadder stored = AppPrefs.levelLadder(requireContext());
+			final boolean isDischarge = preference == discharge;
+			final LevelLadder edited = LevelLadder.parse(
+					isDischarge ? (String) newValue : stored.dischargeText(),
+					isDischarge ? stored.chargeText() : (String) newValue);
+			if (isNull(edited)) {
+				Toast.makeText(requireContext(), R.string.level_ladder_invalid, Toast.LENGTH_SHORT).show();
+				return false;
+			}
+			AppPrefs.setLevelLadder(requireContext(), edited);
+			// The editors show the normalized text, refreshed from the change listener.
+			return false;
+		};
+		discharge.setOnPreferenceChangeListener(listener);
+		charge.setOnPreferenceChangeListener(listener);
+	}
+
+	/**
+	 * Re-seed the ladder editors from the stored ladder (the slider may have moved its primary steps).
+	 */
+	private void refreshLevelLadder() {
+		final EditTextPreference discharge = findPreference(getString(R.string._pref_key_discharge_ladder));
+		final EditTextPreference charge = findPreference(getString(R.string._pref_key_charge_ladder));
+		if (isNull(discharge) || isNull(charge)) {
+			return;
+		}
+		final LevelLadder ladder = AppPrefs.levelLadder(requireContext());
+		discharge.setText(ladder.dischargeText());
+		charge.setText(ladder.chargeText());
+	}
+
+	/**
+	 * Validate the extra-weekday and weekend quiet-hours windows before they are stored.
+	 * <p>
+	 * A list that doesn't parse ({@link QuietSchedule#parseWindows}) is rejected with a toast and the
+	 * stored one is kept; a valid one is stored in its normalized form, e.g. "6:30 - 12:00" as
+	 * "06:30-12:00".
+	 */
+	private void configureQuietHoursWindows() {
+		final Preference.OnPreferenceChangeListener listener = (preference, newValue) -> {
+			final List<QuietSchedule.Window> windows = QuietSchedule.parseWindows((String) newValue);
+			if (isNull(windows)) {
+				Toast.makeText(requireContext(), R.string.notifications_time_range_invalid, Toast.LENGTH_SHORT).show();
+				return false;
+			}
+			((EditTextPreference) preference).setText(QuietSchedule.windowsText(windows));
+			return false; // Stored normalized by setText
+		};
+		for (final int keyRes : new int[]{R.string._pref_key_notifications_time_range_extra,
+				R.string._pref_key_notifications_time_range_weekend}) {
+			final EditTextPreference pref = findPreference(getString(keyRes));
+			if (nonNull(pref)) {
+				pref.setOnPreferenceChangeListener(listener);
+			}
+		}
+	}
+
 	/**
 	 * @param fahrenheit whether the user's display unit is Fahrenheit
 	 * @return " °F" or " °C", localized
@@ -280,6 +360,17 @@ public class GenericPreferenceFragment extends CardPreferenceFragment
 	 */
 	@Override
 	public void onSharedPreferenceChanged(final SharedPreferences sharedPreferences, final String key) {
+		// The ladder editors aren't persisted, so re-seed them (the slider moves the ladder's primary
+		// steps) and then update their summaries.
+		if (nonNull(key) && (key.equals(getString(R.string._pref_key_discharge_ladder))
+				|| key.equals(getString(R.string._pref_key_charge_ladder))
+				|| key.equals(getString(R.string._pref_key_critical_battery_level))
+				|| key.equals(getString(R.string._pref_key_warn_battery_level)))) {
+			refreshLevelLadder();
+			updatePreferencesSummary(sharedPreferences, findPreference(getString(R.string._pref_key_discharge_ladder)));
+			updatePreferencesSummary(sharedPreferences, findPreference(getString(R.string._pref_key_charge_ladder)));
+		}
+
 		// Update summary when preference changes
 		final Preference pref = findPreference(key);
 		updatePreferencesSummary(sharedPreferences, pref);
@@ -28,9 +28,10 @@ import static java.util.Objects.nonNull;
  * cross-field validation is no longer needed).
  * <p>
  * The preference is non-persistent: it writes each thumb to its own existing SharedPreferences key
- * ({@code criticalKey} / {@code warningKey}) so {@code BatteryLevelReceiver} and the home gauge keep
- * reading the same keys unchanged. Bounds, step, separation, and label formatting come from
- * {@link BatteryRangeSliderHelper}.
+ * ({@code criticalKey} / {@code warningKey}) so {@code LevelAlertStage} and the home gauge keep
+ * reading the same keys unchanged. On the alert keys the write goes through
+ * {@link AppPrefs#setBatteryLevels}, which also moves the primary steps of an edited alert ladder. Bounds,
+ * step, separation, and label formatting come from {@link BatteryRangeSliderHelper}.
  */
 public class BatteryRangeSliderPreference extends Preference {
 
@@ -142,6 +143,12 @@ public class BatteryRangeSliderPreference extends Preference {
 	private void persist(final LevelThresholds levels) {
 		final SharedPreferences prefs = getSharedPreferences();
 		if (nonNull(prefs)) {
+			if (criticalKey.equals(getContext().getString(R.string._pref_key_critical_battery_level))
+					&& warningKey.equals(getContext().getString(R.string._pref_key_warn_battery_level))) {
+				// The alert pair: written through AppPrefs so an edited ladder's primary steps move too.
+				AppPrefs.setBatteryLevels(getContext(), levels);
+				return;
+			}
 			prefs.edit()
 					.putInt(criticalKey, levels.critical())
 					.putInt(warningKey, levels.warning())
@@ -0,0 +1,87 @@
+package com.almothafar.simplebatterynotifier.ui.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import com.almothafar.simplebatterynotifier.R;
+
+/**
+ * A minimal sparkline: one polyline over the values it was last given, scaled between their own minimum
+ * and maximum, newest at the end. Built for the current profiler, which redraws it a few times a second.
+ * <p>
+ * The host owns the value array and passes it with a count ({@link #setValues(int[], int)}); the view
+ * keeps a reference rather than a copy, and its one {@link Path} is rewound, not reallocated, per draw.
+ */
+public class SparklineView extends View {
+
+	private static final float STROKE_WIDTH_DP = 1.5f;
+
+	private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Path path = new Path();
+
+	private int[] values = new int[0];
+	private int count;
+
+	public SparklineView(Context context) {
+		this(context, null);
+	}
+
+	public SparklineView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		linePaint.setStyle(Paint.Style.STROKE);
+		linePaint.setStrokeJoin(Paint.Join.ROUND);
+		linePaint.setStrokeWidth(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, STROKE_WIDTH_DP, getResources().getDisplayMetrics()));
+		linePaint.setColor(ContextCompat.getColor(context, R.color.battery_details_value_color));
+	}
+
+	/**
+	 * Show the first {@code count} entries of {@code values}, oldest first.
+	 *
+	 * @param values the series; read on the next draw, so the caller must not mutate it until then
+	 * @param count  how many entries are valid
+	 */
+	public void setValues(int[] values, int count) {
+		this.values = values;
+		this.count = Math.min(count, values.length);
+		invalidate();
+	}
+
+	@Override
+	protected void onDraw(@NonNull Canvas canvas) {
+		super.onDraw(canvas);
+		if (count < 2) {
+			return;
+		}
+		int min = values[0];
+		int max = values[0];
+		for (int i = 1; i < count; i++) {
+			min = Math.min(min, values[i]);
+			max = Math.max(max, values[i]);
+		}
+		final float inset = linePaint.getStrokeWidth();
+		final float width = getWidth() - getPaddingLeft() - getPaddingRight();
+		final float height = getHeight() - getPaddingTop() - getPaddingBottom() - 2 * inset;
+		final float left = getPaddingLeft();
+		final float bottom = getHeight() - getPaddingBottom() - inset;
+		// A flat series draws along the middle rather than dividing by zero.
+		final float range = max > min ? max - min : 0f;
+
+		path.rewind();
+		for (int i = 0; i < count; i++) {
+			final float x = left + width * i / (count - 1);
+			final float y = range > 0 ? bottom - height * (values[i] - min) / range : bottom - height / 2f;
+			if (i == 0) {
+				path.moveTo(x, y);
+			} else {
+				path.lineTo(x, y);
+			}
+		}
+		canvas.drawPath(path, linePaint);
+	}
+}
@@ -6,8 +6,11 @@ import android.content.SharedPreferences;
 import androidx.preference.PreferenceManager;
 
 import com.almothafar.simplebatterynotifier.R;
+import com.almothafar.simplebatterynotifier.model.LevelLadder;
 import com.almothafar.simplebatterynotifier.model.LevelThresholds;
 
+import static java.util.Objects.nonNull;
+
 /**
  * Typed facade over the app's default {@link SharedPreferences} (#162): the single owner of each
  * migrated setting's <b>key + default + clamp</b>. Read sites call the typed accessor instead of
@@ -17,17 +20,23 @@ import com.almothafar.simplebatterynotifier.model.LevelThresholds;
  * <b>Migrated so far:</b>
  * <ul>
  *   <li>the critical/warning battery levels — the {@code 20}/{@code 40} literals that previously lived
- *       in {@code NotificationService}, {@code BatteryLevelReceiver}, {@code MainActivity} and the range
+ *       in {@code NotificationService}, {@code LevelAlertStage}, {@code MainActivity} and the range
  *       slider's helper now derive from {@link #DEFAULT_CRITICAL_LEVEL} / {@link #DEFAULT_WARNING_LEVEL},
  *       and the pair travels as a {@link LevelThresholds};</li>
+ *   <li>the alert ladder ({@link #levelLadder}) — any number of discharge and charge steps, of which the
+ *       pair above is the primary warning and critical step. An install that never edited the ladder reads
+ *       its pair as the two-step ladder, and every write keeps the pair and the ladder in step;</li>
  *   <li>the shared "high drain" limit — its default, accepted range and clamp ({@link #drainLimitPph}
  *       + {@link #clampDrainLimit}) moved here from {@code BatteryRateTracker}, so "a corrupt stored
  *       value can't defeat the feature" lives in one place;</li>
+ *   <li>the significance gate's margins ({@link #jitterTemperatureC}, {@link #jitterCurrentMilliAmps},
+ *       {@link #fullEvaluationSeconds}) — how far a reading must move before a battery broadcast runs the
+ *       full stage chain, each clamped to its slider's range;</li>
  *   <li>the "Vibrate" flag ({@link #vibrateEnabled}) — previously re-read with an inline {@code true}
  *       default in three spots (channel creation, the level-alert config and the manual override path),
  *       which meant the alert channels and the silent-mode buzz could drift apart.</li>
  * </ul>
- * The one restatement that remains is the XML-declared slider default in {@code pref_alerts.xml}, which
+ * The one restatement that remains is the XML-declared slider defaults in {@code pref_alerts.xml}, which
  * the framework instantiates from XML and so cannot share a constant with — a comment ties the two, and
  * {@code AppPrefsTest} asserts they stay equal. Remaining settings migrate incrementally.
  */
@@ -45,6 +54,27 @@ public final class AppPrefs {
 	/** Highest accepted drain limit in %/h; mirrors the slider's {@code android:max} in pref_alerts.xml. */
 	public static final int MAX_DRAIN_LIMIT_PPH = 60;
 
+	/** Default temperature change, in whole °C, that makes a battery broadcast significant. */
+	public static final int DEFAULT_JITTER_TEMPERATURE_C = 1;
+	/** Lowest accepted temperature change in °C; mirrors the slider's {@code android:min} in pref_alerts.xml. */
+	public static final int MIN_JITTER_TEMPERATURE_C = 1;
+	/** Highest accepted temperature change in °C; mirrors the slider's {@code android:max} in pref_alerts.xml. */
+	public static final int MAX_JITTER_TEMPERATURE_C = 5;
+
+	/** Default current change, in mA, that makes a battery broadcast significant. */
+	public static final int DEFAULT_JITTER_CURRENT_MA = 50;
+	/** Lowest accepted current change in mA; mirrors the slider's {@code android:min} in pref_alerts.xml. */
+	public static final int MIN_JITTER_CURRENT_MA = 10;
+	/** Highest accepted current change in mA; mirrors the slider's {@code android:max} in pref_alerts.xml. */
+	public static final int MAX_JITTER_CURRENT_MA = 500;
+
+	/** Default longest run, in seconds, of broadcasts without a full evaluation. */
+	public static final int DEFAULT_FULL_EVALUATION_SECONDS = 60;
+	/** Lowest accepted full-evaluation interval in seconds; mirrors the slider's {@code android:min}. */
+	public static final int MIN_FULL_EVALUATION_SECONDS = 15;
+	/** Highest accepted full-evaluation interval in seconds; mirrors the slider's {@code android:max}. */
+	public static final int MAX_FULL_EVALUATION_SECONDS = 300;
+
 	/** Default for the "Vibrate" preference — mirrors the switch's {@code android:defaultValue} in pref_behaviour.xml. */
 	public static final boolean DEFAULT_VIBRATE = true;
 
@@ -96,7 +126,47 @@ public final class AppPrefs {
 	 * @param levels  the thresholds to store
 	 */
 	public static void setBatteryLevels(Context context, LevelThresholds levels) {
+		final SharedPreferences.Editor editor = prefs(context).edit()
+				.putInt(context.getString(R.string._pref_key_critical_battery_level), levels.critical())
+				.putInt(context.getString(R.string._pref_key_warn_battery_level), levels.warning());
+		// An edited ladder moves its primary steps with the sliders; an unedited one is derived from the pair.
+		final String ladderKey = context.getString(R.string._pref_key_discharge_ladder);
+		if (prefs(context).contains(ladderKey)) {
+			editor.putString(ladderKey, levelLadder(context).withThresholds(levels).dischargeText());
+		}
+		editor.apply();
+	}
+
+	/**
+	 * The level-alert ladder: the edited discharge and charge steps, or — until the ladder is first edited,
+	 * or should the stored text not parse — the two-slider pair as a warning step, a critical step and the
+	 * {@link LevelLadder#DEFAULT_URGENT_LEVEL urgent floor}.
+	 *
+	 * @param context Application context
+	 *
+	 * @return the configured ladder, compiled
+	 */
+	public static LevelLadder levelLadder(Context context) {
+		final SharedPreferences prefs = prefs(context);
+		final LevelLadder migrated = LevelLadder.fromThresholds(batteryLevels(context));
+		final String discharge = prefs.getString(context.getString(R.string._pref_key_discharge_ladder), null);
+		final String charge = prefs.getString(context.getString(R.string._pref_key_charge_ladder), null);
+		final LevelLadder ladder = LevelLadder.parse(nonNull(discharge) ? discharge : migrated.dischargeText(), charge);
+		return nonNull(ladder) ? ladder : migrated;
+	}
+
+	/**
+	 * Persist an edited ladder, in its normalized text form, together with its primary pair so the sliders,
+	 * the gauge and the ladder agree.
+	 *
+	 * @param context Application context
+	 * @param ladder  the ladder to store
+	 */
+	public static void setLevelLadder(Context context, LevelLadder ladder) {
+		final LevelThresholds levels = ladder.thresholds(batteryLevels(context));
 		prefs(context).edit()
+		              .putString(context.getString(R.string._pref_key_discharge_ladder), ladder.dischargeText())
+		              .putString(context.getString(R.string._pref_key_charge_ladder), ladder.chargeText())
 		              .putInt(context.getString(R.string._pref_key_critical_battery_level), levels.critical())
 		              .putInt(context.getString(R.string._pref_key_warn_battery_level), levels.warning())
 		              .apply();
@@ -130,6 +200,58 @@ public final class AppPrefs {
 		return Math.max(MIN_DRAIN_LIMIT_PPH, Math.min(MAX_DRAIN_LIMIT_PPH, stored));
 	}
 
+	/**
+	 * The temperature change, in whole °C from the last fully-evaluated reading, at which a battery
+	 * broadcast runs the full stage chain. Clamped like {@link #drainLimitPph}.
+	 *
+	 * @param context Application context
+	 *
+	 * @return the margin in °C
+	 */
+	public static int jitterTemperatureC(Context context) {
+		return clamp(prefs(context).getInt(context.getString(R.string._pref_key_jitter_temperature),
+				DEFAULT_JITTER_TEMPERATURE_C), MIN_JITTER_TEMPERATURE_C, MAX_JITTER_TEMPERATURE_C);
+	}
+
+	/**
+	 * The current change, in mA from the last fully-evaluated reading, at which a battery broadcast runs
+	 * the full stage chain. Clamped like {@link #drainLimitPph}.
+	 *
+	 * @param context Application context
+	 *
+	 * @return the margin in mA
+	 */
+	public static int jitterCurrentMilliAmps(Context context) {
+		return clamp(prefs(context).getInt(context.getString(R.string._pref_key_jitter_current),
+				DEFAULT_JITTER_CURRENT_MA), MIN_JITTER_CURRENT_MA, MAX_JITTER_CURRENT_MA);
+	}
+
+	/**
+	 * The longest a run of insignificant broadcasts may go without a full evaluation, so the sustained
+	 * alerts still see time move. Clamped like {@link #drainLimitPph}.
+	 *
+	 * @param context Application context
+	 *
+	 * @return the interval in seconds
+	 */
+	public static int fullEvaluationSeconds(Context context) {
+		return clamp(prefs(context).getInt(context.getString(R.string._pref_key_full_evaluation_interval),
+				DEFAULT_FULL_EVALUATION_SECONDS), MIN_FULL_EVALUATION_SECONDS, MAX_FULL_EVALUATION_SECONDS);
+	}
+
+	/**
+	 * Clamps a stored slider value to {@code [min, max]}. Pure so it is unit-testable.
+	 *
+	 * @param stored the raw persisted value
+	 * @param min    the slider's {@code android:min}
+	 * @param max    the slider's {@code android:max}
+	 *
+	 * @return the value clamped to {@code [min, max]}
+	 */
+	public static int clamp(int stored, int min, int max) {
+		return Math.max(min, Math.min(max, stored));
+	}
+
 	/**
 	 * Whether the "Vibrate" preference is on (default {@link #DEFAULT_VIBRATE}). It drives both the alert
 	 * channels' vibration and the manual silent-mode-override vibration, so those two reads can't disagree
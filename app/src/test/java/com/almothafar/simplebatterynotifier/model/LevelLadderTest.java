@@ -0,0 +1,170 @@
+package com.almothafar.simplebatterynotifier.model;
+
+import com.almothafar.simplebatterynotifier.model.LevelLadder.Severity;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LevelLadder}: the editor's text form, the compiled per-percent tables, and
+ * the two-slider pair it keeps in sync with — a migrated install must alert exactly as the fixed
+ * warning/critical/red-alert levels did.
+ */
+@RunWith(Enclosed.class)
+public class LevelLadderTest {
+
+	/** {@link LevelLadder#parse}: sorted, de-duplicated, and rejected when malformed. */
+	public static class Parse {
+
+		@Test
+		public void normalizesOrderMarksAndPercentSigns() {
+			final LevelLadder ladder = LevelLadder.parse(" 15!, 60%  40 25,8!,4!! ", "90, 80%");
+
+			assertNotNull(ladder);
+			assertEquals("60, 40, 25, 15!, 8!, 4!!", ladder.dischargeText());
+			assertEquals("80, 90", ladder.chargeText());
+			assertEquals(ladder, LevelLadder.parse(ladder.dischargeText(), ladder.chargeText()));
+		}
+
+		@Test
+		public void duplicateLevelKeepsItsMostSevereKind() {
+			assertEquals("20!!", LevelLadder.parse("20, 20!!, 20!", null).dischargeText());
+		}
+
+		@Test
+		public void blankChargeTextMeansNoChargeSteps() {
+			assertEquals("", LevelLadder.parse("30", "  ").chargeText());
+		}
+
+		@Test
+		public void capsEachSide() {
+			final StringBuilder many = new StringBuilder();
+			for (int level = 1; level <= LevelLadder.MAX_STEPS + 4; level++) {
+				many.append(level).append(',');
+			}
+
+			assertEquals(LevelLadder.MAX_STEPS, LevelLadder.parse(many.toString(), null).dischargeText().split(", ").length);
+		}
+
+		@Test
+		public void rejectsMalformedText() {
+			assertNull(LevelLadder.parse(null, null));
+			assertNull(LevelLadder.parse("  ", "80"));
+			assertNull(LevelLadder.parse("0", null));
+			assertNull(LevelLadder.parse("101", null));
+			assertNull(LevelLadder.parse("20!!!", null));
+			assertNull(LevelLadder.parse("twenty", null));
+			assertNull(LevelLadder.parse("20", "80!"));
+		}
+	}
+
+	/** The compiled tables: one lookup per whole percentage. */
+	public static class Tables {
+
+		private final LevelLadder ladder = LevelLadder.parse("60, 40, 15!, 4!!", "80, 90");
+
+		@Test
+		public void dischargeEntryCountsTheStepsAtOrAboveTheLevel() {
+			assertEquals(0, LevelLadder.crossed(ladder.dischargeEntry(61)));
+			assertEquals(Severity.NONE, LevelLadder.severity(ladder.dischargeEntry(61)));
+			assertEquals(1, LevelLadder.crossed(ladder.dischargeEntry(60)));
+			assertEquals(Severity.WARNING, LevelLadder.severity(ladder.dischargeEntry(41)));
+			assertEquals(3, LevelLadder.crossed(ladder.dischargeEntry(15)));
+			assertEquals(Severity.CRITICAL, LevelLadder.severity(ladder.dischargeEntry(5)));
+			assertEquals(4, LevelLadder.crossed(ladder.dischargeEntry(0)));
+			assertEquals(Severity.URGENT, LevelLadder.severity(ladder.dischargeEntry(-3)));
+		}
+
+		@Test
+		public void chargeEntryCountsTheStepsReachedAndTheFullRearmBand() {
+			assertEquals(0, LevelLadder.reached(ladder.chargeEntry(79)));
+			assertEquals(1, LevelLadder.reached(ladder.chargeEntry(80)));
+			assertEquals(2, LevelLadder.reached(ladder.chargeEntry(100)));
+			assertFalse(LevelLadder.rearmsFull(ladder.chargeEntry(60)));
+			assertTrue(LevelLadder.rearmsFull(ladder.chargeEntry(61)));
+			assertTrue(LevelLadder.rearmsFull(ladder.chargeEntry(LevelLadder.FULL_REARM_LEVEL)));
+			assertFalse(LevelLadder.rearmsFull(ladder.chargeEntry(LevelLadder.FULL_REARM_LEVEL + 1)));
+		}
+
+		@Test
+		public void firstStepsIsTheLowBitMask() {
+			assertEquals(0, LevelLadder.firstSteps(0));
+			assertEquals(0b111, LevelLadder.firstSteps(3));
+		}
+	}
+
+	/** The two-slider pair: the migration, and the sliders moving an edited ladder's primary steps. */
+	public static class Thresholds {
+
+		private static final LevelThresholds SHOWN = new LevelThresholds(20, 40);
+
+		@Test
+		public void fromThresholdsAddsTheUrgentFloor() {
+			final LevelLadder ladder = LevelLadder.fromThresholds(new LevelThresholds(20, 40));
+
+			assertEquals("40, 20!, 4!!", ladder.dischargeText());
+			assertEquals(new LevelThresholds(20, 40), ladder.thresholds(SHOWN));
+		}
+
+		@Test
+		public void fromThresholdsMakesACriticalBelowTheFloorUrgent() {
+			final LevelLadder ladder = LevelLadder.fromThresholds(new LevelThresholds(3, 40));
+
+			assertEquals("40, 3!!", ladder.dischargeText());
+			assertEquals(new LevelThresholds(3, 40), ladder.thresholds(SHOWN));
+		}
+
+		@Test
+		public void thresholdsAreTheHighestStepOfEachKind() {
+			assertEquals(new LevelThresholds(15, 60), LevelLadder.parse("60, 40, 15!, 8!", null).thresholds(SHOWN));
+		}
+
+		@Test
+		public void aMissingKindKeepsTheShownLevelOnItsSide() {
+			assertEquals(new LevelThresholds(10, 40), LevelLadder.parse("10!, 5!!", null).thresholds(SHOWN));
+			assertEquals(new LevelThresholds(50, 51), LevelLadder.parse("50!, 5!!", null).thresholds(SHOWN));
+			assertEquals(new LevelThresholds(20, 60), LevelLadder.parse("60, 30", null).thresholds(SHOWN));
+			assertEquals(new LevelThresholds(9, 10), LevelLadder.parse("10", null).thresholds(SHOWN));
+		}
+
+		@Test
+		public void withThresholdsMovesOnlyThePrimarySteps() {
+			final LevelLadder ladder = LevelLadder.parse("60, 40, 15!, 8!, 4!!", "80");
+
+			final LevelLadder moved = ladder.withThresholds(new LevelThresholds(20, 50));
+
+			assertEquals("50, 40, 20!, 8!, 4!!", moved.dischargeText());
+			assertEquals("80", moved.chargeText());
+			assertEquals(new LevelThresholds(20, 50), moved.thresholds(SHOWN));
+		}
+
+		@Test
+		public void withThresholdsAddsAMissingKind() {
+			final LevelLadder moved = LevelLadder.parse("10!", null).withThresholds(new LevelThresholds(15, 30));
+
+			assertEquals("30, 15!", moved.dischargeText());
+		}
+
+		@Test
+		public void withThresholdsOnAFullLadderDropsALowerStepNotThePrimaryOne() {
+			final StringBuilder warnings = new StringBuilder();
+			for (int level = 100; level > 100 - LevelLadder.MAX_STEPS; level--) {
+				warnings.append(level).append(',');
+			}
+
+			final LevelLadder moved = LevelLadder.parse(warnings.toString(), null).withThresholds(new LevelThresholds(10, 100));
+
+			final String[] steps = moved.dischargeText().split(", ");
+			assertEquals(LevelLadder.MAX_STEPS, steps.length);
+			assertEquals("10!", steps[steps.length - 1]);
+			assertEquals(new LevelThresholds(10, 100), moved.thresholds(SHOWN));
+		}
+	}
+}
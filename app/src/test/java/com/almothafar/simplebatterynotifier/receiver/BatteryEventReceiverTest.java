@@ -0,0 +1,94 @@
+package com.almothafar.simplebatterynotifier.receiver;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.BatteryManager;
+
+import androidx.preference.PreferenceManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.almothafar.simplebatterynotifier.receiver.BatteryEventReceiver.Stage;
+import com.almothafar.simplebatterynotifier.receiver.LevelAlertStage.LevelAlertState;
+import com.almothafar.simplebatterynotifier.service.AlertType;
+import com.almothafar.simplebatterynotifier.service.NotificationService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+
+/**
+ * Robolectric + Mockito tests for {@link BatteryEventReceiver}: the stage order is the declared one, and
+ * a single broadcast runs every stage over the same parsed reading — the plug-state change first, so an
+ * unplug re-arms the level alerts before they are evaluated. {@link NotificationService} is mocked; the
+ * trackers and detectors run for real against the fresh test application.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BatteryEventReceiverTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+		PowerConnectionStage.setCurrentState(-1);
+		PowerConnectionStage.cancelPendingSample();
+	}
+
+	@Test
+	public void stagesRunInTheDeclaredOrder() {
+		assertEquals(List.of(Stage.PLUG_STATE, Stage.RATE_WINDOW, Stage.LIVE_SNAPSHOT, Stage.ONGOING_NOTIFICATION, Stage.HISTORY, Stage.QUANTILES,
+				Stage.HEALTH, Stage.LEVEL_ALERTS, Stage.ALERT_RULES,
+				Stage.SAMPLING_DEADLINE), List.of(Stage.values()));
+	}
+
+	@Test
+	public void unplugReArmsTheLevelAlertBeforeItIsEvaluated() {
+		// Already warned during the last discharge, then charged, and now unplugged one percent lower: the
+		// plug-state stage resets the de-dupe first, so the level stage warns again in the same broadcast.
+		LevelAlertStage.saveLevelState(PreferenceManager.getDefaultSharedPreferences(context),
+				new LevelAlertState(36, 0b001, 0, false));
+		PowerConnectionStage.setCurrentState(BatteryManager.BATTERY_PLUGGED_AC);
+
+		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
+			new BatteryEventReceiver().onReceive(context, battery(BatteryManager.BATTERY_STATUS_DISCHARGING, 35, 0));
+			ns.verify(() -> NotificationService.clearNotifications(any(Context.class)));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.WARNING), anyInt()), times(1));
+		}
+	}
+
+	@Test
+	public void everyStageSeesTheSameReading() {
+		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
+			new BatteryEventReceiver().onReceive(context, battery(BatteryManager.BATTERY_STATUS_DISCHARGING, 15, 0));
+			// The ongoing notification and the level alert judged the one parsed snapshot.
+			ns.verify(() -> NotificationService.updateOngoingNotification(any(Context.class),
+					argThat(battery -> battery.getBatteryPercentageInt() == 15), any()));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.CRITICAL), anyInt()));
+		}
+	}
+
+	private static Intent battery(int status, int level, int plugged) {
+		final Intent battery = new Intent(Intent.ACTION_BATTERY_CHANGED);
+		battery.putExtra(BatteryManager.EXTRA_STATUS, status);
+		battery.putExtra(BatteryManager.EXTRA_LEVEL, level);
+		battery.putExtra(BatteryManager.EXTRA_SCALE, 100);
+		battery.putExtra(BatteryManager.EXTRA_PLUGGED, plugged);
+		battery.putExtra(BatteryManager.EXTRA_PRESENT, true);
+		battery.putExtra(BatteryManager.EXTRA_TEMPERATURE, 250);
+		return battery;
+	}
+}
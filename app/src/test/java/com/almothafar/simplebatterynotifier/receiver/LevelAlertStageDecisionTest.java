@@ -0,0 +1,263 @@
+package com.almothafar.simplebatterynotifier.receiver;
+
+import com.almothafar.simplebatterynotifier.model.LevelLadder;
+import com.almothafar.simplebatterynotifier.model.LevelThresholds;
+import com.almothafar.simplebatterynotifier.receiver.LevelAlertStage.LevelAlertConfig;
+import com.almothafar.simplebatterynotifier.receiver.LevelAlertStage.LevelAlertDecision;
+import com.almothafar.simplebatterynotifier.receiver.LevelAlertStage.LevelAlertState;
+import com.almothafar.simplebatterynotifier.service.AlertType;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LevelAlertStage}'s pure decision cores (#164), in the
+ * {@code FastDrainDetectorTest} style: the critical/warning de-dupe, the red-alert override, the
+ * full-once-per-charge episode with its re-arm band, and the multi-step ladder. Because the
+ * state is now a value passed in and returned, every test doubles as a process-restart test: the
+ * decision depends only on what was persisted, not on in-memory history.
+ */
+public class LevelAlertStageDecisionTest {
+
+	private static final int CRITICAL = 20;
+	private static final int WARNING = 40;
+
+	// The two-slider pair as a ladder: warning 40 (step 0), critical 20 (step 1), urgent 4 (step 2).
+	private static final LevelLadder PAIR = LevelLadder.fromThresholds(new LevelThresholds(CRITICAL, WARNING));
+	private static final LevelAlertConfig DEFAULTS = new LevelAlertConfig(PAIR, true, true, false);
+	private static final LevelAlertState FRESH = new LevelAlertState(0, 0, 0, false);
+	private static final int WARNED = 0b001;
+	private static final int CRITICAL_ALERTED = 0b011;
+
+	private static final boolean DISCHARGING = false;
+	private static final boolean NOT_FULL = false;
+
+	// --- discharging: critical/warning thresholds and de-dupe -----------------------------------
+
+	@Test
+	public void discharging_belowCritical_firesCriticalOnce() {
+		final LevelAlertDecision first = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(16, 0, 0, false), 15, DISCHARGING, NOT_FULL, DEFAULTS);
+
+		assertEquals(AlertType.CRITICAL, first.notifyType());
+		assertEquals(CRITICAL, first.notifyLevel());
+		assertEquals(new LevelAlertState(15, CRITICAL_ALERTED, 0, false), first.newState());
+
+		// Next tick, still below critical: the persisted prevType suppresses the duplicate.
+		final LevelAlertDecision second = LevelAlertStage.decideLevelAlert(
+				first.newState(), 14, DISCHARGING, NOT_FULL, DEFAULTS);
+		assertNull(second.notifyType());
+		assertEquals(14, second.newState().prevLevel());
+	}
+
+	@Test
+	public void discharging_inWarningBand_firesWarningOnce() {
+		final LevelAlertDecision first = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(41, 0, 0, false), 38, DISCHARGING, NOT_FULL, DEFAULTS);
+
+		assertEquals(AlertType.WARNING, first.notifyType());
+
+		final LevelAlertDecision second = LevelAlertStage.decideLevelAlert(
+				first.newState(), 35, DISCHARGING, NOT_FULL, DEFAULTS);
+		assertNull(second.notifyType());
+	}
+
+	@Test
+	public void discharging_aboveWarning_noAlert() {
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(81, 0, 0, false), 80, DISCHARGING, NOT_FULL, DEFAULTS);
+
+		assertNull(d.notifyType());
+		assertEquals(80, d.newState().prevLevel());
+	}
+
+	@Test
+	public void discharging_warningDisabled_staysSilentInWarningBand() {
+		final LevelAlertConfig noWarning = new LevelAlertConfig(PAIR, false, true, false);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(41, 0, 0, false), 38, DISCHARGING, NOT_FULL, noWarning);
+
+		assertNull(d.notifyType());
+	}
+
+	@Test
+	public void discharging_warningThenCritical_escalates() {
+		final LevelAlertState afterWarning = new LevelAlertState(35, WARNED, 0, false);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				afterWarning, 20, DISCHARGING, NOT_FULL, DEFAULTS);
+
+		assertEquals(AlertType.CRITICAL, d.notifyType());
+	}
+
+	@Test
+	public void discharging_alertEveryTick_repeatsCritical() {
+		final LevelAlertConfig everyTick = new LevelAlertConfig(PAIR, true, true, true);
+		final LevelAlertState alreadyCritical = new LevelAlertState(15, CRITICAL_ALERTED, 0, false);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				alreadyCritical, 14, DISCHARGING, NOT_FULL, everyTick);
+
+		assertEquals(AlertType.CRITICAL, d.notifyType());
+	}
+
+	@Test
+	public void discharging_atRedAlertFloor_overridesDeDupe() {
+		// Already alerted critical this episode, but at/below the red-alert level it must re-fire.
+		final LevelAlertState alreadyCritical = new LevelAlertState(5, CRITICAL_ALERTED, 0, false);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				alreadyCritical, LevelLadder.DEFAULT_URGENT_LEVEL, DISCHARGING, NOT_FULL, DEFAULTS);
+
+		assertEquals(AlertType.CRITICAL, d.notifyType());
+	}
+
+	@Test
+	public void discharging_unchangedLevel_doesNotAlert() {
+		// Same level as last tick routes to the charging-or-full branch (the receiver's historical
+		// split), so a repeated broadcast at the same percentage can't duplicate a level alert.
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(15, CRITICAL_ALERTED, 0, false), 15, DISCHARGING, NOT_FULL, DEFAULTS);
+
+		assertNull(d.notifyType());
+	}
+
+	// --- charging / full: once per charge session ------------------------------------------------
+
+	@Test
+	public void charging_full_firesOnceThenHolds() {
+		final LevelAlertState atHundred = new LevelAlertState(100, 0, 0, false);
+		final LevelAlertDecision first = LevelAlertStage.decideLevelAlert(atHundred, 100, false, true, DEFAULTS);
+
+		assertEquals(AlertType.FULL, first.notifyType());
+		assertTrue(first.newState().fullNotified());
+
+		final LevelAlertDecision second = LevelAlertStage.decideLevelAlert(first.newState(), 100, false, true, DEFAULTS);
+		assertNull(second.notifyType());
+	}
+
+	@Test
+	public void charging_fullDisabled_staysSilent() {
+		final LevelAlertConfig noFull = new LevelAlertConfig(PAIR, true, false, false);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(100, 0, 0, false), 100, false, true, noFull);
+
+		assertNull(d.notifyType());
+		assertFalse(d.newState().fullNotified());
+	}
+
+	@Test
+	public void charging_levelLeavesFullBand_reArmsFullAlert() {
+		// Notified at full, then the level drops to 90 (≤ FULL_REARM_LEVEL, above warning): re-armed.
+		final LevelAlertState notified = new LevelAlertState(100, 0, 0, true);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(notified, 90, true, NOT_FULL, DEFAULTS);
+
+		assertNull(d.notifyType());
+		assertFalse(d.newState().fullNotified());
+	}
+
+	@Test
+	public void charging_belowWarningBand_doesNotReArmFullAlert() {
+		// The re-arm band is (warning, FULL_REARM_LEVEL]: charging low keeps the flag as-is.
+		final LevelAlertState notified = new LevelAlertState(100, 0, 0, true);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(notified, 30, true, NOT_FULL, DEFAULTS);
+
+		assertTrue(d.newState().fullNotified());
+	}
+
+	// --- charger-disconnect reset semantics (via the pure state) ---------------------------------
+
+	@Test
+	public void restartMidEpisode_persistedStateSuppressesDuplicates() {
+		// Process death loses nothing: the decision on the persisted state after a "restart" is the
+		// same as it would have been in-process — no duplicate critical while still below threshold.
+		final LevelAlertState persisted = new LevelAlertState(15, CRITICAL_ALERTED, 0, false);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				persisted, 13, DISCHARGING, NOT_FULL, DEFAULTS);
+
+		assertNull(d.notifyType());
+	}
+
+	// --- multi-step ladders ------------------------------------------------------------------------
+
+	@Test
+	public void ladder_eachStepAlertsOnceOnTheWayDown() {
+		final LevelAlertConfig config = new LevelAlertConfig(
+				LevelLadder.parse("60, 40, 25, 15!, 8!, 4!!", null), true, true, false);
+		LevelAlertState state = new LevelAlertState(61, 0, 0, false);
+		final StringBuilder fired = new StringBuilder();
+
+		for (int level = 60; level >= 5; level--) {
+			final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(state, level, DISCHARGING, NOT_FULL, config);
+			if (d.notifyType() != null) {
+				fired.append(d.notifyType()).append('@').append(d.notifyLevel()).append(' ');
+			}
+			state = d.newState();
+		}
+
+		assertEquals("WARNING@60 WARNING@40 WARNING@25 CRITICAL@15 CRITICAL@8 ", fired.toString());
+	}
+
+	@Test
+	public void ladder_jumpingSeveralStepsAlertsOnlyTheDeepest() {
+		final LevelAlertConfig config = new LevelAlertConfig(
+				LevelLadder.parse("60, 40, 25, 15!, 8!, 4!!", null), true, true, false);
+		final LevelAlertDecision jump = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(50, 0b1, 0, false), 12, DISCHARGING, NOT_FULL, config);
+
+		assertEquals(AlertType.CRITICAL, jump.notifyType());
+		assertEquals(15, jump.notifyLevel());
+		assertEquals(0b1111, jump.newState().alertedSteps());
+
+		// Recovering a little (a calibration jump) doesn't re-alert a step still passed, but re-arms the ones
+		// risen above: dropping back to 15 alerts it again.
+		final LevelAlertDecision back = LevelAlertStage.decideLevelAlert(jump.newState(), 30, DISCHARGING, NOT_FULL, config);
+		assertNull(back.notifyType());
+		assertEquals(0b11, back.newState().alertedSteps());
+
+		final LevelAlertDecision again = LevelAlertStage.decideLevelAlert(back.newState(), 15, DISCHARGING, NOT_FULL, config);
+		assertEquals(AlertType.CRITICAL, again.notifyType());
+		assertEquals(15, again.notifyLevel());
+	}
+
+	@Test
+	public void ladder_risingAboveEveryStepReArmsThemAll() {
+		final LevelAlertConfig config = new LevelAlertConfig(LevelLadder.parse("60, 40, 15!", null), true, true, false);
+		final LevelAlertDecision above = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(38, 0b11, 0, false), 61, DISCHARGING, NOT_FULL, config);
+
+		assertNull(above.notifyType());
+		assertEquals(0, above.newState().alertedSteps());
+		assertEquals(AlertType.WARNING, LevelAlertStage.decideLevelAlert(
+				above.newState(), 60, DISCHARGING, NOT_FULL, config).notifyType());
+	}
+
+	@Test
+	public void ladder_chargeStepsAlertOncePerChargeSession() {
+		final LevelAlertConfig config = new LevelAlertConfig(LevelLadder.parse("40, 20!", "80, 90"), true, true, false);
+		LevelAlertState state = new LevelAlertState(78, 0, 0, false);
+		final StringBuilder fired = new StringBuilder();
+
+		for (final int level : new int[]{79, 80, 81, 80, 95, 96}) {
+			final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(state, level, true, NOT_FULL, config);
+			if (d.notifyType() != null) {
+				fired.append(d.notifyType()).append('@').append(d.notifyLevel()).append(' ');
+			}
+			state = d.newState();
+		}
+
+		// 95 jumps past 90 only once; nothing repeats at 80 or above 90.
+		assertEquals("CHARGE_LEVEL@80 CHARGE_LEVEL@90 ", fired.toString());
+		assertEquals(0b11, state.reachedChargeSteps());
+	}
+
+	@Test
+	public void ladder_chargeStepsFollowTheFullToggle() {
+		final LevelAlertConfig noFull = new LevelAlertConfig(LevelLadder.parse("40, 20!", "80"), true, false, false);
+		final LevelAlertDecision d = LevelAlertStage.decideLevelAlert(
+				new LevelAlertState(79, 0, 0, false), 80, true, NOT_FULL, noFull);
+
+		assertNull(d.notifyType());
+	}
+}
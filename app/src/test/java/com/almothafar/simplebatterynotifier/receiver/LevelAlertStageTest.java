@@ -7,7 +7,8 @@ import android.os.BatteryManager;
 import androidx.preference.PreferenceManager;
 import androidx.test.core.app.ApplicationProvider;
 
-import com.almothafar.simplebatterynotifier.receiver.BatteryLevelReceiver.LevelAlertState;
+import com.almothafar.simplebatterynotifier.receiver.BatteryEventReceiver.Stage;
+import com.almothafar.simplebatterynotifier.receiver.LevelAlertStage.LevelAlertState;
 import com.almothafar.simplebatterynotifier.service.AlertType;
 import com.almothafar.simplebatterynotifier.service.NotificationService;
 import com.almothafar.simplebatterynotifier.service.SystemService;
@@ -27,7 +28,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 
 /**
- * Robolectric + Mockito tests for {@link BatteryLevelReceiver}'s threshold and de-duplication logic.
+ * Robolectric + Mockito tests for {@link LevelAlertStage}'s threshold and de-duplication logic.
  * <p>
  * The receiver reads the delivered {@code ACTION_BATTERY_CHANGED} intent (#159) and delegates the
  * actual notification to {@link NotificationService}, whose static methods are mocked so we can
@@ -40,7 +41,7 @@ import static org.mockito.Mockito.times;
  */
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 34)
-public class BatteryLevelReceiverTest {
+public class LevelAlertStageTest {
 
 	private Context context;
 	private Intent latestBattery;
@@ -58,7 +59,7 @@ public class BatteryLevelReceiverTest {
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
 			receive();
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.CRITICAL)));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.CRITICAL), anyInt()));
 		}
 	}
 
@@ -68,7 +69,7 @@ public class BatteryLevelReceiverTest {
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
 			receive();
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.WARNING)));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.WARNING), anyInt()));
 		}
 	}
 
@@ -78,8 +79,8 @@ public class BatteryLevelReceiverTest {
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
 			receive();
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.WARNING)), never());
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.CRITICAL)), never());
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.WARNING), anyInt()), never());
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.CRITICAL), anyInt()), never());
 		}
 	}
 
@@ -92,7 +93,7 @@ public class BatteryLevelReceiverTest {
 			publishBattery(BatteryManager.BATTERY_STATUS_DISCHARGING, 35, 100, 0);
 			receive();
 
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.WARNING)), times(1));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.WARNING), anyInt()), times(1));
 		}
 	}
 
@@ -106,35 +107,35 @@ public class BatteryLevelReceiverTest {
 			publishBattery(BatteryManager.BATTERY_STATUS_DISCHARGING, 14, 100, 0);
 			receive();
 
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.CRITICAL)), times(2));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.CRITICAL), anyInt()), times(2));
 		}
 	}
 
 	@Test
 	public void full_whileCharging_sendsFullAlertOnce() {
 		// Simulate the battery already sitting at 100% (unchanged) so the charging/full branch runs
-		saveLevelState(new LevelAlertState(100, null, false));
+		saveLevelState(new LevelAlertState(100, 0, 0, false));
 		publishBattery(BatteryManager.BATTERY_STATUS_FULL, 100, 100, BatteryManager.BATTERY_PLUGGED_AC);
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
 			receive();
 			receive(); // second identical tick must not re-send
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.FULL)), times(1));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.FULL), anyInt()), times(1));
 		}
 	}
 
 	@Test
 	public void unplug_reArmsFullAlert_forNextChargeSession() {
-		saveLevelState(new LevelAlertState(100, null, false));
+		saveLevelState(new LevelAlertState(100, 0, 0, false));
 		publishBattery(BatteryManager.BATTERY_STATUS_FULL, 100, 100, BatteryManager.BATTERY_PLUGGED_AC);
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
 			receive();
 			// Unplugged: the charge-session reset re-arms the full alert; plugging back in at full fires again.
-			BatteryLevelReceiver.onChargerDisconnected(context);
+			LevelAlertStage.onChargerDisconnected(context);
 			receive();
 
-			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.FULL)), times(2));
+			ns.verify(() -> NotificationService.sendNotification(any(Context.class), eq(AlertType.FULL), anyInt()), times(2));
 		}
 	}
 
@@ -172,15 +173,18 @@ public class BatteryLevelReceiverTest {
 		// The receiver reads the delivered intent (#159); a wrong-action intent (whose missing extras
 		// would otherwise read as a 0% battery) must be dropped by the guard, not alerted on.
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
-			new BatteryLevelReceiver().onReceive(context, new Intent(Intent.ACTION_POWER_CONNECTED));
+			new BatteryEventReceiver().onReceive(context, new Intent(Intent.ACTION_POWER_CONNECTED));
 			ns.verifyNoInteractions();
 		}
 	}
 
 	// --- helpers -------------------------------------------------------------
 
+	/**
+	 * Deliver {@link #latestBattery} through the dispatcher's level-alert and alert-rule stages only, as one tick.
+	 */
 	private void receive() {
-		new BatteryLevelReceiver().onReceive(context, latestBattery);
+		BatteryEventReceiver.dispatch(context, latestBattery, Stage.LEVEL_ALERTS, Stage.ALERT_RULES);
 	}
 
 	private void publishBattery(final int status, final int level, final int scale, final int plugged) {
@@ -211,6 +215,6 @@ public class BatteryLevelReceiverTest {
 	}
 
 	private void saveLevelState(final LevelAlertState state) {
-		BatteryLevelReceiver.saveLevelState(PreferenceManager.getDefaultSharedPreferences(context), state);
+		LevelAlertStage.saveLevelState(PreferenceManager.getDefaultSharedPreferences(context), state);
 	}
 }
@@ -2,15 +2,22 @@ package com.almothafar.simplebatterynotifier.receiver;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.BatteryManager;
+import android.os.Handler;
 import android.os.Looper;
 
+import androidx.preference.PreferenceManager;
 import androidx.test.core.app.ApplicationProvider;
 
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
 import com.almothafar.simplebatterynotifier.model.ChargeSpeed;
 import com.almothafar.simplebatterynotifier.model.ChargeSpeedTier;
+import com.almothafar.simplebatterynotifier.receiver.LevelAlertStage.LevelAlertState;
+import com.almothafar.simplebatterynotifier.service.BatteryWorker;
 import com.almothafar.simplebatterynotifier.service.NotificationService;
 import com.almothafar.simplebatterynotifier.service.SystemService;
+import com.almothafar.simplebatterynotifier.util.AppPrefs;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -21,6 +28,7 @@ import org.robolectric.annotation.Config;
 
 import java.time.Duration;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -31,29 +39,30 @@ import static org.mockito.Mockito.times;
 import static org.robolectric.Shadows.shadowOf;
 
 /**
- * Robolectric + Mockito tests for {@link PowerConnectionReceiver}: wired/wireless detection,
+ * Robolectric + Mockito tests for {@link PowerConnectionStage}: wired/wireless detection,
  * plugged-state de-duplication, and the disconnect cleanup path. The
- * {@link NotificationService} static methods are mocked so we can assert what the receiver decides
- * to do from the delivered {@code ACTION_BATTERY_CHANGED} intent (#159).
+ * {@link NotificationService} static methods are mocked so we can assert what the plug-state stage
+ * decides to do from the broadcast's reading.
  * <p>
  * The charge-connected notification is dispatched a short delay after connection (the charging
  * current is noisy right at plug-in), so tests advance the main looper by
- * {@link PowerConnectionReceiver#CHARGE_SAMPLE_DELAY_MS} to let the deferred sample run.
+ * {@link PowerConnectionStage#CHARGE_SAMPLE_DELAY_MS} to let the deferred sample run. The sample is
+ * posted to the looper the broadcast was delivered on — main here, the battery worker in production.
  */
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 34)
-public class PowerConnectionReceiverTest {
+public class PowerConnectionStageTest {
 
 	private Context context;
-	private Intent latestBattery;
+	private BatteryDO latestBattery;
 
 	@Before
 	public void setUp() {
 		context = ApplicationProvider.getApplicationContext();
 		// Reset the static plugged-state so each test starts from "unknown"
-		PowerConnectionReceiver.setCurrentState(-1);
+		PowerConnectionStage.setCurrentState(-1);
 		// Drop any sample left pending by a previous test so it can't fire mid-test.
-		PowerConnectionReceiver.cancelPendingSample();
+		PowerConnectionStage.cancelPendingSample();
 	}
 
 	@Test
@@ -118,7 +127,7 @@ public class PowerConnectionReceiverTest {
 
 	@Test
 	public void samePluggedState_sendsNoNotification() {
-		PowerConnectionReceiver.setCurrentState(BatteryManager.BATTERY_PLUGGED_AC);
+		PowerConnectionStage.setCurrentState(BatteryManager.BATTERY_PLUGGED_AC);
 		publishBattery(BatteryManager.BATTERY_PLUGGED_AC, 50, 100);
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
@@ -166,7 +175,7 @@ public class PowerConnectionReceiverTest {
 		publishBattery(BatteryManager.BATTERY_PLUGGED_AC, 50, 100);
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
-			new PowerConnectionReceiver().onReceive(context, new Intent(Intent.ACTION_POWER_CONNECTED));
+			new BatteryEventReceiver().onReceive(context, new Intent(Intent.ACTION_POWER_CONNECTED));
 			runPendingSample();
 			ns.verifyNoInteractions();
 		}
@@ -174,7 +183,7 @@ public class PowerConnectionReceiverTest {
 
 	@Test
 	public void disconnected_clearsNotifications() {
-		PowerConnectionReceiver.setCurrentState(BatteryManager.BATTERY_PLUGGED_AC);
+		PowerConnectionStage.setCurrentState(BatteryManager.BATTERY_PLUGGED_AC);
 		publishBattery(0, 50, 100); // unplugged
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
@@ -259,28 +268,46 @@ public class PowerConnectionReceiverTest {
 		}
 	}
 
+	@Test
+	public void disconnectOnWorkerThread_resetsLevelAlertEpisode() {
+		// In production both receivers run on the battery worker thread, not main. An unplug delivered
+		// there must still reset the level-alert episode, keeping the last level, so the next discharge
+		// re-alerts at the warning threshold. (The static mocks are per-thread, so the real
+		// NotificationService clears run here — they're harmless under Robolectric.)
+		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+		LevelAlertStage.saveLevelState(prefs, new LevelAlertState(80, 0b001, 0b011, true));
+		PowerConnectionStage.setCurrentState(BatteryManager.BATTERY_PLUGGED_AC);
+		publishBattery(0, 80, 100); // unplugged
+
+		final Handler worker = BatteryWorker.handler();
+		worker.post(this::receive);
+		shadowOf(worker.getLooper()).idle();
+
+		assertEquals(new LevelAlertState(80, 0, 0, false), LevelAlertStage.loadLevelState(prefs, AppPrefs.levelLadder(context)));
+	}
+
 	// --- helpers -------------------------------------------------------------
 
 	private void receive() {
-		new PowerConnectionReceiver().onReceive(context, latestBattery);
+		PowerConnectionStage.onBatteryChanged(context, latestBattery);
 	}
 
 	/**
 	 * Advance the main looper past the whole sampling window so the deferred charge-connected task runs.
-	 * Sampling repeats up to {@link PowerConnectionReceiver#MAX_CHARGE_SAMPLE_ATTEMPTS} times — fewer when
+	 * Sampling repeats up to {@link PowerConnectionStage#MAX_CHARGE_SAMPLE_ATTEMPTS} times — fewer when
 	 * a reading settles early — so idling across the full window covers every case: tests that leave
 	 * {@link SystemService} unmocked read "unknown" every attempt (Robolectric reports no charging
 	 * current) and notify once at the end, while tests that stub {@code getChargeSpeed} may settle sooner.
 	 */
 	private void runPendingSample() {
 		shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(
-				PowerConnectionReceiver.CHARGE_SAMPLE_DELAY_MS * PowerConnectionReceiver.MAX_CHARGE_SAMPLE_ATTEMPTS));
+				PowerConnectionStage.CHARGE_SAMPLE_DELAY_MS * PowerConnectionStage.MAX_CHARGE_SAMPLE_ATTEMPTS));
 	}
 
 	/**
-	 * Build the battery-changed intent {@link #receive()} will deliver (the receiver reads the
-	 * delivered intent directly since #159), and publish it as the sticky broadcast too — the
-	 * delayed sample's still-plugged re-check reads the sticky state.
+	 * Build the reading {@link #receive()} will hand the plug-state stage, and publish the matching
+	 * battery-changed intent as the sticky broadcast — the delayed sample's still-plugged re-check
+	 * reads the sticky state.
 	 */
 	@SuppressWarnings("deprecation")
 	private void publishBattery(final int plugged, final int level, final int scale) {
@@ -290,6 +317,6 @@ public class PowerConnectionReceiverTest {
 		battery.putExtra(BatteryManager.EXTRA_SCALE, scale);
 		battery.putExtra(BatteryManager.EXTRA_PRESENT, true);
 		context.sendStickyBroadcast(battery);
-		latestBattery = battery;
+		latestBattery = new BatteryDO().setPlugged(plugged).setLevel(level).setScale(scale);
 	}
 }
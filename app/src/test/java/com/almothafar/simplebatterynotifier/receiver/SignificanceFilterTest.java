@@ -0,0 +1,117 @@
+package com.almothafar.simplebatterynotifier.receiver;
+
+import android.os.BatteryManager;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.receiver.SignificanceFilter.Thresholds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link SignificanceFilter}: jitter within the margins of the last admitted reading takes
+ * the cheap path, any user-visible change, a whole margin of drift or an elapsed quiet period takes the
+ * full path, and skipped ticks are counted.
+ */
+public class SignificanceFilterTest {
+
+	private static final long T0 = 1_700_000_000_000L;
+	private static final Thresholds THRESHOLDS = Thresholds.DEFAULTS;
+
+	@Test
+	public void firstReadingIsAlwaysSignificant() {
+		assertTrue(new SignificanceFilter(THRESHOLDS).admit(reading(50, 250, -400_000, 3_900), T0));
+	}
+
+	@Test
+	public void voltageAndSubDegreeJitterIsSkippedAndCounted() {
+		final SignificanceFilter filter = new SignificanceFilter(THRESHOLDS);
+		filter.admit(reading(50, 250, -420_000, 3_900), T0);
+		final long skippedBefore = SignificanceFilter.skippedTicks();
+
+		assertFalse(filter.admit(reading(50, 259, -440_000, 3_870), T0 + 5_000));
+
+		assertEquals(skippedBefore + 1, SignificanceFilter.skippedTicks());
+	}
+
+	@Test
+	public void temperatureOrCurrentMovedByItsMarginIsSignificant() {
+		final SignificanceFilter filter = new SignificanceFilter(THRESHOLDS);
+		filter.admit(reading(50, 259, -400_000, 3_900), T0);
+
+		assertTrue(filter.admit(reading(50, 269, -400_000, 3_900), T0 + 1_000));
+		assertTrue(filter.admit(reading(50, 269, -450_000, 3_900), T0 + 2_000));
+	}
+
+	@Test
+	public void hoveringOnABucketEdgeDoesNotFlap() {
+		final SignificanceFilter filter = new SignificanceFilter(THRESHOLDS);
+		filter.admit(reading(50, 259, -49_990, 3_900), T0);
+
+		// Across the old whole-degree and 50 mA bucket edges, but well within the margins.
+		assertFalse(filter.admit(reading(50, 260, -50_010, 3_900), T0 + 1_000));
+		assertFalse(filter.admit(reading(50, 259, -49_990, 3_900), T0 + 2_000));
+		assertFalse(filter.admit(reading(50, 260, -50_010, 3_900), T0 + 3_000));
+	}
+
+	@Test
+	public void slowDriftCountsOnceItHasMovedAWholeMargin() {
+		final SignificanceFilter filter = new SignificanceFilter(THRESHOLDS);
+		filter.admit(reading(50, 250, -400_000, 3_900), T0);
+
+		assertFalse(filter.admit(reading(50, 250, -430_000, 3_900), T0 + 1_000));
+		assertTrue(filter.admit(reading(50, 250, -455_000, 3_900), T0 + 2_000));
+	}
+
+	@Test
+	public void currentBecomingUnavailableIsSignificant() {
+		final SignificanceFilter filter = new SignificanceFilter(THRESHOLDS);
+		filter.admit(reading(50, 250, -400_000, 3_900), T0);
+
+		assertTrue(filter.admit(reading(50, 250, Integer.MIN_VALUE, 3_900), T0 + 1_000));
+		assertFalse(filter.admit(reading(50, 250, Integer.MIN_VALUE, 3_900), T0 + 2_000));
+	}
+
+	@Test
+	public void levelStatusOrPlugChangeIsSignificant() {
+		final SignificanceFilter filter = new SignificanceFilter(THRESHOLDS);
+		final BatteryDO base = reading(50, 250, -400_000, 3_900);
+		filter.admit(base, T0);
+
+		assertTrue(filter.admit(reading(49, 250, -400_000, 3_900), T0 + 1_000));
+		assertTrue(filter.admit(reading(49, 250, -400_000, 3_900).setStatus(BatteryManager.BATTERY_STATUS_CHARGING), T0 + 2_000));
+		assertTrue(filter.admit(reading(49, 250, -400_000, 3_900).setStatus(BatteryManager.BATTERY_STATUS_CHARGING)
+		                                                          .setPlugged(BatteryManager.BATTERY_PLUGGED_AC), T0 + 3_000));
+	}
+
+	@Test
+	public void quietPeriodForcesAFullEvaluation() {
+		final SignificanceFilter.Reading key = SignificanceFilter.Reading.of(reading(50, 250, -400_000, 3_900));
+
+		assertFalse(SignificanceFilter.isSignificant(key, T0, key, T0 + THRESHOLDS.maxQuietMillis() - 1, THRESHOLDS));
+		assertTrue(SignificanceFilter.isSignificant(key, T0, key, T0 + THRESHOLDS.maxQuietMillis(), THRESHOLDS));
+		// A clock set backwards can't be trusted to measure the quiet period.
+		assertTrue(SignificanceFilter.isSignificant(key, T0, key, T0 - 1, THRESHOLDS));
+	}
+
+	@Test
+	public void coarserThresholdsSkipMore() {
+		final SignificanceFilter filter = new SignificanceFilter(new Thresholds(50, 200_000, 600_000L));
+		filter.admit(reading(50, 250, -420_000, 3_900), T0);
+
+		assertFalse(filter.admit(reading(50, 280, -580_000, 3_900), T0 + 120_000));
+	}
+
+	private static BatteryDO reading(int level, int temperatureTenthsC, int currentMicroAmps, int voltage) {
+		return new BatteryDO().setLevel(level)
+		                      .setScale(100)
+		                      .setStatus(BatteryManager.BATTERY_STATUS_DISCHARGING)
+		                      .setPlugged(0)
+		                      .setTemperature(temperatureTenthsC)
+		                      .setCurrentMicroAmps(currentMicroAmps)
+		                      .setVoltage(voltage);
+	}
+}
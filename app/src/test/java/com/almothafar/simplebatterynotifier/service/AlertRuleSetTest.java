@@ -0,0 +1,180 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.AlertRule.Metric;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link AlertRuleSet} and its {@link RuleStreaks}: compiling the built-ins and the fleet's
+ * and the user's rule texts, one pass over every rule per tick, and streaks that survive a restart only
+ * for the rule set they were written for — the built-ins' survive an edit of the custom rules.
+ */
+public class AlertRuleSetTest {
+
+	private static final long MINUTE = 60_000L;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static AlertRuleSet.Readings readings(int voltageMv, int tenthsC, boolean charging) {
+		final int[] values = new int[Metric.values().length];
+		values[Metric.VOLTAGE.ordinal()] = voltageMv;
+		values[Metric.TEMPERATURE.ordinal()] = tenthsC;
+		return new AlertRuleSet.Readings(values,
+				AlertRuleSet.Readings.bit(Metric.VOLTAGE) | AlertRuleSet.Readings.bit(Metric.TEMPERATURE), charging, charging);
+	}
+
+	@Test
+	public void compileKeepsFleetRulesFirstAndSkipsBadLines() {
+		final AlertRuleSet rules = AlertRuleSet.compile("temperature > 40 C", "nonsense\nvoltage < 3.5 V; ");
+
+		assertEquals(2, rules.size());
+		assertEquals(Metric.TEMPERATURE, rules.rule(0).metric());
+		assertEquals(Metric.VOLTAGE, rules.rule(1).metric());
+	}
+
+	@Test
+	public void nothingParsesToEmpty() {
+		assertSame(AlertRuleSet.EMPTY, AlertRuleSet.compile((String) null, "", "level"));
+	}
+
+	@Test
+	public void compileCapsTheRuleCount() {
+		final String many = "level < 10\n".repeat(AlertRuleSet.MAX_RULES + 5);
+
+		assertEquals(AlertRuleSet.MAX_RULES, AlertRuleSet.compile(many).size());
+	}
+
+	@Test
+	public void evaluateFiresEachRuleOnItsOwnWindowInOnePass() {
+		final AlertRuleSet rules = AlertRuleSet.compile("temperature > 40 C\nvoltage < 3.5 V while discharging for 2m");
+		final RuleStreaks streaks = new RuleStreaks(rules.signature(), rules.size());
+
+		assertEquals(0b01, rules.evaluate(readings(3_400, 410, false), streaks, MINUTE, () -> false));
+		assertEquals(0b00, rules.evaluate(readings(3_400, 410, false), streaks, 2 * MINUTE, () -> false));
+		assertEquals(0b10, rules.evaluate(readings(3_400, 410, false), streaks, 3 * MINUTE, () -> false));
+		assertTrue(streaks.isDirty());
+	}
+
+	@Test
+	public void gateNotMetClearsTheStreak() {
+		final AlertRuleSet rules = AlertRuleSet.compile("voltage < 3.5 V while discharging for 2m");
+		final RuleStreaks streaks = new RuleStreaks(rules.signature(), rules.size());
+		rules.evaluate(readings(3_400, 300, false), streaks, MINUTE, () -> false);
+
+		rules.evaluate(readings(3_400, 300, true), streaks, 2 * MINUTE, () -> false);
+
+		assertEquals(SustainedConditionTracker.CLEARED, streaks.get(0));
+		assertEquals(0, rules.evaluate(readings(3_400, 300, false), streaks, 3 * MINUTE, () -> false));
+	}
+
+	@Test
+	public void streaksRoundTripThroughTheirFile() throws Exception {
+		final File file = new File(folder.getRoot(), "streaks.bin");
+		final AlertRuleSet rules = AlertRuleSet.compile("voltage < 3.5 V for 2m\ntemperature > 40 C");
+		final RuleStreaks streaks = new RuleStreaks(rules.signature(), rules.size());
+		rules.evaluate(readings(3_400, 410, false), streaks, MINUTE, () -> false);
+		streaks.persistIfDirty(file);
+		assertFalse(streaks.isDirty());
+
+		final RuleStreaks restored = RuleStreaks.load(file, rules.signature(), rules.size(), 0);
+
+		assertEquals(streaks.get(0), restored.get(0));
+		assertEquals(streaks.get(1), restored.get(1));
+		assertTrue(restored.get(1).alerted());
+		// The voltage window started before the restart, so it completes on time after it.
+		assertEquals(0b01, rules.evaluate(readings(3_400, 410, false), restored, 3 * MINUTE, () -> false));
+	}
+
+	@Test
+	public void editedRuleSetStartsClear() throws Exception {
+		final File file = new File(folder.getRoot(), "streaks.bin");
+		final AlertRuleSet before = AlertRuleSet.compile("temperature > 40 C");
+		final RuleStreaks streaks = new RuleStreaks(before.signature(), before.size());
+		before.evaluate(readings(3_400, 410, false), streaks, MINUTE, () -> false);
+		streaks.persistIfDirty(file);
+
+		final AlertRuleSet after = AlertRuleSet.compile("temperature > 45 C");
+		assertNotEquals(before.signature(), after.signature());
+
+		assertEquals(SustainedConditionTracker.CLEARED, RuleStreaks.load(file, after.signature(), after.size(), 0).get(0));
+	}
+
+	@Test
+	public void missingFileStartsClear() {
+		final RuleStreaks streaks = RuleStreaks.load(new File(folder.getRoot(), "absent.bin"), 7, 3, 0);
+
+		assertEquals(3, streaks.size());
+		assertEquals(SustainedConditionTracker.CLEARED, streaks.get(2));
+		assertFalse(streaks.isDirty());
+		assertTrue(streaks.isFresh());
+	}
+
+	@Test
+	public void builtInStreaksSurviveACustomEdit() throws Exception {
+		final File file = new File(folder.getRoot(), "streaks.bin");
+		final AlertRuleSet before = AlertRuleSet.compile(builtIns(), "voltage < 3.5 V");
+		final RuleStreaks streaks = new RuleStreaks(before.signature(), before.size());
+		assertEquals(0b1001, before.evaluate(readings(3_400, 460, false), streaks, MINUTE, () -> false));
+		streaks.persistIfDirty(file);
+
+		final AlertRuleSet after = AlertRuleSet.compile(builtIns(), "voltage < 3.4 V");
+		final RuleStreaks restored = RuleStreaks.load(file, after.signature(), after.size(), after.builtIns());
+
+		assertEquals(streaks.get(AlertRuleSet.TEMPERATURE), restored.get(AlertRuleSet.TEMPERATURE));
+		assertEquals(SustainedConditionTracker.CLEARED, restored.get(AlertRuleSet.BUILT_INS));
+		assertEquals(0b0001, restored.alertedMask());
+		// The hot spell already alerted, so it doesn't alert again after the edit.
+		assertEquals(0, after.evaluate(readings(3_500, 460, false), restored, 2 * MINUTE, () -> false));
+	}
+
+	@Test
+	public void lastSeenAloneIsWrittenOnlyByFlush() throws Exception {
+		final File file = new File(folder.getRoot(), "streaks.bin");
+		final AlertRuleSet rules = AlertRuleSet.compile("voltage < 3.5 V for 2m");
+		final RuleStreaks streaks = new RuleStreaks(rules.signature(), rules.size());
+		rules.evaluate(readings(3_400, 300, false), streaks, MINUTE, () -> false);
+		streaks.persistIfDirty(file);
+
+		rules.evaluate(readings(3_400, 300, false), streaks, MINUTE + 10_000, () -> false);
+		assertFalse(streaks.isDirty());
+		streaks.persistIfDirty(file);
+		assertEquals(MINUTE, RuleStreaks.load(file, rules.signature(), rules.size(), 0).get(0).lastSeen());
+
+		streaks.flush(file);
+		assertEquals(MINUTE + 10_000, RuleStreaks.load(file, rules.signature(), rules.size(), 0).get(0).lastSeen());
+	}
+
+	@Test
+	public void activelyUsedIsOnlyAskedOnceAReminderIsDue() {
+		final AlertRuleSet rules = AlertRuleSet.compile("voltage < 3.5 V remind 15m\ntemperature > 40 C remind 15m");
+		final RuleStreaks streaks = new RuleStreaks(rules.signature(), rules.size());
+		final int[] asked = new int[1];
+		final BooleanSupplier activelyUsed = () -> {
+			asked[0]++;
+			return false;
+		};
+
+		rules.evaluate(readings(3_400, 410, false), streaks, MINUTE, activelyUsed);
+		assertEquals(0, asked[0]);
+		rules.evaluate(readings(3_400, 410, false), streaks, 2 * MINUTE, activelyUsed);
+		assertEquals(1, asked[0]);
+	}
+
+	private static List<AlertRule> builtIns() {
+		return List.of(AlertRule.highTemperature(true, 45), AlertRule.fastDrain(true, 20, 5 * MINUTE, 15 * MINUTE),
+				AlertRule.slowCharge(true));
+	}
+}
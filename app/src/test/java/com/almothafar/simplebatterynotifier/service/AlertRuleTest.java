@@ -0,0 +1,191 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.AlertRule.Comparison;
+import com.almothafar.simplebatterynotifier.service.AlertRule.Gate;
+import com.almothafar.simplebatterynotifier.service.AlertRule.Metric;
+import com.almothafar.simplebatterynotifier.service.AlertRule.Repeat;
+import com.almothafar.simplebatterynotifier.service.AlertRuleSet.Readings;
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Outcome;
+import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Streak;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link AlertRule}: the custom-rule syntax, the hysteresis-aware comparison, and the
+ * built-in high-temperature rule — which must decide exactly as the receiver's original hot-spell
+ * latch did (#18).
+ */
+@RunWith(Enclosed.class)
+public class AlertRuleTest {
+
+	/** {@link AlertRule#parse}: one rule per line, units scaled to the stored int. */
+	public static class Parse {
+
+		@Test
+		public void voltageWhileDischargingForTwoMinutes() {
+			final AlertRule rule = AlertRule.parse("voltage < 3.5 V while discharging for 2m");
+
+			assertNotNull(rule);
+			assertEquals(Metric.VOLTAGE, rule.metric());
+			assertEquals(Comparison.BELOW, rule.comparison());
+			assertEquals(3_500, rule.threshold());
+			assertEquals(Gate.DISCHARGING, rule.gate());
+			assertEquals(120_000L, rule.sustainedMs());
+			assertEquals(Repeat.ONCE, rule.repeat());
+		}
+
+		@Test
+		public void leadingGateAndDegreeSign() {
+			final AlertRule rule = AlertRule.parse("  Charging   temperature > 40 °C ");
+
+			assertNotNull(rule);
+			assertEquals("Charging temperature > 40 °C", rule.source());
+			assertEquals(Metric.TEMPERATURE, rule.metric());
+			assertEquals(Comparison.ABOVE, rule.comparison());
+			assertEquals(400, rule.threshold());
+			assertEquals(Gate.CHARGING, rule.gate());
+			assertEquals(0L, rule.sustainedMs());
+		}
+
+		@Test
+		public void hysteresisAndReminders() {
+			final AlertRule rule = AlertRule.parse("rate >= 20 %/h for 5 min hysteresis 3 remind 15m");
+
+			assertNotNull(rule);
+			assertEquals(Comparison.AT_OR_ABOVE, rule.comparison());
+			assertEquals(Gate.ANY, rule.gate());
+			assertEquals(300_000L, rule.sustainedMs());
+			assertEquals(3, rule.hysteresis());
+			assertEquals(Repeat.REMIND_IN_BACKGROUND, rule.repeat());
+			assertEquals(900_000L, rule.reminderGapMs());
+		}
+
+		@Test
+		public void wordOperators() {
+			assertEquals(Comparison.BELOW, AlertRule.parse("level below 15").comparison());
+			assertEquals(Comparison.ABOVE, AlertRule.parse("power above 10 W").comparison());
+		}
+
+		@Test
+		public void rejectsBlankAndMalformedLines() {
+			assertNull(AlertRule.parse(null));
+			assertNull(AlertRule.parse("   "));
+			assertNull(AlertRule.parse("humidity > 40"));
+			assertNull(AlertRule.parse("level 40"));
+			assertNull(AlertRule.parse("level > 40 for 2 days"));
+			// Two gates are ambiguous, even when they agree.
+			assertNull(AlertRule.parse("charging level > 80 while charging"));
+		}
+
+		@Test
+		public void rejectsDurationsTooLongToCount() {
+			assertNull(AlertRule.parse("level < 10 for 9999999999999 h"));
+			assertNull(AlertRule.parse("level < 10 remind 99999999999999999999 s"));
+			assertEquals(999_999_999_999L * 3_600_000L, AlertRule.parse("level < 10 for 999999999999 h").sustainedMs());
+		}
+	}
+
+	/** {@link AlertRule#holds}: a held condition only clears once back across the hysteresis band. */
+	public static class Holds {
+
+		@Test
+		public void aboveWithHysteresis() {
+			assertTrue(AlertRule.holds(Comparison.AT_OR_ABOVE, 450, 450, 30, false));
+			assertFalse(AlertRule.holds(Comparison.AT_OR_ABOVE, 440, 450, 30, false));
+			assertTrue(AlertRule.holds(Comparison.AT_OR_ABOVE, 440, 450, 30, true));
+			assertFalse(AlertRule.holds(Comparison.AT_OR_ABOVE, 420, 450, 30, true));
+		}
+
+		@Test
+		public void belowWithHysteresis() {
+			assertFalse(AlertRule.holds(Comparison.BELOW, 3_500, 3_500, 100, false));
+			assertTrue(AlertRule.holds(Comparison.AT_OR_BELOW, 3_500, 3_500, 100, false));
+			assertTrue(AlertRule.holds(Comparison.BELOW, 3_550, 3_500, 100, true));
+			assertFalse(AlertRule.holds(Comparison.BELOW, 3_600, 3_500, 100, true));
+		}
+	}
+
+	/**
+	 * {@link AlertRule#highTemperature}: the built-in rule in its {@link AlertRuleSet} slot, decided as the
+	 * receiver's hot-spell latch used to (#18, #164).
+	 */
+	public static class HighTemperature {
+
+		private static final int THRESHOLD_C = 45;
+		// A hot spell already alerted, as its streak stands in the streak file.
+		private static final Streak ALERTED = new Streak(1_000, true, 1_000);
+
+		@Test
+		public void aboveThresholdFiresOnce() {
+			final Outcome first = decide(true, SustainedConditionTracker.CLEARED, 460);
+			assertTrue(first.shouldNotify());
+			assertTrue(first.newState().alerted());
+
+			final Outcome second = decide(true, first.newState(), 470);
+			assertFalse(second.shouldNotify());
+			assertTrue(second.newState().alerted());
+		}
+
+		@Test
+		public void firesAtTheThreshold() {
+			assertFalse(decide(true, SustainedConditionTracker.CLEARED, 449).shouldNotify());
+			assertTrue(decide(true, SustainedConditionTracker.CLEARED, 450).shouldNotify());
+		}
+
+		@Test
+		public void inHysteresisBandHoldsState() {
+			// 43.0 °C: below the 45° threshold but not yet 3° cooler — the alerted streak must hold, so a
+			// process restart in this band can't re-fire when the temperature ticks back up.
+			for (final int tenthsC : new int[]{430, 421}) {
+				final Outcome outcome = decide(true, ALERTED, tenthsC);
+				assertFalse(outcome.shouldNotify());
+				assertTrue(outcome.newState().alerted());
+			}
+		}
+
+		@Test
+		public void cooledBelowHysteresisReArms() {
+			final Outcome cooled = decide(true, ALERTED, 420);
+			assertFalse(cooled.shouldNotify());
+			assertFalse(cooled.newState().alerted());
+
+			// The next spell alerts again.
+			assertTrue(decide(true, cooled.newState(), 455).shouldNotify());
+		}
+
+		@Test
+		public void disabledNeverNotifiesAndReArms() {
+			final Outcome outcome = decide(false, ALERTED, 470);
+			assertFalse(outcome.shouldNotify());
+			assertFalse(outcome.newState().alerted());
+		}
+
+		@Test
+		public void instantRuleNeverLapses() {
+			final AlertRule rule = AlertRule.highTemperature(true, THRESHOLD_C);
+			final Outcome outcome = rule.decide(ALERTED, true, 460, 30L * 24 * 3_600_000L, false);
+
+			assertFalse(outcome.shouldNotify());
+			assertTrue(outcome.newState().alerted());
+		}
+
+		private static Outcome decide(boolean enabled, Streak state, int rawTenthsC) {
+			final AlertRuleSet rules = AlertRuleSet.compile(List.of(AlertRule.highTemperature(enabled, THRESHOLD_C),
+					AlertRule.fastDrain(false, 0, 0, 0), AlertRule.slowCharge(false)));
+			final int[] values = new int[Metric.values().length];
+			values[Metric.TEMPERATURE.ordinal()] = rawTenthsC;
+			final Readings readings = new Readings(values, Readings.bit(Metric.TEMPERATURE), false, false);
+			return rules.decide(AlertRuleSet.TEMPERATURE, readings, state, 2_000, false);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.almothafar.simplebatterynotifier.R;
+import com.almothafar.simplebatterynotifier.util.AppPrefs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric tests for the {@link AlertSettings} snapshot: values are clamped once when it is built, a
+ * change to one of its settings rebuilds it, and the per-tick episode-state writes to the same file
+ * leave it alone. Each test gets a fresh application, so the snapshot re-binds to empty preferences.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AlertSettingsTest {
+
+	private static final long MINUTE_MS = 60_000L;
+
+	private Context context;
+	private SharedPreferences prefs;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+		prefs = PreferenceManager.getDefaultSharedPreferences(context);
+	}
+
+	@Test
+	public void outOfRangeValuesAreClampedWhenBuilt() {
+		prefs.edit()
+		     .putInt(context.getString(R.string._pref_key_fast_drain_limit), 999)
+		     .putInt(context.getString(R.string._pref_key_fast_drain_sustained_minutes), 0)
+		     .putInt(context.getString(R.string._pref_key_fast_drain_reminder_minutes), 500)
+		     .commit();
+
+		final AlertSettings settings = AlertSettings.current(context);
+
+		assertEquals(AppPrefs.MAX_DRAIN_LIMIT_PPH, settings.drainLimitPph());
+		assertEquals(FastDrainDetector.MIN_SUSTAINED_MINUTES * MINUTE_MS, settings.fastDrainSustainedMs());
+		assertEquals(FastDrainDetector.MAX_REMINDER_MINUTES * MINUTE_MS, settings.fastDrainReminderGapMs());
+	}
+
+	@Test
+	public void changingASettingRebuildsTheSnapshot() {
+		assertTrue(AlertSettings.current(context).fastDrainEnabled());
+
+		prefs.edit().putBoolean(context.getString(R.string._pref_key_notify_fast_drain), false).commit();
+
+		assertFalse(AlertSettings.current(context).fastDrainEnabled());
+	}
+
+	@Test
+	public void episodeStateWritesKeepTheSameSnapshot() {
+		final AlertSettings before = AlertSettings.current(context);
+
+		prefs.edit().putInt("_level_alert_prev_level", 42).commit();
+
+		assertSame(before, AlertSettings.current(context));
+	}
+}
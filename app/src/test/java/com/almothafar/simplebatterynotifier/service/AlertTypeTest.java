@@ -20,6 +20,7 @@ public class AlertTypeTest {
 		assertEquals(1, AlertType.persistedId(AlertType.CRITICAL));
 		assertEquals(2, AlertType.persistedId(AlertType.WARNING));
 		assertEquals(3, AlertType.persistedId(AlertType.FULL));
+		assertEquals(4, AlertType.persistedId(AlertType.CHARGE_LEVEL));
 		assertEquals(0, AlertType.persistedId(null));
 	}
 
@@ -42,5 +43,6 @@ public class AlertTypeTest {
 		assertTrue(AlertType.CRITICAL.alertsEveryTime());
 		assertFalse(AlertType.WARNING.alertsEveryTime());
 		assertFalse(AlertType.FULL.alertsEveryTime());
+		assertFalse(AlertType.CHARGE_LEVEL.alertsEveryTime());
 	}
 }
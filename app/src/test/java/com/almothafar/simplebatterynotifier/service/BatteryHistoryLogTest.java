@@ -0,0 +1,141 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Robolectric tests for {@link BatteryHistoryLog}: range queries entered through the sparse keyframe
+ * index, appends resuming after a restart, a torn tail not hiding the records written after it, and a
+ * foreign segment being skipped.
+ * Each test gets a fresh application, so the files dir starts empty.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BatteryHistoryLogTest {
+
+	private static final long T0 = 1_700_000_000_000L;
+	private static final long TICK_MS = 30_000;
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+	}
+
+	@After
+	public void tearDown() {
+		BatteryHistoryLog.close();
+	}
+
+	@Test
+	public void rangeQueryReturnsExactlyTheRecordsInRange() {
+		final int ticks = 3 * BatteryHistoryLog.KEYFRAME_INTERVAL + 17;
+		for (int i = 0; i < ticks; i++) {
+			BatteryHistoryLog.appendAt(context, snapshot(100 - i % 100, -300_000 - i), T0 + i * TICK_MS);
+		}
+
+		// Starts mid-way between keyframes, so the reader decodes forward from the previous one.
+		final List<long[]> records = query(T0 + 150 * TICK_MS, T0 + 300 * TICK_MS);
+
+		assertEquals(151, records.size());
+		assertEquals(T0 + 150 * TICK_MS, records.get(0)[0]);
+		assertEquals(100 - 150 % 100, records.get(0)[1]);
+		assertEquals(-300_000 - 150, records.get(0)[2]);
+		assertEquals(T0 + 300 * TICK_MS, records.get(150)[0]);
+		assertEquals(-300_000 - 300, records.get(150)[2]);
+	}
+
+	@Test
+	public void appendsResumeAfterRestart() {
+		BatteryHistoryLog.appendAt(context, snapshot(50, -300_000), T0);
+		BatteryHistoryLog.appendAt(context, snapshot(49, -310_000), T0 + TICK_MS);
+		BatteryHistoryLog.close(); // simulate the process going away
+
+		BatteryHistoryLog.appendAt(context, snapshot(48, -320_000), T0 + 2 * TICK_MS);
+
+		final List<long[]> records = query(T0, T0 + 10 * TICK_MS);
+		assertEquals(3, records.size());
+		assertEquals(48, records.get(2)[1]);
+		assertEquals(-320_000, records.get(2)[2]);
+	}
+
+	@Test
+	public void tornTailDoesNotHideLaterRecords() throws IOException {
+		BatteryHistoryLog.appendAt(context, snapshot(50, -300_000), T0);
+		BatteryHistoryLog.appendAt(context, snapshot(49, -310_000), T0 + TICK_MS);
+		BatteryHistoryLog.close();
+		// A crash mid-write leaves a partial delta record (flags + an unterminated varint) at the tail.
+		final File segment = new File(BatteryHistoryLog.historyDir(context), T0 + ".seg");
+		try (FileOutputStream out = new FileOutputStream(segment, true)) {
+			out.write(new byte[]{0x01, (byte) 0x80});
+		}
+
+		BatteryHistoryLog.appendAt(context, snapshot(48, -320_000), T0 + 2 * TICK_MS);
+
+		final List<long[]> records = query(T0, T0 + 10 * TICK_MS);
+		assertEquals(3, records.size());
+		assertEquals(48, records.get(2)[1]);
+	}
+
+	@Test
+	public void segmentWithAForeignHeaderIsSkippedAndNotAppendedTo() throws IOException {
+		final File dir = BatteryHistoryLog.historyDir(context);
+		dir.mkdirs();
+		try (FileOutputStream out = new FileOutputStream(new File(dir, T0 + ".seg"))) {
+			out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+		}
+
+		BatteryHistoryLog.appendAt(context, snapshot(50, -300_000), T0 + TICK_MS);
+
+		final List<long[]> records = query(T0, T0 + 10 * TICK_MS);
+		assertEquals(1, records.size());
+		assertEquals(50, records.get(0)[1]);
+	}
+
+	@Test
+	public void lowestLevelIsTheMinimumOverTheSpan() {
+		final long now = System.currentTimeMillis();
+		BatteryHistoryLog.appendAt(context, snapshot(9, -300_000), now - 3 * BatteryRollups.DAY_MS);
+		BatteryHistoryLog.appendAt(context, snapshot(30, -300_000), now - 2 * TICK_MS);
+		BatteryHistoryLog.appendAt(context, snapshot(21, -300_000), now - TICK_MS);
+
+		assertEquals(21, BatteryHistoryLog.lowestLevel(context, BatteryRollups.DAY_MS));
+		assertEquals(9, BatteryHistoryLog.lowestLevel(context, 7 * BatteryRollups.DAY_MS));
+	}
+
+	private List<long[]> query(long from, long to) {
+		final List<long[]> records = new ArrayList<>();
+		BatteryHistoryLog.query(context, from, to, (time, level, current, voltage, temperature, status, plugged) ->
+				records.add(new long[]{time, level, current}));
+		return records;
+	}
+
+	private static BatteryDO snapshot(int level, int currentMicroAmps) {
+		return new BatteryDO()
+				.setLevel(level)
+				.setScale(100)
+				.setCurrentMicroAmps(currentMicroAmps)
+				.setVoltage(4000)
+				.setTemperature(300)
+				.setStatus(3);
+	}
+}
@@ -0,0 +1,166 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.os.BatteryManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric tests for {@link BatteryQuantiles}: readings land in the session and the day, a plug flip
+ * restarts the session, days close into the ring and merge into a week, and the sketches survive a
+ * reload. Each test gets a fresh application, so the files dir starts empty and the engine reloads.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BatteryQuantilesTest {
+
+	private static final long DAY_MS = BatteryRollups.DAY_MS;
+	private static final int UTC = 0;
+
+	private Context context;
+	private long today;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+		today = RollupBucket.bucketStart(System.currentTimeMillis(), DAY_MS, UTC);
+	}
+
+	@Test
+	public void peaksShowTheBurstsTheAverageHides() {
+		// An hour of 300 mA with one reading in ten a 2 A burst, at 30 °C with a 41 °C peak.
+		for (int i = 0; i < 200; i++) {
+			final int temperature = i == 100 ? 410 : 300;
+			tick(today + i * 20_000L, BatteryManager.BATTERY_STATUS_DISCHARGING, i % 10 == 0 ? -2_000_000 : -300_000, temperature);
+		}
+
+		final BatteryQuantiles.Peaks peaks = BatteryQuantiles.recentPeaks(context, BatteryQuantiles.PEAKS_SPAN_MS);
+
+		assertTrue(peaks.hasCurrent());
+		assertEquals(300, peaks.medianCurrentMa());
+		assertEquals(2_000, peaks.p95CurrentMa());
+		assertTrue(peaks.hasTemperature());
+		assertEquals(300, peaks.medianTemperatureTenths());
+		assertFalse(peaks.hasPower()); // discharging: no charging power
+	}
+
+	@Test
+	public void plugFlipRestartsTheSessionButNotTheDay() {
+		tick(today, BatteryManager.BATTERY_STATUS_DISCHARGING, -500_000, 300);
+		tick(today + 60_000, BatteryManager.BATTERY_STATUS_CHARGING, 1_500_000, 320);
+
+		final BatteryQuantiles.Peaks session = BatteryQuantiles.sessionPeaks(context);
+		assertEquals(1_500, session.medianCurrentMa());
+		// 1.5 A × 4 V = 6 W while charging.
+		assertTrue(session.hasPower());
+		assertEquals(6_000, session.p95PowerMw());
+
+		final QuantileBucket day = new QuantileBucket();
+		QuantileTable.mergeDaysSince(QuantileTable.fileFor(context), today, day);
+		assertEquals(2, day.current.count());
+	}
+
+	@Test
+	public void closedDaysMergeIntoTheWeek() {
+		for (int day = 9; day >= 0; day--) {
+			tick(today - day * DAY_MS, BatteryManager.BATTERY_STATUS_DISCHARGING, -100_000 * (day + 1), 300);
+		}
+
+		final QuantileBucket week = new QuantileBucket();
+		final int days = QuantileTable.mergeDaysSince(QuantileTable.fileFor(context), today - 6 * DAY_MS, week);
+
+		// Today and the six days before it.
+		assertEquals(7, days);
+		assertEquals(7, week.current.count());
+		assertEquals(700, week.current.quantile(1), 0.01);
+	}
+
+	@Test
+	public void closedReadStopsAtTheCopiedOpenDay() {
+		tick(today - DAY_MS, BatteryManager.BATTERY_STATUS_DISCHARGING, -300_000, 300);
+		tick(today, BatteryManager.BATTERY_STATUS_DISCHARGING, -300_000, 300);
+
+		// Yesterday closed after a reader copied it as the open day: it is not merged again.
+		assertEquals(0, QuantileTable.mergeClosedDaysBefore(QuantileTable.fileFor(context), 0, today - DAY_MS,
+				new QuantileBucket()));
+		assertEquals(1, QuantileTable.mergeClosedDaysBefore(QuantileTable.fileFor(context), 0, today, new QuantileBucket()));
+	}
+
+	@Test
+	public void ringKeepsTheNewestDays() {
+		for (int day = QuantileTable.DAY_SLOTS + 5; day >= 0; day--) {
+			tick(today - day * DAY_MS, BatteryManager.BATTERY_STATUS_DISCHARGING, -300_000, 300);
+		}
+
+		final QuantileBucket all = new QuantileBucket();
+
+		assertEquals(QuantileTable.DAY_SLOTS + 1, QuantileTable.mergeDaysSince(QuantileTable.fileFor(context), 0, all));
+	}
+
+	@Test
+	public void sketchesSurviveReload() {
+		tick(today, BatteryManager.BATTERY_STATUS_CHARGING, 1_000_000, 300);
+		final QuantileTable reloaded = QuantileTable.load(context);
+
+		// Same direction, same day: the reloaded session and day carry on.
+		assertEquals(1, reloaded.advanceSession(true, today + 60_000).current.count());
+		assertEquals(1, reloaded.advanceDay(today).temperature.count());
+	}
+
+	@Test
+	public void jitterTicksStayInMemoryUntilABoundaryOrAFlush() {
+		tick(today, BatteryManager.BATTERY_STATUS_DISCHARGING, -300_000, 300);
+		for (int i = 1; i <= 3; i++) {
+			BatteryQuantiles.recordAt(context, battery(BatteryManager.BATTERY_STATUS_DISCHARGING, -2_000_000), today + i * 20_000L, UTC, false);
+		}
+
+		assertEquals(1, QuantileTable.load(context).advanceDay(today).current.count());
+		// The screens read the live sketches.
+		assertEquals(2_000, BatteryQuantiles.recentPeaks(context, DAY_MS).medianCurrentMa());
+
+		BatteryQuantiles.flush();
+
+		assertEquals(4, QuantileTable.load(context).advanceDay(today).current.count());
+	}
+
+	@Test
+	public void sessionBoundaryWritesWithoutASignificantTick() {
+		tick(today, BatteryManager.BATTERY_STATUS_DISCHARGING, -300_000, 300);
+		BatteryQuantiles.recordAt(context, battery(BatteryManager.BATTERY_STATUS_CHARGING, 1_000_000), today + 20_000L, UTC, false);
+
+		final QuantileBucket session = new QuantileBucket();
+		assertTrue(QuantileTable.mergeSession(QuantileTable.fileFor(context), session));
+		assertEquals(1, session.current.count());
+		assertEquals(1_000, session.current.quantile(0.5), 0.01);
+	}
+
+	@Test
+	public void nothingRecordedHasNoPeaks() {
+		assertNull(BatteryQuantiles.recentPeaks(context, BatteryQuantiles.PEAKS_SPAN_MS));
+		assertNull(BatteryQuantiles.sessionPeaks(context));
+	}
+
+	private void tick(long time, int status, int microAmps, int temperatureTenths) {
+		final BatteryDO battery = new BatteryDO().setLevel(50).setScale(100).setStatus(status).setTemperature(temperatureTenths)
+		                                         .setVoltage(4_000).setCurrentMicroAmps(microAmps);
+		BatteryQuantiles.recordAt(context, battery, time, UTC);
+	}
+
+	private static BatteryDO battery(int status, int microAmps) {
+		return new BatteryDO().setLevel(50).setScale(100).setStatus(status).setTemperature(300)
+		                      .setVoltage(4_000).setCurrentMicroAmps(microAmps);
+	}
+}
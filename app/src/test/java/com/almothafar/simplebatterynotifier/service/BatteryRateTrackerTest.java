@@ -7,6 +7,7 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.almothafar.simplebatterynotifier.model.BatteryDO;
 import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.BatteryRate;
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.RateHorizons;
 import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.Sample;
 
 import org.junit.Before;
@@ -19,6 +20,7 @@ import org.junit.runners.Parameterized.Parameters;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -99,6 +101,61 @@ public class BatteryRateTrackerTest {
 			assertFalse(rate.hasCurrent());
 		}
 
+		@Test
+		public void sourceB_fitsEverySampleRatherThanTheEndpoints() {
+			// A 15%/h drain stepping every 4 min, the window opening just before a step and closing just
+			// after one: the endpoints read 3% over 9 min (20%/h), the fit over all ten samples ~16%/h.
+			final int[] levels = {50, 49, 49, 49, 49, 48, 48, 48, 48, 47};
+			final List<Sample> window = new ArrayList<>();
+			for (int i = 0; i < levels.length; i++) {
+				window.add(new Sample(i * 60_000L, levels[i], NO_CURRENT));
+			}
+			final BatteryRate rate = BatteryRateTracker.computeRate(window, 0, false, 540_000, NO_CURRENT);
+
+			assertTrue(rate.hasRate());
+			assertEquals(16, rate.percentPerHour());
+		}
+
+		@Test
+		public void sourceB_wobblingLevelIsWithheld() {
+			// A reading flapping across a boundary is not a trend, though its endpoints differ by 1%.
+			final int[] levels = {50, 49, 50, 49, 50, 49};
+			final List<Sample> window = new ArrayList<>();
+			for (int i = 0; i < levels.length; i++) {
+				window.add(new Sample(i * 60_000L, levels[i], NO_CURRENT));
+			}
+			final BatteryRate rate = BatteryRateTracker.computeRate(window, 0, false, 300_000, NO_CURRENT);
+
+			assertFalse(rate.hasRate());
+		}
+
+		@Test
+		public void sourceB_fastDrainReadsBeforeTheFullLevelSpan() {
+			// Two steps within 100 s: well short of MIN_SPAN_LEVEL_MS, but the fit already has a slope.
+			final List<Sample> window = Arrays.asList(
+					new Sample(0, 50, NO_CURRENT),
+					new Sample(20_000, 50, NO_CURRENT),
+					new Sample(40_000, 49, NO_CURRENT),
+					new Sample(60_000, 49, NO_CURRENT),
+					new Sample(80_000, 48, NO_CURRENT),
+					new Sample(100_000, 48, NO_CURRENT));
+			final BatteryRate rate = BatteryRateTracker.computeRate(window, 0, false, 100_000, NO_CURRENT);
+
+			assertTrue(rate.hasRate());
+			assertEquals(82, rate.percentPerHour());
+		}
+
+		@Test
+		public void sourceB_singleStepStillWaitsForTheFullLevelSpan() {
+			final List<Sample> window = Arrays.asList(
+					new Sample(0, 50, NO_CURRENT),
+					new Sample(60_000, 50, NO_CURRENT),
+					new Sample(120_000, 49, NO_CURRENT));
+			final BatteryRate rate = BatteryRateTracker.computeRate(window, 0, false, 120_000, NO_CURRENT);
+
+			assertFalse(rate.hasRate());
+		}
+
 		@Test
 		public void warmUp_singleSampleHasNoRate() {
 			final List<Sample> window = Arrays.asList(new Sample(0, 50, NO_CURRENT));
@@ -693,4 +750,84 @@ public class BatteryRateTrackerTest {
 			assertEquals(700_000, result.get(0).timeMillis());
 		}
 	}
+
+	/**
+	 * {@link BatteryRateTracker#computeHorizons}: each horizon over its own trailing span from one ring,
+	 * withheld until its samples cover half of it, and the session rate from the level since the plug flip.
+	 */
+	public static class Horizons {
+
+		private static final long STEP_MS = BatteryRateTracker.MIN_SAMPLE_SPACING_MS;
+
+		/**
+		 * Samples every {@link #STEP_MS} from {@code from} to {@code to} inclusive, losing 1% every
+		 * {@code msPerPercent}.
+		 */
+		private static void addSamples(List<Sample> ring, long from, long to, int startLevel,
+		                               long msPerPercent, int microAmps) {
+			for (long t = from; t <= to; t += STEP_MS) {
+				ring.add(new Sample(t, startLevel - (int) ((t - from) / msPerPercent), microAmps));
+			}
+		}
+
+		@Test
+		public void hourIsWithheldUntilHalfCovered() {
+			final List<Sample> ring = new ArrayList<>();
+			addSamples(ring, 0, 20 * 60_000L, 80, 3 * 60_000L, -800_000);
+			final RateHorizons horizons = BatteryRateTracker.computeHorizons(ring, 0, 80, 4000, false, 20 * 60_000L);
+
+			assertEquals(20, horizons.minutePph()); // 800mA / 4000mAh * 100
+			assertEquals(20, horizons.tenMinutePph());
+			assertEquals(0, horizons.hourPph()); // 20 min of an hour
+			assertEquals(3, horizons.available());
+		}
+
+		@Test
+		public void levelSlopeWithoutCapacity() {
+			// 1% every 3 min = 20%/h; no capacity, so the level fit carries the longer horizons.
+			final List<Sample> ring = new ArrayList<>();
+			addSamples(ring, 0, 40 * 60_000L, 90, 3 * 60_000L, NO_CURRENT);
+			final RateHorizons horizons = BatteryRateTracker.computeHorizons(ring, 0, 90, 0, false, 40 * 60_000L);
+
+			assertEquals(0, horizons.minutePph()); // a minute of level holds no step
+			assertEquals(20, horizons.tenMinutePph(), 2);
+			assertEquals(20, horizons.hourPph(), 1);
+			assertEquals(20, horizons.sessionPph());
+		}
+
+		@Test
+		public void minuteFollowsANewLoadWhileTheHourAverages() {
+			final List<Sample> ring = new ArrayList<>();
+			addSamples(ring, 0, 58 * 60_000L, 90, 10 * 60_000L, -400_000);
+			addSamples(ring, 58 * 60_000L + STEP_MS, 60 * 60_000L, 84, 10 * 60_000L, -1_200_000);
+			final RateHorizons horizons = BatteryRateTracker.computeHorizons(ring, 0, 90, 4000, false, 60 * 60_000L);
+
+			assertEquals(30, horizons.minutePph());
+			assertTrue(horizons.tenMinutePph() > 10 && horizons.tenMinutePph() < 30);
+			assertTrue(horizons.hourPph() > 10 && horizons.hourPph() < horizons.tenMinutePph());
+		}
+
+		@Test
+		public void sessionRateReachesPastTheRing() {
+			// Plugged in at 10% two hours ago; the ring only holds the last hour.
+			final List<Sample> ring = new ArrayList<>();
+			addSamples(ring, 60 * 60_000L, 120 * 60_000L, 50, 2 * 60_000L, NO_CURRENT);
+			final List<Sample> charging = new ArrayList<>();
+			for (final Sample sample : ring) {
+				charging.add(new Sample(sample.timeMillis(), 100 - sample.level(), sample.currentMicroAmps()));
+			}
+			final RateHorizons horizons = BatteryRateTracker.computeHorizons(charging, 0, 10, 0, true, 120 * 60_000L);
+
+			assertTrue(horizons.charging());
+			assertEquals(35, horizons.sessionPph()); // 10% -> 80% in 2h: the endpoints, not the last hour's 30%/h
+			assertEquals(30, horizons.hourPph(), 1);
+		}
+
+		@Test
+		public void emptyRingHasNoHorizons() {
+			final RateHorizons horizons = BatteryRateTracker.computeHorizons(List.of(), 0, 50, 4000, false, 0);
+
+			assertEquals(0, horizons.available());
+		}
+	}
 }
@@ -0,0 +1,177 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.os.BatteryManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.BatteryRate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric tests for {@link BatteryRollups}: per-tick accrual into the open bucket, time split at an
+ * hour boundary, long gaps left unattributed, jitter ticks written only at a close or a flush, and the
+ * tables surviving a reload. Each test gets a fresh
+ * application, so the files dir starts empty and the engine reloads.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BatteryRollupsTest {
+
+	private static final long HOUR_MS = BatteryRollups.HOUR_MS;
+	private static final int UTC = 0;
+	// 2023-11-14 22:00 UTC: an hour boundary, two hours before a day boundary.
+	private static final long T0 = 1_700_000_000_000L / HOUR_MS * HOUR_MS;
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+	}
+
+	@Test
+	public void ticksAccrueAndTimeSplitsAtTheHourBoundary() {
+		tick(T0 + 50 * 60_000, BatteryManager.BATTERY_STATUS_DISCHARGING, 12);
+		tick(T0 + 70 * 60_000, BatteryManager.BATTERY_STATUS_CHARGING, 40);
+
+		final RollupBucket merged = new RollupBucket();
+		final int buckets = RollupTable.mergeSince(RollupTable.fileFor(context, BatteryRollups.Resolution.HOURLY),
+				BatteryRollups.Resolution.HOURLY, T0, merged);
+
+		assertEquals(2, buckets);
+		assertEquals(1, merged.drain.count);
+		assertEquals(12f, merged.drain.max, 0f);
+		assertEquals(1, merged.charge.count);
+		// The 20 minutes between the ticks belong to the first tick's direction (discharging).
+		assertEquals(20 * 60_000, merged.dischargingMs);
+		assertEquals(0, merged.chargingMs);
+		assertEquals(2, merged.temperature.count);
+	}
+
+	@Test
+	public void gapLongerThanTheCapIsNotAttributed() {
+		tick(T0, BatteryManager.BATTERY_STATUS_DISCHARGING, 12);
+		tick(T0 + BatteryRollups.MAX_GAP_MS + 1, BatteryManager.BATTERY_STATUS_DISCHARGING, 12);
+
+		final RollupBucket merged = new RollupBucket();
+		RollupTable.mergeSince(RollupTable.fileFor(context, BatteryRollups.Resolution.DAILY),
+				BatteryRollups.Resolution.DAILY, T0, merged);
+
+		assertEquals(0, merged.dischargingMs + merged.chargingMs);
+		assertEquals(2, merged.drain.count);
+	}
+
+	@Test
+	public void openBucketAndLastTickSurviveReload() {
+		tick(T0 + 60_000, BatteryManager.BATTERY_STATUS_DISCHARGING, 10);
+		final RollupTable reloaded = RollupTable.load(context, BatteryRollups.Resolution.HOURLY);
+
+		assertEquals(T0 + 60_000, reloaded.lastTickMillis());
+		// Continuing from the reloaded table attributes time since the persisted tick.
+		final RollupBucket open = reloaded.advance(T0 + 120_000, UTC, reloaded.lastTickMillis(), reloaded.lastCharging());
+		assertEquals(T0, open.startMillis);
+		assertEquals(1, open.drain.count);
+		assertEquals(60_000, open.dischargingMs);
+	}
+
+	@Test
+	public void summaryReportsAveragesAndChargingShare() {
+		final long now = System.currentTimeMillis();
+		BatteryRollups.recordAt(context, battery(BatteryManager.BATTERY_STATUS_DISCHARGING, 300), rate(false, 10), now - 40 * 60_000, UTC);
+		BatteryRollups.recordAt(context, battery(BatteryManager.BATTERY_STATUS_CHARGING, 340), rate(true, 30), now - 10 * 60_000, UTC);
+		BatteryRollups.recordAt(context, battery(BatteryManager.BATTERY_STATUS_CHARGING, 320), rate(true, 50), now, UTC);
+
+		final BatteryRollups.Summary summary = BatteryRollups.summarize(context, BatteryRollups.Resolution.HOURLY,
+				BatteryRollups.SUMMARY_SPAN_MS);
+
+		assertTrue(summary.hasDrain() && summary.hasCharge() && summary.hasTemperature());
+		assertEquals(10, summary.averageDrainPph());
+		assertEquals(40, summary.averageChargePph());
+		assertEquals(320, summary.averageTemperatureTenths());
+		assertEquals(340, summary.maxTemperatureTenths());
+		// 30 min discharging, then 10 min charging.
+		assertEquals(25, summary.chargingPercent());
+	}
+
+	@Test
+	public void jitterTicksStayInMemoryUntilABucketClosesOrAFlush() {
+		final long now = System.currentTimeMillis();
+		BatteryRollups.recordAt(context, battery(BatteryManager.BATTERY_STATUS_DISCHARGING, 300), rate(false, 10), now - 60_000, UTC, false);
+		final RollupBucket onDisk = new RollupBucket();
+
+		assertEquals(0, RollupTable.mergeSince(RollupTable.fileFor(context, BatteryRollups.Resolution.HOURLY),
+				BatteryRollups.Resolution.HOURLY, 0, onDisk));
+		// The insights summary still sees the unwritten tick.
+		assertEquals(10, BatteryRollups.summarize(context, BatteryRollups.Resolution.HOURLY, HOUR_MS).averageDrainPph());
+
+		BatteryRollups.flush();
+
+		assertEquals(1, RollupTable.mergeSince(RollupTable.fileFor(context, BatteryRollups.Resolution.HOURLY),
+				BatteryRollups.Resolution.HOURLY, 0, onDisk));
+		assertEquals(1, onDisk.drain.count);
+	}
+
+	@Test
+	public void closingABucketWritesItWithoutAFlush() {
+		BatteryRollups.recordAt(context, battery(BatteryManager.BATTERY_STATUS_DISCHARGING, 300), rate(false, 10), T0 + 60_000, UTC, false);
+		BatteryRollups.recordAt(context, battery(BatteryManager.BATTERY_STATUS_DISCHARGING, 300), rate(false, 20), T0 + 61 * 60_000, UTC, false);
+
+		final RollupBucket onDisk = new RollupBucket();
+		final int buckets = RollupTable.mergeSince(RollupTable.fileFor(context, BatteryRollups.Resolution.HOURLY),
+				BatteryRollups.Resolution.HOURLY, 0, onDisk);
+
+		// The closed hour is on disk; the new open hour is not written yet.
+		assertEquals(1, buckets);
+		assertEquals(10f, onDisk.drain.max, 0f);
+	}
+
+	@Test
+	public void closedReadStopsAtTheCopiedOpenBucket() {
+		final BatteryRollups.Resolution hourly = BatteryRollups.Resolution.HOURLY;
+		tick(T0 + 60_000, BatteryManager.BATTERY_STATUS_DISCHARGING, 10);
+		tick(T0 + 61 * 60_000, BatteryManager.BATTERY_STATUS_DISCHARGING, 20);
+
+		// The hour at T0 closed after a reader copied it as the open bucket: it is not merged again.
+		assertEquals(0, RollupTable.mergeClosedBefore(RollupTable.fileFor(context, hourly), hourly, 0, T0, new RollupBucket()));
+		assertEquals(1, RollupTable.mergeClosedBefore(RollupTable.fileFor(context, hourly), hourly, 0, T0 + HOUR_MS,
+				new RollupBucket()));
+	}
+
+	@Test
+	public void closedDaysAreCompactedToTheNewestAtTheCap() {
+		final BatteryRollups.Resolution daily = BatteryRollups.Resolution.DAILY;
+		for (int day = 0; day <= daily.maxRecords; day++) {
+			tick(T0 + day * BatteryRollups.DAY_MS, BatteryManager.BATTERY_STATUS_DISCHARGING, 10);
+		}
+
+		final RollupBucket all = new RollupBucket();
+		final int buckets = RollupTable.mergeSince(RollupTable.fileFor(context, daily), daily, 0, all);
+
+		// The cap was reached on the last close: the newest keepRecords closed days plus the open one remain.
+		assertEquals(daily.keepRecords + 1, buckets);
+		assertEquals(daily.keepRecords + 1, all.drain.count);
+	}
+
+	private void tick(long time, int status, int percentPerHour) {
+		final boolean charging = status == BatteryManager.BATTERY_STATUS_CHARGING;
+		BatteryRollups.recordAt(context, battery(status, 300), rate(charging, percentPerHour), time, UTC);
+	}
+
+	private static BatteryDO battery(int status, int temperatureTenths) {
+		return new BatteryDO().setLevel(50).setScale(100).setStatus(status).setTemperature(temperatureTenths);
+	}
+
+	private static BatteryRate rate(boolean charging, int percentPerHour) {
+		return new BatteryRate(true, percentPerHour, charging, true, charging ? 1_500 : -600, false, 0);
+	}
+}
@@ -0,0 +1,72 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.os.Looper;
+
+import com.almothafar.simplebatterynotifier.model.BatteryDO;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Robolectric tests for {@link BatterySnapshotFeed}: the newest snapshot is always readable, observers
+ * are called on the main thread once per burst of publishes, and an unsubscribed observer hears nothing.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BatterySnapshotFeedTest {
+
+	private final List<BatterySnapshotFeed.Snapshot> delivered = new ArrayList<>();
+	private final BatterySnapshotFeed.Listener listener = delivered::add;
+
+	@After
+	public void tearDown() {
+		BatterySnapshotFeed.unsubscribe(listener);
+	}
+
+	@Test
+	public void latestIsTheNewestPublishedSnapshot() {
+		final BatteryDO reading = new BatteryDO().setLevel(42).setScale(100);
+		final BatteryRateTracker.BatteryRate rate = BatteryRateTracker.BatteryRate.empty();
+
+		BatterySnapshotFeed.publish(reading, rate);
+
+		assertSame(reading, BatterySnapshotFeed.latest().battery());
+		assertSame(rate, BatterySnapshotFeed.latest().rate());
+	}
+
+	@Test
+	public void aBurstOfPublishesIsDeliveredOnceWithTheNewest() {
+		BatterySnapshotFeed.subscribe(listener);
+		final BatteryDO newest = new BatteryDO().setLevel(51).setScale(100);
+
+		BatterySnapshotFeed.publish(new BatteryDO().setLevel(50).setScale(100), BatteryRateTracker.BatteryRate.empty());
+		BatterySnapshotFeed.publish(newest, BatteryRateTracker.BatteryRate.empty());
+		assertTrue(delivered.isEmpty());
+		shadowOf(Looper.getMainLooper()).idle();
+
+		assertEquals(1, delivered.size());
+		assertSame(newest, delivered.get(0).battery());
+	}
+
+	@Test
+	public void unsubscribedListenerIsNotCalled() {
+		BatterySnapshotFeed.subscribe(listener);
+		BatterySnapshotFeed.unsubscribe(listener);
+
+		BatterySnapshotFeed.publish(new BatteryDO().setLevel(60).setScale(100), BatteryRateTracker.BatteryRate.empty());
+		shadowOf(Looper.getMainLooper()).idle();
+
+		assertTrue(delivered.isEmpty());
+	}
+}
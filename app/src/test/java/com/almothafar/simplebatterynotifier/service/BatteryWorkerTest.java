@@ -0,0 +1,118 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Robolectric tests for {@link BatteryWorker}: work posted to it runs on one background thread in the
+ * order it was posted, and receivers registered on it see broadcasts in the same interleaving the main
+ * looper gave them — each broadcast reaches every receiver before the next broadcast is delivered. A
+ * quit runs its cleanup after the queued work, and a restart reuses the same thread behind it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BatteryWorkerTest {
+
+	private static final String ACTION = "com.almothafar.simplebatterynotifier.test.TICK";
+
+	@After
+	public void tearDown() {
+		BatteryWorker.quit(() -> { });
+	}
+
+	@Test
+	public void postedWorkRunsInOrderOnOneBackgroundThread() {
+		final Handler handler = BatteryWorker.handler();
+		final List<Integer> order = new ArrayList<>();
+		final List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			final int tick = i;
+			handler.post(() -> {
+				order.add(tick);
+				threads.add(Thread.currentThread());
+			});
+		}
+
+		shadowOf(handler.getLooper()).idle();
+
+		assertEquals(List.of(0, 1, 2, 3, 4), order);
+		assertTrue(threads.stream().allMatch(thread -> thread == threads.get(0)));
+		assertNotSame(Looper.getMainLooper().getThread(), threads.get(0));
+	}
+
+	@Test
+	public void receiversOnTheWorkerSeeBroadcastsInDeliveryOrder() {
+		final Context context = ApplicationProvider.getApplicationContext();
+		final Handler handler = BatteryWorker.handler();
+		final List<String> order = new ArrayList<>();
+		context.registerReceiver(recorder("level", order), new IntentFilter(ACTION), null, handler);
+		context.registerReceiver(recorder("power", order), new IntentFilter(ACTION), null, handler);
+
+		context.sendBroadcast(new Intent(ACTION).putExtra("tick", 1));
+		context.sendBroadcast(new Intent(ACTION).putExtra("tick", 2));
+		shadowOf(Looper.getMainLooper()).idle();
+		shadowOf(handler.getLooper()).idle();
+
+		assertEquals(List.of("level1", "power1", "level2", "power2"), order);
+	}
+
+	@Test
+	public void quitRunsTheLastTaskAfterQueuedWork() {
+		final Handler handler = BatteryWorker.handler();
+		final List<String> order = new ArrayList<>();
+		handler.post(() -> order.add("tick"));
+
+		BatteryWorker.quit(() -> order.add("close"));
+		shadowOf(handler.getLooper()).idle();
+
+		assertEquals(List.of("tick", "close"), order);
+		assertNull(BatteryWorker.running());
+	}
+
+	@Test
+	public void restartAfterQuitQueuesBehindTheCleanupOnTheSameThread() {
+		final Handler handler = BatteryWorker.handler();
+		final List<String> order = new ArrayList<>();
+
+		BatteryWorker.quit(() -> order.add("close"));
+		final Handler restarted = BatteryWorker.handler();
+		restarted.post(() -> order.add("tick"));
+		shadowOf(restarted.getLooper()).idle();
+
+		// One worker: the new service's first tick never overlaps the old one's cleanup.
+		assertSame(handler, restarted);
+		assertSame(restarted, BatteryWorker.running());
+		assertEquals(List.of("close", "tick"), order);
+	}
+
+	private static BroadcastReceiver recorder(String name, List<String> order) {
+		return new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				order.add(name + intent.getIntExtra("tick", 0));
+			}
+		};
+	}
+}
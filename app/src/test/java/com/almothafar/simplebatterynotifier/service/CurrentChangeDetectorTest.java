@@ -0,0 +1,102 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.CurrentChangeDetector.Sensitivity;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link CurrentChangeDetector}: an abrupt shift either way is confirmed within a few
+ * readings and dated to its first post-change reading, while spikes and an ordinary noisy load never
+ * are, and the sensitivity setting is honoured.
+ */
+public class CurrentChangeDetectorTest {
+
+	private static final long STEP_MS = BatteryRateTracker.MIN_SAMPLE_SPACING_MS;
+	private static final long NO_CHANGE = CurrentChangeDetector.NO_CHANGE;
+
+	/** Feeds {@code count} readings of {@code microAmps} from sample {@code from}; returns the first change seen. */
+	private static long feed(CurrentChangeDetector detector, int from, int count, int microAmps,
+	                         Sensitivity sensitivity) {
+		for (int i = from; i < from + count; i++) {
+			final long changedAt = detector.update(i * STEP_MS, microAmps, sensitivity);
+			if (changedAt != NO_CHANGE) {
+				return changedAt;
+			}
+		}
+		return NO_CHANGE;
+	}
+
+	@Test
+	public void tripledLoadIsConfirmedOnItsThirdReading() {
+		final CurrentChangeDetector detector = new CurrentChangeDetector();
+		assertEquals(NO_CHANGE, feed(detector, 0, 10, -300_000, Sensitivity.NORMAL));
+
+		assertEquals(NO_CHANGE, detector.update(10 * STEP_MS, -900_000, Sensitivity.NORMAL));
+		assertEquals(NO_CHANGE, detector.update(11 * STEP_MS, -900_000, Sensitivity.NORMAL));
+		assertEquals(10 * STEP_MS, detector.update(12 * STEP_MS, -900_000, Sensitivity.NORMAL));
+	}
+
+	@Test
+	public void droppedLoadIsConfirmedToo() {
+		final CurrentChangeDetector detector = new CurrentChangeDetector();
+		feed(detector, 0, 10, -1_200_000, Sensitivity.NORMAL);
+
+		assertEquals(10 * STEP_MS, feed(detector, 10, 5, -400_000, Sensitivity.NORMAL));
+	}
+
+	@Test
+	public void newLoadBecomesTheBaseline() {
+		final CurrentChangeDetector detector = new CurrentChangeDetector();
+		feed(detector, 0, 10, -300_000, Sensitivity.NORMAL);
+		feed(detector, 10, 3, -900_000, Sensitivity.NORMAL);
+
+		// The game keeps running: no further change.
+		assertEquals(NO_CHANGE, feed(detector, 13, 30, -900_000, Sensitivity.NORMAL));
+	}
+
+	@Test
+	public void spikesNeverConfirmAChange() {
+		final CurrentChangeDetector detector = new CurrentChangeDetector();
+		feed(detector, 0, 10, -300_000, Sensitivity.HIGH);
+		int t = 10;
+		for (int burst = 0; burst < 5; burst++) {
+			// Two huge readings in a row, then the load settles back.
+			assertEquals(NO_CHANGE, feed(detector, t, 2, -5_000_000, Sensitivity.HIGH));
+			assertEquals(NO_CHANGE, feed(detector, t + 2, 8, -300_000, Sensitivity.HIGH));
+			t += 10;
+		}
+	}
+
+	@Test
+	public void noisySteadyLoadNeverConfirmsAChange() {
+		final Random random = new Random(7);
+		final CurrentChangeDetector detector = new CurrentChangeDetector();
+		for (int i = 0; i < 500; i++) {
+			// ±25% around 500 mA.
+			final int microAmps = -(int) (500_000 * (0.75 + 0.5 * random.nextDouble()));
+			assertEquals("reading " + i, NO_CHANGE, detector.update(i * STEP_MS, microAmps, Sensitivity.NORMAL));
+		}
+	}
+
+	@Test
+	public void offNeverConfirmsAndImplausibleReadingsAreIgnored() {
+		final CurrentChangeDetector detector = new CurrentChangeDetector();
+		feed(detector, 0, 10, -300_000, Sensitivity.OFF);
+		assertEquals(NO_CHANGE, feed(detector, 10, 10, -900_000, Sensitivity.OFF));
+
+		feed(detector, 20, 10, -300_000, Sensitivity.NORMAL);
+		assertEquals(NO_CHANGE, feed(detector, 30, 10, Integer.MIN_VALUE, Sensitivity.NORMAL));
+	}
+
+	@Test
+	public void preferenceValuesMapToSensitivities() {
+		assertEquals(Sensitivity.OFF, Sensitivity.fromPreference("off"));
+		assertEquals(Sensitivity.HIGH, Sensitivity.fromPreference("high"));
+		assertEquals(Sensitivity.NORMAL, Sensitivity.fromPreference(null));
+		assertEquals(Sensitivity.NORMAL, Sensitivity.fromPreference("garbage"));
+	}
+}
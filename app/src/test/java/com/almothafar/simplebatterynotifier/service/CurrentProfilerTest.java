@@ -0,0 +1,85 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CurrentProfiler} driven sample by sample: the sparkline ring keeps the newest
+ * minute, only a marked interval feeds the statistics, and unavailable readings are skipped.
+ */
+public class CurrentProfilerTest {
+
+	private final AtomicInteger current = new AtomicInteger(-400_000);
+	private final AtomicLong clock = new AtomicLong(1_000L);
+	private final CurrentProfiler profiler = new CurrentProfiler(current::get, () -> 4_000_000, clock::get);
+	private final int[] sparkline = new int[CurrentProfiler.RING_CAPACITY];
+
+	@Test
+	public void ringKeepsTheNewestSamplesOldestFirst() {
+		for (int i = 0; i < CurrentProfiler.RING_CAPACITY + 5; i++) {
+			current.set(-i * 1_000);
+			sample();
+		}
+
+		final CurrentProfiler.Readout readout = profiler.read(sparkline);
+
+		assertEquals(CurrentProfiler.RING_CAPACITY, readout.sparklineCount());
+		assertEquals(5, sparkline[0]);
+		assertEquals(CurrentProfiler.RING_CAPACITY + 4, sparkline[CurrentProfiler.RING_CAPACITY - 1]);
+		assertEquals((CurrentProfiler.RING_CAPACITY - 1) * CurrentProfiler.SAMPLE_PERIOD_MS, readout.spanMillis());
+	}
+
+	@Test
+	public void onlyTheMarkedIntervalFeedsTheStatistics() {
+		sample();
+		assertNull(profiler.read(sparkline).interval());
+
+		profiler.startInterval();
+		current.set(-600_000);
+		sample();
+		sample();
+		profiler.endInterval();
+		current.set(-2_000_000);
+		sample();
+
+		final CurrentProfiler.Readout readout = profiler.read(sparkline);
+		assertFalse(readout.marking());
+		assertEquals(2, readout.interval().samples());
+		assertEquals(600, readout.interval().avgMilliAmps());
+		assertEquals(2_000, readout.latestMilliAmps());
+		assertEquals(8_000, readout.latestMilliWatts());
+	}
+
+	@Test
+	public void unavailableReadingsAreSkipped() {
+		current.set(Integer.MIN_VALUE);
+		sample();
+
+		final CurrentProfiler.Readout readout = profiler.read(sparkline);
+		assertEquals(0, readout.sparklineCount());
+		assertEquals(Integer.MIN_VALUE, readout.latestMilliAmps());
+	}
+
+	@Test
+	public void startIntervalDiscardsThePreviousResult() {
+		profiler.startInterval();
+		sample();
+		profiler.endInterval();
+		profiler.startInterval();
+
+		assertTrue(profiler.isMarking());
+		assertNull(profiler.read(sparkline).interval());
+	}
+
+	private void sample() {
+		profiler.sampleOnce();
+		clock.addAndGet(CurrentProfiler.SAMPLE_PERIOD_MS);
+	}
+}
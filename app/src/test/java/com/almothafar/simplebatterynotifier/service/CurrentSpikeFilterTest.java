@@ -0,0 +1,86 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link CurrentSpikeFilter}: an isolated burst is rejected however plausible, an
+ * ordinary noisy load never is, a sustained shift gets through once it holds most of the ring, and a
+ * steady load's near-zero MAD doesn't reject ordinary wobble.
+ */
+public class CurrentSpikeFilterTest {
+
+	private static final int REJECTED = CurrentSpikeFilter.REJECTED;
+
+	private static void feed(CurrentSpikeFilter filter, int count, int microAmps) {
+		for (int i = 0; i < count; i++) {
+			assertEquals("reading " + i, microAmps, filter.screen(microAmps));
+		}
+	}
+
+	@Test
+	public void cameraFlashBurstIsRejected() {
+		final CurrentSpikeFilter filter = new CurrentSpikeFilter();
+		feed(filter, 7, -400_000);
+
+		assertEquals(REJECTED, filter.screen(-4_000_000));
+		assertEquals(REJECTED, filter.screen(-4_000_000));
+		assertEquals(-400_000, filter.screen(-400_000));
+	}
+
+	@Test
+	public void sustainedShiftGetsThroughOnceItHoldsTheRing() {
+		final CurrentSpikeFilter filter = new CurrentSpikeFilter();
+		feed(filter, 7, -300_000);
+
+		assertEquals(REJECTED, filter.screen(-900_000));
+		assertEquals(REJECTED, filter.screen(-900_000));
+		assertEquals(REJECTED, filter.screen(-900_000));
+		// Four of the seven now: the median has moved.
+		assertEquals(-900_000, filter.screen(-900_000));
+	}
+
+	@Test
+	public void noisySteadyLoadIsNeverRejected() {
+		final Random random = new Random(5);
+		final CurrentSpikeFilter filter = new CurrentSpikeFilter();
+		for (int i = 0; i < 500; i++) {
+			// ±25% around 500 mA.
+			final int microAmps = -(int) (500_000 * (0.75 + 0.5 * random.nextDouble()));
+			assertEquals("reading " + i, microAmps, filter.screen(microAmps));
+		}
+	}
+
+	@Test
+	public void flatLoadKeepsItsWobble() {
+		final CurrentSpikeFilter filter = new CurrentSpikeFilter();
+		feed(filter, 7, -200_000);
+
+		// The MAD is zero, but 60 mA is under both floors.
+		assertEquals(-260_000, filter.screen(-260_000));
+	}
+
+	@Test
+	public void warmUpAndResetAcceptEverything() {
+		final CurrentSpikeFilter filter = new CurrentSpikeFilter();
+		feed(filter, 2, -300_000);
+		assertEquals(-5_000_000, filter.screen(-5_000_000)); // only three readings so far
+
+		feed(filter, 7, -300_000);
+		filter.reset();
+		assertEquals(-5_000_000, filter.screen(-5_000_000));
+	}
+
+	@Test
+	public void implausibleReadingsPassThroughUnrecorded() {
+		final CurrentSpikeFilter filter = new CurrentSpikeFilter();
+		feed(filter, 7, -300_000);
+
+		assertEquals(Integer.MIN_VALUE, filter.screen(Integer.MIN_VALUE));
+		assertEquals(Integer.MAX_VALUE, filter.screen(Integer.MAX_VALUE));
+		assertEquals(-300_000, filter.screen(-300_000));
+	}
+}
@@ -21,7 +21,7 @@ import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
 
 /**
- * Robolectric tests for {@link FastDrainDetector#evaluate}'s notification cleanup: a shown
+ * Robolectric tests for the fast-drain alert's notification cleanup in {@link AlertRules#evaluate}: a shown
  * "battery draining fast" warning must not outlive the episode it describes. The pure trigger logic is
  * covered by {@link FastDrainDetectorTest}; here we assert the {@link NotificationService} wiring —
  * dismissing the stale alert when the drain calms while still on battery, or when the session ends
@@ -47,7 +47,7 @@ public class FastDrainDetectorCleanupTest {
 		seedAlertedStreak();
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
-			FastDrainDetector.evaluate(context, discharging(), rate(BELOW_LIMIT_PPH));
+			AlertRules.evaluate(context, discharging(), rate(BELOW_LIMIT_PPH), AlertSettings.current(context));
 
 			// The drain dropped back below the limit, so the warning is stale — dismissed, not re-posted.
 			ns.verify(() -> NotificationService.clearFastDrainAlert(any(Context.class)));
@@ -60,7 +60,7 @@ public class FastDrainDetectorCleanupTest {
 		seedAlertedStreak();
 
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
-			FastDrainDetector.evaluate(context, charging(), rate(ABOVE_LIMIT_PPH));
+			AlertRules.evaluate(context, charging(), rate(ABOVE_LIMIT_PPH), AlertSettings.current(context));
 
 			// Charging ends the discharge episode, so a warning left from it is dismissed too.
 			ns.verify(() -> NotificationService.clearFastDrainAlert(any(Context.class)));
@@ -71,7 +71,7 @@ public class FastDrainDetectorCleanupTest {
 	public void noWarningShown_leavesNotificationsAlone() {
 		// No prior alert (default cleared streak): a calm below-limit tick has nothing to dismiss.
 		try (MockedStatic<NotificationService> ns = mockStatic(NotificationService.class)) {
-			FastDrainDetector.evaluate(context, discharging(), rate(BELOW_LIMIT_PPH));
+			AlertRules.evaluate(context, discharging(), rate(BELOW_LIMIT_PPH), AlertSettings.current(context));
 
 			ns.verify(() -> NotificationService.clearFastDrainAlert(any(Context.class)), never());
 			ns.verify(() -> NotificationService.sendFastDrainNotification(any(Context.class), anyInt(), anyInt(), anyInt()), never());
@@ -82,8 +82,8 @@ public class FastDrainDetectorCleanupTest {
 
 	/**
 	 * Seed the transient streak file as if a fast-drain warning has already fired (alerted, sustained
-	 * well past the window). Keys mirror {@link FastDrainDetector}'s persisted streak keys — a stable
-	 * contract kept unchanged across the shared-core extraction (#163).
+	 * well past the window), under the keys from before the alert was a rule ({@link FastDrainDetector#LEGACY_STORE}):
+	 * the fresh rule-streak file adopts them, so this also covers the upgrade.
 	 */
 	private void seedAlertedStreak() {
 		final long now = System.currentTimeMillis();
@@ -1,16 +1,19 @@
 package com.almothafar.simplebatterynotifier.service;
 
+import com.almothafar.simplebatterynotifier.service.AlertRuleSet.Readings;
 import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Outcome;
 import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Streak;
 
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
- * Unit tests for the pure fast-drain decision core {@link FastDrainDetector#decide} (issue #109),
+ * Unit tests for the fast-drain alert (issue #109), the built-in {@link AlertRule#fastDrain} rule,
  * unchanged as the behaviour contract after the shared engine was extracted (#163): the
  * sustained-streak trigger, the once-vs-reminder split by screen state, the re-arm hysteresis, the
  * observation-gap lapse rule, and the timing-preference clamp.
@@ -32,7 +35,7 @@ public class FastDrainDetectorTest {
 	@Test
 	public void rateUnavailable_sleepsAndKeepsStreak() {
 		final Streak state = new Streak(1000, true, 2000, 2000);
-		final Outcome d = FastDrainDetector.decide(state, false, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 999_999);
+		final Outcome d = decide(state, false, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 999_999);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(state, d.newState()); // untouched
@@ -41,7 +44,7 @@ public class FastDrainDetectorTest {
 	@Test
 	public void rateBelowLimit_reArmsEpisode() {
 		final Streak state = new Streak(1000, true, 2000, 2000);
-		final Outcome d = FastDrainDetector.decide(state, true, 10, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 500_000);
+		final Outcome d = decide(state, true, 10, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 500_000);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(CLEARED, d.newState());
@@ -49,7 +52,7 @@ public class FastDrainDetectorTest {
 
 	@Test
 	public void rateAtLimit_startsStreakButDoesNotFireYet() {
-		final Outcome d = FastDrainDetector.decide(CLEARED, true, 20, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 1000);
+		final Outcome d = decide(CLEARED, true, 20, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 1000);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(1000, d.newState().start());
@@ -61,7 +64,7 @@ public class FastDrainDetectorTest {
 	public void streakNotYetSustained_doesNotFire() {
 		final Streak state = new Streak(1000, false, 1000, 0);
 		final long now = 1000 + 2 * MINUTE_MS; // only 2 min in
-		final Outcome d = FastDrainDetector.decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
+		final Outcome d = decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(1000, d.newState().start());     // start preserved
@@ -73,7 +76,7 @@ public class FastDrainDetectorTest {
 	public void sustained_firesFirstAlertEvenWhileActivelyUsed() {
 		final Streak state = new Streak(1000, false, 1000, 0);
 		final long now = 1000 + SUSTAINED_MS;
-		final Outcome d = FastDrainDetector.decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, USED, now);
+		final Outcome d = decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, USED, now);
 
 		assertTrue(d.shouldNotify());              // warn at least once per episode
 		assertTrue(d.newState().alerted());
@@ -86,7 +89,7 @@ public class FastDrainDetectorTest {
 		final long start = 1000;
 		final long now = start + REMINDER_MS + MINUTE_MS; // well past a reminder gap
 		final Streak state = new Streak(start, true, now - MINUTE_MS, start);
-		final Outcome d = FastDrainDetector.decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, USED, now);
+		final Outcome d = decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, USED, now);
 
 		assertFalse(d.shouldNotify());                    // once per episode while the user can see it
 		assertEquals(start, d.newState().lastReminder()); // reminder time untouched
@@ -97,7 +100,7 @@ public class FastDrainDetectorTest {
 		final long start = 1000;
 		final long now = start + REMINDER_MS;
 		final Streak state = new Streak(start, true, now - MINUTE_MS, start);
-		final Outcome d = FastDrainDetector.decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
+		final Outcome d = decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
 
 		assertTrue(d.shouldNotify());
 		assertEquals(now, d.newState().lastReminder());
@@ -109,7 +112,7 @@ public class FastDrainDetectorTest {
 		final long start = 1000;
 		final long now = start + REMINDER_MS - MINUTE_MS; // one minute short of the gap
 		final Streak state = new Streak(start, true, now - MINUTE_MS, start);
-		final Outcome d = FastDrainDetector.decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
+		final Outcome d = decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(start, d.newState().lastReminder());
@@ -118,16 +121,16 @@ public class FastDrainDetectorTest {
 	@Test
 	public void reArmedEpisode_canAlertAgainLater() {
 		// A calmed episode clears, then a fresh flare re-starts the streak and alerts once sustained.
-		final Outcome calmed = FastDrainDetector.decide(
+		final Outcome calmed = decide(
 				new Streak(1000, true, 1000, 1000), true, 5, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 400_000);
 		assertEquals(CLEARED, calmed.newState());
 
-		final Outcome restart = FastDrainDetector.decide(
+		final Outcome restart = decide(
 				calmed.newState(), true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 500_000);
 		assertFalse(restart.shouldNotify());
 		assertEquals(500_000, restart.newState().start());
 
-		final Outcome reAlert = FastDrainDetector.decide(
+		final Outcome reAlert = decide(
 				restart.newState(), true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, 500_000 + SUSTAINED_MS);
 		assertTrue(reAlert.shouldNotify());
 	}
@@ -141,7 +144,7 @@ public class FastDrainDetectorTest {
 		final long lastSeen = 1000 + 4 * MINUTE_MS;
 		final Streak state = new Streak(1000, false, lastSeen, 0);
 		final long now = 1000 + 90 * MINUTE_MS;
-		final Outcome d = FastDrainDetector.decide(state, true, 22, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
+		final Outcome d = decide(state, true, 22, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(now, d.newState().start());   // fresh episode
@@ -153,13 +156,13 @@ public class FastDrainDetectorTest {
 		final long alertedAt = 1000 + SUSTAINED_MS;
 		final Streak state = new Streak(1000, true, alertedAt, alertedAt);
 		final long now = 1000 + 120 * MINUTE_MS; // hours later
-		final Outcome lapsed = FastDrainDetector.decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
+		final Outcome lapsed = decide(state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now);
 
 		assertFalse(lapsed.shouldNotify());
 		assertEquals(now, lapsed.newState().start());
 		assertFalse(lapsed.newState().alerted()); // new episode: the first-alert is re-armed
 
-		final Outcome reAlert = FastDrainDetector.decide(
+		final Outcome reAlert = decide(
 				lapsed.newState(), true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, now + SUSTAINED_MS);
 		assertTrue(reAlert.shouldNotify());
 	}
@@ -171,11 +174,11 @@ public class FastDrainDetectorTest {
 		final long atBoundary = lastSeen + SustainedConditionTracker.MAX_OBSERVATION_GAP_MS;
 		final Streak state = new Streak(1000, false, lastSeen, 0);
 
-		final Outcome continued = FastDrainDetector.decide(
+		final Outcome continued = decide(
 				state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, atBoundary);
 		assertEquals(1000, continued.newState().start()); // preserved
 
-		final Outcome lapsed = FastDrainDetector.decide(
+		final Outcome lapsed = decide(
 				state, true, 30, LIMIT, SUSTAINED_MS, REMINDER_MS, LOCKED, atBoundary + 1);
 		assertEquals(atBoundary + 1, lapsed.newState().start()); // restarted
 	}
@@ -196,4 +199,18 @@ public class FastDrainDetectorTest {
 		assertEquals(1 * MINUTE_MS, FastDrainDetector.clampMinutesToMs(-7, 1, 30));
 		assertEquals(30 * MINUTE_MS, FastDrainDetector.clampMinutesToMs(999, 1, 30));
 	}
+
+	/**
+	 * One tick of the rule from its slot in a compiled set, as {@link AlertRules} decides it: on battery,
+	 * the rate measured only when available.
+	 */
+	private static Outcome decide(Streak state, boolean rateAvailable, int ratePph, int limitPph, long sustainedMs,
+	                              long reminderGapMs, boolean activelyUsed, long nowMillis) {
+		final AlertRuleSet rules = AlertRuleSet.compile(List.of(AlertRule.highTemperature(false, 0),
+				AlertRule.fastDrain(true, limitPph, sustainedMs, reminderGapMs), AlertRule.slowCharge(false)));
+		final int[] values = new int[AlertRule.Metric.values().length];
+		values[AlertRule.Metric.RATE.ordinal()] = ratePph;
+		final Readings readings = new Readings(values, rateAvailable ? Readings.bit(AlertRule.Metric.RATE) : 0, false, false);
+		return rules.decide(AlertRuleSet.FAST_DRAIN, readings, state, nowMillis, activelyUsed);
+	}
 }
@@ -0,0 +1,84 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link HistoryCodec}: keyframe/delta round trips, the zig-zag mapping, the size of a
+ * steady-cadence record, and torn input being reported rather than mis-decoded.
+ */
+public class HistoryCodecTest {
+
+	private static final int NO_CURRENT = Integer.MIN_VALUE;
+
+	@Test
+	public void keyframeAndDeltasRoundTrip() {
+		final long[] times = {1_700_000_000_000L, 1_700_000_030_000L, 1_700_000_060_000L, 1_700_000_095_000L};
+		final int[][] values = {
+				{80, -450_000, 4100, 312, 3, 0},
+				{80, -452_000, 4098, 312, 3, 0},
+				{79, NO_CURRENT, 4098, 315, 2, 1},
+				{79, 1_200_000, 4210, 315, 2, 1}};
+		final ByteBuffer bytes = ByteBuffer.allocate(4 * HistoryCodec.MAX_RECORD_BYTES);
+		final HistoryCodec.State writer = new HistoryCodec.State();
+		for (int i = 0; i < times.length; i++) {
+			HistoryCodec.encode(bytes, writer, times[i], values[i], false);
+		}
+		bytes.flip();
+
+		final HistoryCodec.State reader = new HistoryCodec.State();
+		for (int i = 0; i < times.length; i++) {
+			assertTrue(HistoryCodec.decode(bytes, reader));
+			assertEquals(times[i], reader.time);
+			assertArrayEquals(values[i], reader.values);
+		}
+		assertFalse(bytes.hasRemaining());
+	}
+
+	@Test
+	public void steadyTickWithOneChangedChannelIsTiny() {
+		final ByteBuffer bytes = ByteBuffer.allocate(HistoryCodec.MAX_RECORD_BYTES);
+		final HistoryCodec.State state = new HistoryCodec.State();
+		HistoryCodec.encode(bytes, state, 0, new int[]{50, -300_000, 4000, 300, 3, 0}, true);
+		HistoryCodec.encode(bytes, state, 30_000, new int[]{50, -300_000, 4000, 300, 3, 0}, false);
+		bytes.clear();
+
+		// Same cadence (delta-of-delta 0), only the current moved by 2 mA.
+		HistoryCodec.encode(bytes, state, 60_000, new int[]{50, -302_000, 4000, 300, 3, 0}, false);
+
+		assertEquals(1 + 1 + 2, bytes.position());
+	}
+
+	@Test
+	public void zigZagMapsSmallMagnitudesToSmallCodes() {
+		assertEquals(0, HistoryCodec.zigZag(0));
+		assertEquals(1, HistoryCodec.zigZag(-1));
+		assertEquals(2, HistoryCodec.zigZag(1));
+		for (final long v : new long[]{Integer.MIN_VALUE, Integer.MAX_VALUE, -123_456_789L, 1_700_000_000_000L}) {
+			assertEquals(v, HistoryCodec.unZigZag(HistoryCodec.zigZag(v)));
+		}
+	}
+
+	@Test
+	public void tornRecordIsReportedNotDecoded() {
+		final ByteBuffer bytes = ByteBuffer.allocate(HistoryCodec.MAX_RECORD_BYTES);
+		HistoryCodec.encode(bytes, new HistoryCodec.State(), 1_700_000_000_000L, new int[]{50, -300_000, 4000, 300, 3, 0}, true);
+		bytes.flip();
+		bytes.limit(bytes.limit() - 1); // crash mid-write: the last byte never landed
+
+		assertFalse(HistoryCodec.decode(bytes, new HistoryCodec.State()));
+	}
+
+	@Test
+	public void deltaWithoutKeyframeIsRejected() {
+		final ByteBuffer bytes = ByteBuffer.wrap(new byte[]{0x01, 0x00, 0x02});
+
+		assertFalse(HistoryCodec.decode(bytes, new HistoryCodec.State()));
+	}
+}
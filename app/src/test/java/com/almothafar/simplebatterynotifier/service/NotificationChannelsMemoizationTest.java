@@ -0,0 +1,107 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+
+import androidx.preference.PreferenceManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.almothafar.simplebatterynotifier.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link NotificationChannels#ensureChannels} runs once per process and key, and must still re-create the
+ * channels after a settings change, a locale change or a version bump. Deleting a channel behind its back
+ * shows whether a call reached the NotificationManager: a memoized call leaves it deleted. Each test gets
+ * a fresh application, so the memo starts cold.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationChannelsMemoizationTest {
+
+	private Context context;
+	private NotificationManager manager;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+		manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+	}
+
+	@Test
+	public void repeatCallIsSkipped() {
+		NotificationChannels.ensureChannels(context);
+		// Only this class deletes channels, so a memo hit deliberately doesn't look.
+		manager.deleteNotificationChannel(NotificationChannels.CHANNEL_ID_STATUS);
+
+		NotificationChannels.ensureChannels(context);
+
+		assertNull(manager.getNotificationChannel(NotificationChannels.CHANNEL_ID_STATUS));
+	}
+
+	@Test
+	public void vibrateChangeRecreatesTheAlertChannels() {
+		NotificationChannels.ensureChannels(context);
+		PreferenceManager.getDefaultSharedPreferences(context).edit()
+				.putBoolean(context.getString(R.string._pref_key_notifications_vibrate), false)
+				.commit();
+
+		// What the settings screen does when Vibrate changes.
+		NotificationChannels.refreshAlertChannels(context);
+
+		assertNull(manager.getNotificationChannel(NotificationChannels.CHANNEL_ID_CRITICAL));
+		final NotificationChannel critical = manager.getNotificationChannel(
+				NotificationChannels.versionedChannelId(NotificationChannels.CHANNEL_ID_CRITICAL, 2));
+		assertNotNull(critical);
+		assertFalse(critical.shouldVibrate());
+	}
+
+	@Test
+	public void settingChangedAfterRefreshIsStillApplied() {
+		NotificationChannels.refreshAlertChannels(context);
+		manager.deleteNotificationChannel(NotificationChannels.CHANNEL_ID_STATUS);
+
+		// A second refresh (the user toggles Vibrate back) must not be swallowed by the memo.
+		NotificationChannels.refreshAlertChannels(context);
+
+		assertNotNull(manager.getNotificationChannel(NotificationChannels.CHANNEL_ID_STATUS));
+		assertNotNull(manager.getNotificationChannel(
+				NotificationChannels.versionedChannelId(NotificationChannels.CHANNEL_ID_CRITICAL, 3)));
+	}
+
+	@Test
+	public void localeChangeReappliesTheNames() {
+		NotificationChannels.ensureChannels(context);
+		manager.deleteNotificationChannel(NotificationChannels.CHANNEL_ID_STATUS);
+
+		RuntimeEnvironment.setQualifiers("ar");
+		NotificationChannels.ensureChannels(context);
+
+		final NotificationChannel status = manager.getNotificationChannel(NotificationChannels.CHANNEL_ID_STATUS);
+		assertNotNull(status);
+		assertEquals(context.getString(R.string.notification_status_channel_name), String.valueOf(status.getName()));
+	}
+
+	@Test
+	public void versionBumpCreatesTheNewChannels() {
+		NotificationChannels.ensureChannels(context);
+		PreferenceManager.getDefaultSharedPreferences(context).edit().putInt("alert_channel_version", 4).commit();
+
+		NotificationChannels.ensureChannels(context);
+
+		assertNotNull(manager.getNotificationChannel(
+				NotificationChannels.versionedChannelId(NotificationChannels.CHANNEL_ID_WARNING, 4)));
+	}
+}
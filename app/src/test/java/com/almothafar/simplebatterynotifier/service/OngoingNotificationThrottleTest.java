@@ -0,0 +1,118 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import static com.almothafar.simplebatterynotifier.service.OngoingNotificationThrottle.POST_NOW;
+import static com.almothafar.simplebatterynotifier.service.OngoingNotificationThrottle.SKIP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link OngoingNotificationThrottle}: unchanged content is never re-posted, a new title
+ * or icon goes out at once, detail-only changes are held to the interval, and the trailing flush posts
+ * the newest held content — or nothing, when the notification went back to what it shows.
+ */
+public class OngoingNotificationThrottleTest {
+
+	private static final long INTERVAL = 30_000;
+
+	private static OngoingNotificationThrottle.Content content(String title, String detail) {
+		return new OngoingNotificationThrottle.Content(title, detail, detail, 1);
+	}
+
+	@Test
+	public void unchangedContentIsNotPostedAgain() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		final long skipped = OngoingNotificationThrottle.skippedUnchanged();
+
+		assertEquals(POST_NOW, throttle.offer(content("85% · Discharging", "9%/h"), 0, INTERVAL));
+		assertEquals(SKIP, throttle.offer(content("85% · Discharging", "9%/h"), 60_000, INTERVAL));
+		assertEquals(SKIP, throttle.offer(content("85% · Discharging", "9%/h"), 120_000, INTERVAL));
+		assertEquals(skipped + 2, OngoingNotificationThrottle.skippedUnchanged());
+	}
+
+	@Test
+	public void newTitleOrIconIsPostedAtOnce() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		throttle.offer(content("85% · Discharging", "9%/h"), 0, INTERVAL);
+
+		assertEquals(POST_NOW, throttle.offer(content("84% · Discharging", "9%/h"), 1_000, INTERVAL));
+		assertEquals(POST_NOW, throttle.offer(new OngoingNotificationThrottle.Content("84% · Discharging", "9%/h", "9%/h", 2),
+				2_000, INTERVAL));
+	}
+
+	@Test
+	public void detailChangesAreHeldAndTheNewestIsFlushed() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		final long coalesced = OngoingNotificationThrottle.coalesced();
+		throttle.offer(content("85% · Discharging", "9%/h"), 0, INTERVAL);
+
+		// The first held change schedules the flush for the end of the interval; later ones just replace it.
+		assertEquals(20_000, throttle.offer(content("85% · Discharging", "10%/h"), 10_000, INTERVAL));
+		assertEquals(SKIP, throttle.offer(content("85% · Discharging", "11%/h"), 20_000, INTERVAL));
+
+		assertEquals(content("85% · Discharging", "11%/h"), throttle.flush(30_000));
+		assertEquals(coalesced + 1, OngoingNotificationThrottle.coalesced());
+		// The flush counts as a post: the interval restarts from it.
+		assertEquals(30_000, throttle.offer(content("85% · Discharging", "12%/h"), 30_000, INTERVAL));
+	}
+
+	@Test
+	public void returningToThePostedContentDropsTheHeldChange() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		throttle.offer(content("85% · Discharging", "9%/h"), 0, INTERVAL);
+		throttle.offer(content("85% · Discharging", "10%/h"), 10_000, INTERVAL);
+
+		assertEquals(SKIP, throttle.offer(content("85% · Discharging", "9%/h"), 20_000, INTERVAL));
+		assertNull(throttle.flush(30_000));
+	}
+
+	@Test
+	public void staleFlushFromBeforeAPostIsIgnored() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		throttle.offer(content("85% · Discharging", "9%/h"), 0, INTERVAL);
+		throttle.offer(content("85% · Discharging", "10%/h"), 5_000, INTERVAL);
+		// A level tick posts at once; the flush queued for 30 000 is not cancelled.
+		throttle.offer(content("84% · Discharging", "10%/h"), 10_000, INTERVAL);
+		assertEquals(28_000, throttle.offer(content("84% · Discharging", "11%/h"), 12_000, INTERVAL));
+
+		assertNull(throttle.flush(30_000));
+		assertEquals(content("84% · Discharging", "11%/h"), throttle.flush(40_000));
+	}
+
+	@Test
+	public void changeAfterTheIntervalIsPostedAtOnce() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		throttle.offer(content("85% · Discharging", "9%/h"), 0, INTERVAL);
+
+		assertEquals(POST_NOW, throttle.offer(content("85% · Discharging", "10%/h"), INTERVAL, INTERVAL));
+		// A zero interval posts every change.
+		assertEquals(POST_NOW, throttle.offer(content("85% · Discharging", "11%/h"), INTERVAL + 1, 0));
+	}
+
+	@Test
+	public void clockSteppingBackDoesNotHoldTheNotification() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		throttle.offer(content("85% · Discharging", "9%/h"), 3_600_000, INTERVAL);
+
+		assertEquals(POST_NOW, throttle.offer(content("85% · Discharging", "10%/h"), 0, INTERVAL));
+	}
+
+	@Test
+	public void forgetPostsTheNextOfferEvenIfUnchanged() {
+		final OngoingNotificationThrottle throttle = new OngoingNotificationThrottle();
+		throttle.offer(content("85% · Discharging", "9%/h"), 0, INTERVAL);
+		throttle.forget();
+
+		assertEquals(POST_NOW, throttle.offer(content("85% · Discharging", "9%/h"), 1_000, INTERVAL));
+	}
+
+	@Test
+	public void intervalPreferenceParsesSecondsWithDefault() {
+		assertEquals(60_000, OngoingNotificationThrottle.intervalFromPreference("60"));
+		assertEquals(0, OngoingNotificationThrottle.intervalFromPreference("0"));
+		assertEquals(OngoingNotificationThrottle.DEFAULT_MIN_INTERVAL_MS, OngoingNotificationThrottle.intervalFromPreference(null));
+		assertEquals(OngoingNotificationThrottle.DEFAULT_MIN_INTERVAL_MS, OngoingNotificationThrottle.intervalFromPreference("fast"));
+		assertEquals(OngoingNotificationThrottle.DEFAULT_MIN_INTERVAL_MS, OngoingNotificationThrottle.intervalFromPreference("-5"));
+	}
+}
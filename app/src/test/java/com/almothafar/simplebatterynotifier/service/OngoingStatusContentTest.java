@@ -19,6 +19,7 @@ import org.robolectric.annotation.Config;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * The ongoing status notification (#192 title + #194 expandable body): the title is the stable
@@ -155,6 +156,40 @@ public class OngoingStatusContentTest {
 		assertEquals(expected, OngoingStatusContent.statusDetailExpanded(context, discharging85(), rate(false, 9)));
 	}
 
+	@Test
+	public void expanded_showsRateInterval_onceFused() {
+		// A settled fused estimate carries its 95% interval into the breakdown; the collapsed line stays bare.
+		final BatteryRateTracker.BatteryRate fused = new BatteryRateTracker.BatteryRate(true, 9, false, true, -250, true, -338, 2);
+		final String expected = String.join("\n",
+				line(R.string.notification_label_now, cur(-250)),
+				line(R.string.notification_label_average, cur(-338) + SEP + "9 ± 2%/h"),
+				line(R.string.time_remaining, "~9h 27m"),
+				line(R.string.temperature, temp()));
+		assertEquals(expected, OngoingStatusContent.statusDetailExpanded(context, discharging85(), fused));
+		assertTrue(OngoingStatusContent.statusDetail(context, discharging85(), fused).startsWith("9%/h"));
+	}
+
+	@Test
+	public void expanded_listsHorizonRates_onceTwoHaveOne() {
+		// Rates sit under Average, shortest horizon first, skipping the hour that isn't covered yet.
+		final BatteryRateTracker.RateHorizons horizons = new BatteryRateTracker.RateHorizons(false, 24, 18, 0, 12);
+		final String expected = String.join("\n",
+				line(R.string.notification_label_now, cur(-250)),
+				line(R.string.notification_label_average, cur(-338) + SEP + "9%/h"),
+				line(R.string.notification_label_rates, "1m 24 · 10m 18 · session 12%/h"),
+				line(R.string.time_remaining, "~9h 27m"),
+				line(R.string.temperature, temp()));
+		assertEquals(expected, OngoingStatusContent.statusDetailExpanded(context, discharging85(), rateFull(false, 9, -250, -338), horizons));
+	}
+
+	@Test
+	public void expanded_omitsHorizonRates_whenOnlyOneHasOne() {
+		final BatteryRateTracker.RateHorizons horizons = new BatteryRateTracker.RateHorizons(false, 0, 18, 0, 0);
+
+		assertEquals(OngoingStatusContent.statusDetailExpanded(context, discharging85(), rateFull(false, 9, -250, -338)),
+				OngoingStatusContent.statusDetailExpanded(context, discharging85(), rateFull(false, 9, -250, -338), horizons));
+	}
+
 	@Test
 	public void builtNotification_isExpandable_whenBreakdownAvailable() {
 		final Notification built = NotificationService.buildOngoingNotification(context, discharging85(), rateFull(false, 9, -250, -338));
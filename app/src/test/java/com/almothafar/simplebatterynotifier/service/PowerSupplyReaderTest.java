@@ -0,0 +1,196 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.PowerSupplyReader.Node;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PowerSupplyReader} over a fake {@code power_supply} tree: the battery supply is found
+ * by its {@code type}, values are re-read through the kept-open handles, missing, unopenable or garbled
+ * nodes report {@link PowerSupplyReader#UNAVAILABLE} so the caller falls back, and a node is only
+ * trusted once it agrees with the platform's reading.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PowerSupplyReaderTest {
+
+	@Rule
+	public final TemporaryFolder sysfs = new TemporaryFolder();
+
+	private File battery;
+	private PowerSupplyReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		// A charger listed ahead of the battery, as many devices do.
+		final File usb = sysfs.newFolder("usb");
+		write(new File(usb, "type"), "USB");
+		write(new File(usb, "current_now"), "500000");
+
+		battery = sysfs.newFolder("battery");
+		write(new File(battery, "type"), "Battery");
+		write(new File(battery, "current_now"), "-412000");
+		write(new File(battery, "voltage_now"), "3912000");
+		write(new File(battery, "charge_counter"), "2874000");
+		write(new File(battery, "capacity"), "64");
+	}
+
+	@After
+	public void tearDown() {
+		if (reader != null) {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void readsEveryNodeOfTheBatterySupply() {
+		reader = new PowerSupplyReader(sysfs.getRoot());
+
+		assertEquals(-412_000, reader.read(Node.CURRENT_NOW));
+		assertEquals(3_912_000, reader.read(Node.VOLTAGE_NOW));
+		assertEquals(2_874_000, reader.read(Node.CHARGE_COUNTER));
+		assertEquals(64, reader.read(Node.CAPACITY));
+	}
+
+	@Test
+	public void rereadsSeeTheNodeChangeThroughTheOpenHandle() throws IOException {
+		reader = new PowerSupplyReader(sysfs.getRoot());
+		assertEquals(64, reader.read(Node.CAPACITY));
+
+		// Shorter than before: a stale tail past the new value must not leak into the parse.
+		write(new File(battery, "capacity"), "9");
+		write(new File(battery, "current_now"), "-398000");
+
+		assertEquals(9, reader.read(Node.CAPACITY));
+		assertEquals(-398_000, reader.read(Node.CURRENT_NOW));
+	}
+
+	@Test
+	public void missingOrUnopenableNodesAreUnavailable() {
+		assertTrue(new File(battery, "charge_counter").delete());
+		// A node that exists but can't be opened for reading, as an SELinux denial looks from the app.
+		final File voltage = new File(battery, "voltage_now");
+		assertTrue(voltage.delete() && voltage.mkdir());
+		reader = new PowerSupplyReader(sysfs.getRoot());
+
+		assertFalse(reader.isOpen(Node.CHARGE_COUNTER));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, reader.read(Node.CHARGE_COUNTER));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, reader.read(Node.VOLTAGE_NOW));
+		assertEquals(64, reader.read(Node.CAPACITY));
+	}
+
+	@Test
+	public void noBatterySupplyMeansEverythingFallsBack() throws IOException {
+		write(new File(battery, "type"), "Mains");
+		reader = new PowerSupplyReader(sysfs.getRoot());
+
+		for (final Node node : Node.values()) {
+			assertEquals(PowerSupplyReader.UNAVAILABLE, reader.read(node));
+		}
+		assertEquals(PowerSupplyReader.UNAVAILABLE, new PowerSupplyReader(new File(sysfs.getRoot(), "absent")).read(Node.CAPACITY));
+	}
+
+	@Test
+	public void closedReaderReportsUnavailable() {
+		reader = new PowerSupplyReader(sysfs.getRoot());
+		reader.close();
+
+		assertEquals(PowerSupplyReader.UNAVAILABLE, reader.read(Node.VOLTAGE_NOW));
+	}
+
+	@Test
+	public void nodeIsTrustedOnceItAgreesWithThePlatform() {
+		reader = new PowerSupplyReader(sysfs.getRoot());
+		final int[] asked = new int[1];
+
+		assertFalse(reader.isVerified(Node.CURRENT_NOW));
+		assertEquals(-412_000, reader.read(Node.CURRENT_NOW, () -> {
+			asked[0]++;
+			return -405_000;
+		}));
+		assertTrue(reader.isVerified(Node.CURRENT_NOW));
+		assertEquals(-412_000, reader.read(Node.CURRENT_NOW, () -> {
+			asked[0]++;
+			return 1;
+		}));
+		assertEquals(1, asked[0]);
+	}
+
+	@Test
+	public void nodeDisagreeingInSignOrScaleIsDroppedForThePlatform() {
+		reader = new PowerSupplyReader(sysfs.getRoot());
+
+		// The HAL flips the sign...
+		assertEquals(412_000, reader.read(Node.CURRENT_NOW, () -> 412_000));
+		assertFalse(reader.isOpen(Node.CURRENT_NOW));
+		assertEquals(398_000, reader.read(Node.CURRENT_NOW, () -> 398_000));
+		// ...or rescales the value.
+		assertEquals(2_874, reader.read(Node.CHARGE_COUNTER, () -> 2_874));
+		assertFalse(reader.isOpen(Node.CHARGE_COUNTER));
+	}
+
+	@Test
+	public void zeroOrMissingReferenceLeavesTheNodeUndecided() {
+		reader = new PowerSupplyReader(sysfs.getRoot());
+
+		assertEquals(0, reader.read(Node.CURRENT_NOW, () -> 0));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, reader.read(Node.CURRENT_NOW, () -> PowerSupplyReader.UNAVAILABLE));
+		assertTrue(reader.isOpen(Node.CURRENT_NOW));
+		assertEquals(-412_000, reader.read(Node.CURRENT_NOW, () -> -400_000));
+	}
+
+	@Test
+	public void unavailableNodeFallsBackToThePlatform() {
+		assertTrue(new File(battery, "charge_counter").delete());
+		reader = new PowerSupplyReader(sysfs.getRoot());
+
+		assertEquals(2_874_000, reader.read(Node.CHARGE_COUNTER, () -> 2_874_000));
+	}
+
+	@Test
+	public void agreesNeedsTheSameSignWithinAFactorOfTwo() {
+		assertTrue(PowerSupplyReader.agrees(-412_000, -300_000));
+		assertTrue(PowerSupplyReader.agrees(64, 64));
+		assertFalse(PowerSupplyReader.agrees(-412_000, 412_000));
+		assertFalse(PowerSupplyReader.agrees(412_000, 412));
+		assertFalse(PowerSupplyReader.agrees(Integer.MAX_VALUE, 1));
+	}
+
+	@Test
+	public void parseIntAcceptsSysfsFormattingAndRejectsGarbage() {
+		assertEquals(287, parse("287\n"));
+		assertEquals(-412000, parse("-412000\n"));
+		assertEquals(5, parse("  5\n"));
+		assertEquals(0, parse("0"));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, parse(""));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, parse("-\n"));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, parse("N/A\n"));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, parse("99999999999\n"));
+		assertEquals(PowerSupplyReader.UNAVAILABLE, PowerSupplyReader.parseInt(new byte[4], -1));
+	}
+
+	private static int parse(String text) {
+		final byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+		return PowerSupplyReader.parseInt(bytes, bytes.length);
+	}
+
+	private static void write(File file, String value) throws IOException {
+		Files.write(file.toPath(), (value + "\n").getBytes(StandardCharsets.US_ASCII));
+	}
+}
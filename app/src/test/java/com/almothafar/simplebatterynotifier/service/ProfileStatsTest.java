@@ -0,0 +1,65 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link ProfileStats}: min/avg/p95 over current magnitudes, and the energy integral.
+ */
+public class ProfileStatsTest {
+
+	@Test
+	public void emptyIntervalHasNoSummary() {
+		assertNull(new ProfileStats().summary());
+	}
+
+	@Test
+	public void minAverageAndP95AreOverMagnitudes() {
+		final ProfileStats stats = new ProfileStats();
+		// 100 samples, 100 ms apart: 1..100 x 10 mA, alternating sign as some OEMs report it.
+		for (int i = 1; i <= 100; i++) {
+			stats.add(i * 100L, (i % 2 == 0 ? -1 : 1) * i * 10_000, 0);
+		}
+
+		final ProfileStats.Summary summary = stats.summary();
+
+		assertEquals(9_900, summary.durationMillis());
+		assertEquals(100, summary.samples());
+		assertEquals(10, summary.minMilliAmps());
+		assertEquals(505, summary.avgMilliAmps());
+		assertEquals(950, summary.p95MilliAmps());
+	}
+
+	@Test
+	public void energyIntegratesPowerOverTime() {
+		final ProfileStats stats = new ProfileStats();
+		// 500 mA at 4 V = 2 W for one hour = 2000 mWh.
+		stats.add(0L, -500_000, 4_000_000);
+		stats.add(1_800_000L, -500_000, 4_000_000);
+		stats.add(3_600_000L, -500_000, 4_000_000);
+
+		assertEquals(2_000d, stats.summary().energyMilliWattHours(), 1e-6);
+	}
+
+	@Test
+	public void samplesWithoutVoltageLeaveAGapInTheEnergy() {
+		final ProfileStats stats = new ProfileStats();
+		stats.add(0L, 1_000_000, 4_000_000);
+		stats.add(1_800_000L, 1_000_000, 0);
+		stats.add(3_600_000L, 1_000_000, 4_000_000);
+
+		assertEquals(0d, stats.summary().energyMilliWattHours(), 1e-9);
+		assertEquals(1_000, stats.summary().avgMilliAmps());
+	}
+
+	@Test
+	public void currentsAboveTheHistogramRangeCountInTheTopBucket() {
+		final ProfileStats stats = new ProfileStats();
+		stats.add(0L, 20_000_000, 0);
+
+		assertEquals(12_000, stats.summary().p95MilliAmps());
+		assertEquals(20_000, stats.summary().minMilliAmps());
+	}
+}
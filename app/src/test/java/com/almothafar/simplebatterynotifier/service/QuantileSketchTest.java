@@ -0,0 +1,139 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link QuantileSketch}. Accuracy is checked as rank error against the exact sorted
+ * data — what share of the readings really lie below the estimate — on seeded skewed streams like a
+ * phone's current (mostly idle, with bursts).
+ */
+public class QuantileSketchTest {
+
+	private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+	/** Mostly a ~300 mA idle draw, with one reading in twenty a 1-3 A burst. */
+	private static double[] bursty(int n, long seed) {
+		final Random random = new Random(seed);
+		final double[] values = new double[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextInt(20) == 0 ? 1000 + random.nextDouble() * 2000 : 300 * Math.exp(0.3 * random.nextGaussian());
+		}
+		return values;
+	}
+
+	/** The share of {@code sorted} at or below {@code value}. */
+	private static double rank(double[] sorted, double value) {
+		int below = 0;
+		while (below < sorted.length && sorted[below] <= value) {
+			below++;
+		}
+		return (double) below / sorted.length;
+	}
+
+	private static void assertRankErrors(String where, double[] values, QuantileSketch sketch) {
+		final double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		for (final double q : QUANTILES) {
+			// The tails are held by small centroids, so they are tighter than the median.
+			final double tolerance = q == 0.5 ? 0.02 : 0.005;
+			assertEquals(where + " p" + Math.round(q * 100), q, rank(sorted, sketch.quantile(q)), tolerance);
+		}
+	}
+
+	@Test
+	public void estimatesQuantilesOfABurstyStream() {
+		for (int seed = 0; seed < 20; seed++) {
+			final double[] values = bursty(20_000, seed);
+			final QuantileSketch sketch = new QuantileSketch();
+			for (final double value : values) {
+				sketch.add(value);
+			}
+
+			assertEquals(values.length, sketch.count());
+			assertRankErrors("seed " + seed, values, sketch);
+		}
+	}
+
+	@Test
+	public void mergedDaysMatchTheWholeWeek() {
+		final QuantileSketch week = new QuantileSketch();
+		final double[] all = new double[7 * 3_000];
+		for (int day = 0; day < 7; day++) {
+			final double[] values = bursty(3_000, 100 + day);
+			final QuantileSketch daily = new QuantileSketch();
+			for (final double value : values) {
+				daily.add(value);
+			}
+			System.arraycopy(values, 0, all, day * 3_000, values.length);
+			week.merge(daily);
+		}
+
+		assertEquals(all.length, week.count());
+		assertRankErrors("week", all, week);
+	}
+
+	@Test
+	public void endsAreExact() {
+		final QuantileSketch sketch = new QuantileSketch();
+		for (final double value : bursty(5_000, 3)) {
+			sketch.add(value);
+		}
+		sketch.add(-5);
+		sketch.add(9_000);
+
+		assertEquals(-5, sketch.quantile(0), 0);
+		assertEquals(9_000, sketch.quantile(1), 0);
+	}
+
+	@Test
+	public void smallSketchesInterpolateBetweenTheReadings() {
+		final QuantileSketch sketch = new QuantileSketch();
+		assertTrue(Double.isNaN(sketch.quantile(0.5)));
+
+		sketch.add(40);
+		assertEquals(40, sketch.quantile(0.95), 0);
+
+		sketch.add(20);
+		sketch.add(30);
+		assertEquals(30, sketch.quantile(0.5), 0);
+	}
+
+	@Test
+	public void encodesToAFixedRecordAndBack() {
+		final QuantileSketch sketch = new QuantileSketch();
+		for (final double value : bursty(10_000, 11)) {
+			sketch.add(value);
+		}
+		final ByteBuffer bytes = ByteBuffer.allocate(QuantileSketch.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		sketch.writeTo(bytes);
+		assertEquals(QuantileSketch.BYTES, bytes.position());
+		bytes.flip();
+
+		final QuantileSketch restored = new QuantileSketch();
+		restored.readFrom(bytes);
+
+		assertEquals(sketch.count(), restored.count());
+		for (final double q : QUANTILES) {
+			// Means are stored as floats.
+			assertEquals(sketch.quantile(q), restored.quantile(q), sketch.quantile(q) * 1e-6);
+		}
+	}
+
+	@Test
+	public void clearedSketchIsEmpty() {
+		final QuantileSketch sketch = new QuantileSketch();
+		sketch.add(1);
+		sketch.clear();
+
+		assertTrue(sketch.isEmpty());
+		assertTrue(Double.isNaN(sketch.quantile(0.99)));
+	}
+}
@@ -9,14 +9,19 @@ import org.junit.runners.Parameterized.Parameters;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.time.DayOfWeek;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for the pure quiet-hours / silent-mode policy in {@link QuietHours}: the time-range check,
- * the critical-override gating and the corrupt-bound fallback.
+ * the critical-override gating, the corrupt-bound fallback and compiling the weekly schedule.
  * Times are expressed as minutes since midnight (hour * 60 + minute).
  */
 @RunWith(Enclosed.class)
@@ -129,4 +134,49 @@ public class QuietHoursTest {
 			assertEquals(0, QuietHours.boundOrDefaultMinutes("bad", "also bad"));
 		}
 	}
+
+	/**
+	 * {@link QuietHours#compileSchedule}: the pickers' window plus extra weekday windows, a weekend
+	 * schedule that falls back to the weekdays', and malformed lists ignored rather than fatal (#154).
+	 * Runs under Robolectric because the fallbacks are logged.
+	 */
+	@RunWith(RobolectricTestRunner.class)
+	@Config(sdk = 34)
+	public static class CompileSchedule {
+
+		private static final int START = 6 * 60 + 30;
+		private static final int END = 23 * 60 + 30;
+
+		private static int minute(DayOfWeek day, int hour, int minute) {
+			return (day.getValue() - 1) * QuietSchedule.MINUTES_PER_DAY + hour * 60 + minute;
+		}
+
+		@Test
+		public void extraWindowsApplyToWeekdaysAndABlankWeekendFollowsThem() {
+			final QuietSchedule schedule = QuietHours.compileSchedule(START, END, "00:00-01:00", "", null);
+
+			assertTrue(schedule.allowsAt(minute(DayOfWeek.MONDAY, 0, 30)));
+			assertTrue(schedule.allowsAt(minute(DayOfWeek.SUNDAY, 0, 30)));
+			assertFalse(schedule.allowsAt(minute(DayOfWeek.SUNDAY, 2, 0)));
+		}
+
+		@Test
+		public void weekendWindowsReplaceTheWeekdaysOnTheChosenDays() {
+			final QuietSchedule schedule = QuietHours.compileSchedule(START, END, null, "10:00-22:00", Set.of("5", "6"));
+
+			assertFalse(schedule.allowsAt(minute(DayOfWeek.FRIDAY, 8, 0)));
+			assertFalse(schedule.allowsAt(minute(DayOfWeek.SATURDAY, 22, 30)));
+			assertTrue(schedule.allowsAt(minute(DayOfWeek.SUNDAY, 8, 0)));
+		}
+
+		@Test
+		public void malformedListsAndDaysAreIgnored() {
+			final List<QuietSchedule.Window> daily = List.of(new QuietSchedule.Window(START, END));
+
+			assertEquals(QuietSchedule.compile(daily, daily, QuietSchedule.DEFAULT_WEEKEND),
+					QuietHours.compileSchedule(START, END, "lunch", "weekend-ish", null));
+			assertEquals(QuietSchedule.compile(daily, List.of(new QuietSchedule.Window(9 * 60, 21 * 60)), Set.of(DayOfWeek.SUNDAY)),
+					QuietHours.compileSchedule(START, END, null, "09:00-21:00", Set.of("7", "Sunday", "9")));
+		}
+	}
 }
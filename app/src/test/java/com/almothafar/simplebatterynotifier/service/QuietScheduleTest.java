@@ -0,0 +1,113 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.QuietSchedule.Window;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link QuietSchedule}: the window text form, the compiled minute-of-week bitmap —
+ * which must answer exactly as {@link QuietHours#isWithinTimeRange} for one window every day — and the
+ * "when does the quiet window end" lookup deferred alerts are scheduled by.
+ */
+public class QuietScheduleTest {
+
+	private static final List<Window> DAYTIME = List.of(new Window(6 * 60 + 30, 23 * 60 + 30));
+
+	private static int minute(DayOfWeek day, int hour, int minute) {
+		return (day.getValue() - 1) * QuietSchedule.MINUTES_PER_DAY + hour * 60 + minute;
+	}
+
+	@Test
+	public void parseWindowsNormalizesSpacingAndDashes() {
+		final List<Window> windows = QuietSchedule.parseWindows(" 6:30 - 12:00,13:00–23:30 ");
+
+		assertEquals(List.of(new Window(390, 720), new Window(780, 1410)), windows);
+		assertEquals("06:30-12:00, 13:00-23:30", QuietSchedule.windowsText(windows));
+	}
+
+	@Test
+	public void parseWindowsReadsBlankAsNoneAndRejectsMalformedText() {
+		assertTrue(QuietSchedule.parseWindows(null).isEmpty());
+		assertTrue(QuietSchedule.parseWindows("  ").isEmpty());
+		assertNull(QuietSchedule.parseWindows("06:30"));
+		assertNull(QuietSchedule.parseWindows("06:30-25:00"));
+		assertNull(QuietSchedule.parseWindows("morning-evening"));
+	}
+
+	@Test
+	public void oneWindowEveryDayMatchesTheDailyRangeCheck() {
+		final int[][] windows = {{390, 1410}, {22 * 60, 6 * 60}, {22 * 60 + 30, 22 * 60}, {8 * 60, 8 * 60}};
+		for (final int[] window : windows) {
+			final List<Window> daily = List.of(new Window(window[0], window[1]));
+			final QuietSchedule schedule = QuietSchedule.compile(daily, daily, QuietSchedule.DEFAULT_WEEKEND);
+			for (int m = 0; m < QuietSchedule.MINUTES_PER_WEEK; m++) {
+				assertEquals(m + " in " + daily, QuietHours.isWithinTimeRange(m % QuietSchedule.MINUTES_PER_DAY, window[0], window[1]),
+						schedule.allowsAt(m));
+			}
+		}
+	}
+
+	@Test
+	public void weekendDaysUseTheirOwnWindows() {
+		final QuietSchedule schedule = QuietSchedule.compile(DAYTIME, List.of(new Window(9 * 60, 22 * 60)),
+				EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY));
+
+		assertTrue(schedule.allowsAt(minute(DayOfWeek.THURSDAY, 7, 0)));
+		assertFalse(schedule.allowsAt(minute(DayOfWeek.FRIDAY, 7, 0)));
+		assertFalse(schedule.allowsAt(minute(DayOfWeek.SATURDAY, 22, 30)));
+		assertTrue(schedule.allowsAt(minute(DayOfWeek.SUNDAY, 7, 0)));
+	}
+
+	@Test
+	public void overnightWindowBelongsToTheDayItStartsOn() {
+		final QuietSchedule schedule = QuietSchedule.compile(List.of(), List.of(new Window(22 * 60, 2 * 60)),
+				EnumSet.of(DayOfWeek.SUNDAY));
+
+		assertTrue(schedule.allowsAt(minute(DayOfWeek.SUNDAY, 23, 0)));
+		// Sunday night runs into Monday morning, across the end of the week.
+		assertTrue(schedule.allowsAt(minute(DayOfWeek.MONDAY, 1, 59)));
+		assertFalse(schedule.allowsAt(minute(DayOfWeek.MONDAY, 2, 0)));
+		assertFalse(schedule.allowsAt(minute(DayOfWeek.SUNDAY, 1, 0)));
+	}
+
+	@Test
+	public void minutesUntilAllowedIsTheEndOfTheQuietWindow() {
+		final QuietSchedule schedule = QuietSchedule.compile(DAYTIME, DAYTIME, QuietSchedule.DEFAULT_WEEKEND);
+
+		assertEquals(0, schedule.minutesUntilAllowed(minute(DayOfWeek.TUESDAY, 12, 0)));
+		assertEquals(7 * 60, schedule.minutesUntilAllowed(minute(DayOfWeek.TUESDAY, 23, 30)));
+		// Sunday night's quiet window ends on Monday morning, past the end of the bitmap.
+		assertEquals(15 + 6 * 60 + 30, schedule.minutesUntilAllowed(minute(DayOfWeek.SUNDAY, 23, 45)));
+	}
+
+	@Test
+	public void minutesUntilAllowedIsNegativeWhenNeverAllowed() {
+		final QuietSchedule never = QuietSchedule.compile(List.of(), List.of(), QuietSchedule.DEFAULT_WEEKEND);
+
+		assertEquals(-1, never.minutesUntilAllowed(minute(DayOfWeek.WEDNESDAY, 3, 0)));
+		assertEquals(-1, never.nextAllowedMillis(ZonedDateTime.of(2026, 10, 14, 3, 0, 0, 0, ZoneId.of("UTC"))));
+	}
+
+	@Test
+	public void nextAllowedMillisFollowsTheWallClock() {
+		final QuietSchedule schedule = QuietSchedule.compile(DAYTIME, DAYTIME, QuietSchedule.DEFAULT_WEEKEND);
+		final ZoneId zone = ZoneId.of("Europe/Berlin");
+		// Clocks go back an hour at 03:00 on Sunday 25 October 2026; the quiet window still ends at 06:30.
+		final ZonedDateTime now = ZonedDateTime.of(2026, 10, 25, 1, 15, 42, 0, zone);
+
+		assertEquals(ZonedDateTime.of(2026, 10, 25, 6, 30, 0, 0, zone).toInstant().toEpochMilli(),
+				schedule.nextAllowedMillis(now));
+		assertEquals(now.plusHours(12).toInstant().toEpochMilli(), schedule.nextAllowedMillis(now.plusHours(12)));
+	}
+}
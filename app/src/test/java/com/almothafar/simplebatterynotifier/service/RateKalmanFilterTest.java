@@ -0,0 +1,120 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link RateKalmanFilter}: it converges on the true rate from either source alone, the
+ * estimate doesn't jump when the current source comes and goes, a stale state starts over, and a
+ * restored state continues exactly where the persisted one stopped.
+ */
+public class RateKalmanFilterTest {
+
+	private static final long STEP_MS = BatteryRateTracker.MIN_SAMPLE_SPACING_MS;
+	private static final double NO_CURRENT = Double.NaN;
+
+	/** The whole-percent reading of a battery draining at {@code pph} from 80%, {@code i} samples in. */
+	private static int reading(int i, double pph) {
+		return (int) Math.round(80 + pph * i * STEP_MS / 3_600_000d);
+	}
+
+	@Test
+	public void currentReadingsSettleOnTheTrueRate() {
+		final RateKalmanFilter filter = new RateKalmanFilter();
+		for (int i = 0; i < 30; i++) {
+			// A spiky load around a 12 %/h drain.
+			filter.update(i * STEP_MS, reading(i, -12), i % 2 == 0 ? -15 : -9);
+		}
+
+		assertTrue(filter.isSettled());
+		assertEquals(-12, filter.rate(), 1.5);
+		assertTrue(filter.marginPercentPerHour() < 6);
+	}
+
+	@Test
+	public void levelStepsAloneRecoverTheRate() {
+		// No capacity, so no current source: 20 %/h over 20 minutes is about seven whole-percent steps.
+		final RateKalmanFilter filter = new RateKalmanFilter();
+		for (int i = 0; i < 60; i++) {
+			filter.update(i * STEP_MS, reading(i, -20), NO_CURRENT);
+		}
+
+		assertTrue(filter.isSettled());
+		assertEquals(-20, filter.rate(), 4);
+	}
+
+	@Test
+	public void currentComingAndGoingDoesNotMakeTheRateJump() {
+		final RateKalmanFilter filter = new RateKalmanFilter();
+		for (int i = 0; i < 30; i++) {
+			filter.update(i * STEP_MS, reading(i, -12), -12);
+		}
+		double previous = filter.rate();
+		for (int i = 30; i < 60; i++) {
+			// The current source drops out every third sample, as it did when the window average lapsed.
+			filter.update(i * STEP_MS, reading(i, -12), i % 3 == 0 ? NO_CURRENT : -12);
+			assertEquals("sample " + i, previous, filter.rate(), 1);
+			previous = filter.rate();
+		}
+	}
+
+	@Test
+	public void forgettingTheRateFollowsANewLoadAtOnce() {
+		final RateKalmanFilter filter = new RateKalmanFilter();
+		for (int i = 0; i < 30; i++) {
+			filter.update(i * STEP_MS, reading(i, -6), -6);
+		}
+
+		filter.forgetRate();
+		filter.update(30 * STEP_MS, reading(30, -6), -30);
+
+		assertEquals(-30, filter.rate(), 3);
+	}
+
+	@Test
+	public void staleStateStartsOver() {
+		final RateKalmanFilter filter = new RateKalmanFilter();
+		for (int i = 0; i < 30; i++) {
+			filter.update(i * STEP_MS, reading(i, -12), -12);
+		}
+
+		filter.update(29 * STEP_MS + RateKalmanFilter.STALE_AFTER_MS + 1, 60, NO_CURRENT);
+
+		assertEquals(0, filter.rate(), 0);
+		assertFalse(filter.isSettled());
+	}
+
+	@Test
+	public void backwardsClockStartsOver() {
+		final RateKalmanFilter filter = new RateKalmanFilter();
+		for (int i = 0; i < 30; i++) {
+			filter.update(i * STEP_MS, reading(i, -12), -12);
+		}
+
+		filter.update(0, 80, NO_CURRENT);
+
+		assertFalse(filter.isSettled());
+	}
+
+	@Test
+	public void restoredStateContinuesIdentically() {
+		final RateKalmanFilter original = new RateKalmanFilter();
+		for (int i = 0; i < 20; i++) {
+			original.update(i * STEP_MS, reading(i, -12), -12);
+		}
+		final RateKalmanFilter restored = new RateKalmanFilter();
+		restored.restore(original.lastMillis(), original.lastReading(), original.level(), original.rate(),
+				original.levelVariance(), original.covariance(), original.rateVariance());
+
+		for (int i = 20; i < 25; i++) {
+			original.update(i * STEP_MS, reading(i, -12), -10);
+			restored.update(i * STEP_MS, reading(i, -12), -10);
+		}
+
+		assertEquals(original.rate(), restored.rate(), 0);
+		assertEquals(original.marginPercentPerHour(), restored.marginPercentPerHour(), 0);
+	}
+}
@@ -0,0 +1,139 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.Sample;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link RateSampleBuffer}, the primitive ring behind the rate window: wrap-around
+ * eviction, the head/tail trims, the history the trims leave behind, and the running current aggregate
+ * staying exact as samples leave.
+ */
+public class RateSampleBufferTest {
+
+	private static final int NO_CURRENT = Integer.MIN_VALUE;
+	private static final long WINDOW_MS = BatteryRateTracker.WINDOW_MS;
+
+	@Test
+	public void fullRingEvictsOldestOnAppend() {
+		final RateSampleBuffer buffer = new RateSampleBuffer(3);
+		buffer.append(0, 50, -100_000);
+		buffer.append(20_000, 49, -200_000);
+		buffer.append(40_000, 48, -300_000);
+		buffer.append(60_000, 47, -400_000);
+
+		assertEquals(3, buffer.size());
+		assertEquals(Arrays.asList(
+				new Sample(20_000, 49, -200_000),
+				new Sample(40_000, 48, -300_000),
+				new Sample(60_000, 47, -400_000)), buffer.toList());
+		// The evicted -100 mA reading no longer counts toward the average.
+		assertEquals(-300_000, buffer.averagedCurrentMicroAmps(3, 0));
+	}
+
+	@Test
+	public void trimDropsStaleFromHeadAndFutureFromTail() {
+		final RateSampleBuffer buffer = new RateSampleBuffer(4);
+		buffer.append(0, 50, -100_000);
+		buffer.append(300_000, 49, -100_000);
+		buffer.append(700_000, 48, -100_000);
+		buffer.append(900_000, 47, -100_000);
+
+		// now = 800 000: the 0-time sample is past the 10-min window, the 900 000 one is future-dated.
+		assertTrue(buffer.trimToWindow(800_000, WINDOW_MS));
+		assertEquals(Arrays.asList(new Sample(300_000, 49, -100_000), new Sample(700_000, 48, -100_000)), buffer.toList());
+		assertFalse(buffer.trimToWindow(800_000, WINDOW_MS));
+	}
+
+	@Test
+	public void trimmedSamplesStayInTheHistoryUntilAgedOut() {
+		final RateSampleBuffer buffer = new RateSampleBuffer(4);
+		buffer.append(0, 50, -100_000);
+		buffer.append(300_000, 49, -200_000);
+		buffer.append(700_000, 48, -300_000);
+
+		// The window loses the first sample, the history keeps it.
+		assertTrue(buffer.trimToWindow(800_000, WINDOW_MS));
+		assertEquals(2, buffer.size());
+		assertEquals(3, buffer.historySize());
+		assertEquals(0, buffer.historyTimeAt(0));
+		assertEquals(50, buffer.historyLevelAt(0));
+		assertEquals(-250_000, buffer.averagedCurrentMicroAmps(2, 0));
+
+		// A full ring overwrites the oldest history sample before touching the window.
+		buffer.append(720_000, 47, -400_000);
+		buffer.append(740_000, 46, -500_000);
+		assertEquals(4, buffer.size());
+		assertEquals(4, buffer.historySize());
+		assertEquals(300_000, buffer.historyTimeAt(0));
+
+		assertTrue(buffer.trimToWindow(1_000_000, WINDOW_MS));
+		assertEquals(1, buffer.trailSize());
+		assertTrue(buffer.trimHistory(1_000_000, 600_000));
+		assertEquals(0, buffer.trailSize());
+		assertEquals(buffer.toList().get(0).timeMillis(), buffer.historyTimeAt(0));
+	}
+
+	@Test
+	public void implausibleReadingsNeverEnterTheAggregate() {
+		final RateSampleBuffer buffer = RateSampleBuffer.of(List.of(
+				new Sample(0, 50, -300_000),
+				new Sample(30_000, 50, NO_CURRENT),
+				new Sample(60_000, 50, -200_000),
+				new Sample(90_000, 50, -250_000)), 4);
+
+		assertEquals(-250_000, buffer.averagedCurrentMicroAmps(3, 45_000));
+		buffer.trimToWindow(30_000 + WINDOW_MS, WINDOW_MS); // drops only the first sample
+		assertEquals(NO_CURRENT, buffer.averagedCurrentMicroAmps(3, 45_000)); // 2 plausible left
+	}
+
+	@Test
+	public void restoreRebuildsTheAggregateFromSlots() {
+		final RateSampleBuffer source = new RateSampleBuffer(2);
+		source.append(0, 50, -100_000);
+		source.append(20_000, 49, -200_000);
+		source.append(40_000, 48, -300_000); // wraps: head is now slot 1
+
+		final RateSampleBuffer restored = new RateSampleBuffer(2);
+		for (int slot = 0; slot < 2; slot++) {
+			restored.restoreSlot(slot, source.timeAtSlot(slot), source.levelAtSlot(slot), source.currentAtSlot(slot));
+		}
+		restored.restoreBounds(source.head(), source.size(), source.trailSize());
+
+		assertEquals(source.toList(), restored.toList());
+		assertEquals(-250_000, restored.averagedCurrentMicroAmps(2, 0));
+	}
+
+	@Test
+	public void levelFitFollowsAppendsEvictionsAndTrims() {
+		for (int seed = 0; seed < 50; seed++) {
+			final Random random = new Random(seed);
+			final RateSampleBuffer buffer = new RateSampleBuffer(1 + random.nextInt(10));
+			long now = 0;
+			int level = 80;
+			for (int step = 0; step < 200; step++) {
+				if (random.nextInt(4) > 0) {
+					now += random.nextInt(60_000);
+					level += random.nextInt(3) - 1;
+					buffer.append(now, level, NO_CURRENT);
+				} else {
+					now = random.nextInt(5) == 0 ? Math.max(0, now - random.nextInt(120_000)) : now + random.nextInt(120_000);
+					buffer.trimToWindow(now, WINDOW_MS);
+				}
+				// The running sums must agree with a window rebuilt from scratch.
+				final RateSampleBuffer fresh = RateSampleBuffer.of(buffer.toList(), buffer.capacity());
+				final String where = "seed " + seed + " step " + step;
+				assertEquals(where, fresh.levelSlopePerHour(), buffer.levelSlopePerHour(), 1e-9);
+				assertEquals(where, fresh.levelFitRSquared(), buffer.levelFitRSquared(), 1e-9);
+			}
+		}
+	}
+}
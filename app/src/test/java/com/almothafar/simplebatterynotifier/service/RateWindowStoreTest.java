@@ -0,0 +1,210 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.almothafar.simplebatterynotifier.service.BatteryRateTracker.Sample;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric tests for {@link RateWindowStore}: the in-place binary file survives a reload (a new
+ * process), the legacy string window migrates exactly once, and a foreign, truncated or older-layout
+ * file is ignored rather than trusted. Each test gets a fresh application, so the files dir and transient prefs start empty.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class RateWindowStoreTest {
+
+	private static final int CAPACITY = 60;
+	private static final int NO_CURRENT = Integer.MIN_VALUE;
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+	}
+
+	@Test
+	public void appendedSlotsSurviveReload() {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(false);
+		store.persistSlot(store.buffer().append(1_000, 50, -800_000));
+		store.persistSlot(store.buffer().append(21_000, 49, NO_CURRENT));
+
+		final RateWindowStore reloaded = RateWindowStore.load(context, CAPACITY);
+
+		assertTrue(reloaded.sameDirection(false));
+		assertFalse(reloaded.sameDirection(true));
+		assertEquals(store.buffer().toList(), reloaded.buffer().toList());
+	}
+
+	@Test
+	public void filterStateSurvivesReload() {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(false);
+		for (int i = 0; i < 5; i++) {
+			final long time = i * 20_000L;
+			store.buffer().append(time, 50, -800_000);
+			store.filter().update(time, 50, -20);
+			store.persistSlot(i);
+		}
+
+		final RateKalmanFilter reloaded = RateWindowStore.load(context, CAPACITY).filter();
+
+		assertTrue(reloaded.isInitialized());
+		assertEquals(store.filter().rate(), reloaded.rate(), 0);
+		assertEquals(store.filter().marginPercentPerHour(), reloaded.marginPercentPerHour(), 0);
+	}
+
+	@Test
+	public void resetStartsTheFilterOverOnDisk() {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(false);
+		store.filter().update(0, 50, -20);
+		store.persistSlot(store.buffer().append(0, 50, -800_000));
+		store.reset(true);
+
+		assertFalse(RateWindowStore.load(context, CAPACITY).filter().isInitialized());
+	}
+
+	@Test
+	public void truncatedFileIsIgnored() throws IOException {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(false);
+		store.persistSlot(store.buffer().append(1_000, 50, -800_000));
+		final File file = new File(context.getFilesDir(), RateWindowStore.FILE_NAME);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(RateWindowStore.HEADER_BYTES + (long) CAPACITY * RateWindowStore.SLOT_BYTES);
+		}
+
+		final RateWindowStore reloaded = RateWindowStore.load(context, CAPACITY);
+
+		assertTrue(reloaded.buffer().isEmpty());
+		assertFalse(reloaded.sameDirection(false));
+	}
+
+	@Test
+	public void historySurvivesReload() {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(false);
+		store.startSession(1_000, 80);
+		for (int i = 0; i < 3; i++) {
+			store.persistSlot(store.buffer().append(1_000 + i * 300_000L, 80 - i, -800_000));
+		}
+		// The first sample leaves the window but stays in the ring's history.
+		store.buffer().trimToWindow(700_000, BatteryRateTracker.WINDOW_MS);
+		store.persistHeader();
+
+		final RateSampleBuffer reloaded = RateWindowStore.load(context, CAPACITY).buffer();
+
+		assertEquals(store.buffer().toList(), reloaded.toList());
+		assertEquals(3, reloaded.historySize());
+		assertEquals(1_000, reloaded.historyTimeAt(0));
+		assertEquals(80, reloaded.historyLevelAt(0));
+	}
+
+	@Test
+	public void sessionSurvivesReload() {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(false);
+		store.startSession(1_000, 80);
+		store.persistSlot(store.buffer().append(1_000, 80, -800_000));
+
+		final RateWindowStore reloaded = RateWindowStore.load(context, CAPACITY);
+
+		assertTrue(reloaded.hasSession());
+		assertEquals(1_000, reloaded.sessionStartMillis());
+		assertEquals(80, reloaded.sessionStartLevel());
+	}
+
+	@Test
+	public void fileFromAnOlderLayoutIsDiscarded() throws IOException {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(false);
+		store.startSession(1_000, 50);
+		store.persistSlot(store.buffer().append(1_000, 50, -800_000));
+		// Stamp the header with the first layout's version.
+		final File file = new File(context.getFilesDir(), RateWindowStore.FILE_NAME);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(4);
+			raf.write(new byte[]{1, 0});
+		}
+
+		final RateWindowStore reloaded = RateWindowStore.load(context, CAPACITY);
+
+		assertTrue(reloaded.buffer().isEmpty());
+		assertFalse(reloaded.hasSession());
+		assertFalse(reloaded.sameDirection(false));
+	}
+
+	@Test
+	public void headerOnlyTrimIsPersisted() {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+		store.reset(true);
+		store.persistSlot(store.buffer().append(0, 50, 900_000));
+		store.persistSlot(store.buffer().append(300_000, 52, 900_000));
+		store.buffer().trimToWindow(700_000, BatteryRateTracker.WINDOW_MS);
+		store.persistHeader();
+
+		final List<Sample> reloaded = RateWindowStore.load(context, CAPACITY).buffer().toList();
+
+		assertEquals(List.of(new Sample(300_000, 52, 900_000)), reloaded);
+	}
+
+	@Test
+	public void legacyStringWindowMigratesOnceAndKeysAreRemoved() {
+		final List<Sample> legacy = Arrays.asList(new Sample(100, 50, -800_000), new Sample(20_100, 49, NO_CURRENT));
+		TransientState.legacyPrefs(context).edit()
+				.putString(RateWindowStore.LEGACY_PREF_RATE_SAMPLES, BatteryRateTracker.serializeSamples(legacy))
+				.putInt(RateWindowStore.LEGACY_PREF_RATE_CHARGING, 1)
+				.commit();
+
+		final RateWindowStore migrated = RateWindowStore.load(context, CAPACITY);
+
+		assertTrue(migrated.sameDirection(true));
+		assertEquals(legacy, migrated.buffer().toList());
+		assertFalse(TransientState.legacyPrefs(context).contains(RateWindowStore.LEGACY_PREF_RATE_SAMPLES));
+		assertFalse(TransientState.legacyPrefs(context).contains(RateWindowStore.LEGACY_PREF_RATE_CHARGING));
+		// The binary file now carries the window on its own.
+		assertEquals(legacy, RateWindowStore.load(context, CAPACITY).buffer().toList());
+	}
+
+	@Test
+	public void noHistoryLoadsEmptyWithoutDirection() {
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+
+		assertTrue(store.buffer().isEmpty());
+		assertFalse(store.sameDirection(false));
+		assertFalse(store.sameDirection(true));
+	}
+
+	@Test
+	public void foreignFileIsIgnored() throws IOException {
+		try (FileOutputStream out = new FileOutputStream(new File(context.getFilesDir(), RateWindowStore.FILE_NAME))) {
+			out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+		}
+
+		final RateWindowStore store = RateWindowStore.load(context, CAPACITY);
+
+		assertTrue(store.buffer().isEmpty());
+		assertFalse(store.sameDirection(false));
+	}
+}
@@ -0,0 +1,81 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link RollupBucket}: stat merging, the fixed-width record round trip, and local-time
+ * bucket alignment.
+ */
+public class RollupBucketTest {
+
+	private static final long HOUR_MS = BatteryRollups.HOUR_MS;
+	private static final long DAY_MS = BatteryRollups.DAY_MS;
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void mergeKeepsCountSumMinMaxAndTimes() {
+		final RollupBucket a = new RollupBucket();
+		a.drain.add(10);
+		a.drain.add(14);
+		a.addTime(false, 30_000);
+		final RollupBucket b = new RollupBucket();
+		b.drain.add(6);
+		b.charge.add(40);
+		b.addTime(true, 60_000);
+
+		a.merge(b);
+
+		assertEquals(3, a.drain.count);
+		assertEquals(10, a.drain.mean(), DELTA);
+		assertEquals(6f, a.drain.min, 0f);
+		assertEquals(14f, a.drain.max, 0f);
+		assertEquals(1, a.charge.count);
+		assertEquals(40f, a.charge.min, 0f);
+		assertEquals(60_000, a.chargingMs);
+		assertEquals(30_000, a.dischargingMs);
+	}
+
+	@Test
+	public void recordRoundTripsAtFixedWidth() {
+		final RollupBucket bucket = new RollupBucket();
+		bucket.reset(1_700_000_000_000L);
+		bucket.current.add(812.5);
+		bucket.current.add(1_430);
+		bucket.temperature.add(31.2);
+		bucket.addTime(true, 1_234_567);
+		final ByteBuffer bytes = ByteBuffer.allocate(RollupBucket.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+		bucket.writeTo(bytes);
+		assertEquals(RollupBucket.RECORD_BYTES, bytes.position());
+		bytes.flip();
+		final RollupBucket read = new RollupBucket();
+		read.readFrom(bytes);
+
+		assertEquals(bucket.startMillis, read.startMillis);
+		assertEquals(2, read.current.count);
+		assertEquals(2_242.5, read.current.sum, DELTA);
+		assertEquals(812.5f, read.current.min, 0f);
+		assertEquals(1_430f, read.current.max, 0f);
+		assertEquals(1, read.temperature.count);
+		assertEquals(1_234_567, read.chargingMs);
+		assertTrue(read.drain.count == 0 && read.charge.count == 0);
+	}
+
+	@Test
+	public void bucketsAlignToLocalTime() {
+		final int plusFiveThirty = (int) (5 * HOUR_MS + 30 * 60_000);
+		final long localMidnight = 20_000 * DAY_MS - plusFiveThirty;
+
+		assertEquals(localMidnight, RollupBucket.bucketStart(localMidnight + 7 * HOUR_MS, DAY_MS, plusFiveThirty));
+		assertEquals(localMidnight + 7 * HOUR_MS,
+				RollupBucket.bucketStart(localMidnight + 7 * HOUR_MS + 59 * 60_000, HOUR_MS, plusFiveThirty));
+		// The instant before local midnight still belongs to the previous day.
+		assertEquals(localMidnight - DAY_MS, RollupBucket.bucketStart(localMidnight - 1, DAY_MS, plusFiveThirty));
+	}
+}
@@ -0,0 +1,98 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.os.BatteryManager;
+
+import com.almothafar.simplebatterynotifier.model.LevelLadder;
+import com.almothafar.simplebatterynotifier.model.LevelThresholds;
+import com.almothafar.simplebatterynotifier.service.SamplingScheduler.Observation;
+
+import org.junit.Test;
+
+import static com.almothafar.simplebatterynotifier.service.SamplingScheduler.DENSE_DELAY_MS;
+import static com.almothafar.simplebatterynotifier.service.SamplingScheduler.IDLE_DELAY_MS;
+import static com.almothafar.simplebatterynotifier.service.SamplingScheduler.NORMAL_DELAY_MS;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link SamplingScheduler#nextDelayMillis}: dense while something is changing or an alert
+ * is close, idle when nothing can change, normal otherwise.
+ */
+public class SamplingSchedulerTest {
+
+	private static final LevelLadder LEVELS = LevelLadder.fromThresholds(new LevelThresholds(20, 40));
+	private static final int NO_TEMPERATURE_ALERT = Integer.MIN_VALUE;
+	private static final int DISCHARGING = BatteryManager.BATTERY_STATUS_DISCHARGING;
+	private static final int CHARGING = BatteryManager.BATTERY_STATUS_CHARGING;
+
+	@Test
+	public void steadyDischargeSamplesAtTheNormalCadence() {
+		final Observation previous = onBattery(60, 300, -400_000);
+
+		assertEquals(NORMAL_DELAY_MS, delay(previous, onBattery(60, 300, -420_000)));
+		assertEquals(NORMAL_DELAY_MS, delay(null, onBattery(60, 300, Integer.MIN_VALUE)));
+	}
+
+	@Test
+	public void aCurrentSwingSamplesDensely() {
+		assertEquals(DENSE_DELAY_MS, delay(onBattery(60, 300, -300_000), onBattery(60, 300, -900_000)));
+	}
+
+	@Test
+	public void aTemperatureClimbOrNearingTheAlertSamplesDensely() {
+		assertEquals(DENSE_DELAY_MS, delay(onBattery(60, 300, -400_000), onBattery(60, 306, -400_000)));
+		assertEquals(DENSE_DELAY_MS, SamplingScheduler.nextDelayMillis(null, onBattery(60, 430, -400_000), LEVELS, 45));
+		assertEquals(NORMAL_DELAY_MS, SamplingScheduler.nextDelayMillis(null, onBattery(60, 420, -400_000), LEVELS, 45));
+	}
+
+	@Test
+	public void levelsJustAboveAThresholdSampleDensely() {
+		assertEquals(DENSE_DELAY_MS, delay(null, onBattery(42, 300, -400_000)));
+		assertEquals(DENSE_DELAY_MS, delay(null, onBattery(21, 300, -400_000)));
+		// At or below the threshold the alert has already been evaluated.
+		assertEquals(NORMAL_DELAY_MS, delay(null, onBattery(40, 300, -400_000)));
+		assertEquals(NORMAL_DELAY_MS, delay(null, onBattery(43, 300, -400_000)));
+	}
+
+	@Test
+	public void everyLadderStepCountsNotJustThePrimaryPair() {
+		final LevelLadder ladder = LevelLadder.parse("60, 40, 25, 15!, 8!", "80, 90");
+
+		assertEquals(DENSE_DELAY_MS, SamplingScheduler.nextDelayMillis(null, onBattery(27, 300, -400_000), ladder, NO_TEMPERATURE_ALERT));
+		assertEquals(DENSE_DELAY_MS, SamplingScheduler.nextDelayMillis(null, onBattery(9, 300, -400_000), ladder, NO_TEMPERATURE_ALERT));
+		assertEquals(NORMAL_DELAY_MS, SamplingScheduler.nextDelayMillis(null, onBattery(30, 300, -400_000), ladder, NO_TEMPERATURE_ALERT));
+		// Charging just below a charge step.
+		assertEquals(DENSE_DELAY_MS, SamplingScheduler.nextDelayMillis(null,
+				new Observation(88, CHARGING, BatteryManager.BATTERY_PLUGGED_AC, 300, 1_500_000), ladder, NO_TEMPERATURE_ALERT));
+		assertEquals(NORMAL_DELAY_MS, SamplingScheduler.nextDelayMillis(null,
+				new Observation(85, CHARGING, BatteryManager.BATTERY_PLUGGED_AC, 300, 1_500_000), ladder, NO_TEMPERATURE_ALERT));
+	}
+
+	@Test
+	public void nearingFullOnAChargerSamplesDensely() {
+		assertEquals(DENSE_DELAY_MS, delay(null, new Observation(98, CHARGING, BatteryManager.BATTERY_PLUGGED_AC, 300, 1_500_000)));
+		assertEquals(NORMAL_DELAY_MS, delay(null, new Observation(80, CHARGING, BatteryManager.BATTERY_PLUGGED_AC, 300, 1_500_000)));
+	}
+
+	@Test
+	public void fullOnAChargerBacksOff() {
+		assertEquals(IDLE_DELAY_MS, delay(null, new Observation(100, BatteryManager.BATTERY_STATUS_FULL, BatteryManager.BATTERY_PLUGGED_USB, 300, 0)));
+		// Even a swing while topping off doesn't matter once full.
+		assertEquals(IDLE_DELAY_MS, delay(new Observation(100, CHARGING, BatteryManager.BATTERY_PLUGGED_AC, 300, 600_000),
+				new Observation(100, CHARGING, BatteryManager.BATTERY_PLUGGED_AC, 300, 0)));
+	}
+
+	@Test
+	public void deepIdleOnBatteryBacksOff() {
+		assertEquals(IDLE_DELAY_MS, delay(onBattery(60, 300, -20_000), onBattery(60, 300, -15_000)));
+		// ...unless something an alert watches is close.
+		assertEquals(DENSE_DELAY_MS, delay(onBattery(41, 300, -20_000), onBattery(41, 300, -15_000)));
+	}
+
+	private static long delay(Observation previous, Observation now) {
+		return SamplingScheduler.nextDelayMillis(previous, now, LEVELS, NO_TEMPERATURE_ALERT);
+	}
+
+	private static Observation onBattery(int level, int temperatureTenthsC, int currentMicroAmps) {
+		return new Observation(level, DISCHARGING, 0, temperatureTenthsC, currentMicroAmps);
+	}
+}
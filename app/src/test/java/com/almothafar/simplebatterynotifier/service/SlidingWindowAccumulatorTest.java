@@ -0,0 +1,134 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link SlidingWindowAccumulator}. The property test replays seeded random sequences of
+ * appends, trims (including backwards clock jumps) and clears against a plain list that recomputes
+ * everything from scratch — the list-based window it replaced — and checks they agree after every step.
+ */
+public class SlidingWindowAccumulatorTest {
+
+	private static final int NO_VALUE = Integer.MIN_VALUE;
+	private static final IntPredicate COUNTED = value -> value != NO_VALUE;
+
+	@Test
+	public void matchesListReferenceUnderRandomOperations() {
+		for (int seed = 0; seed < 200; seed++) {
+			final Random random = new Random(seed);
+			final int capacity = 1 + random.nextInt(12);
+			final long windowMs = 10_000L * (1 + random.nextInt(10));
+			final SlidingWindowAccumulator window = new SlidingWindowAccumulator(capacity, COUNTED);
+			final List<long[]> reference = new ArrayList<>();
+			long now = 0;
+
+			for (int step = 0; step < 300; step++) {
+				final String where = "seed " + seed + " step " + step;
+				final int op = random.nextInt(10);
+				if (op < 6) {
+					now += random.nextInt(15_000);
+					final int value = random.nextInt(8) == 0 ? NO_VALUE : random.nextInt(4_000_001) - 2_000_000;
+					window.append(now, value);
+					reference.add(new long[]{now, value});
+					if (reference.size() > capacity) {
+						reference.remove(0);
+					}
+				} else if (op < 9) {
+					// Mostly forward; now and then a clock jump backwards past the newest samples.
+					now = random.nextInt(6) == 0 ? Math.max(0, now - random.nextInt(60_000)) : now + random.nextInt(20_000);
+					final int before = reference.size();
+					trimReference(reference, now, windowMs);
+					assertEquals(where, before != reference.size(), window.trimToWindow(now, windowMs));
+				} else if (random.nextInt(10) == 0) {
+					window.clear();
+					reference.clear();
+				}
+				assertAgrees(where, reference, window);
+			}
+		}
+	}
+
+	@Test
+	public void averageHonoursMinimumCountAndSpan() {
+		final SlidingWindowAccumulator window = new SlidingWindowAccumulator(8, COUNTED);
+		window.append(0, -300);
+		window.append(15_000, NO_VALUE);
+		window.append(30_000, -200);
+
+		assertEquals(-250, window.average(2, 30_000));
+		assertEquals(SlidingWindowAccumulator.NO_AVERAGE, window.average(3, 0));
+		assertEquals(SlidingWindowAccumulator.NO_AVERAGE, window.average(2, 30_001));
+	}
+
+	@Test
+	public void restoredBoundsRebuildTheAggregate() {
+		final SlidingWindowAccumulator original = new SlidingWindowAccumulator(4, COUNTED);
+		for (int i = 0; i < 6; i++) {
+			original.append(i * 1000L, i == 4 ? NO_VALUE : i * 10);
+		}
+		final SlidingWindowAccumulator restored = new SlidingWindowAccumulator(4, COUNTED);
+		for (int slot = 0; slot < 4; slot++) {
+			restored.restoreSlot(slot, original.timeAtSlot(slot), original.valueAtSlot(slot));
+		}
+		restored.restoreBounds(original.head(), original.size());
+
+		assertEquals(original.sum(), restored.sum());
+		assertEquals(original.count(), restored.count());
+		assertEquals(original.firstTime(), restored.firstTime());
+	}
+
+	@Test
+	public void emptyWindowHasNoAverage() {
+		final SlidingWindowAccumulator window = new SlidingWindowAccumulator(4);
+
+		assertTrue(window.isEmpty());
+		assertEquals(SlidingWindowAccumulator.NO_AVERAGE, window.average(0, 0));
+		assertFalse(window.trimToWindow(0, 1000));
+	}
+
+	private static void trimReference(List<long[]> reference, long now, long windowMs) {
+		while (!reference.isEmpty() && reference.get(reference.size() - 1)[0] > now) {
+			reference.remove(reference.size() - 1);
+		}
+		while (!reference.isEmpty() && reference.get(0)[0] < now - windowMs) {
+			reference.remove(0);
+		}
+	}
+
+	private static void assertAgrees(String where, List<long[]> reference, SlidingWindowAccumulator window) {
+		assertEquals(where, reference.size(), window.size());
+		long sum = 0;
+		int count = 0;
+		for (final long[] sample : reference) {
+			if (COUNTED.test((int) sample[1])) {
+				sum += sample[1];
+				count++;
+			}
+		}
+		assertEquals(where, sum, window.sum());
+		assertEquals(where, count, window.count());
+		if (reference.isEmpty()) {
+			return;
+		}
+		final long first = reference.get(0)[0];
+		final long last = reference.get(reference.size() - 1)[0];
+		assertEquals(where, first, window.firstTime());
+		assertEquals(where, last, window.lastTime());
+		final int expectedAverage = count == 0 ? SlidingWindowAccumulator.NO_AVERAGE : (int) Math.round((double) sum / count);
+		assertEquals(where, expectedAverage, window.average(1, 0));
+		for (int i = 0; i < reference.size(); i++) {
+			final int slot = window.physical(i);
+			assertEquals(where, reference.get(i)[0], window.timeAtSlot(slot));
+			assertEquals(where, reference.get(i)[1], window.valueAtSlot(slot));
+		}
+	}
+}
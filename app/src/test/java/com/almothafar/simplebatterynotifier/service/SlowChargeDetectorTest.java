@@ -1,21 +1,24 @@
 package com.almothafar.simplebatterynotifier.service;
 
+import com.almothafar.simplebatterynotifier.service.AlertRuleSet.Readings;
 import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Outcome;
 import com.almothafar.simplebatterynotifier.service.SustainedConditionTracker.Streak;
 
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
- * Unit tests for the pure slow-charge decision core {@link SlowChargeDetector#decide} (issue #123),
+ * Unit tests for the slow-charge alert (issue #123), the built-in {@link AlertRule#slowCharge} rule,
  * unchanged as the behaviour contract after the shared engine was extracted (#163): the
  * sustained-below-floor trigger, the once-per-session guarantee, the re-arm-on-recovery hysteresis, and
  * the observation-gap lapse rule. Power in mW; times in millis. The streak's {@code lastSeen} sits close
  * to "now" where the scenario implies continuous observation — in production every below-floor tick
- * refreshes it.
+ * refreshes it. The power fed to it is averaged first ({@link SustainedConditionTracker.AveragedReading}).
  */
 public class SlowChargeDetectorTest {
 
@@ -31,7 +34,7 @@ public class SlowChargeDetectorTest {
 	@Test
 	public void powerUnknown_sleepsAndKeepsStreak() {
 		final Streak state = new Streak(1000, true, 2000);
-		final Outcome d = SlowChargeDetector.decide(state, false, 0, FLOOR_MW, SUSTAINED_MS, 999_999);
+		final Outcome d = decide(state, false, 0, 999_999);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(state, d.newState()); // untouched
@@ -40,7 +43,7 @@ public class SlowChargeDetectorTest {
 	@Test
 	public void powerAtOrAboveFloor_reArmsSession() {
 		final Streak state = new Streak(1000, true, 2000);
-		final Outcome d = SlowChargeDetector.decide(state, true, HEALTHY_MW, FLOOR_MW, SUSTAINED_MS, 500_000);
+		final Outcome d = decide(state, true, HEALTHY_MW, 500_000);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(CLEARED, d.newState());
@@ -49,13 +52,13 @@ public class SlowChargeDetectorTest {
 	@Test
 	public void floorIsInclusiveHealthy_exactlyAtFloorReArms() {
 		// At the floor counts as healthy (re-arm); one milliwatt below starts a slow streak.
-		assertEquals(CLEARED, SlowChargeDetector.decide(CLEARED, true, FLOOR_MW, FLOOR_MW, SUSTAINED_MS, 1000).newState());
-		assertEquals(1000, SlowChargeDetector.decide(CLEARED, true, FLOOR_MW - 1, FLOOR_MW, SUSTAINED_MS, 1000).newState().start());
+		assertEquals(CLEARED, decide(CLEARED, true, FLOOR_MW, 1000).newState());
+		assertEquals(1000, decide(CLEARED, true, FLOOR_MW - 1, 1000).newState().start());
 	}
 
 	@Test
 	public void belowFloor_startsStreakButDoesNotFireYet() {
-		final Outcome d = SlowChargeDetector.decide(CLEARED, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, 1000);
+		final Outcome d = decide(CLEARED, true, SLOW_MW, 1000);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(1000, d.newState().start());
@@ -67,7 +70,7 @@ public class SlowChargeDetectorTest {
 	public void streakNotYetSustained_doesNotFire() {
 		final Streak state = new Streak(1000, false, 1000);
 		final long now = 1000 + 2 * MINUTE_MS; // 2 min in, sustained window is 3
-		final Outcome d = SlowChargeDetector.decide(state, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, now);
+		final Outcome d = decide(state, true, SLOW_MW, now);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(1000, d.newState().start());     // start preserved
@@ -79,7 +82,7 @@ public class SlowChargeDetectorTest {
 	public void sustained_firesTheOneWarning() {
 		final Streak state = new Streak(1000, false, 1000);
 		final long now = 1000 + SUSTAINED_MS;
-		final Outcome d = SlowChargeDetector.decide(state, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, now);
+		final Outcome d = decide(state, true, SLOW_MW, now);
 
 		assertTrue(d.shouldNotify());
 		assertTrue(d.newState().alerted());
@@ -91,7 +94,7 @@ public class SlowChargeDetectorTest {
 		final long start = 1000;
 		final long now = start + SUSTAINED_MS + 20 * MINUTE_MS; // long after the warning
 		final Streak state = new Streak(start, true, now - MINUTE_MS);
-		final Outcome d = SlowChargeDetector.decide(state, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, now);
+		final Outcome d = decide(state, true, SLOW_MW, now);
 
 		assertFalse(d.shouldNotify()); // once per charge session — no reminders
 		assertTrue(d.newState().alerted());
@@ -100,17 +103,17 @@ public class SlowChargeDetectorTest {
 	@Test
 	public void reArmedSession_canWarnAgainLater() {
 		// Power recovers (charge fixed), then collapses again in a later session and warns once more.
-		final Outcome recovered = SlowChargeDetector.decide(
-				new Streak(1000, true, 1000), true, HEALTHY_MW, FLOOR_MW, SUSTAINED_MS, 400_000);
+		final Outcome recovered = decide(
+				new Streak(1000, true, 1000), true, HEALTHY_MW, 400_000);
 		assertEquals(CLEARED, recovered.newState());
 
-		final Outcome restart = SlowChargeDetector.decide(
-				recovered.newState(), true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, 500_000);
+		final Outcome restart = decide(
+				recovered.newState(), true, SLOW_MW, 500_000);
 		assertFalse(restart.shouldNotify());
 		assertEquals(500_000, restart.newState().start());
 
-		final Outcome reAlert = SlowChargeDetector.decide(
-				restart.newState(), true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, 500_000 + SUSTAINED_MS);
+		final Outcome reAlert = decide(
+				restart.newState(), true, SLOW_MW, 500_000 + SUSTAINED_MS);
 		assertTrue(reAlert.shouldNotify());
 	}
 
@@ -123,7 +126,7 @@ public class SlowChargeDetectorTest {
 		final long lastSeen = 1000 + MINUTE_MS;
 		final Streak state = new Streak(1000, false, lastSeen);
 		final long now = lastSeen + SustainedConditionTracker.MAX_OBSERVATION_GAP_MS + 1;
-		final Outcome d = SlowChargeDetector.decide(state, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, now);
+		final Outcome d = decide(state, true, SLOW_MW, now);
 
 		assertFalse(d.shouldNotify());
 		assertEquals(now, d.newState().start());   // fresh episode
@@ -135,14 +138,14 @@ public class SlowChargeDetectorTest {
 		final long alertedAt = 1000 + SUSTAINED_MS;
 		final Streak state = new Streak(1000, true, alertedAt);
 		final long now = alertedAt + SustainedConditionTracker.MAX_OBSERVATION_GAP_MS + 1;
-		final Outcome lapsed = SlowChargeDetector.decide(state, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, now);
+		final Outcome lapsed = decide(state, true, SLOW_MW, now);
 
 		assertFalse(lapsed.shouldNotify());
 		assertEquals(now, lapsed.newState().start());
 		assertFalse(lapsed.newState().alerted()); // new episode: the warning is re-armed
 
-		final Outcome reAlert = SlowChargeDetector.decide(
-				lapsed.newState(), true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, now + SUSTAINED_MS);
+		final Outcome reAlert = decide(
+				lapsed.newState(), true, SLOW_MW, now + SUSTAINED_MS);
 		assertTrue(reAlert.shouldNotify());
 	}
 
@@ -153,10 +156,23 @@ public class SlowChargeDetectorTest {
 		final long atBoundary = lastSeen + SustainedConditionTracker.MAX_OBSERVATION_GAP_MS;
 		final Streak state = new Streak(1000, false, lastSeen);
 
-		final Outcome continued = SlowChargeDetector.decide(state, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, atBoundary);
+		final Outcome continued = decide(state, true, SLOW_MW, atBoundary);
 		assertEquals(1000, continued.newState().start()); // preserved
 
-		final Outcome lapsed = SlowChargeDetector.decide(state, true, SLOW_MW, FLOOR_MW, SUSTAINED_MS, atBoundary + 1);
+		final Outcome lapsed = decide(state, true, SLOW_MW, atBoundary + 1);
 		assertEquals(atBoundary + 1, lapsed.newState().start()); // restarted
 	}
+
+	/**
+	 * One tick of the rule from its slot in a compiled set, as {@link AlertRules} decides it: charging,
+	 * the averaged power measured only when known.
+	 */
+	private static Outcome decide(Streak state, boolean powerKnown, int milliwatts, long nowMillis) {
+		final AlertRuleSet rules = AlertRuleSet.compile(List.of(AlertRule.highTemperature(false, 0),
+				AlertRule.fastDrain(false, 0, 0, 0), AlertRule.slowCharge(true)));
+		final int[] values = new int[AlertRule.Metric.values().length];
+		values[AlertRule.Metric.SLOW_CHARGE_POWER.ordinal()] = milliwatts;
+		final Readings readings = new Readings(values, powerKnown ? Readings.bit(AlertRule.Metric.SLOW_CHARGE_POWER) : 0, true, true);
+		return rules.decide(AlertRuleSet.SLOW_CHARGE, readings, state, nowMillis, false);
+	}
 }
@@ -99,6 +99,40 @@ public class SustainedConditionTrackerTest {
 		}
 	}
 
+	/** {@link SustainedConditionTracker.AveragedReading}: the trailing mean a condition is judged on. */
+	public static class Averaging {
+
+		private static final long WINDOW_MS = 60_000L;
+
+		@Test
+		public void oneNoisyReadingBarelyMovesTheMean() {
+			// 1.5 W every 6 s for a minute, then a single 10 W spike: the mean stays under a 2.5 W floor.
+			final SustainedConditionTracker.AveragedReading power = new SustainedConditionTracker.AveragedReading(32, WINDOW_MS);
+			for (int i = 0; i < 10; i++) {
+				power.fold(true, 1_500, i * 6_000L);
+			}
+
+			assertTrue(power.fold(true, 10_000, WINDOW_MS) < 2_500);
+		}
+
+		@Test
+		public void unknownReadingsAgeTheWindowOut() {
+			final SustainedConditionTracker.AveragedReading power = new SustainedConditionTracker.AveragedReading(32, WINDOW_MS);
+			power.fold(true, 1_500, 0);
+
+			assertEquals(SlidingWindowAccumulator.NO_AVERAGE, power.fold(false, 0, WINDOW_MS + 1));
+		}
+
+		@Test
+		public void clearEndsTheSession() {
+			final SustainedConditionTracker.AveragedReading power = new SustainedConditionTracker.AveragedReading(32, WINDOW_MS);
+			power.fold(true, 1_500, 0);
+			power.clear();
+
+			assertEquals(4_000, power.fold(true, 4_000, 1_000));
+		}
+	}
+
 	/** {@link StreakStore}: round-trip, the reminder-less variant, the churn-guarded clear, and upgrade safety. */
 	@RunWith(RobolectricTestRunner.class)
 	@Config(sdk = 34)
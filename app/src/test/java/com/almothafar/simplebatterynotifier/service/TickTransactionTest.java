@@ -0,0 +1,113 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric tests for {@link TickTransaction}: writes inside a tick are visible through the view at
+ * once but reach the real file only when the tick ends, in one flush per file, and every behaviour
+ * outside a tick is unchanged.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TickTransactionTest {
+
+	private SharedPreferences real;
+
+	@Before
+	public void setUp() {
+		final Context context = ApplicationProvider.getApplicationContext();
+		real = context.getSharedPreferences("tick_test", Context.MODE_PRIVATE);
+	}
+
+	@After
+	public void tearDown() {
+		// A failed assertion mid-tick must not leak the tick into the next test on this thread.
+		while (TickTransaction.wrap(real) != real) {
+			TickTransaction.end();
+		}
+	}
+
+	@Test
+	public void outsideATickWritesGoStraightThrough() {
+		final SharedPreferences prefs = TickTransaction.wrap(real);
+
+		assertSame(real, prefs);
+		prefs.edit().putInt("a", 1).apply();
+		assertEquals(1, real.getInt("a", 0));
+	}
+
+	@Test
+	public void writesAreReadableInTheTickAndFlushedOnceAtItsEnd() {
+		real.edit().putInt("kept", 7).putBoolean("gone", true).apply();
+		final long requestedBefore = TickTransaction.requestedWrites();
+		final long savedBefore = TickTransaction.savedWrites();
+
+		TickTransaction.begin();
+		final SharedPreferences prefs = TickTransaction.wrap(real);
+		prefs.edit().putInt("a", 1).apply();
+		prefs.edit().putLong("b", 2L).remove("gone").apply();
+		prefs.edit().putInt("a", 3).apply();
+
+		// Read-your-writes through the view; the real file is untouched until the tick ends.
+		assertEquals(3, prefs.getInt("a", 0));
+		assertEquals(2L, prefs.getLong("b", 0L));
+		assertFalse(prefs.contains("gone"));
+		assertEquals(7, prefs.getInt("kept", 0));
+		assertFalse(real.contains("a"));
+		TickTransaction.end();
+
+		assertEquals(3, real.getInt("a", 0));
+		assertEquals(2L, real.getLong("b", 0L));
+		assertFalse(real.contains("gone"));
+		assertEquals(7, real.getInt("kept", 0));
+		assertEquals(3, TickTransaction.requestedWrites() - requestedBefore);
+		assertEquals(2, TickTransaction.savedWrites() - savedBefore);
+	}
+
+	@Test
+	public void clearHidesTheFileUntilRewritten() {
+		real.edit().putInt("old", 1).apply();
+
+		TickTransaction.begin();
+		final SharedPreferences prefs = TickTransaction.wrap(real);
+		prefs.edit().clear().putInt("new", 2).apply();
+
+		assertFalse(prefs.contains("old"));
+		assertEquals(-1, prefs.getInt("old", -1));
+		assertEquals(2, prefs.getInt("new", 0));
+		TickTransaction.end();
+
+		assertFalse(real.contains("old"));
+		assertEquals(2, real.getInt("new", 0));
+	}
+
+	@Test
+	public void commitFlushesImmediatelyAndNestedTicksJoinTheOuter() {
+		TickTransaction.begin();
+		TickTransaction.begin();
+		final SharedPreferences prefs = TickTransaction.wrap(real);
+		TickTransaction.end(); // inner end: still inside the outer tick
+		prefs.edit().putInt("deferred", 1).apply();
+		assertFalse(real.contains("deferred"));
+
+		assertTrue(prefs.edit().putInt("now", 2).commit());
+		assertEquals(2, real.getInt("now", 0));
+		assertEquals(1, real.getInt("deferred", 0));
+		TickTransaction.end();
+	}
+}
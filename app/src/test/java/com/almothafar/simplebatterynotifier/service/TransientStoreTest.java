@@ -0,0 +1,148 @@
+package com.almothafar.simplebatterynotifier.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric tests for {@link TransientStore}: values survive a reload (a new process), the legacy XML
+ * migrates exactly once, a record with a bad checksum is dropped without touching its neighbours, removes
+ * behave like the XML file, apply() writes in the background, and keys outside the schema are ignored.
+ * Each test gets a fresh application, so the files dir starts empty.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TransientStoreTest {
+
+	private static final String STREAK_START = TransientStore.Field.FAST_DRAIN_STREAK_START.key;
+	private static final String ALERTED = TransientStore.Field.FAST_DRAIN_ALERTED.key;
+	private static final String AVERAGE_MAH = TransientStore.Field.CAPACITY_AVERAGE_MAH.key;
+	private static final String SAMPLE_COUNT = TransientStore.Field.CAPACITY_SAMPLE_COUNT.key;
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+	}
+
+	@Test
+	public void valuesSurviveAReload() {
+		TransientStore.get(context).edit()
+		              .putLong(STREAK_START, 1_700_000_000_000L)
+		              .putBoolean(ALERTED, true)
+		              .putFloat(AVERAGE_MAH, 4321.5f)
+		              .putInt(SAMPLE_COUNT, 7)
+		              .commit();
+
+		final SharedPreferences reloaded = reload();
+
+		assertEquals(1_700_000_000_000L, reloaded.getLong(STREAK_START, 0));
+		assertTrue(reloaded.getBoolean(ALERTED, false));
+		assertEquals(4321.5f, reloaded.getFloat(AVERAGE_MAH, 0f), 0f);
+		assertEquals(7, reloaded.getInt(SAMPLE_COUNT, 0));
+	}
+
+	@Test
+	public void legacyXmlMigratesOnceAndKeysAreRemoved() {
+		TransientState.legacyPrefs(context).edit()
+		              .putLong(STREAK_START, 123L)
+		              .putInt(SAMPLE_COUNT, 3)
+		              .putString(RateWindowStore.LEGACY_PREF_RATE_SAMPLES, "1:50:0")
+		              .commit();
+
+		final SharedPreferences store = TransientStore.get(context);
+
+		assertEquals(123L, store.getLong(STREAK_START, 0));
+		assertEquals(3, store.getInt(SAMPLE_COUNT, 0));
+		assertFalse(TransientState.legacyPrefs(context).contains(STREAK_START));
+		// Keys outside the schema are left for their own migration.
+		assertTrue(TransientState.legacyPrefs(context).contains(RateWindowStore.LEGACY_PREF_RATE_SAMPLES));
+		assertTrue(new File(context.getFilesDir(), TransientStore.FILE_NAME).exists());
+	}
+
+	@Test
+	public void corruptRecordIsDroppedAndOthersKept() throws IOException {
+		TransientStore.get(context).edit()
+		              .putLong(STREAK_START, 99L)
+		              .putInt(SAMPLE_COUNT, 5)
+		              .commit();
+		// Flip a byte inside the fast-drain record's first slot, as a torn in-place write would.
+		try (RandomAccessFile raf = new RandomAccessFile(new File(context.getFilesDir(), TransientStore.FILE_NAME), "rw")) {
+			final long at = TransientStore.Field.FAST_DRAIN_STREAK_START.offset();
+			raf.seek(at);
+			final int original = raf.read();
+			raf.seek(at);
+			raf.write(original ^ 0xFF);
+		}
+
+		final SharedPreferences reloaded = reload();
+
+		assertFalse(reloaded.contains(STREAK_START));
+		assertEquals(5, reloaded.getInt(SAMPLE_COUNT, 0));
+	}
+
+	@Test
+	public void removeClearsPresence() {
+		final SharedPreferences store = TransientStore.get(context);
+		store.edit().putLong(STREAK_START, 42L).commit();
+		store.edit().remove(STREAK_START).commit();
+
+		final SharedPreferences reloaded = reload();
+
+		assertFalse(reloaded.contains(STREAK_START));
+		assertEquals(-1L, reloaded.getLong(STREAK_START, -1L));
+	}
+
+	@Test
+	public void applyIsVisibleAtOnceAndWrittenInTheBackground() throws Exception {
+		final SharedPreferences store = TransientStore.get(context);
+		store.edit().putLong(STREAK_START, 42L).apply();
+		store.edit().putInt(SAMPLE_COUNT, 3).apply();
+
+		assertEquals(42L, store.getLong(STREAK_START, 0));
+		TransientStore.awaitWrites();
+		final SharedPreferences reloaded = reload();
+		assertEquals(42L, reloaded.getLong(STREAK_START, 0));
+		assertEquals(3, reloaded.getInt(SAMPLE_COUNT, 0));
+	}
+
+	@Test
+	public void keysOutsideTheSchemaAndWrongTypesAreIgnored() {
+		final SharedPreferences store = TransientStore.get(context);
+
+		// Dropped without throwing, and without taking the rest of the edit down with them.
+		assertTrue(store.edit()
+		                .putLong("_not_in_schema", 1L)
+		                .putInt(STREAK_START, 1)
+		                .remove("_not_in_schema")
+		                .putBoolean(ALERTED, true)
+		                .commit());
+
+		assertFalse(store.contains("_not_in_schema"));
+		assertFalse(store.contains(STREAK_START));
+		assertTrue(store.getBoolean(ALERTED, false));
+	}
+
+	/**
+	 * Loads the store from disk as a new process would.
+	 */
+	private SharedPreferences reload() {
+		return TransientStore.load(context);
+	}
+}
@@ -101,6 +101,22 @@ public class AppPrefsTest {
 			assertEquals(AppPrefs.MAX_DRAIN_LIMIT_PPH, AppPrefs.drainLimitPph(context));
 		}
 
+		@Test
+		public void significanceMargins_defaultWhenUnsetAndClampStoredValues() {
+			assertEquals(AppPrefs.DEFAULT_JITTER_TEMPERATURE_C, AppPrefs.jitterTemperatureC(context));
+			assertEquals(AppPrefs.DEFAULT_JITTER_CURRENT_MA, AppPrefs.jitterCurrentMilliAmps(context));
+			assertEquals(AppPrefs.DEFAULT_FULL_EVALUATION_SECONDS, AppPrefs.fullEvaluationSeconds(context));
+
+			PreferenceManager.getDefaultSharedPreferences(context).edit()
+			                 .putInt(context.getString(R.string._pref_key_jitter_temperature), 99)
+			                 .putInt(context.getString(R.string._pref_key_jitter_current), 0)
+			                 .putInt(context.getString(R.string._pref_key_full_evaluation_interval), -5)
+			                 .apply();
+			assertEquals(AppPrefs.MAX_JITTER_TEMPERATURE_C, AppPrefs.jitterTemperatureC(context));
+			assertEquals(AppPrefs.MIN_JITTER_CURRENT_MA, AppPrefs.jitterCurrentMilliAmps(context));
+			assertEquals(AppPrefs.MIN_FULL_EVALUATION_SECONDS, AppPrefs.fullEvaluationSeconds(context));
+		}
+
 		@Test
 		public void vibrateEnabled_defaultsTrueAndReadsBack() {
 			// Defaults on (matches the switch's android:defaultValue in pref_behaviour.xml).
@@ -143,6 +159,48 @@ public class AppPrefsTest {
 			assertEquals(AppPrefs.DEFAULT_CRITICAL_LEVEL, (int) xmlCritical);
 			assertEquals(AppPrefs.DEFAULT_WARNING_LEVEL, (int) xmlWarning);
 		}
+
+		/** The same guard for the significance gate's sliders: default, min and max each. */
+		@Test
+		public void xmlSignificanceSliders_matchTheFacadeConstants() throws Exception {
+			assertSlider(R.string._pref_key_jitter_temperature, AppPrefs.DEFAULT_JITTER_TEMPERATURE_C,
+					AppPrefs.MIN_JITTER_TEMPERATURE_C, AppPrefs.MAX_JITTER_TEMPERATURE_C);
+			assertSlider(R.string._pref_key_jitter_current, AppPrefs.DEFAULT_JITTER_CURRENT_MA,
+					AppPrefs.MIN_JITTER_CURRENT_MA, AppPrefs.MAX_JITTER_CURRENT_MA);
+			assertSlider(R.string._pref_key_full_evaluation_interval, AppPrefs.DEFAULT_FULL_EVALUATION_SECONDS,
+					AppPrefs.MIN_FULL_EVALUATION_SECONDS, AppPrefs.MAX_FULL_EVALUATION_SECONDS);
+		}
+
+		private void assertSlider(int keyRes, int defaultValue, int min, int max) throws Exception {
+			final String key = context.getString(keyRes);
+			final XmlResourceParser parser = context.getResources().getXml(R.xml.pref_alerts);
+			for (int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+				if (event != XmlPullParser.START_TAG || !"SeekBarPreference".equals(parser.getName())) {
+					continue;
+				}
+				Integer xmlDefault = null;
+				Integer xmlMin = null;
+				Integer xmlMax = null;
+				boolean matches = false;
+				for (int i = 0; i < parser.getAttributeCount(); i++) {
+					switch (parser.getAttributeNameResource(i)) {
+						case android.R.attr.key -> matches = key.equals(context.getString(parser.getAttributeResourceValue(i, 0)));
+						case android.R.attr.defaultValue -> xmlDefault = parser.getAttributeIntValue(i, Integer.MIN_VALUE);
+						case android.R.attr.min -> xmlMin = parser.getAttributeIntValue(i, Integer.MIN_VALUE);
+						case android.R.attr.max -> xmlMax = parser.getAttributeIntValue(i, Integer.MIN_VALUE);
+						default -> {
+						}
+					}
+				}
+				if (matches) {
+					assertEquals(Integer.valueOf(defaultValue), xmlDefault);
+					assertEquals(Integer.valueOf(min), xmlMin);
+					assertEquals(Integer.valueOf(max), xmlMax);
+					return;
+				}
+			}
+			throw new AssertionError(key + " slider missing from pref_alerts.xml");
+		}
 	}
 
 	/**